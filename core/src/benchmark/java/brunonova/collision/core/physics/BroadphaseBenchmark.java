@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import brunonova.collision.core.Constants;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark of the broadphase grids with balls of increasingly different
+ * sizes.
+ * <p>For each size spread (ratio between the largest and the smallest
+ * radius), the same balls are put in a {@link UniformGrid} (with cells as
+ * large as the largest ball) and in a {@link HierarchicalGrid}, and every
+ * overlapping pair is found. The balls are like the ones of the "Swarm" mode:
+ * the maximum number of them, in a world of the size of the window, mostly
+ * small with a few large ones.</p>
+ * <p>Run with {@code ./gradlew core:benchmarkBroadphase}.</p>
+ */
+public class BroadphaseBenchmark {
+    /** Number of balls. */
+    private static final int BALLS = Constants.SWARM_MAX_ENEMY_BALLS;
+    /** Radius of the smallest balls. */
+    private static final float MIN_RADIUS = Constants.SWARM_ENEMY_MIN_RADIUS;
+    /** Size spreads to test. */
+    private static final int[] SPREADS = {1, 2, 4, 8, 16, 32, 64};
+    /** Width and height of the world. */
+    private static final float SIDE = Constants.WINDOW_WIDTH;
+    /** Number of untimed ticks run before measuring. */
+    private static final int WARM_UP_TICKS = 1000;
+    /** Number of timed ticks. */
+    private static final int TICKS = 200;
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%d balls in %.0fx%.0f", BALLS, SIDE, SIDE));
+        System.out.println("spread   coverage   uniform (ms/tick, candidates)   hierarchical (ms/tick, candidates)   "
+                + "pairs");
+        for(int spread: SPREADS) {
+            run(spread);
+        }
+    }
+
+    /**
+     * Runs the benchmark with a size spread and prints the results.
+     * @param spread Ratio between the largest and the smallest radius.
+     */
+    private static void run(int spread) {
+        // Create the balls, with the same size distribution of the game
+        Random random = new Random(spread);
+        float[] x = new float[BALLS], y = new float[BALLS], radius = new float[BALLS];
+        double area = 0;
+        for(int i = 0; i < BALLS; i++) {
+            double exponent = Math.pow(random.nextDouble(), Constants.SWARM_ENEMY_SIZE_SKEW);
+            radius[i] = MIN_RADIUS * (float) Math.pow(spread, exponent);
+            x[i] = radius[i] + random.nextFloat() * (SIDE - 2 * radius[i]);
+            y[i] = radius[i] + random.nextFloat() * (SIDE - 2 * radius[i]);
+            area += Math.PI * radius[i] * radius[i];
+        }
+
+        UniformGrid uniform = new UniformGrid(SIDE, SIDE, MIN_RADIUS * spread);
+        HierarchicalGrid hierarchical = new HierarchicalGrid(SIDE, SIDE, MIN_RADIUS, MIN_RADIUS * spread);
+        long[] uniformResult = measure(() -> uniformTick(uniform, x, y, radius));
+        long[] hierarchicalResult = measure(() -> hierarchicalTick(hierarchical, x, y, radius));
+        if(uniformResult[2] != hierarchicalResult[2]) {
+            throw new IllegalStateException("The grids found different pairs: "
+                    + uniformResult[2] + " and " + hierarchicalResult[2]);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%6dx   %7.0f%%   %10.3f %12d         %10.3f %12d   %12d",
+                spread, area / (SIDE * SIDE) * 100, uniformResult[0] / 1e6, uniformResult[1],
+                hierarchicalResult[0] / 1e6, hierarchicalResult[1], hierarchicalResult[2]));
+    }
+
+    /**
+     * Runs a tick several times, and measures its average duration.
+     * @param tick The tick, returning the number of candidates and pairs.
+     * @return The average duration (nanoseconds), the number of candidates
+     *         and the number of pairs.
+     */
+    private static long[] measure(Tick tick) {
+        long[] counts = null;
+        for(int i = 0; i < WARM_UP_TICKS; i++) {
+            counts = tick.run();
+        }
+        long start = System.nanoTime();
+        for(int i = 0; i < TICKS; i++) {
+            counts = tick.run();
+        }
+        long duration = (System.nanoTime() - start) / TICKS;
+        return new long[] {duration, counts[0], counts[1]};
+    }
+
+    /**
+     * Finds the overlapping pairs with a uniform grid.
+     * @return The number of candidates and of overlapping pairs.
+     */
+    private static long[] uniformTick(UniformGrid grid, float[] x, float[] y, float[] radius) {
+        long candidates = 0, pairs = 0;
+        grid.build(x, y, BALLS);
+        for(int i = 0; i < BALLS; i++) {
+            int found = grid.query(x[i], y[i], radius[i]);
+            for(int k = 0; k < found; k++) {
+                int j = grid.getResult(k);
+                if(j <= i) continue;
+                candidates++;
+                if(overlaps(x, y, radius, i, j)) pairs++;
+            }
+        }
+        return new long[] {candidates, pairs};
+    }
+
+    /**
+     * Finds the overlapping pairs with a hierarchical grid.
+     * @return The number of candidates and of overlapping pairs.
+     */
+    private static long[] hierarchicalTick(HierarchicalGrid grid, float[] x, float[] y, float[] radius) {
+        long candidates = 0, pairs = 0;
+        grid.build(x, y, radius, BALLS);
+        for(int i = 0; i < BALLS; i++) {
+            int found = grid.queryPairs(i);
+            for(int k = 0; k < found; k++) {
+                candidates++;
+                if(overlaps(x, y, radius, i, grid.getResult(k))) pairs++;
+            }
+        }
+        return new long[] {candidates, pairs};
+    }
+
+    /**
+     * Returns whether two balls overlap.
+     * @return {@code true} if the balls overlap.
+     */
+    private static boolean overlaps(float[] x, float[] y, float[] radius, int a, int b) {
+        float dx = x[a] - x[b], dy = y[a] - y[b], r = radius[a] + radius[b];
+        return dx * dx + dy * dy < r * r;
+    }
+
+
+    /**
+     * A benchmarked tick.
+     */
+    private interface Tick {
+        long[] run();
+    }
+}
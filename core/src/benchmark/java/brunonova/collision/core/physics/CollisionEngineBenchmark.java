@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import brunonova.collision.core.Constants;
+import brunonova.collision.core.enums.Difficulty;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark of the collision engines with an increasing number of balls.
+ * <p>For each number of balls, the same balls are moved by the
+ * {@link SteppedEngine} and by the {@link EventDrivenEngine} for some seconds
+ * at 60 ticks per second. The balls are like the ones of the "Swarm" mode, in
+ * a world of the size of the window, and start without overlapping.</p>
+ * <p>Besides the time per tick, it measures the accuracy of each engine: the
+ * number of collisions resolved (the stepped engine misses the collisions of
+ * balls that pass through each other between ticks), the average number of
+ * overlapping pairs after each tick (the event-driven engine should have none)
+ * and the drift of the total kinetic energy (which perfectly elastic
+ * collisions keep constant).</p>
+ * <p>Then, to tune the {@link NeighbourList} of the stepped engine, it measures
+ * the stepped engine with several skin times: how often the list is rebuilt,
+ * how many balls are refreshed and how many pairs are tested per tick.</p>
+ * <p>Run with {@code ./gradlew core:benchmarkEngines}.</p>
+ */
+public class CollisionEngineBenchmark {
+    /** Numbers of balls to test. */
+    private static final int[] BALLS = {50, 200, 800, Constants.SWARM_MAX_ENEMY_BALLS};
+    /** Radius of the smallest balls. */
+    private static final float MIN_RADIUS = Constants.SWARM_ENEMY_MIN_RADIUS;
+    /** Radius of the largest balls. */
+    private static final float MAX_RADIUS = Constants.SWARM_ENEMY_MAX_RADIUS;
+    /** Width and height of the world. */
+    private static final float SIDE = Constants.WINDOW_WIDTH;
+    /** Duration of a tick. */
+    private static final float DELTA = 1 / 60f;
+    /** Number of untimed ticks run before measuring. */
+    private static final int WARM_UP_TICKS = 1000;
+    /** Number of timed ticks. */
+    private static final int TICKS = 600;
+    /** Skin times of the neighbour list to test (in ticks). */
+    private static final int[] SKIN_TICKS = {0, 2, 3, 5, 8, 12};
+    /** Numbers of balls to test the skin times with. */
+    private static final int[] SKIN_BALLS = {800, Constants.SWARM_MAX_ENEMY_BALLS};
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%.0fx%.0f world, %d ticks of %.1f ms",
+                SIDE, SIDE, TICKS, DELTA * 1000));
+        System.out.println(" balls   coverage   engine         ms/tick   collisions/s   overlaps/tick   energy drift");
+        for(int balls: BALLS) {
+            run(balls);
+        }
+
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "Neighbour list of the stepped engine (default skin time: %.1f ticks)",
+                SteppedEngine.DEFAULT_SKIN_TIME / DELTA));
+        System.out.println(" balls   skin time (ticks)   ms/tick   collisions/s   rebuilds   refreshes/tick   "
+                + "pairs tested/tick");
+        for(int balls: SKIN_BALLS) {
+            for(int ticks: SKIN_TICKS) {
+                runSkin(balls, ticks * DELTA);
+            }
+        }
+    }
+
+    /**
+     * Runs the stepped engine with a skin time of the neighbour list and
+     * prints the results.
+     * @param count Number of balls.
+     * @param skinTime The skin time.
+     */
+    private static void runSkin(int count, float skinTime) {
+        SteppedEngine engine = new SteppedEngine(SIDE, SIDE, MIN_RADIUS, MAX_RADIUS, skinTime);
+        double[] result = measure(engine, count);
+        NeighbourList neighbours = engine.getNeighbours();  // (warm-up ticks included)
+        System.out.println(String.format(Locale.ROOT, "%6d %19.0f %9.3f %14.0f %9.0f%% %16.1f %19.0f", count,
+                skinTime / DELTA, result[0], result[1], neighbours.getRebuilds() * 100.0 / neighbours.getUpdates(),
+                neighbours.getRefreshes() / (double) neighbours.getUpdates(),
+                neighbours.getPairsTested() / (double) neighbours.getUpdates()));
+    }
+
+    /**
+     * Runs the benchmark with a number of balls and prints the results.
+     * @param count Number of balls.
+     */
+    private static void run(int count) {
+        double area = 0;
+        BallSystem balls = createBalls(count);
+        for(int i = 0; i < count; i++) {
+            area += Math.PI * balls.getRadius(i) * balls.getRadius(i);
+        }
+
+        double[] stepped = measure(new SteppedEngine(SIDE, SIDE, MIN_RADIUS, MAX_RADIUS), count);
+        double[] eventDriven = measure(new EventDrivenEngine(SIDE, SIDE, MIN_RADIUS, MAX_RADIUS), count);
+        System.out.println(String.format(Locale.ROOT, "%6d   %7.0f%%   %-12s %10.3f %14.0f %15.2f %13.4f%%",
+                count, area / (SIDE * SIDE) * 100, "stepped", stepped[0], stepped[1], stepped[2], stepped[3]));
+        System.out.println(String.format(Locale.ROOT, "%6s   %8s   %-12s %10.3f %14.0f %15.2f %13.4f%%",
+                "", "", "event-driven", eventDriven[0], eventDriven[1], eventDriven[2], eventDriven[3]));
+    }
+
+    /**
+     * Moves the balls with an engine, and measures its speed and accuracy.
+     * @param engine The engine.
+     * @param count Number of balls.
+     * @return The average duration of a tick (milliseconds), the number of
+     *         collisions per second, the average number of overlapping pairs
+     *         after each tick and the relative drift of the kinetic energy.
+     */
+    private static double[] measure(CollisionEngine engine, int count) {
+        // Warm up with other balls (the same every time)
+        BallSystem balls = createBalls(count);
+        for(int i = 0; i < WARM_UP_TICKS; i++) {
+            engine.advance(balls, DELTA, null);
+        }
+
+        balls = createBalls(count);
+        HierarchicalGrid grid = new HierarchicalGrid(SIDE, SIDE, MIN_RADIUS, MAX_RADIUS);
+        double startEnergy = balls.getKineticEnergy();
+        long startCollisions = engine.getCollisions();
+        long overlaps = 0;
+        long duration = 0;
+        for(int i = 0; i < TICKS; i++) {
+            long start = System.nanoTime();
+            engine.advance(balls, DELTA, null);
+            duration += System.nanoTime() - start;
+            overlaps += countOverlaps(balls, grid);
+        }
+        double drift = (balls.getKineticEnergy() - startEnergy) / startEnergy;
+
+        return new double[] {duration / 1e6 / TICKS, (engine.getCollisions() - startCollisions) / (TICKS * DELTA),
+                             overlaps / (double) TICKS, drift * 100};
+    }
+
+    /**
+     * Creates the balls, with the same size and speed distributions of the
+     * "Swarm" mode, without overlapping each other.
+     * @param count Number of balls.
+     * @return The balls (always the same for the same number of balls).
+     */
+    private static BallSystem createBalls(int count) {
+        Random random = new Random(count);
+        float[] x = new float[count], y = new float[count], radius = new float[count];
+        for(int i = 0; i < count; i++) {
+            double exponent = Math.pow(random.nextDouble(), Constants.SWARM_ENEMY_SIZE_SKEW);
+            radius[i] = MIN_RADIUS * (float) Math.pow(MAX_RADIUS / MIN_RADIUS, exponent);
+        }
+
+        // Place the largest balls first, while there's room for them, each in
+        // a free place (the grid has the balls placed so far)
+        Arrays.sort(radius);
+        for(int i = 0; i < count / 2; i++) {
+            float r = radius[i];
+            radius[i] = radius[count - 1 - i];
+            radius[count - 1 - i] = r;
+        }
+        BallSystem balls = new BallSystem(SIDE, SIDE);
+        HierarchicalGrid grid = new HierarchicalGrid(SIDE, SIDE, MIN_RADIUS, MAX_RADIUS);
+        for(int i = 0; i < count; i++) {
+            grid.build(x, y, radius, i);
+            do {
+                x[i] = radius[i] + random.nextFloat() * (SIDE - 2 * radius[i]);
+                y[i] = radius[i] + random.nextFloat() * (SIDE - 2 * radius[i]);
+            } while(overlapsAny(x, y, radius, i, grid));
+
+            float speed = Difficulty.EASY.getEnemySpeed() * Constants.SWARM_ENEMY_SPEED_FACTOR
+                    * (float) Math.sqrt(MIN_RADIUS / radius[i]);
+            float angle = random.nextFloat() * (float) Math.PI * 2;
+            int ball = balls.add(x[i], y[i], radius[i], radius[i] * radius[i]);
+            balls.setSpeed(ball, (float) Math.cos(angle) * speed, (float) Math.sin(angle) * speed);
+            balls.setEnabled(ball, true);
+        }
+        return balls;
+    }
+
+    /**
+     * Returns whether a ball overlaps any of the balls in a grid.
+     * @return {@code true} if it overlaps another ball.
+     */
+    private static boolean overlapsAny(float[] x, float[] y, float[] radius, int ball, HierarchicalGrid grid) {
+        int found = grid.query(x[ball], y[ball], radius[ball]);
+        for(int k = 0; k < found; k++) {
+            int other = grid.getResult(k);
+            float dx = x[ball] - x[other], dy = y[ball] - y[other], r = radius[ball] + radius[other];
+            if(dx * dx + dy * dy < r * r) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts the pairs of balls that overlap (by more than a rounding error).
+     * @return The number of overlapping pairs.
+     */
+    private static int countOverlaps(BallSystem balls, HierarchicalGrid grid) {
+        int pairs = 0;
+        grid.build(balls.x, balls.y, balls.radius, balls.size());
+        for(int i = 0; i < balls.size(); i++) {
+            int found = grid.queryPairs(i);
+            for(int k = 0; k < found; k++) {
+                int j = grid.getResult(k);
+                float dx = balls.getX(i) - balls.getX(j), dy = balls.getY(i) - balls.getY(j);
+                float r = (balls.getRadius(i) + balls.getRadius(j)) * 0.999f;
+                if(dx * dx + dy * dy < r * r) pairs++;
+            }
+        }
+        return pairs;
+    }
+}
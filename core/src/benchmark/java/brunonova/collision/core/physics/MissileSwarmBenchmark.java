@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import brunonova.collision.core.Constants;
+import brunonova.collision.core.enums.Difficulty;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark of the steering of the missile swarms ({@link MissileSwarm}).
+ * <p>For each number of missiles, the missiles are launched from a corner of
+ * the world and chase a target that circles around its center, for some
+ * seconds at 60 ticks per second, alone and among as many enemy balls as the
+ * "Swarm" mode has. The cost per missile should stay about the same as the
+ * number of missiles grows, since each missile only looks at its
+ * neighbours.</p>
+ * <p>Run with {@code ./gradlew core:benchmarkMissiles}.</p>
+ */
+public class MissileSwarmBenchmark {
+    /** Numbers of missiles to test. */
+    private static final int[] MISSILES = {100, 1000, 4000};
+    /** Numbers of enemy balls to test. */
+    private static final int[] BALLS = {0, Constants.SWARM_MAX_ENEMY_BALLS};
+    /** Width and height of the world. */
+    private static final float SIDE = Constants.WINDOW_WIDTH;
+    /** Duration of a tick. */
+    private static final float DELTA = 1 / 60f;
+    /** Number of untimed ticks run before measuring. */
+    private static final int WARM_UP_TICKS = 120;
+    /** Number of timed ticks. */
+    private static final int TICKS = 600;
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%d ticks of %.1f ms, %.0fx%.0f world", TICKS,
+                DELTA * 1000, SIDE, SIDE));
+        System.out.println("missiles   balls   ms/tick   us/missile");
+        for(int missiles: MISSILES) {
+            for(int balls: BALLS) {
+                double[] result = measure(missiles, balls);
+                System.out.println(String.format(Locale.ROOT, "%8d %7d %9.3f %12.3f", missiles, balls,
+                        result[0], result[1]));
+            }
+        }
+    }
+
+    /**
+     * Moves a swarm and measures its speed.
+     * @param missiles Number of missiles.
+     * @param ballCount Number of enemy balls.
+     * @return The average duration of a tick (milliseconds) and of the
+     *         steering of a missile (microseconds).
+     */
+    private static double[] measure(int missiles, int ballCount) {
+        Random random = new Random(missiles);
+        BallSystem balls = createBalls(ballCount, random);
+        CollisionEngine engine = new SteppedEngine(SIDE, SIDE, Constants.SWARM_ENEMY_MIN_RADIUS,
+                                                   Constants.SWARM_ENEMY_MAX_RADIUS);
+        MissileSwarm swarm = new MissileSwarm(SIDE, SIDE, Constants.MISSILE_SWARM_RADIUS,
+                Constants.SWARM_ENEMY_MIN_RADIUS, Constants.SWARM_ENEMY_MAX_RADIUS);
+        float duration = (WARM_UP_TICKS + TICKS) * DELTA + 1;
+        for(int i = 0; i < missiles; i++) {
+            float x = Constants.MISSILE_SWARM_LAUNCH_RADIUS * (1 + random.nextFloat());
+            float y = Constants.MISSILE_SWARM_LAUNCH_RADIUS * (1 + random.nextFloat());
+            swarm.add(x, y, (float) Math.PI / 4, duration);
+        }
+
+        long time = 0;
+        for(int i = 0; i < WARM_UP_TICKS + TICKS; i++) {
+            // The enemy balls move too, but only the missiles are timed
+            if(ballCount > 0) engine.advance(balls, DELTA, null);
+            float angle = i * DELTA;
+            float targetX = SIDE / 2 + (float) Math.cos(angle) * SIDE / 3;
+            float targetY = SIDE / 2 + (float) Math.sin(angle) * SIDE / 3;
+            long start = System.nanoTime();
+            swarm.advance(DELTA, targetX, targetY, Difficulty.EASY.getMissileSpeed(), balls);
+            if(i >= WARM_UP_TICKS) time += System.nanoTime() - start;
+        }
+        return new double[] {time / 1e6 / TICKS, time / 1e3 / TICKS / missiles};
+    }
+
+    /**
+     * Creates the enemy balls, with the same size and speed distributions of
+     * the "Swarm" mode, at random positions (they may overlap at first).
+     * @param count Number of balls.
+     * @param random The random number generator.
+     * @return The balls.
+     */
+    private static BallSystem createBalls(int count, Random random) {
+        float minRadius = Constants.SWARM_ENEMY_MIN_RADIUS;
+        float maxRadius = Constants.SWARM_ENEMY_MAX_RADIUS;
+        BallSystem balls = new BallSystem(SIDE, SIDE);
+        for(int i = 0; i < count; i++) {
+            double exponent = Math.pow(random.nextDouble(), Constants.SWARM_ENEMY_SIZE_SKEW);
+            float radius = minRadius * (float) Math.pow(maxRadius / minRadius, exponent);
+            float x = radius + random.nextFloat() * (SIDE - 2 * radius);
+            float y = radius + random.nextFloat() * (SIDE - 2 * radius);
+            float speed = Difficulty.EASY.getEnemySpeed() * Constants.SWARM_ENEMY_SPEED_FACTOR
+                    * (float) Math.sqrt(minRadius / radius);
+            float angle = random.nextFloat() * (float) Math.PI * 2;
+            int ball = balls.add(x, y, radius, radius * radius);
+            balls.setSpeed(ball, (float) Math.cos(angle) * speed, (float) Math.sin(angle) * speed);
+            balls.setEnabled(ball, true);
+        }
+        return balls;
+    }
+}
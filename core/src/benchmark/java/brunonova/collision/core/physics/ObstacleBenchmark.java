@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import brunonova.collision.core.Constants;
+import brunonova.collision.core.enums.Difficulty;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark of the static obstacles of the arenas ({@link Obstacles}).
+ * <p>For each number of obstacles (rectangles, circles and segments at random
+ * positions), the same balls are moved by each collision engine for some
+ * seconds at 60 ticks per second, bouncing off the obstacles. The time of a
+ * tick should barely grow with the number of obstacles, since each ball only
+ * visits the few boxes of the tree near it.</p>
+ * <p>Run with {@code ./gradlew core:benchmarkObstacles}.</p>
+ */
+public class ObstacleBenchmark {
+    /** Numbers of obstacles to test. */
+    private static final int[] OBSTACLES = {0, 100, 1000, 10000};
+    /** Number of balls. */
+    private static final int BALLS = Constants.SWARM_MAX_ENEMY_BALLS;
+    /** Width and height of the world. */
+    private static final float SIDE = 3000;
+    /** Radius of the smallest balls. */
+    private static final float MIN_RADIUS = Constants.SWARM_ENEMY_MIN_RADIUS;
+    /** Radius of the largest balls. */
+    private static final float MAX_RADIUS = Constants.SWARM_ENEMY_MAX_RADIUS;
+    /** Duration of a tick. */
+    private static final float DELTA = 1 / 60f;
+    /** Number of untimed ticks run before measuring. */
+    private static final int WARM_UP_TICKS = 120;
+    /** Number of timed ticks. */
+    private static final int TICKS = 600;
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%d balls, %d ticks of %.1f ms, %.0fx%.0f world", BALLS,
+                TICKS, DELTA * 1000, SIDE, SIDE));
+        System.out.println("obstacles   engine          ms/tick   collisions/s   build ms");
+        for(int obstacles: OBSTACLES) {
+            for(int engine = 0; engine < 2; engine++) {
+                CollisionEngine collisionEngine = engine == 0
+                        ? new SteppedEngine(SIDE, SIDE, MIN_RADIUS, MAX_RADIUS)
+                        : new EventDrivenEngine(SIDE, SIDE, MIN_RADIUS, MAX_RADIUS);
+                double[] result = measure(collisionEngine, obstacles);
+                System.out.println(String.format(Locale.ROOT, "%9d   %-14s %8.3f %14.0f %10.2f", obstacles,
+                        engine == 0 ? "stepped" : "event-driven", result[0], result[1], result[2]));
+            }
+        }
+    }
+
+    /**
+     * Moves the balls with an engine among some obstacles, and measures its
+     * speed.
+     * @param engine The engine.
+     * @param count Number of obstacles.
+     * @return The average duration of a tick (milliseconds), the number of
+     *         collisions per second and the time to build the tree of the
+     *         obstacles (milliseconds).
+     */
+    private static double[] measure(CollisionEngine engine, int count) {
+        Random random = new Random(count);
+        long buildStart = System.nanoTime();
+        Obstacles obstacles = createObstacles(count, random);
+        double build = (System.nanoTime() - buildStart) / 1e6;
+        BallSystem balls = createBalls(obstacles, random);
+
+        for(int i = 0; i < WARM_UP_TICKS; i++) {
+            engine.advance(balls, DELTA, null);
+        }
+        long startCollisions = engine.getCollisions();
+        long start = System.nanoTime();
+        for(int i = 0; i < TICKS; i++) {
+            engine.advance(balls, DELTA, null);
+        }
+        long duration = System.nanoTime() - start;
+        return new double[] {duration / 1e6 / TICKS, (engine.getCollisions() - startCollisions) / (TICKS * DELTA),
+                             build};
+    }
+
+    /**
+     * Creates the obstacles, at random positions, and builds their tree.
+     * @param count Number of obstacles.
+     * @param random The random number generator.
+     * @return The obstacles.
+     */
+    private static Obstacles createObstacles(int count, Random random) {
+        Obstacles obstacles = new Obstacles();
+        for(int i = 0; i < count; i++) {
+            float x = random.nextFloat() * SIDE;
+            float y = random.nextFloat() * SIDE;
+            switch(i % 3) {
+                case 0:
+                    obstacles.addRectangle(x, y, 5 + random.nextFloat() * 30, 5 + random.nextFloat() * 30);
+                    break;
+                case 1:
+                    obstacles.addCircle(x, y, 4 + random.nextFloat() * 16);
+                    break;
+                default:
+                    obstacles.addSegment(x, y, x + random.nextFloat() * 80 - 40, y + random.nextFloat() * 80 - 40);
+            }
+        }
+        obstacles.build();
+        return obstacles;
+    }
+
+    /**
+     * Creates the balls, with the same size and speed distributions of the
+     * "Swarm" mode, at random positions out of the obstacles (they may
+     * overlap each other at first).
+     * @param obstacles The obstacles.
+     * @param random The random number generator.
+     * @return The balls.
+     */
+    private static BallSystem createBalls(Obstacles obstacles, Random random) {
+        BallSystem balls = new BallSystem(SIDE, SIDE);
+        balls.setObstacles(obstacles);
+        while(balls.size() < BALLS) {
+            double exponent = Math.pow(random.nextDouble(), Constants.SWARM_ENEMY_SIZE_SKEW);
+            float radius = MIN_RADIUS * (float) Math.pow(MAX_RADIUS / MIN_RADIUS, exponent);
+            float x = radius + random.nextFloat() * (SIDE - 2 * radius);
+            float y = radius + random.nextFloat() * (SIDE - 2 * radius);
+            if(obstacles.overlaps(x, y, radius)) continue;
+            float speed = Difficulty.EASY.getEnemySpeed() * Constants.SWARM_ENEMY_SPEED_FACTOR
+                    * (float) Math.sqrt(MIN_RADIUS / radius);
+            float angle = random.nextFloat() * (float) Math.PI * 2;
+            int ball = balls.add(x, y, radius, radius * radius);
+            balls.setSpeed(ball, (float) Math.cos(angle) * speed, (float) Math.sin(angle) * speed);
+            balls.setEnabled(ball, true);
+        }
+        return balls;
+    }
+}
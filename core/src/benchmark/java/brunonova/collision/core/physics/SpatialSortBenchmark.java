@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import brunonova.collision.core.Constants;
+import brunonova.collision.core.enums.Difficulty;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark of the sorting of the balls by position
+ * ({@link BallSystem#sortByPosition()}), with many more balls than the
+ * "Swarm" mode has.
+ * <p>For each number of balls, the same balls are moved by each collision
+ * engine for some seconds at 60 ticks per second: once in the order they were
+ * added (random positions, like the enemy balls of the game) and once sorted
+ * along a Z-order curve, periodically sorted again as the game does (the time
+ * of the sorts is included). The world is larger the more balls there are,
+ * so the balls are as crowded as in the "Swarm" mode.</p>
+ * <p>Java can't read the cache-miss counters of the processor, so the
+ * locality of the balls is measured instead: the percentage of the pairs of
+ * balls near each other (the ones the engines compare) whose indices are more
+ * than a cache line apart in the arrays of the balls. Each of these pairs
+ * likely misses the cache when the engine reads the state of the second
+ * ball.</p>
+ * <p>Run with {@code ./gradlew core:benchmarkSort}.</p>
+ */
+public class SpatialSortBenchmark {
+    /** Numbers of balls to test. */
+    private static final int[] BALLS = {10000, 100000};
+    /** Radius of the smallest balls. */
+    private static final float MIN_RADIUS = Constants.SWARM_ENEMY_MIN_RADIUS;
+    /** Radius of the largest balls. */
+    private static final float MAX_RADIUS = Constants.SWARM_ENEMY_MAX_RADIUS;
+    /** Duration of a tick. */
+    private static final float DELTA = 1 / 60f;
+    /** Number of untimed ticks run before measuring (they also spread the balls). */
+    private static final int WARM_UP_TICKS = 60;
+    /** Number of timed ticks. */
+    private static final int TICKS = 240;
+    /** Number of ticks between two sorts (the same as in the game). */
+    private static final int SORT_TICKS = Math.round(Constants.ENEMY_SORT_INTERVAL / DELTA);
+    /** Number of balls in a cache line of the arrays of floats. */
+    private static final int BALLS_PER_CACHE_LINE = 64 / 4;
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.ROOT, "%d ticks of %.1f ms, sorted every %d ticks",
+                TICKS, DELTA * 1000, SORT_TICKS));
+        System.out.println(" balls   world       engine         order      ms/tick   collisions/s   "
+                + "far pairs   ms/sort");
+        for(int balls: BALLS) {
+            run(balls);
+        }
+    }
+
+    /**
+     * Runs the benchmark with a number of balls and prints the results.
+     * @param count Number of balls.
+     */
+    private static void run(int count) {
+        float side = Constants.WINDOW_WIDTH * (float) Math.sqrt(count / (double) Constants.SWARM_MAX_ENEMY_BALLS);
+        String world = String.format(Locale.ROOT, "%.0fx%.0f", side, side);
+        for(int engine = 0; engine < 2; engine++) {
+            for(int sorted = 0; sorted < 2; sorted++) {
+                CollisionEngine collisionEngine = engine == 0
+                        ? new SteppedEngine(side, side, MIN_RADIUS, MAX_RADIUS)
+                        : new EventDrivenEngine(side, side, MIN_RADIUS, MAX_RADIUS);
+                double[] result = measure(collisionEngine, count, side, sorted == 1);
+                System.out.println(String.format(Locale.ROOT, "%6d   %-11s %-14s %-9s %8.2f %14.0f %10.1f%% %9.2f",
+                        count, world, engine == 0 ? "stepped" : "event-driven", sorted == 1 ? "Z-order" : "spawn",
+                        result[0], result[1], result[2], result[3]));
+            }
+        }
+    }
+
+    /**
+     * Moves the balls with an engine, and measures its speed and the
+     * locality of the balls.
+     * @param engine The engine.
+     * @param count Number of balls.
+     * @param side Width and height of the world.
+     * @param sorted Whether to sort the balls by position.
+     * @return The average duration of a tick (milliseconds), the number of
+     *         collisions per second, the percentage of far pairs (at the end)
+     *         and the average duration of a sort (milliseconds).
+     */
+    private static double[] measure(CollisionEngine engine, int count, float side, boolean sorted) {
+        BallSystem balls = createBalls(count, side);
+        for(int i = 0; i < WARM_UP_TICKS; i++) {
+            if(sorted && i % SORT_TICKS == 0) balls.sortByPosition();
+            engine.advance(balls, DELTA, null);
+        }
+
+        long startCollisions = engine.getCollisions();
+        long duration = 0;
+        long sortDuration = 0;
+        int sorts = 0;
+        for(int i = 0; i < TICKS; i++) {
+            long start = System.nanoTime();
+            engine.advance(balls, DELTA, null);
+            long sortStart = System.nanoTime();
+            if(sorted && i % SORT_TICKS == SORT_TICKS - 1) {
+                balls.sortByPosition();
+                sorts++;
+            }
+            long end = System.nanoTime();
+            duration += end - start;
+            sortDuration += end - sortStart;
+        }
+
+        return new double[] {duration / 1e6 / TICKS, (engine.getCollisions() - startCollisions) / (TICKS * DELTA),
+                             farPairs(balls, side) * 100, sorts > 0 ? sortDuration / 1e6 / sorts : 0};
+    }
+
+    /**
+     * Returns the fraction of the pairs of balls near each other whose
+     * indices are more than a cache line apart.
+     * @param balls The balls.
+     * @param side Width and height of the world.
+     * @return The fraction of far pairs.
+     */
+    private static double farPairs(BallSystem balls, float side) {
+        HierarchicalGrid grid = new HierarchicalGrid(side, side, MIN_RADIUS, MAX_RADIUS);
+        grid.build(balls.x, balls.y, balls.radius, balls.count);
+        long pairs = 0;
+        long far = 0;
+        for(int i = 0; i < balls.count; i++) {
+            int found = grid.queryPairs(i);
+            for(int k = 0; k < found; k++) {
+                pairs++;
+                if(Math.abs(grid.getResult(k) - i) >= BALLS_PER_CACHE_LINE) far++;
+            }
+        }
+        return pairs > 0 ? far / (double) pairs : 0;
+    }
+
+    /**
+     * Creates the balls, with the same size and speed distributions of the
+     * "Swarm" mode, at random positions (they may overlap at first).
+     * @param count Number of balls.
+     * @param side Width and height of the world.
+     * @return The balls (always the same for the same number of balls).
+     */
+    private static BallSystem createBalls(int count, float side) {
+        Random random = new Random(count);
+        BallSystem balls = new BallSystem(side, side);
+        for(int i = 0; i < count; i++) {
+            double exponent = Math.pow(random.nextDouble(), Constants.SWARM_ENEMY_SIZE_SKEW);
+            float radius = MIN_RADIUS * (float) Math.pow(MAX_RADIUS / MIN_RADIUS, exponent);
+            float x = radius + random.nextFloat() * (side - 2 * radius);
+            float y = radius + random.nextFloat() * (side - 2 * radius);
+            float speed = Difficulty.EASY.getEnemySpeed() * Constants.SWARM_ENEMY_SPEED_FACTOR
+                    * (float) Math.sqrt(MIN_RADIUS / radius);
+            float angle = random.nextFloat() * (float) Math.PI * 2;
+            int ball = balls.add(x, y, radius, radius * radius);
+            balls.setSpeed(ball, (float) Math.cos(angle) * speed, (float) Math.sin(angle) * speed);
+            balls.setEnabled(ball, true);
+        }
+        return balls;
+    }
+}
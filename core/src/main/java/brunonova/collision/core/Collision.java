@@ -16,10 +16,20 @@
  */
 package brunonova.collision.core;
 
+import brunonova.collision.core.assets.AssetPack;
+import brunonova.collision.core.assets.GameAssetManager;
+import brunonova.collision.core.assets.PackFileHandleResolver;
+import brunonova.collision.core.assets.ParallelAssetLoader;
+import brunonova.collision.core.assets.SoundDecoder;
+import brunonova.collision.core.audio.AudioThread;
+import brunonova.collision.core.audio.SoundMixer;
 import brunonova.collision.core.enums.Difficulty;
 import brunonova.collision.core.screens.GameScreen;
 import static brunonova.collision.core.Constants.RES_PATH;
 import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.enums.PhysicsMode;
+import brunonova.collision.core.leaderboard.LeaderboardClient;
+import brunonova.collision.core.physics.Obstacles;
 import brunonova.collision.core.screens.BaseScreen;
 import brunonova.collision.core.screens.GameOverScreen;
 import brunonova.collision.core.screens.HighScoresScreen;
@@ -28,6 +38,10 @@ import brunonova.collision.core.screens.MenuScreen;
 import brunonova.collision.core.screens.OptionsScreen;
 import brunonova.collision.core.screens.PauseScreen;
 import brunonova.collision.core.screens.QuitScreen;
+import brunonova.collision.core.screens.StatsScreen;
+import brunonova.collision.core.stats.SessionStatsStore;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Files;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
@@ -36,6 +50,7 @@ import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.assets.loaders.FileHandleResolver;
 import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
@@ -50,6 +65,9 @@ import com.badlogic.gdx.utils.I18NBundle;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.async.AsyncExecutor;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Queue;
 
 
 /**
@@ -60,20 +78,37 @@ public class Collision extends Game {
 
     private SpriteBatch batch;
     private ShapeRenderer shapeRenderer;
-    private AssetManager assetManager;
+    private GameAssetManager assetManager;
+    private ParallelAssetLoader assetLoader;
+    private SoundDecoder<?> soundDecoder = SoundDecoder.DEFAULT;
+    private AudioThread audioThread;
+    private SoundMixer soundMixer;
     private I18NBundle i18n;
     private AsyncExecutor asyncExecutor;
     private final int width;
     private final int height;
+    private int worldWidth;
+    private int worldHeight;
+    private String arena;
+    private Obstacles obstacles = new Obstacles();
+    private String dataDirectory = ".prefs/";
+    private Files.FileType dataDirectoryType = Files.FileType.External;
+    private String leaderboardHost;
+    private int leaderboardPort;
+    private LeaderboardClient leaderboard;
 
     // Options
     private Preferences preferences;
+    private PreferencesWriter preferencesWriter;
     private HighScores highScores;
+    private SessionStatsStore statsStore;
     private Difficulty difficulty;
     private GameMode gameMode;
+    private PhysicsMode physicsMode;
     private boolean showFPS;
     private float volume;
     private boolean fullScreen;
+    private boolean muted = false;
 
     // Screens
     private LoadingScreen loadingScreen;
@@ -84,6 +119,9 @@ public class Collision extends Game {
     private QuitScreen quitScreen;
     private GameOverScreen gameOverScreen;
     private HighScoresScreen highScoresScreen;
+    private StatsScreen statsScreen;
+    /** Screens to prepare in the background, one per idle frame of the menu. */
+    private final Queue<Runnable> warmUpTasks = new ArrayDeque<>();
 
     /**
      * Creates the game.
@@ -93,26 +131,66 @@ public class Collision extends Game {
     public Collision(int width, int height) {
         this.width = width;
         this.height = height;
+        this.worldWidth = width;
+        this.worldHeight = height;
     }
 
     @Override
     public void create() {
+        StartupTracer.end("LWJGL init");
+        StartupTracer.begin("Collision.create");
         batch = new SpriteBatch();
         shapeRenderer = new ShapeRenderer();
         asyncExecutor = new AsyncExecutor(5);
+        audioThread = new AudioThread();
+        audioThread.start();
+        soundMixer = new SoundMixer(audioThread);
+        preferencesWriter = new PreferencesWriter(getPreferences(), getPreferencesFile(), asyncExecutor,
+                Constants.PREFERENCES_WRITE_INTERVAL);
 
         // Load the user preferences and high scores
+        StartupTracer.begin("loadPreferences");
         loadPreferences();
+        StartupTracer.end("loadPreferences");
+        StartupTracer.begin("HighScores.loadScores");
         highScores = new HighScores(this);
+        StartupTracer.end("HighScores.loadScores");
+        if(leaderboardHost != null) {
+            // Connect to the shared leaderboard in the background
+            leaderboard = new LeaderboardClient(leaderboardHost, leaderboardPort);
+            leaderboard.start();
+            highScores.setLeaderboard(leaderboard);
+        }
+        StartupTracer.begin("SessionStatsStore.open");
+        statsStore = new SessionStatsStore(getDataDirectory().child(SessionStatsStore.DIRECTORY).file());
+        statsStore.open();
+        StartupTracer.end("SessionStatsStore.open");
+        if(arena != null) {
+            StartupTracer.begin("arena loading");
+            loadArena();
+            StartupTracer.end("arena loading");
+        }
 
         // Load the assets
         startLoadingAssets();
+        StartupTracer.end("Collision.create");
     }
 
     @Override
     public void render() {
         super.render();
 
+        // Play the sounds requested in this frame
+        soundMixer.flush();
+
+        // Write the changed preferences, if it's time to
+        preferencesWriter.update();
+
+        // While the menu is idle, prepare the next screen in the background
+        if(getScreen() == menuScreen && !warmUpTasks.isEmpty()) {
+            warmUpTasks.poll().run();
+        }
+
         // Enable or disable full screen mode when pressing F11
         if(Gdx.input.isKeyJustPressed(Input.Keys.F11)) {
             setFullScreen(!isFullScreen());
@@ -127,11 +205,25 @@ public class Collision extends Game {
 
     @Override
     public void dispose() {
+        // Play the pending sounds and stop the audio thread before the
+        // sounds are disposed
+        if(audioThread != null) audioThread.shutdown();
         super.dispose();
         if(assetManager != null) assetManager.dispose();
         if(shapeRenderer != null) shapeRenderer.dispose();
         if(batch != null) batch.dispose();
-        asyncExecutor.dispose();
+        if(preferencesWriter != null) {
+            preferencesWriter.flush();
+            Gdx.app.log(TAG, "preferences written " + preferencesWriter.getWrites() + " times ("
+                    + preferencesWriter.getAvoidedWrites() + " writes avoided)");
+        }
+        if(leaderboard != null) leaderboard.close();
+        Gdx.app.log(TAG, "sounds: " + soundMixer.getRequests() + " requested, " + soundMixer.getPlayed()
+                + " played, " + soundMixer.getMerged() + " merged, " + soundMixer.getDropped() + " dropped, "
+                + audioThread.getRejected() + " rejected by the audio thread");
+        asyncExecutor.dispose();  // waits for pending saves
+        if(highScores != null) highScores.close();
+        if(statsStore != null) statsStore.close();
     }
 
     /**
@@ -145,45 +237,132 @@ public class Collision extends Game {
         // Translate the window title and show the loading screen, while the
         // rest of the assets load
         Gdx.graphics.setTitle(t("game.title"));
+        StartupTracer.begin("LoadingScreen creation");
         loadingScreen = new LoadingScreen(this);
         setScreen(loadingScreen);
+        StartupTracer.end("LoadingScreen creation");
     }
 
     /**
      * Called when the assets have finished loading, to show the menu screen.
      */
     public void finishedLoadingAssets() {
-        // Create and show the menu screen
+        StartupTracer.end("asset loading");
+        assetLoader.logReport();
+        configureSounds();
+
+        // Create and show the menu screen (the startup ends when its first
+        // frame is rendered)
+        StartupTracer.begin("MenuScreen creation");
         menuScreen = new MenuScreen(this);
         setScreen(menuScreen);
         loadingScreen.dispose();
+        StartupTracer.end("MenuScreen creation");
+        StartupTracer.begin("first menu frame");
 
         // Switch to full screen mode if it's the user preference
         if(isFullScreen()) {
             switchToFullScreen();
         }
+
+        // Prepare the other screens in the background
+        queueWarmUpTasks();
+    }
+
+    /**
+     * Configures the priority and the voice cap of the sounds.
+     */
+    private void configureSounds() {
+        // Bounces can happen hundreds of times per second
+        soundMixer.configure(getSound("bounce.mp3"), SoundMixer.Priority.LOW, 3, 0.15f);
+        soundMixer.configure(getSound("menu_navigate.mp3"), SoundMixer.Priority.LOW, 2, 0.1f);
+        soundMixer.configure(getSound("lose.mp3"), SoundMixer.Priority.HIGH, 1, 2);
+        soundMixer.configure(getSound("high_score.mp3"), SoundMixer.Priority.HIGH, 1, 2);
+    }
+
+    /**
+     * Queues the creation of the remaining screens, and the warm-up of the
+     * game screen and of its actor pools, to be done in the idle frames of
+     * the menu.
+     * <p>Scene2d isn't thread-safe, so this is done in the render thread, one
+     * screen per frame.</p>
+     */
+    private void queueWarmUpTasks() {
+        warmUpTasks.add(() -> {
+            if(gameScreen == null) gameScreen = new GameScreen(this);
+            if(!gameScreen.isCreated()) {
+                // Run the game logic muted, then dispose the screen so the
+                // real game starts from scratch
+                setMuted(true);
+                gameScreen.warmUp(Constants.WARM_UP_TICKS, Constants.WARM_UP_ENEMY_BALLS);
+                setMuted(false);
+            }
+        });
+        warmUpTasks.add(new Runnable() {
+            @Override
+            public void run() {
+                // Create a few actors of the next games per frame, until the
+                // pools are full
+                if(!gameScreen.fillPools(Constants.WARM_UP_POOLED_ENEMY_BALLS)) {
+                    warmUpTasks.add(this);
+                }
+            }
+        });
+        warmUpTasks.add(() -> {
+            if(optionsScreen == null) optionsScreen = new OptionsScreen(this);
+            optionsScreen.prepare();
+        });
+        warmUpTasks.add(() -> {
+            if(pauseScreen == null) pauseScreen = new PauseScreen(this);
+            pauseScreen.prepare();
+        });
+        warmUpTasks.add(() -> {
+            if(quitScreen == null) quitScreen = new QuitScreen(this);
+            quitScreen.prepare();
+        });
+        warmUpTasks.add(() -> {
+            if(gameOverScreen == null) gameOverScreen = new GameOverScreen(this);
+            gameOverScreen.prepare();
+        });
+        warmUpTasks.add(() -> {
+            if(highScoresScreen == null) highScoresScreen = new HighScoresScreen(this);
+            highScoresScreen.prepare();
+        });
+        warmUpTasks.add(() -> {
+            if(statsScreen == null) statsScreen = new StatsScreen(this);
+            statsScreen.prepare();
+        });
     }
 
     /**
      * Loads all game assets.
      * <p>First, it loads the assets needed by the "Loading" screen
-     * synchronously. Then it queues all the remaining assets to be loaded later
-     * asynchronously.</p>
+     * synchronously. Then it starts decoding all the remaining assets in
+     * parallel, in the worker threads of the {@link AsyncExecutor}, to be
+     * finished by the "Loading" screen.</p>
      */
     private void loadAssets() {
-        assetManager = new AssetManager();
+        // Resolve the assets from the asset pack, if it exists (any asset
+        // missing from the pack is loaded from the internal files)
+        FileHandleResolver resolver = new PackFileHandleResolver(
+                AssetPack.open(RES_PATH + "/assets.pack"), new InternalFileHandleResolver());
+        assetManager = new GameAssetManager(resolver);
+        assetLoader = new ParallelAssetLoader(assetManager, resolver, asyncExecutor, soundDecoder);
 
         // Load i18n bundle
-        i18n = I18NBundle.createBundle(Gdx.files.internal(RES_PATH + "/i18n/Messages"));
+        i18n = I18NBundle.createBundle(resolver.resolve(RES_PATH + "/i18n/Messages"));
 
-        // Load the font needed by the "Loading" screen
-        FileHandleResolver resolver = new InternalFileHandleResolver();
+        // Load the font needed by the "Loading" screen, and block to load it
+        // synchronously
         assetManager.setLoader(FreeTypeFontGenerator.class, new FreeTypeFontGeneratorLoader(resolver));
         assetManager.setLoader(BitmapFont.class, ".ttf", new FreetypeFontLoader(resolver));
-        loadFont("font-title.ttf", "Ubuntu-B.ttf", 60);
-
-        // Block to load the previous assets synchronously
+        FreetypeFontLoader.FreeTypeFontLoaderParameter titleFont = new FreetypeFontLoader.FreeTypeFontLoaderParameter();
+        titleFont.fontFileName = RES_PATH + "/fonts/Ubuntu-B.ttf";
+        titleFont.fontParameters = createFontParameter(60);
+        StartupTracer.begin("title font");
+        assetManager.load("font-title.ttf", BitmapFont.class, titleFont);
         assetManager.finishLoading();
+        StartupTracer.end("title font");
 
         // Load the rest of the fonts
         loadFont("font-hud.ttf", "Ubuntu-M.ttf", 22);
@@ -191,23 +370,27 @@ public class Collision extends Game {
         loadFont("font-menu.ttf", "Ubuntu-M.ttf", 32);
 
         // Load images
-        assetManager.load(RES_PATH + "/images/player.png", Texture.class);
-        assetManager.load(RES_PATH + "/images/enemy.png", Texture.class);
-        assetManager.load(RES_PATH + "/images/coin.png", Texture.class);
-        assetManager.load(RES_PATH + "/images/bonus.png", Texture.class);
-        assetManager.load(RES_PATH + "/images/player_frozen.png", Texture.class);
-        assetManager.load(RES_PATH + "/images/player_invulnerable.png", Texture.class);
-        assetManager.load(RES_PATH + "/images/missile.png", Texture.class);
+        assetLoader.loadTexture(RES_PATH + "/images/player.png");
+        assetLoader.loadTexture(RES_PATH + "/images/enemy.png");
+        assetLoader.loadTexture(RES_PATH + "/images/coin.png");
+        assetLoader.loadTexture(RES_PATH + "/images/bonus.png");
+        assetLoader.loadTexture(RES_PATH + "/images/player_frozen.png");
+        assetLoader.loadTexture(RES_PATH + "/images/player_invulnerable.png");
+        assetLoader.loadTexture(RES_PATH + "/images/missile.png");
 
         // Load sounds
-        assetManager.load(RES_PATH + "/sounds/coin.mp3", Sound.class);
-        assetManager.load(RES_PATH + "/sounds/bonus_good.mp3", Sound.class);
-        assetManager.load(RES_PATH + "/sounds/bonus_bad.mp3", Sound.class);
-        assetManager.load(RES_PATH + "/sounds/lose.mp3", Sound.class);
-        assetManager.load(RES_PATH + "/sounds/high_score.mp3", Sound.class);
-        assetManager.load(RES_PATH + "/sounds/bounce.mp3", Sound.class);
-        assetManager.load(RES_PATH + "/sounds/menu_click.mp3", Sound.class);
-        assetManager.load(RES_PATH + "/sounds/menu_navigate.mp3", Sound.class);
+        assetLoader.loadSound(RES_PATH + "/sounds/coin.mp3");
+        assetLoader.loadSound(RES_PATH + "/sounds/bonus_good.mp3");
+        assetLoader.loadSound(RES_PATH + "/sounds/bonus_bad.mp3");
+        assetLoader.loadSound(RES_PATH + "/sounds/lose.mp3");
+        assetLoader.loadSound(RES_PATH + "/sounds/high_score.mp3");
+        assetLoader.loadSound(RES_PATH + "/sounds/bounce.mp3");
+        assetLoader.loadSound(RES_PATH + "/sounds/menu_click.mp3");
+        assetLoader.loadSound(RES_PATH + "/sounds/menu_navigate.mp3");
+
+        // Start decoding the assets in the background
+        StartupTracer.begin("asset loading");
+        assetLoader.start();
     }
 
     /**
@@ -218,11 +401,7 @@ public class Collision extends Game {
      * @param size The size of the font.
      */
     private void loadFont(String name, String fileName, int size) {
-        FreetypeFontLoader.FreeTypeFontLoaderParameter font = new FreetypeFontLoader.FreeTypeFontLoaderParameter();
-        font.fontFileName = RES_PATH + "/fonts/" + fileName;
-        font.fontParameters.size = size;
-        font.fontParameters.hinting = FreeTypeFontGenerator.Hinting.AutoFull;
-        assetManager.load(name, BitmapFont.class, font);
+        assetLoader.loadFont(name, RES_PATH + "/fonts/" + fileName, createFontParameter(size));
     }
 
     /**
@@ -237,14 +416,23 @@ public class Collision extends Game {
      * @param shadowOffsetY Offset of the shadow in the Y axis.
      */
     private void loadFont(String name, String fileName, int size, Color shadowColor, int shadowOffsetX, int shadowOffsetY) {
-        FreetypeFontLoader.FreeTypeFontLoaderParameter font = new FreetypeFontLoader.FreeTypeFontLoaderParameter();
-        font.fontFileName = RES_PATH + "/fonts/" + fileName;
-        font.fontParameters.size = size;
-        font.fontParameters.hinting = FreeTypeFontGenerator.Hinting.AutoFull;
-        font.fontParameters.shadowColor = shadowColor;
-        font.fontParameters.shadowOffsetX = shadowOffsetX;
-        font.fontParameters.shadowOffsetY = shadowOffsetY;
-        assetManager.load(name, BitmapFont.class, font);
+        FreeTypeFontGenerator.FreeTypeFontParameter font = createFontParameter(size);
+        font.shadowColor = shadowColor;
+        font.shadowOffsetX = shadowOffsetX;
+        font.shadowOffsetY = shadowOffsetY;
+        assetLoader.loadFont(name, RES_PATH + "/fonts/" + fileName, font);
+    }
+
+    /**
+     * Creates the parameters of a font with the specified size.
+     * @param size The size of the font.
+     * @return The parameters of the font.
+     */
+    private FreeTypeFontGenerator.FreeTypeFontParameter createFontParameter(int size) {
+        FreeTypeFontGenerator.FreeTypeFontParameter font = new FreeTypeFontGenerator.FreeTypeFontParameter();
+        font.size = size;
+        font.hinting = FreeTypeFontGenerator.Hinting.AutoFull;
+        return font;
     }
 
     /**
@@ -306,6 +494,13 @@ public class Collision extends Game {
             difficulty = Difficulty.EASY;
         }
 
+        try {
+            physicsMode = PhysicsMode.valueOf(getPreferences().getString("physicsMode", "STEPPED"));
+        } catch(IllegalArgumentException ex) {
+            Gdx.app.error(TAG, "error loading physicsMode preference", ex);
+            physicsMode = PhysicsMode.STEPPED;
+        }
+
         volume = getPreferences().getFloat("volume", 0f);
         showFPS = getPreferences().getBoolean("showFPS", false);
         fullScreen = getPreferences().getBoolean("fullScreen", false);
@@ -322,17 +517,28 @@ public class Collision extends Game {
         return preferences;
     }
 
+    /**
+     * Returns the file where the user preferences are stored.
+     * @return The preferences file, or {@code null} if the preferences aren't
+     *         stored in a file known by the game (not on the desktop).
+     */
+    private File getPreferencesFile() {
+        if(Gdx.app.getType() == Application.ApplicationType.Desktop) {
+            return getDataDirectory().child("options.xml").file();
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Saves the user preferences to disk.
+     * <p>The changes are coalesced: the preferences are written in the
+     * background at most once every
+     * {@link Constants#PREFERENCES_WRITE_INTERVAL} seconds, and when the game
+     * is closed.</p>
      */
     public void savePreferences() {
-        // Flush the preferences asynchronously, so avoid any UI freezes
-        asyncExecutor.submit(() -> {
-            synchronized(Collision.this) {
-                getPreferences().flush();
-                return true;
-            }
-        });
+        preferencesWriter.markDirty();
     }
 
     /**
@@ -355,6 +561,7 @@ public class Collision extends Game {
      */
     public void showOptionsMenu() {
         if(optionsScreen == null) optionsScreen = new OptionsScreen(this);
+        optionsScreen.updateFullScreenOption();  // may have changed with F11
         setScreen(optionsScreen);
     }
 
@@ -399,9 +606,7 @@ public class Collision extends Game {
      * Shows the High Scores screen.
      */
     public void showHighScores() {
-        if(highScoresScreen != null)  highScoresScreen.dispose();
-        highScoresScreen = new HighScoresScreen(this);
-        setScreen(highScoresScreen);
+        showHighScores(-1);
     }
 
     /**
@@ -409,11 +614,21 @@ public class Collision extends Game {
      * @param scoreIndexToHighlight The index of the score to highlight.
      */
     public void showHighScores(int scoreIndexToHighlight) {
-        if(highScoresScreen != null)  highScoresScreen.dispose();
-        highScoresScreen = new HighScoresScreen(this, scoreIndexToHighlight);
+        // The screen is reused (it updates the scores when shown)
+        if(highScoresScreen == null) highScoresScreen = new HighScoresScreen(this);
+        highScoresScreen.setScoreIndexToHighlight(scoreIndexToHighlight);
         setScreen(highScoresScreen);
     }
 
+    /**
+     * Shows the Statistics screen.
+     */
+    public void showStats() {
+        // The screen is reused (it updates the statistics when shown)
+        if(statsScreen == null) statsScreen = new StatsScreen(this);
+        setScreen(statsScreen);
+    }
+
     /**
      * Takes a screenshot of the viewport.
      * <p>This method should be called at the end of the {@code render()}
@@ -463,7 +678,25 @@ public class Collision extends Game {
     }
 
     /**
-     * Returns the width of the game area (original window width).
+     * Returns the loader that loads the game assets in parallel.
+     * @return The parallel asset loader.
+     */
+    public ParallelAssetLoader getAssetLoader() {
+        return assetLoader;
+    }
+
+    /**
+     * Sets the decoder used to load the sounds.
+     * <p>Must be called before the game is created. By default, the sounds are
+     * loaded with {@link SoundDecoder#DEFAULT}.</p>
+     * @param soundDecoder The sound decoder.
+     */
+    public void setSoundDecoder(SoundDecoder<?> soundDecoder) {
+        this.soundDecoder = soundDecoder;
+    }
+
+    /**
+     * Returns the width of the visible game area (original window width).
      * @return Width of the game area.
      */
     public int getWidth() {
@@ -471,13 +704,62 @@ public class Collision extends Game {
     }
 
     /**
-     * Returns the height of the game area (original window height).
+     * Returns the height of the visible game area (original window height).
      * @return Height of the game area.
      */
     public int getHeight() {
         return height;
     }
 
+    /**
+     * Returns the width of the world where the game is played (the camera
+     * follows the player if it's larger than the visible area).
+     * @return Width of the world.
+     */
+    public int getWorldWidth() {
+        return worldWidth;
+    }
+
+    /**
+     * Returns the height of the world where the game is played.
+     * @return Height of the world.
+     */
+    public int getWorldHeight() {
+        return worldHeight;
+    }
+
+    /**
+     * Sets the size of the world where the game is played (never smaller than
+     * the visible area).
+     * <p>Must be called before a game starts.</p>
+     * @param worldWidth Width of the world.
+     * @param worldHeight Height of the world.
+     */
+    public void setWorldSize(int worldWidth, int worldHeight) {
+        this.worldWidth = Math.max(width, worldWidth);
+        this.worldHeight = Math.max(height, worldHeight);
+    }
+
+    /**
+     * Sets the arena where the game is played: the name of a built-in arena
+     * (in the <i>arenas</i> directory of the resources), or the path of a
+     * JSON file with its obstacles (see {@link Obstacles}).
+     * <p>Must be called before the game is created. By default, the arena
+     * has no obstacles.</p>
+     * @param arena Name or path of the arena.
+     */
+    public void setArena(String arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Returns the static obstacles of the arena.
+     * @return The obstacles (empty if the arena has none).
+     */
+    public Obstacles getObstacles() {
+        return obstacles;
+    }
+
     /**
      * Returns the current difficulty level.
      * @return Current difficulty level.
@@ -518,6 +800,50 @@ public class Collision extends Game {
         savePreferences();
     }
 
+    /**
+     * Returns the engine used to move the enemy balls.
+     * @return Current physics mode.
+     */
+    public PhysicsMode getPhysicsMode() {
+        return physicsMode;
+    }
+
+    /**
+     * Sets the engine used to move the enemy balls (from the next game on).
+     * @param physicsMode The new physics mode.
+     */
+    public void setPhysicsMode(PhysicsMode physicsMode) {
+        this.physicsMode = physicsMode;
+
+        // Save the preference
+        getPreferences().putString("physicsMode", physicsMode.toString());
+        savePreferences();
+    }
+
+    /**
+     * Returns the name of the player used in the last high score.
+     * @return The name of the player (by default, the system user name on
+     *         the desktop).
+     */
+    public String getPlayerName() {
+        String defaultName = t("gameOver.defaultName");
+        if(Gdx.app.getType() == Application.ApplicationType.Desktop) {
+            // If on the desktop, get the system user name
+            defaultName = System.getProperty("user.name");
+        }
+        return getPreferences().getString("playerName", defaultName);
+    }
+
+    /**
+     * Sets the name of the player used in the last high score.
+     * @param name The name of the player.
+     */
+    public void setPlayerName(String name) {
+        // Save the preference
+        getPreferences().putString("playerName", name);
+        savePreferences();
+    }
+
     /**
      * Returns whether the FPS should be displayed in the game screen.
      * @return {@code true} to display the game screen.
@@ -543,7 +869,15 @@ public class Collision extends Game {
      * @return Current volume level.
      */
     public float getVolume() {
-        return volume;
+        return muted ? 0 : volume;
+    }
+
+    /**
+     * Mutes or unmutes all sounds, without changing the volume preference.
+     * @param muted Whether the sounds should be muted.
+     */
+    public void setMuted(boolean muted) {
+        this.muted = muted;
     }
 
     /**
@@ -601,6 +935,55 @@ public class Collision extends Game {
         return highScores;
     }
 
+    /**
+     * Returns the store of the statistics of the played sessions.
+     * @return The session statistics store.
+     */
+    public SessionStatsStore getStatsStore() {
+        return statsStore;
+    }
+
+    /**
+     * Sets the directory where the game data (like the high scores) is
+     * stored.
+     * <p>Must be called before the game is created. By default, it's the
+     * same as the default preferences directory of the LWJGL backend.</p>
+     * @param path Path of the directory.
+     * @param type Type of the path.
+     */
+    public void setDataDirectory(String path, Files.FileType type) {
+        this.dataDirectory = path;
+        this.dataDirectoryType = type;
+    }
+
+    /**
+     * Returns the directory where the game data is stored.
+     * @return The data directory.
+     */
+    public FileHandle getDataDirectory() {
+        return Gdx.files.getFileHandle(dataDirectory, dataDirectoryType);
+    }
+
+    /**
+     * Sets the shared leaderboard server, where the scores are also sent to.
+     * <p>Must be called before the game is created. By default, no shared
+     * leaderboard is used.</p>
+     * @param host Host name or address of the server.
+     * @param port Port of the server.
+     */
+    public void setLeaderboardServer(String host, int port) {
+        this.leaderboardHost = host;
+        this.leaderboardPort = port;
+    }
+
+    /**
+     * Returns the mixer through which all the sounds are played.
+     * @return The sound mixer.
+     */
+    public SoundMixer getSoundMixer() {
+        return soundMixer;
+    }
+
     /**
      * Returns the executor for asynchronous operations.
      * @return The asynchronous executor.
@@ -609,6 +992,23 @@ public class Collision extends Game {
         return asyncExecutor;
     }
 
+    /**
+     * Loads the obstacles of the arena, and builds their tree (only done
+     * once).
+     * <p>If the arena can't be loaded, the game is played without
+     * obstacles.</p>
+     */
+    private void loadArena() {
+        FileHandle file = new File(arena).isAbsolute() ? Gdx.files.absolute(arena) : Gdx.files.local(arena);
+        if(!file.exists()) file = Gdx.files.internal(RES_PATH + "/arenas/" + arena + ".json");
+        try {
+            obstacles = Obstacles.load(file);
+            Gdx.app.log(TAG, "Arena " + arena + ": " + obstacles.getCount() + " obstacles");
+        } catch(RuntimeException ex) {
+            Gdx.app.error(TAG, "Error loading the arena " + arena, ex);
+        }
+    }
+
     /**
      * Switches the game to full screen mode (without changing preferences).
      */
@@ -35,10 +35,57 @@ public final class Constants {
     public static final Color BACKGROUND_COLOR = new Color(0.75f, 0.75f, 0.75f, 1);
     /** The number of enemy balls present when the game starts. */
     public static final int STARTING_NUMBER_OF_ENEMY_BALLS = 3;
+    /** The number of enemy balls present when a game in "Swarm" mode starts. */
+    public static final int SWARM_STARTING_NUMBER_OF_ENEMY_BALLS = 100;
+    /** Time (seconds) between waves of enemy balls in the "Swarm" mode. */
+    public static final float SWARM_WAVE_INTERVAL = 5;
+    /** Number of enemy balls of the first wave in the "Swarm" mode. */
+    public static final int SWARM_FIRST_WAVE_SIZE = 100;
+    /** How many more enemy balls each wave has than the previous one. */
+    public static final int SWARM_WAVE_GROWTH = 50;
+    /** Maximum number of enemy balls in the "Swarm" mode. */
+    public static final int SWARM_MAX_ENEMY_BALLS = 3000;
+    /** Radius of the smallest enemy balls in the "Swarm" mode. */
+    public static final float SWARM_ENEMY_MIN_RADIUS = 1.5f;
+    /** Radius of the largest enemy balls in the "Swarm" mode. */
+    public static final float SWARM_ENEMY_MAX_RADIUS = 20;
+    /**
+     * How rare the large enemy balls are in the "Swarm" mode (the higher, the
+     * more balls are close to the minimum radius).
+     */
+    public static final float SWARM_ENEMY_SIZE_SKEW = 6;
+    /**
+     * Factor to multiply the speed of the smallest enemy balls by in the
+     * "Swarm" mode (larger balls are slower).
+     */
+    public static final float SWARM_ENEMY_SPEED_FACTOR = 0.6f;
     /** Minimum amount of time (seconds) for a new bonus to appear. */
     public static final float NEW_BONUS_MIN_TIME = 3;
     /** Maximum amount of time (seconds) for a new bonus to appear. */
     public static final float NEW_BONUS_MAX_TIME = 10;
+    /** Maximum number of bonuses in the game at the same time. */
+    public static final int MAX_BONUSES = 3;
+    /** Number of missiles created in advance (more are created if needed). */
+    public static final int POOLED_MISSILES = 4;
+    /** Number of missiles of a missile swarm. */
+    public static final int MISSILE_SWARM_SIZE = 120;
+    /** Radius of the missiles of a missile swarm. */
+    public static final float MISSILE_SWARM_RADIUS = 6;
+    /** Radius of the area the missiles of a missile swarm are launched from. */
+    public static final float MISSILE_SWARM_LAUNCH_RADIUS = 60;
+    /**
+     * Time (seconds) between two sorts of the enemy balls by position (which
+     * keeps the balls near each other also near each other in memory).
+     */
+    public static final float ENEMY_SORT_INTERVAL = 0.5f;
+    /** Number of game ticks run in the background to warm up the game screen. */
+    public static final int WARM_UP_TICKS = 300;
+    /** Number of enemy balls used to warm up the game screen. */
+    public static final int WARM_UP_ENEMY_BALLS = 20;
+    /** Number of enemy balls created for the pool in each idle frame of the menu. */
+    public static final int WARM_UP_POOLED_ENEMY_BALLS = 100;
+    /** Minimum time (seconds) between two writes of the user preferences. */
+    public static final float PREFERENCES_WRITE_INTERVAL = 2;
 
     private static final String TAG = Constants.class.getName();
     private static String version;
@@ -18,41 +18,77 @@ package brunonova.collision.core;
 
 import brunonova.collision.core.enums.Difficulty;
 import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.leaderboard.LeaderboardClient;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Preferences;
+import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Base64;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Stores the game's high scores.
- * <p>The scores are stored in the {@code scores.xml} preferences XML file.</p>
- * <p>Each line specifies the high score, with the player name and score, for a
- * specific game mode, difficulty and index (a lower index means a higher
- * score).</p>
- * <p>The key of each line is composed by the game mode, the difficulty and
- * the index, in this order and separated by underscores ('_').</p>
- * <p>The value of each line is composed by the score and the name of the
- * player, in this order and separated by a colon (':'), encoded in Base64.</p>
+ * Stores the game's scores.
+ * <p>Every score is kept, in a {@link ScoreTree} per game mode and
+ * difficulty, so the rank of a score and any page of the leaderboard can be
+ * found in O(log n) time. The best {@link #TOP_SCORES} scores are the "high
+ * scores".</p>
+ * <p>The scores are stored in the {@code scores.journal} file, in the data
+ * directory of the game (see {@link ScoreJournal}). Each new score is
+ * appended to the journal, which is compacted into a sorted snapshot when
+ * too many scores were appended after the last one.</p>
+ * <p>Older versions of the game stored the scores in the {@code scores.xml}
+ * preferences file. They are migrated to the journal if it doesn't exist
+ * yet.</p>
+ * <p>The scores can be read from any thread without locking: each tree is
+ * immutable, and replaced atomically when a score is added. The journal is
+ * written in a worker thread.</p>
+ * <p>If a shared leaderboard is used (see
+ * {@link #setLeaderboard(LeaderboardClient)}), the added scores are also sent
+ * to it.</p>
  */
 public final class HighScores {
     private static final String TAG = HighScores.class.getName();
 
-    /** Maximum number of high scores per game mode and difficulty. */
-    public static final int MAX_SCORES = 5;
+    /** Number of best scores per game mode and difficulty that are high scores. */
+    public static final int TOP_SCORES = 5;
+    /** Name of the journal file. */
+    public static final String JOURNAL_FILE = "scores.journal";
+    /** Minimum number of entries after the snapshot for the journal to be compacted. */
+    private static final int COMPACT_THRESHOLD = 1024;
 
-    /** The high scores. */
-    private Map<GameMode, Map<Difficulty, List<Score>>> highScores;
-    /** The scores Preferences object. */
-    private Preferences scoresPref;
+    /**
+     * The scores, one immutable tree per game mode and difficulty (see
+     * {@link #tableIndex(GameMode, Difficulty)}).
+     * <p>The trees are never modified. Adding a score publishes a new tree,
+     * so readers never need to lock.</p>
+     */
+    private final AtomicReferenceArray<ScoreTree> highScores =
+            new AtomicReferenceArray<>(GameMode.values().length * Difficulty.values().length);
+    /** Lock held while adding a score (readers don't need it). */
+    private final Object addLock = new Object();
+    /** Sequence number of the last added score. */
+    private long lastSequence = 0;
+    /** Scores added but not yet written to the journal, in order. */
+    private final Queue<ScoreJournal.Entry> pendingEntries = new ConcurrentLinkedQueue<>();
+    /** Lock held while reading or writing the journal. */
+    private final Object saveLock = new Object();
+    /** The journal (can only be used while holding {@link #saveLock}). */
+    private ScoreJournal journal;
+    /** Sequence number of the last score written to the journal. */
+    private long lastSavedSequence = 0;
+    /** Client of the shared leaderboard ({@code null} if not used). */
+    private volatile LeaderboardClient leaderboard;
     /** The game. */
     private final Collision game;
 
     /**
-     * Creates this object and loads the high scores.
+     * Creates this object and loads the scores.
      * @param game The game.
      */
     public HighScores(Collision game) {
@@ -61,124 +97,208 @@ public final class HighScores {
     }
 
     /**
-     * Loads the high scores from the preferences file.
+     * Loads the scores from the journal (migrating the scores from the
+     * preferences file if the journal doesn't exist yet).
      */
-    public synchronized void loadScores() {
-        // Get the scores Preferences object
-        scoresPref = Gdx.app.getPreferences("scores.xml");
-
-        // Loop through all game modes
-        highScores = new HashMap<>();
-        for(GameMode mode: GameMode.values()) {
-            Map<Difficulty, List<Score>> difficultiesMap = new HashMap<>();
-            highScores.put(mode, difficultiesMap);
+    public void loadScores() {
+        synchronized(addLock) {
+            synchronized(saveLock) {
+                List<ScoreJournal.Entry> entries;
+                long snapshotSize = 0;
+                File file = game.getDataDirectory().child(JOURNAL_FILE).file();
+                if(journal != null) journal.close();
+                journal = new ScoreJournal(file);
+                pendingEntries.clear();
 
-            // Loop through all dificulties
-            for(Difficulty difficulty: Difficulty.values()) {
-                List<Score> scoresList = new ArrayList<>();
-                difficultiesMap.put(difficulty, scoresList);
-
-                // Load all scores for this game mode and difficulty
-                for(int i = 0; i < MAX_SCORES; i++) {
-                    Score score = getScoreFromPref(mode, difficulty, i);
-                    if(score != null) {
-                        scoresList.add(score);
+                try {
+                    if(journal.exists()) {
+                        // Replay the journal
+                        entries = journal.open();
+                        snapshotSize = journal.getSnapshotSize();
                     } else {
-                        // No more scores exist for this mode and difficulty
-                        break;
+                        // Migrate the scores from the preferences file
+                        entries = loadScoresFromPref();
+                        journal.compact(entries);
+                        snapshotSize = entries.size();
+                        Gdx.app.log(TAG, "migrated " + entries.size() + " high scores to " + file);
                     }
+                } catch(IOException ex) {
+                    Gdx.app.error(TAG, "Error loading the high scores from " + file, ex);
+                    journal = null;
+                    entries = Collections.emptyList();
+                }
+
+                // Build the trees of scores
+                List<ScoreTree> trees = buildTrees(entries, (int) snapshotSize);
+                for(int i = 0; i < trees.size(); i++) {
+                    highScores.set(i, trees.get(i));
+                }
+                lastSequence = 0;
+                for(ScoreJournal.Entry entry: entries) {
+                    lastSequence = Math.max(lastSequence, entry.getSequence());
+                }
+                lastSavedSequence = lastSequence;
+
+                // Compact the journal if it has too many unsorted entries
+                if(journal != null && needsCompaction()) {
+                    compactJournal();
                 }
             }
         }
     }
 
     /**
-     * Saves the high scores into the preferences file.
+     * Writes any pending scores into the journal, and compacts it if it has
+     * grown too much.
+     * <p>Called in a worker thread after a score is added.</p>
      */
-    public synchronized void saveScores() {
-        // Clear saved high scores.
-        scoresPref.clear();
-
-        // Loop through all game modes
-        for(GameMode mode: GameMode.values()) {
-            // Loop through all dificulties
-            for(Difficulty difficulty: Difficulty.values()) {
-                List<Score> scores = getScores(mode, difficulty);
+    public void saveScores() {
+        synchronized(saveLock) {
+            if(journal == null) {
+                pendingEntries.clear();
+                return;
+            }
 
-                // Save all scores for this game mode and difficulty
-                for(int i = 0; i < scores.size(); i++) {
-                    putScoreIntoPref(mode, difficulty, i, scores.get(i));
+            // Append the pending scores, in the order they were added
+            ScoreJournal.Entry entry;
+            while((entry = pendingEntries.poll()) != null) {
+                try {
+                    journal.append(entry);
+                } catch(IOException ex) {
+                    Gdx.app.error(TAG, "Error writing the score to the journal", ex);
                 }
+                lastSavedSequence = entry.getSequence();
+            }
+
+            if(needsCompaction()) {
+                compactJournal();
             }
         }
+    }
 
-        // Write to file
-        scoresPref.flush();
+    /**
+     * Closes the journal.
+     */
+    public void close() {
+        synchronized(saveLock) {
+            if(journal != null) journal.close();
+        }
     }
 
     /**
-     * Returns the high scores for the specified game mode and difficulty.
+     * Returns the best scores for the specified game mode and difficulty.
      * @param mode The game mode.
      * @param difficulty The difficulty.
-     * @return The high scores, ordered by score, descending.
+     * @return The {@link #TOP_SCORES} best scores, ordered by score,
+     *         descending.
      */
-    public synchronized List<Score> getScores(GameMode mode, Difficulty difficulty) {
-        return highScores.get(mode).get(difficulty);
+    public List<Score> getScores(GameMode mode, Difficulty difficulty) {
+        return getScores(mode, difficulty, 0, TOP_SCORES);
     }
 
     /**
-     * Adds the specified score to the list of high scores for the specified
-     * game mode and difficulty, then saves the scores to the preferences.
+     * Returns a page of the scores for the specified game mode and
+     * difficulty.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @param from Index (rank - 1) of the first score.
+     * @param count Maximum number of scores.
+     * @return The scores, ordered by score, descending.
+     */
+    public List<Score> getScores(GameMode mode, Difficulty difficulty, int from, int count) {
+        return getTree(mode, difficulty).getRange(from, count);
+    }
+
+    /**
+     * Returns the number of scores for the specified game mode and
+     * difficulty.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @return The number of scores.
+     */
+    public int getCount(GameMode mode, Difficulty difficulty) {
+        return getTree(mode, difficulty).size();
+    }
+
+    /**
+     * Returns the rank of the specified score for the specified game mode and
+     * difficulty (1 plus the number of better scores).
      * @param mode The game mode.
      * @param difficulty The difficulty.
-     * @param name The name of the player.
      * @param score The score.
-     * @return The index in the list where this score was added, or -1 if it
-     *         wasn't added (it isn't a high score).
+     * @return The rank, starting at 1.
      */
-    public synchronized int addScore(GameMode mode, Difficulty difficulty, String name, int score) {
-        List<Score> scores = getScores(mode, difficulty);
-        Score newScore = new Score(name, score);
-        int index = -1;
-
-        // Find the first high score that is worse than this one, if any
-        for(int i = 0; i < scores.size(); i++) {
-            if(score > scores.get(i).getScore()) {
-                scores.add(i, newScore);
-                index = i;
-                break;
-            }
-        }
+    public int getRank(GameMode mode, Difficulty difficulty, int score) {
+        return getTree(mode, difficulty).countBetter(score) + 1;
+    }
 
-        // No high score is worse that this one? Then add the score to the end
-        // of the list, if possible
-        if(index < 0) {
-            // Is there still space for a new high score?
-            if(scores.size() < MAX_SCORES) {
-                scores.add(newScore);
-                index = scores.size() - 1;
-            } else {
-                // No space. This is not an high score
-                return -1;
-            }
-        }
+    /**
+     * Returns the tree with all the scores for the specified game mode and
+     * difficulty.
+     * <p>The tree is immutable, and won't change if scores are added
+     * later.</p>
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @return The tree of scores.
+     */
+    public ScoreTree getTree(GameMode mode, Difficulty difficulty) {
+        return highScores.get(tableIndex(mode, difficulty));
+    }
 
-        // Keep the list of high scores inside the limit
-        while(scores.size() > MAX_SCORES) {
-            scores.remove(scores.size() - 1);
+    /**
+     * Adds the specified score to the scores for the specified game mode and
+     * difficulty, then appends it to the journal.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @param name The name of the player.
+     * @param score The score.
+     * @return The index (rank - 1) of the score.
+     */
+    public int addScore(GameMode mode, Difficulty difficulty, String name, int score) {
+        int table = tableIndex(mode, difficulty);
+        int index;
+
+        // Publish a new tree with the score (the lock keeps the sequence
+        // numbers in the same order as the pending entries)
+        synchronized(addLock) {
+            ScoreJournal.Entry entry = new ScoreJournal.Entry(mode, difficulty, new Score(name, score), ++lastSequence);
+            ScoreTree tree = highScores.get(table);
+            index = tree.indexOf(entry);
+            highScores.set(table, tree.insert(entry));
+            pendingEntries.add(entry);
         }
 
-        // Save the scores to the preferences, asynchronously
-        if(index >= 0) {
-            game.getAsyncExecutor().submit(() -> {
-                saveScores();
-                return true;
-            });
-        }
+        // Send the score to the shared leaderboard, if any
+        LeaderboardClient client = leaderboard;
+        if(client != null) client.submit(mode, difficulty, new Score(name, score));
+
+        // Append the score to the journal, asynchronously
+        game.getAsyncExecutor().submit(() -> {
+            saveScores();
+            return true;
+        });
 
         return index;
     }
 
+    /**
+     * Sets the client of the shared leaderboard, where the added scores are
+     * also sent to.
+     * @param leaderboard The client, or {@code null} to not use a shared
+     *                    leaderboard.
+     */
+    public void setLeaderboard(LeaderboardClient leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * Returns the client of the shared leaderboard.
+     * @return The client, or {@code null} if a shared leaderboard isn't used.
+     */
+    public LeaderboardClient getLeaderboard() {
+        return leaderboard;
+    }
+
     /**
      * Returns whether the specified score can enter the table of high scores
      * (i.e. if it's high enough for the specified game mode and difficulty).
@@ -187,31 +307,140 @@ public final class HighScores {
      * @param score The score.
      * @return {@code true} if it's a high score.
      */
-    public synchronized boolean isHighScore(GameMode mode, Difficulty difficulty, int score) {
+    public boolean isHighScore(GameMode mode, Difficulty difficulty, int score) {
         if(score <= 0) {
             // A score of 0 is not an high score
             return false;
         } else {
-            List<Score> scores = getScores(mode, difficulty);
-            if(scores.size() < MAX_SCORES) {
-                // Limit of high scores not reached yet
-                return true;
+            // Check if this score would be in the top scores (after any equal
+            // scores)
+            return getTree(mode, difficulty).countAtLeast(score) < TOP_SCORES;
+        }
+    }
+
+    /**
+     * Returns whether the journal has enough unsorted entries to be
+     * compacted.
+     * <p>Must be called while holding {@link #saveLock}.</p>
+     * @return {@code true} if the journal should be compacted.
+     */
+    private boolean needsCompaction() {
+        return journal.getTailSize() > Math.max(COMPACT_THRESHOLD, journal.getSnapshotSize() / 8);
+    }
+
+    /**
+     * Rewrites the journal with a sorted snapshot of the scores.
+     * <p>Must be called while holding {@link #saveLock}.</p>
+     */
+    private void compactJournal() {
+        // The trees may already have scores that are still pending, which are
+        // left out (they'll be appended after the snapshot)
+        long maxSequence = lastSavedSequence;
+        List<ScoreJournal.Entry> entries = new ArrayList<>();
+        for(int i = 0; i < highScores.length(); i++) {
+            highScores.get(i).forEach(entry -> {
+                if(entry.getSequence() <= maxSequence) entries.add(entry);
+            });
+        }
+
+        try {
+            journal.compact(entries);
+        } catch(IOException ex) {
+            Gdx.app.error(TAG, "Error compacting the high scores journal", ex);
+        }
+    }
+
+    /**
+     * Builds the trees of scores from the entries of the journal.
+     * @param entries The entries: first the sorted snapshot, then the
+     *                entries added after it.
+     * @param snapshotSize Number of entries in the snapshot.
+     * @return The trees, indexed by {@link #tableIndex(GameMode, Difficulty)}.
+     */
+    public static List<ScoreTree> buildTrees(List<ScoreJournal.Entry> entries, int snapshotSize) {
+        int tableCount = GameMode.values().length * Difficulty.values().length;
+
+        // Group the entries of the snapshot by game mode and difficulty
+        List<List<ScoreJournal.Entry>> sorted = new ArrayList<>(tableCount);
+        for(int i = 0; i < tableCount; i++) {
+            sorted.add(new ArrayList<>());
+        }
+        for(int i = 0; i < snapshotSize; i++) {
+            ScoreJournal.Entry entry = entries.get(i);
+            sorted.get(tableIndex(entry.getMode(), entry.getDifficulty())).add(entry);
+        }
+
+        // Build each tree in O(n) (or by insertion, if the snapshot isn't
+        // sorted for some reason)
+        List<ScoreTree> trees = new ArrayList<>(tableCount);
+        for(List<ScoreJournal.Entry> tableEntries: sorted) {
+            if(ScoreTree.isSorted(tableEntries)) {
+                trees.add(ScoreTree.fromSorted(tableEntries));
             } else {
-                // Check if this score is better than the last high score
-                return score > scores.get(scores.size() - 1).getScore();
+                ScoreTree tree = ScoreTree.EMPTY;
+                for(ScoreJournal.Entry entry: tableEntries) tree = tree.insert(entry);
+                trees.add(tree);
             }
         }
+
+        // Insert the entries added after the snapshot
+        for(int i = snapshotSize; i < entries.size(); i++) {
+            ScoreJournal.Entry entry = entries.get(i);
+            int table = tableIndex(entry.getMode(), entry.getDifficulty());
+            trees.set(table, trees.get(table).insert(entry));
+        }
+        return trees;
+    }
+
+    /**
+     * Returns the index of the tree of scores of the specified game mode and
+     * difficulty.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @return The index, from 0 to the number of game modes times the number
+     *         of difficulties (exclusive).
+     */
+    public static int tableIndex(GameMode mode, Difficulty difficulty) {
+        return mode.ordinal() * Difficulty.values().length + difficulty.ordinal();
+    }
+
+    /**
+     * Loads the high scores from the preferences file used by older versions
+     * of the game.
+     * @return The high scores, as journal entries.
+     */
+    private List<ScoreJournal.Entry> loadScoresFromPref() {
+        Preferences scoresPref = Gdx.app.getPreferences("scores.xml");
+        List<ScoreJournal.Entry> entries = new ArrayList<>();
+
+        // Loop through all game modes and dificulties
+        for(GameMode mode: GameMode.values()) {
+            for(Difficulty difficulty: Difficulty.values()) {
+                // Load all scores for this game mode and difficulty
+                for(int i = 0; i < TOP_SCORES; i++) {
+                    Score score = getScoreFromPref(scoresPref, mode, difficulty, i);
+                    if(score != null) {
+                        entries.add(new ScoreJournal.Entry(mode, difficulty, score, entries.size() + 1));
+                    } else {
+                        // No more scores exist for this mode and difficulty
+                        break;
+                    }
+                }
+            }
+        }
+        return entries;
     }
 
     /**
      * Returns the high score for the specified game mode, difficulty and index
      * from the preferences.
+     * @param scoresPref The scores Preferences object.
      * @param mode The game mode.
      * @param difficulty The difficulty.
      * @param index The index in the list.
      * @return The score, or {@code null} if it doesn't exist or is invalid.
      */
-    private Score getScoreFromPref(GameMode mode, Difficulty difficulty, int index) {
+    private Score getScoreFromPref(Preferences scoresPref, GameMode mode, Difficulty difficulty, int index) {
         // Construct the key and get the value from the preferences
         String key = mode + "_" + difficulty + "_" + index;
         String value = scoresPref.getString(key);
@@ -252,30 +481,6 @@ public final class HighScores {
         }
     }
 
-    /**
-     * Puts the specified score in the preferences.
-     * @param mode The game mode.
-     * @param difficulty The difficulty.
-     * @param index The index in the list.
-     * @param score The score.
-     */
-    private void putScoreIntoPref(GameMode mode, Difficulty difficulty, int index, Score score) {
-        // Construct the key
-        String key = mode + "_" + difficulty + "_" + index;
-
-        // Constructs and encodes the value in Base64
-        String value = score.toString();
-        try {
-            value = new String(Base64.getEncoder().encode(value.getBytes("UTF-8")), "UTF-8");
-        } catch(UnsupportedEncodingException ex) {
-            Gdx.app.error(TAG, "Error encoding score", ex);
-            return;
-        }
-
-        // Store the score in the preferences
-        scoresPref.putString(key, value);
-    }
-
 
     /**
      * Represents an high score.
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Writes the user preferences to disk, coalescing the changes.
+ * <p>Changing a preference only marks the preferences as dirty. They're
+ * written in the background by {@link #update()} at most once per interval,
+ * and synchronously by {@link #flush()} (when the game is closed).</p>
+ * <p>If the preferences file is known, it's written into a temporary file
+ * that then replaces it, so it's never left half-written. The format is the
+ * same of the desktop backend (a properties XML file). Otherwise, the
+ * preferences are flushed by the backend.</p>
+ * <p>The methods of this class must be called from the rendering thread.</p>
+ */
+public class PreferencesWriter {
+    private static final String TAG = PreferencesWriter.class.getName();
+
+    private final Preferences preferences;
+    private final File file;
+    private final AsyncExecutor executor;
+    private long intervalNanos;
+
+    private boolean dirty = false;
+    private long lastWriteTime = 0;
+    /** Version of the last snapshot of the preferences. */
+    private long version = 0;
+    /** Version of the last snapshot written to disk (guarded by the lock). */
+    private long writtenVersion = 0;
+    private final Object writeLock = new Object();
+    /** Number of snapshots written (only changed with the lock). */
+    private volatile int writes = 0;
+    private int avoidedWrites = 0;
+
+    /**
+     * Creates the writer.
+     * @param preferences The preferences.
+     * @param file The preferences file, or {@code null} to let the backend
+     *             write the preferences.
+     * @param executor Executor where the preferences are written.
+     * @param interval Minimum time between two writes, in seconds.
+     */
+    public PreferencesWriter(Preferences preferences, File file, AsyncExecutor executor, float interval) {
+        this.preferences = preferences;
+        this.file = file;
+        this.executor = executor;
+        setInterval(interval);
+    }
+
+    /**
+     * Marks the preferences as changed, so they're written in the next
+     * interval.
+     */
+    public void markDirty() {
+        // A change while a write is already pending is coalesced with it
+        if(dirty) avoidedWrites++;
+        dirty = true;
+    }
+
+    /**
+     * Writes the preferences in the background, if they're dirty and the
+     * interval since the last write has passed.
+     * <p>Should be called every frame.</p>
+     */
+    public void update() {
+        if(dirty && TimeUtils.timeSinceNanos(lastWriteTime) >= intervalNanos) {
+            Snapshot snapshot = takeSnapshot();
+            executor.submit(() -> {
+                write(snapshot);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Writes the preferences immediately, if they're dirty.
+     */
+    public void flush() {
+        if(dirty) write(takeSnapshot());
+    }
+
+    /**
+     * Sets the minimum time between two writes.
+     * @param interval The interval, in seconds.
+     */
+    public final void setInterval(float interval) {
+        this.intervalNanos = (long) (interval * 1e9);
+    }
+
+    /**
+     * Returns the number of times the preferences were written.
+     * @return The number of writes.
+     */
+    public int getWrites() {
+        return writes;
+    }
+
+    /**
+     * Returns the number of writes avoided by coalescing changes (each
+     * change used to write the preferences).
+     * @return The number of avoided writes.
+     */
+    public int getAvoidedWrites() {
+        return avoidedWrites;
+    }
+
+    /**
+     * Copies the current preferences to be written, and marks them as clean.
+     * @return The snapshot.
+     */
+    private Snapshot takeSnapshot() {
+        Properties properties = new Properties();
+        if(file != null) {
+            for(Map.Entry<String, ?> entry: preferences.get().entrySet()) {
+                properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+
+        dirty = false;
+        lastWriteTime = TimeUtils.nanoTime();
+        return new Snapshot(++version, properties);
+    }
+
+    /**
+     * Writes a snapshot of the preferences, unless a newer one was already
+     * written.
+     * @param snapshot The snapshot.
+     */
+    private void write(Snapshot snapshot) {
+        synchronized(writeLock) {
+            if(snapshot.version <= writtenVersion) return;
+
+            try {
+                if(file == null) {
+                    preferences.flush();
+                } else {
+                    writeFile(snapshot.properties);
+                }
+                writtenVersion = snapshot.version;
+                writes++;
+            } catch(IOException | RuntimeException ex) {
+                Gdx.app.error(TAG, "Error saving the preferences", ex);
+            }
+        }
+    }
+
+    /**
+     * Writes the preferences into a temporary file, and then replaces the
+     * preferences file with it.
+     * @param properties The preferences.
+     * @throws IOException If the file couldn't be written.
+     */
+    private void writeFile(Properties properties) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null) parent.mkdirs();
+
+        // Write the temporary file
+        File tmp = new File(file.getPath() + ".tmp");
+        try(FileOutputStream out = new FileOutputStream(tmp)) {
+            properties.storeToXML(out, null);
+            out.getFD().sync();
+        }
+
+        // Replace the preferences file
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException ex) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     * A copy of the preferences to be written.
+     */
+    private static class Snapshot {
+        final long version;
+        final Properties properties;
+
+        Snapshot(long version, Properties properties) {
+            this.version = version;
+            this.properties = properties;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import java.util.Arrays;
+
+/**
+ * Runs tasks when their timers expire, in game time.
+ * <p>The scheduled timers are kept in a binary heap by the time they expire,
+ * so advancing the time only looks at the timers that expire (not at every
+ * timer), and scheduling or cancelling a timer costs a logarithmic time,
+ * however many timers there are.</p>
+ * <p>Each {@link Timer} is created once and can be scheduled again any number
+ * of times, so scheduling doesn't allocate memory. A timer scheduled by a
+ * task of another timer counts its delay from the time the other timer
+ * expired (not from the end of the frame), so periodic timers don't
+ * drift.</p>
+ */
+public class Scheduler {
+    /** The scheduled timers, in a binary heap (earliest first). */
+    private Timer[] heap = new Timer[16];
+    /** Number of scheduled timers. */
+    private int size = 0;
+    /** The current time. */
+    private double time = 0;
+
+    /**
+     * Creates a timer (not scheduled).
+     * @param task The task run when the timer expires ({@code null} for a
+     *             timer that only measures time).
+     * @return The timer.
+     */
+    public Timer createTimer(Runnable task) {
+        return new Timer(this, task);
+    }
+
+    /**
+     * Advances the time, running the tasks of the timers that expire, by
+     * order of expiration.
+     * @param delta The time to advance (seconds).
+     */
+    public void advance(float delta) {
+        double end = time + delta;
+        while(size > 0 && heap[0].expiration <= end) {
+            Timer timer = heap[0];
+            remove(timer);
+            time = timer.expiration;  // the time the timer expired, for its task
+            if(timer.task != null) timer.task.run();
+        }
+        time = end;
+    }
+
+    /**
+     * Returns the current time.
+     * @return The time (seconds) since the scheduler was created.
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the number of scheduled timers.
+     * @return The number of timers.
+     */
+    public int getScheduledCount() {
+        return size;
+    }
+
+    /**
+     * Adds a timer to the heap.
+     * @param timer The timer (not scheduled).
+     */
+    private void add(Timer timer) {
+        if(size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+        heap[size] = timer;
+        timer.heapIndex = size++;
+        moveUp(timer);
+    }
+
+    /**
+     * Removes a timer from the heap.
+     * @param timer The timer (scheduled).
+     */
+    private void remove(Timer timer) {
+        // Replace the timer with the last one, and move it up or down until
+        // it fits
+        int index = timer.heapIndex;
+        Timer last = heap[--size];
+        heap[size] = null;
+        timer.heapIndex = -1;
+        if(last != timer) {
+            heap[index] = last;
+            last.heapIndex = index;
+            moveUp(last);
+            moveDown(last);
+        }
+    }
+
+    /**
+     * Moves a timer up the heap until its parent expires before it.
+     * @param timer The timer.
+     */
+    private void moveUp(Timer timer) {
+        int index = timer.heapIndex;
+        while(index > 0) {
+            int parent = (index - 1) / 2;
+            if(heap[parent].expiration <= timer.expiration) break;
+            set(index, heap[parent]);
+            index = parent;
+        }
+        set(index, timer);
+    }
+
+    /**
+     * Moves a timer down the heap until its children expire after it.
+     * @param timer The timer.
+     */
+    private void moveDown(Timer timer) {
+        int index = timer.heapIndex;
+        while(true) {
+            int child = index * 2 + 1;
+            if(child >= size) break;
+            if(child + 1 < size && heap[child + 1].expiration < heap[child].expiration) child++;
+            if(heap[child].expiration >= timer.expiration) break;
+            set(index, heap[child]);
+            index = child;
+        }
+        set(index, timer);
+    }
+
+    /**
+     * Puts a timer in a position of the heap.
+     * @param index The position.
+     * @param timer The timer.
+     */
+    private void set(int index, Timer timer) {
+        heap[index] = timer;
+        timer.heapIndex = index;
+    }
+
+
+    /**
+     * A timer that runs a task when it expires.
+     */
+    public static class Timer {
+        private final Scheduler scheduler;
+        private final Runnable task;
+        /** Time the timer expires. */
+        private double expiration;
+        /** Position of the timer in the heap ({@code -1} if not scheduled). */
+        private int heapIndex = -1;
+
+        private Timer(Scheduler scheduler, Runnable task) {
+            this.scheduler = scheduler;
+            this.task = task;
+        }
+
+        /**
+         * Schedules the timer, replacing its previous expiration if it's
+         * already scheduled.
+         * @param delay Time (seconds) until the timer expires.
+         */
+        public void schedule(float delay) {
+            expiration = scheduler.time + delay;
+            if(heapIndex < 0) {
+                scheduler.add(this);
+            } else {
+                scheduler.moveUp(this);
+                scheduler.moveDown(this);
+            }
+        }
+
+        /**
+         * Cancels the timer, without running its task (nothing happens if
+         * it's not scheduled).
+         */
+        public void cancel() {
+            if(heapIndex >= 0) scheduler.remove(this);
+        }
+
+        /**
+         * Returns whether the timer is scheduled (it hasn't expired nor been
+         * cancelled yet).
+         * @return {@code true} if the timer is scheduled.
+         */
+        public boolean isScheduled() {
+            return heapIndex >= 0;
+        }
+
+        /**
+         * Returns the time until the timer expires.
+         * @return The remaining time (seconds), or {@code 0} if the timer
+         *         isn't scheduled.
+         */
+        public float getRemaining() {
+            return heapIndex >= 0 ? (float) (expiration - scheduler.time) : 0;
+        }
+    }
+}
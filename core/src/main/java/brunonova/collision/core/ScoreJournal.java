@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only binary journal of high score events.
+ * <p>The file starts with a magic number and the number of records in the
+ * snapshot (long), followed by the records. Each record is composed by the
+ * length of its payload (int), the payload and the CRC32 of the payload
+ * (int). The payload of a record is the game mode, the difficulty (both as
+ * UTF strings), the sequence number of the entry (long), the score (int) and
+ * the name of the player (UTF string).</p>
+ * <p>The first records are the snapshot written by the last compaction:
+ * all the entries of each game mode and difficulty, ordered from best to
+ * worst, so they can be loaded in O(n) time. Adding a score appends a single
+ * record after them. The journal is compacted by rewriting it into a
+ * temporary file that then replaces the journal.</p>
+ * <p>If the last record is incomplete or corrupted (e.g. the game crashed
+ * while writing it), it's discarded and the file is truncated when the
+ * journal is opened.</p>
+ * <p>This class isn't thread-safe.</p>
+ */
+public class ScoreJournal {
+    /** Magic number at the start of the file ("CSJ2"). */
+    private static final int MAGIC = 0x43534A32;
+    /** Size of the header. */
+    private static final int HEADER_SIZE = 12;
+    /** Maximum length of the payload of a record. */
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final File file;
+    private FileOutputStream output;
+    private long snapshotSize = 0;
+    private long tailSize = 0;
+
+    /**
+     * Creates the journal (without opening it).
+     * @param file The journal file.
+     */
+    public ScoreJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns whether the journal file exists.
+     * @return {@code true} if the file exists.
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Opens the journal, replaying all its records.
+     * <p>If the file doesn't exist, an empty journal is created. A torn or
+     * corrupted record (and everything after it) is discarded.</p>
+     * @return The entries in the journal: first the snapshot (see
+     *         {@link #getSnapshotSize()}), then the entries appended after it
+     *         in the order they were added.
+     * @throws IOException If the file couldn't be read or created.
+     */
+    public List<Entry> open() throws IOException {
+        close();
+        snapshotSize = 0;
+        tailSize = 0;
+
+        if(!file.exists()) {
+            // Create an empty journal
+            compact(Collections.<Entry>emptyList());
+            return new ArrayList<>();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        long validLength;
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+            // Read the header
+            int magic = file.length() >= 4 ? input.readInt() : 0;
+            if(magic == MAGIC && file.length() >= HEADER_SIZE) {
+                snapshotSize = input.readLong();
+                validLength = HEADER_SIZE;
+            } else {
+                throw new IOException("Not a score journal: " + file);
+            }
+
+            // Replay the records, until the end of the file or until a torn
+            // record is found
+            CRC32 crc = new CRC32();
+            byte[] payload = new byte[256];
+            while(true) {
+                try {
+                    int length = input.readInt();
+                    if(length <= 0 || length > MAX_RECORD_LENGTH) break;
+                    if(length > payload.length) payload = new byte[length];
+                    input.readFully(payload, 0, length);
+                    int checksum = input.readInt();
+
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if((int) crc.getValue() != checksum) break;
+
+                    entries.add(decode(payload, length));
+                    validLength += length + 8;
+                } catch(EOFException | IllegalArgumentException ex) {
+                    break;
+                }
+            }
+        }
+
+        // Truncate the torn tail, if any
+        if(validLength < file.length()) {
+            try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+
+        snapshotSize = Math.min(snapshotSize, entries.size());
+        tailSize = entries.size() - snapshotSize;
+        output = new FileOutputStream(file, true);
+        return entries;
+    }
+
+    /**
+     * Appends an entry to the journal.
+     * @param entry The entry.
+     * @throws IOException If the entry couldn't be written.
+     */
+    public void append(Entry entry) throws IOException {
+        if(output == null) throw new IOException("The journal isn't open: " + file);
+
+        // Write the whole record at once
+        ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+        new RecordWriter(record).write(entry);
+        output.write(record.toByteArray());
+        output.flush();
+        tailSize++;
+    }
+
+    /**
+     * Replaces the contents of the journal with a snapshot of the entries.
+     * <p>The new journal is written into a temporary file, which then
+     * replaces the journal, so the journal is never left half-written.</p>
+     * @param snapshot The entries of each game mode and difficulty, ordered
+     *                 from best to worst.
+     * @throws IOException If the journal couldn't be written.
+     */
+    public void compact(Iterable<Entry> snapshot) throws IOException {
+        close();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null) parent.mkdirs();
+
+        // Write the temporary file
+        File tmp = new File(file.getPath() + ".tmp");
+        long count = 0;
+        try(FileOutputStream out = new FileOutputStream(tmp)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out, 65536);
+            DataOutputStream data = new DataOutputStream(buffered);
+            data.writeInt(MAGIC);
+            data.writeLong(0);  // written below, when the count is known
+
+            RecordWriter writer = new RecordWriter(data);
+            for(Entry entry: snapshot) {
+                writer.write(entry);
+                count++;
+            }
+            data.flush();
+
+            // Write the number of records in the snapshot
+            ByteBuffer countBuffer = ByteBuffer.allocate(8);
+            countBuffer.putLong(0, count);
+            out.getChannel().write(countBuffer, 4);
+            out.getFD().sync();
+        }
+
+        // Replace the journal
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException ex) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        snapshotSize = count;
+        tailSize = 0;
+        output = new FileOutputStream(file, true);
+    }
+
+    /**
+     * Returns the number of records in the snapshot at the start of the
+     * journal.
+     * @return The number of records in the snapshot.
+     */
+    public long getSnapshotSize() {
+        return snapshotSize;
+    }
+
+    /**
+     * Returns the number of records appended after the snapshot.
+     * @return The number of records after the snapshot.
+     */
+    public long getTailSize() {
+        return tailSize;
+    }
+
+    /**
+     * Closes the journal file.
+     */
+    public void close() {
+        if(output != null) {
+            try {
+                output.close();
+            } catch(IOException ignored) {
+            }
+            output = null;
+        }
+    }
+
+    /**
+     * Decodes the payload of a record.
+     * @param payload The payload.
+     * @param length Length of the payload.
+     * @return The entry.
+     * @throws IOException If the payload is incomplete.
+     * @throws IllegalArgumentException If the game mode or difficulty is
+     *                                  unknown.
+     */
+    private static Entry decode(byte[] payload, int length) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+        GameMode mode = GameMode.valueOf(input.readUTF());
+        Difficulty difficulty = Difficulty.valueOf(input.readUTF());
+        long sequence = input.readLong();
+        int score = input.readInt();
+        String name = input.readUTF();
+        return new Entry(mode, difficulty, new HighScores.Score(name, score), sequence);
+    }
+
+
+    /**
+     * Encodes entries into records, reusing the same buffers.
+     */
+    private static class RecordWriter {
+        private final DataOutputStream output;
+        private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+        private final DataOutputStream payload = new DataOutputStream(payloadBytes);
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Creates the writer.
+         * @param output Where the records are written to.
+         */
+        RecordWriter(OutputStream output) {
+            this.output = output instanceof DataOutputStream
+                    ? (DataOutputStream) output : new DataOutputStream(output);
+        }
+
+        /**
+         * Writes the record of an entry (length, payload and checksum).
+         * @param entry The entry.
+         * @throws IOException If the record couldn't be written.
+         */
+        void write(Entry entry) throws IOException {
+            // Encode the payload
+            payloadBytes.reset();
+            payload.writeUTF(entry.mode.name());
+            payload.writeUTF(entry.difficulty.name());
+            payload.writeLong(entry.sequence);
+            payload.writeInt(entry.score.getScore());
+            payload.writeUTF(entry.score.getName());
+
+            // Write it with the length and the checksum
+            crc.reset();
+            crc.update(payloadBytes.toByteArray(), 0, payloadBytes.size());
+            output.writeInt(payloadBytes.size());
+            payloadBytes.writeTo(output);
+            output.writeInt((int) crc.getValue());
+        }
+    }
+
+
+    /**
+     * A score added to the high scores of a game mode and difficulty.
+     */
+    public static class Entry {
+        private final GameMode mode;
+        private final Difficulty difficulty;
+        private final HighScores.Score score;
+        private final long sequence;
+
+        /**
+         * Creates the entry.
+         * @param mode The game mode.
+         * @param difficulty The difficulty.
+         * @param score The score.
+         * @param sequence The sequence number of the entry (entries added
+         *                 later have higher numbers).
+         */
+        public Entry(GameMode mode, Difficulty difficulty, HighScores.Score score, long sequence) {
+            this.mode = mode;
+            this.difficulty = difficulty;
+            this.score = score;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Returns the game mode.
+         * @return The game mode.
+         */
+        public GameMode getMode() {
+            return mode;
+        }
+
+        /**
+         * Returns the difficulty.
+         * @return The difficulty.
+         */
+        public Difficulty getDifficulty() {
+            return difficulty;
+        }
+
+        /**
+         * Returns the score.
+         * @return The score.
+         */
+        public HighScores.Score getScore() {
+            return score;
+        }
+
+        /**
+         * Returns the sequence number of the entry.
+         * @return The sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+    }
+}
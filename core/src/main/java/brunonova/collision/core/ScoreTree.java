@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An immutable, ordered index of scores, with rank queries.
+ * <p>It's a weight-balanced binary tree where each node knows the size of its
+ * subtree, so inserting a score, finding the rank of a score and getting the
+ * score at a given rank take O(log n) time.</p>
+ * <p>The tree is persistent: inserting a score returns a new tree that shares
+ * all but O(log n) nodes with the old one, which is left unchanged. So a tree
+ * can be safely read by any thread.</p>
+ * <p>The scores are ordered from best to worst. Equal scores are ordered by
+ * the sequence number of their entry (the older first).</p>
+ */
+public final class ScoreTree {
+    /** The empty tree. */
+    public static final ScoreTree EMPTY = new ScoreTree(null);
+
+    /** A subtree can't be more than this times bigger than its sibling. */
+    private static final int DELTA = 3;
+    /** Ratio used to choose between single and double rotations. */
+    private static final int RATIO = 2;
+
+    private final Node root;
+
+    /**
+     * Creates the tree.
+     * @param root The root node (can be {@code null}).
+     */
+    private ScoreTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a tree from a list of entries, in O(n) time.
+     * @param entries The entries, already ordered from best to worst.
+     * @return The tree.
+     */
+    public static ScoreTree fromSorted(List<ScoreJournal.Entry> entries) {
+        return entries.isEmpty() ? EMPTY : new ScoreTree(build(entries, 0, entries.size()));
+    }
+
+    /**
+     * Returns whether a list of entries is ordered from best to worst.
+     * @param entries The entries.
+     * @return {@code true} if the entries are ordered.
+     */
+    public static boolean isSorted(List<ScoreJournal.Entry> entries) {
+        for(int i = 1; i < entries.size(); i++) {
+            if(compare(entries.get(i - 1), entries.get(i)) > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a new tree with the specified entry.
+     * @param entry The entry.
+     * @return The new tree.
+     */
+    public ScoreTree insert(ScoreJournal.Entry entry) {
+        return new ScoreTree(insert(root, entry));
+    }
+
+    /**
+     * Returns the number of scores.
+     * @return The number of scores.
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the index (rank - 1) of an entry in the tree, or where it would
+     * be inserted.
+     * @param entry The entry.
+     * @return The number of entries before the entry.
+     */
+    public int indexOf(ScoreJournal.Entry entry) {
+        int index = 0;
+        Node node = root;
+        while(node != null) {
+            if(compare(entry, node.entry) <= 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of scores better than the specified score.
+     * @param score The score.
+     * @return The number of scores strictly greater than {@code score}.
+     */
+    public int countBetter(int score) {
+        int count = 0;
+        Node node = root;
+        while(node != null) {
+            if(node.entry.getScore().getScore() > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of scores better than or equal to the specified
+     * score.
+     * @param score The score.
+     * @return The number of scores greater than or equal to {@code score}.
+     */
+    public int countAtLeast(int score) {
+        int count = 0;
+        Node node = root;
+        while(node != null) {
+            if(node.entry.getScore().getScore() >= score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the score at the specified index.
+     * @param index The index (rank - 1).
+     * @return The score.
+     * @throws IndexOutOfBoundsException If the index is out of bounds.
+     */
+    public HighScores.Score get(int index) {
+        if(index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        }
+
+        Node node = root;
+        while(true) {
+            int leftSize = size(node.left);
+            if(index < leftSize) {
+                node = node.left;
+            } else if(index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.entry.getScore();
+            }
+        }
+    }
+
+    /**
+     * Returns the scores in a range of indices, in O(log n + count) time.
+     * @param from Index of the first score.
+     * @param count Maximum number of scores.
+     * @return The scores (less than {@code count} if the end of the tree is
+     *         reached).
+     */
+    public List<HighScores.Score> getRange(int from, int count) {
+        List<HighScores.Score> scores = new ArrayList<>(Math.max(0, Math.min(count, size() - from)));
+        collect(root, Math.max(0, from), from + count, scores);
+        return scores;
+    }
+
+    /**
+     * Calls the action for each entry, from best to worst.
+     * @param action The action.
+     */
+    public void forEach(Consumer<ScoreJournal.Entry> action) {
+        forEach(root, action);
+    }
+
+    /**
+     * Compares two entries.
+     * @param a The first entry.
+     * @param b The second entry.
+     * @return A negative number if {@code a} is better than {@code b}, a
+     *         positive number if it's worse, or 0 if they're the same.
+     */
+    private static int compare(ScoreJournal.Entry a, ScoreJournal.Entry b) {
+        int result = Integer.compare(b.getScore().getScore(), a.getScore().getScore());
+        return result != 0 ? result : Long.compare(a.getSequence(), b.getSequence());
+    }
+
+    /**
+     * Returns the size of a subtree.
+     * @param node The root of the subtree (can be {@code null}).
+     * @return The number of nodes.
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Builds a perfectly balanced subtree.
+     * @param entries The sorted entries.
+     * @param from First index (inclusive).
+     * @param to Last index (exclusive).
+     * @return The root of the subtree.
+     */
+    private static Node build(List<ScoreJournal.Entry> entries, int from, int to) {
+        if(from >= to) return null;
+        int middle = (from + to) >>> 1;
+        return new Node(entries.get(middle), build(entries, from, middle), build(entries, middle + 1, to));
+    }
+
+    /**
+     * Inserts an entry into a subtree, copying the nodes in the path.
+     * @param node The root of the subtree.
+     * @param entry The entry.
+     * @return The new root of the subtree.
+     */
+    private static Node insert(Node node, ScoreJournal.Entry entry) {
+        if(node == null) return new Node(entry, null, null);
+        if(compare(entry, node.entry) < 0) {
+            return balance(node.entry, insert(node.left, entry), node.right);
+        } else {
+            return balance(node.entry, node.left, insert(node.right, entry));
+        }
+    }
+
+    /**
+     * Creates a node, rotating it if its subtrees aren't balanced.
+     * @param entry The entry of the node.
+     * @param left The left subtree.
+     * @param right The right subtree.
+     * @return The new (balanced) node.
+     */
+    private static Node balance(ScoreJournal.Entry entry, Node left, Node right) {
+        int leftSize = size(left), rightSize = size(right);
+        if(leftSize + rightSize <= 1) {
+            return new Node(entry, left, right);
+        } else if(rightSize > DELTA * leftSize) {
+            // Rotate left
+            if(size(right.left) < RATIO * size(right.right)) {
+                return new Node(right.entry, new Node(entry, left, right.left), right.right);
+            } else {
+                Node rl = right.left;
+                return new Node(rl.entry, new Node(entry, left, rl.left), new Node(right.entry, rl.right, right.right));
+            }
+        } else if(leftSize > DELTA * rightSize) {
+            // Rotate right
+            if(size(left.right) < RATIO * size(left.left)) {
+                return new Node(left.entry, left.left, new Node(entry, left.right, right));
+            } else {
+                Node lr = left.right;
+                return new Node(lr.entry, new Node(left.entry, left.left, lr.left), new Node(entry, lr.right, right));
+            }
+        } else {
+            return new Node(entry, left, right);
+        }
+    }
+
+    /**
+     * Adds the scores of a subtree in a range of indices to a list.
+     * @param node The root of the subtree.
+     * @param from First index in the subtree (inclusive).
+     * @param to Last index in the subtree (exclusive).
+     * @param scores The list.
+     */
+    private static void collect(Node node, int from, int to, List<HighScores.Score> scores) {
+        if(node == null || from >= to || from >= node.size || to <= 0) return;
+        int leftSize = size(node.left);
+        collect(node.left, from, to, scores);
+        if(from <= leftSize && leftSize < to) scores.add(node.entry.getScore());
+        collect(node.right, from - leftSize - 1, to - leftSize - 1, scores);
+    }
+
+    /**
+     * Calls the action for each entry of a subtree, in order.
+     * @param node The root of the subtree.
+     * @param action The action.
+     */
+    private static void forEach(Node node, Consumer<ScoreJournal.Entry> action) {
+        while(node != null) {
+            forEach(node.left, action);
+            action.accept(node.entry);
+            node = node.right;
+        }
+    }
+
+
+    /**
+     * A node of the tree.
+     */
+    private static final class Node {
+        final ScoreJournal.Entry entry;
+        final Node left;
+        final Node right;
+        final int size;
+
+        Node(ScoreJournal.Entry entry, Node left, Node right) {
+            this.entry = entry;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the timeline of the game startup, from the start of the JVM to the
+ * first interactive frame of the main menu.
+ * <p>Each stage is recorded with {@link #begin(String)} and
+ * {@link #end(String)}, which may be called from different threads. The
+ * stages are always recorded (it's cheap), but the timeline is only printed
+ * and exported when the tracer is enabled with {@link #enable(String)}.</p>
+ * <p>The timeline is exported in the Chrome trace-event format, which can be
+ * opened in {@code chrome://tracing}.</p>
+ */
+public final class StartupTracer {
+    /** Time (System.nanoTime()) when the JVM started. */
+    private static final long ORIGIN = findOrigin();
+
+    /** Stages that have begun but not ended yet, by name. */
+    private static final Map<String, Stage> openStages = new ConcurrentHashMap<>();
+    /** Stages that have ended. */
+    private static final List<Stage> stages = new ArrayList<>();
+
+    private static volatile boolean enabled = false;
+    private static volatile boolean finished = false;
+    private static String outputFile;
+
+    /**
+     * Enables printing and exporting the startup timeline.
+     * @param outputFile File where the timeline is exported to, in the Chrome
+     *                   trace-event JSON format.
+     */
+    public static void enable(String outputFile) {
+        StartupTracer.outputFile = outputFile;
+        enabled = true;
+    }
+
+    /**
+     * Returns whether printing and exporting the startup timeline is enabled.
+     * @return {@code true} if the tracer is enabled.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the beginning of a startup stage.
+     * @param name Unique name of the stage.
+     */
+    public static void begin(String name) {
+        if(finished) return;
+        Thread thread = Thread.currentThread();
+        openStages.put(name, new Stage(name, System.nanoTime(), thread.getId(), thread.getName()));
+    }
+
+    /**
+     * Marks the end of a startup stage.
+     * <p>It may be called from a different thread than the one that called
+     * {@link #begin(String)}.</p>
+     * @param name Name of the stage.
+     */
+    public static void end(String name) {
+        long now = System.nanoTime();
+        Stage stage = openStages.remove(name);
+        if(stage != null && !finished) {
+            stage.end = now;
+            synchronized(stages) {
+                stages.add(stage);
+            }
+        }
+    }
+
+    /**
+     * Marks the end of the startup (the first interactive frame), and prints
+     * and exports the timeline if the tracer is enabled.
+     * <p>Only the first call has any effect.</p>
+     */
+    public static void finish() {
+        if(finished) return;
+        begin("startup");
+        Stage total = openStages.get("startup");
+        total.start = ORIGIN;
+        end("startup");
+        finished = true;
+        openStages.clear();
+
+        if(enabled) {
+            List<Stage> timeline;
+            synchronized(stages) {
+                timeline = new ArrayList<>(stages);
+            }
+            timeline.sort(Comparator.comparingLong((Stage s) -> s.start).thenComparingLong(s -> -s.end));
+            printTimeline(timeline);
+            exportTimeline(timeline);
+        }
+    }
+
+    /**
+     * Prints the timeline to the standard output.
+     * @param timeline The stages, sorted by start time.
+     */
+    private static void printTimeline(List<Stage> timeline) {
+        System.out.println("Startup timeline (milliseconds since the JVM started):");
+        System.out.println(String.format("%10s %10s  %-24s %s", "start", "duration", "thread", "stage"));
+        for(Stage stage: timeline) {
+            System.out.println(String.format("%10.2f %10.2f  %-24s %s",
+                    (stage.start - ORIGIN) / 1e6, (stage.end - stage.start) / 1e6,
+                    stage.threadName, stage.name));
+        }
+    }
+
+    /**
+     * Exports the timeline to {@link #outputFile} in the Chrome trace-event
+     * format.
+     * @param timeline The stages, sorted by start time.
+     */
+    private static void exportTimeline(List<Stage> timeline) {
+        try(Writer writer = new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8)) {
+            writer.write("{\"traceEvents\":[\n");
+
+            // Name the threads
+            List<Long> threads = new ArrayList<>();
+            boolean first = true;
+            for(Stage stage: timeline) {
+                if(!threads.contains(stage.threadId)) {
+                    threads.add(stage.threadId);
+                    writer.write(first ? "" : ",\n");
+                    writer.write(String.format("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,"
+                            + "\"args\":{\"name\":\"%s\"}}", stage.threadId, escape(stage.threadName)));
+                    first = false;
+                }
+            }
+
+            // Write the stages as "complete" events (times in microseconds)
+            for(Stage stage: timeline) {
+                writer.write(",\n");
+                writer.write(String.format("{\"name\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,"
+                        + "\"ts\":%.3f,\"dur\":%.3f}", escape(stage.name), stage.threadId,
+                        (stage.start - ORIGIN) / 1e3, (stage.end - stage.start) / 1e3));
+            }
+
+            writer.write("\n]}\n");
+            System.out.println("Startup trace written to " + outputFile);
+        } catch(IOException ex) {
+            System.err.println("Error writing startup trace to " + outputFile + ": " + ex);
+        }
+    }
+
+    /**
+     * Escapes a string to be used in JSON.
+     * @param text The string.
+     * @return The escaped string.
+     */
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Determines the time when the JVM started, or the time when this class
+     * was loaded if not available.
+     * @return The time, comparable to {@link System#nanoTime()}.
+     */
+    private static long findOrigin() {
+        long now = System.nanoTime();
+        try {
+            long uptime = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            return now - Math.max(0, uptime) * 1000000L;
+        } catch(Throwable ex) {
+            return now;
+        }
+    }
+
+    // Prevent this class from being instantiated
+    private StartupTracer() {
+    }
+
+
+    /**
+     * A stage of the startup.
+     */
+    private static class Stage {
+        final String name;
+        final long threadId;
+        final String threadName;
+        long start;
+        long end;
+
+        Stage(String name, long start, long threadId, String threadName) {
+            this.name = name;
+            this.start = start;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.actors;
+
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * A {@link Pool} of actors, so the actors that leave the game are reused
+ * instead of creating new ones (with new sprites, colliders, etc.).
+ * <p>The actors freed are removed from their stage and reset (with
+ * {@link Pool.Poolable#reset()}). The pool counts how many actors it gave
+ * that were reused (hits) and how many it had to create (misses).</p>
+ * @param <T> The type of the actors.
+ */
+public abstract class ActorPool<T extends Actor & Pool.Poolable> extends Pool<T> {
+    private long hits = 0;
+    private long misses = 0;
+
+    @Override
+    public T obtain() {
+        if(getFree() > 0) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return super.obtain();
+    }
+
+    @Override
+    public void free(T actor) {
+        actor.remove();
+        super.free(actor);
+    }
+
+    /**
+     * Creates actors until the pool has a number of free actors, so they
+     * don't need to be created later.
+     * @param count The number of free actors.
+     */
+    public void fill(int count) {
+        while(getFree() < count) {
+            super.free(newObject());
+        }
+    }
+
+    /**
+     * Returns the number of actors obtained that were reused.
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of actors obtained that had to be created.
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
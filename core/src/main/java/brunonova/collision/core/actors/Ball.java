@@ -17,17 +17,13 @@
 package brunonova.collision.core.actors;
 
 import brunonova.collision.core.Collision;
-import com.badlogic.gdx.math.Circle;
+import brunonova.collision.core.physics.Collider;
 import com.badlogic.gdx.utils.Align;
 
 /**
- * An actor with a sprite that contains a bounding circle that can be used for
- * collision detection.
+ * An actor with a sprite and a circular collider.
  */
 public abstract class Ball extends SpriteActor {
-    /** The bounding circle for collision detection, updated automatically. */
-    protected Circle boundingCircle;
-
     /**
      * Creates the ball.
      * @param game The game.
@@ -35,30 +31,8 @@ public abstract class Ball extends SpriteActor {
      */
     public Ball(Collision game, String imageName) {
         super(game, imageName);
-        boundingCircle = new Circle(0, 0, getRadius());
-        updateBoundingCircle();
-    }
-
-    @Override
-    protected void positionChanged() {
-        super.positionChanged();
-        updateBoundingCircle();
-    }
-
-    /**
-     * Returns whether this ball overlaps (collides with) the other.
-     * @param other The other ball.
-     * @return {@code true} if the balls overlap.
-     */
-    public boolean overlaps(Ball other) {
-        return boundingCircle.overlaps(other.boundingCircle);
-    }
-
-    /**
-     * Updates the position of the bounding circle.
-     */
-    protected final void updateBoundingCircle() {
-        boundingCircle.setPosition(getX(Align.center), getY(Align.center));
+        collider = new Collider(this);
+        collider.setCircle(getRadius());
     }
 
     /**
@@ -68,4 +42,18 @@ public abstract class Ball extends SpriteActor {
     public final float getRadius() {
         return getWidth() / 2;
     }
+
+    /**
+     * Changes the radius of the ball, scaling its sprite (the center of the
+     * ball doesn't move).
+     * @param radius The new radius.
+     */
+    public final void setRadius(float radius) {
+        float centerX = getX(Align.center);
+        float centerY = getY(Align.center);
+        setSize(radius * 2, radius * 2);
+        sprite.setSize(radius * 2, radius * 2);
+        collider.setCircle(radius);
+        setPosition(centerX, centerY, Align.center);
+    }
 }
@@ -17,6 +17,9 @@
 package brunonova.collision.core.actors;
 
 import brunonova.collision.core.Collision;
+import brunonova.collision.core.physics.Collider;
+import brunonova.collision.core.physics.SpawnPlacer;
+import brunonova.collision.core.screens.GameScreen;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Actor;
@@ -25,10 +28,31 @@ import com.badlogic.gdx.utils.Align;
 
 /**
  * Base class for all game actors.
+ * <p>Moving an actor only marks its transform dirty: what depends on its
+ * position (its collider, the vertices of its sprite, etc.) is updated once,
+ * when needed. The collider is updated before the collision detection (with
+ * {@link #updateCollider()}), and the rest before the actor is drawn (with
+ * {@link #updateTransform()}), so an actor moved several times in a tick, or
+ * not drawn, doesn't repeat the work.</p>
  */
 public abstract class BaseActor extends Actor {
+    /**
+     * Maximum number of random positions tried by
+     * {@link #setRandomPositionFarFromPoint(float, float, float)}.
+     */
+    private static final int MAX_RANDOM_POSITION_TRIES = 64;
+
     /** The game. */
     protected Collision game;
+    /**
+     * The shape of the actor for collision detection, kept at the center of
+     * the actor ({@code null} if the actor doesn't collide).
+     */
+    protected Collider collider;
+    /** Whether the actor moved since its collider was updated. */
+    private boolean colliderDirty = true;
+    /** Whether the actor moved since its transform was updated. */
+    private boolean transformDirty = true;
 
     /**
      * Creates the actor.
@@ -38,55 +62,133 @@ public abstract class BaseActor extends Actor {
         this.game = game;
     }
 
+    @Override
+    protected void positionChanged() {
+        super.positionChanged();
+        invalidateTransform();
+    }
+
+    /**
+     * Marks the transform and the collider of the actor dirty, to be updated
+     * when needed.
+     */
+    protected final void invalidateTransform() {
+        colliderDirty = true;
+        transformDirty = true;
+    }
+
+    /**
+     * Moves the collider to the center of the actor, if the actor moved since
+     * the last update.
+     */
+    public final void updateCollider() {
+        if(colliderDirty) {
+            colliderDirty = false;
+            if(collider != null) collider.setPosition(getX(Align.center), getY(Align.center));
+        }
+    }
+
+    /**
+     * Updates what depends on the position of the actor, if it moved since the
+     * last update (called before the actor is drawn).
+     */
+    public final void updateTransform() {
+        if(transformDirty) {
+            transformDirty = false;
+            transformChanged();
+        }
+    }
+
     /**
-     * Ensures the actor is inside of the game window, moving it if necessary.
+     * Called by {@link #updateTransform()} when the actor moved, to update
+     * what depends on its position.
+     * <p>Does nothing by default.</p>
      */
-    public final void keepInsideWindow() {
+    protected void transformChanged() {
+    }
+
+    /**
+     * Returns whether this actor overlaps (collides with) another.
+     * @param other The other actor.
+     * @return {@code true} if both actors collide and they overlap.
+     */
+    public final boolean overlaps(BaseActor other) {
+        return collider != null && other.collider != null && getCollider().overlaps(other.getCollider());
+    }
+
+    /**
+     * Returns the shape of the actor for collision detection (updated to the
+     * current position of the actor).
+     * @return The collider, or {@code null} if the actor doesn't collide.
+     */
+    public final Collider getCollider() {
+        updateCollider();
+        return collider;
+    }
+
+    /**
+     * Ensures the actor is inside of the game world, moving it if necessary.
+     */
+    public final void keepInsideWorld() {
         if(getX() < 0) setX(0);
-        if(getRight() > game.getWidth()) setX(game.getWidth() - getWidth());
+        if(getRight() > game.getWorldWidth()) setX(game.getWorldWidth() - getWidth());
         if(getY() < 0) setY(0);
-        if(getTop() > game.getHeight()) setY(game.getHeight()- getHeight());
+        if(getTop() > game.getWorldHeight()) setY(game.getWorldHeight() - getHeight());
     }
 
     /**
-     * Centers the actor on the game window.
+     * Centers the actor on the game world.
      */
-    public final void centerOnScreen() {
-        setPosition(game.getWidth() / 2, game.getHeight() / 2, Align.center);
+    public final void centerInWorld() {
+        setPosition(game.getWorldWidth() / 2, game.getWorldHeight() / 2, Align.center);
     }
 
     /**
-     * Positions the actor in a random position on the screen.
+     * Positions the actor in a random position in the world.
      */
     public final void setRandomPosition() {
-        float x = MathUtils.random(0, game.getWidth() - getWidth());
-        float y = MathUtils.random(0, game.getHeight() - getHeight());
+        float x = MathUtils.random(0, game.getWorldWidth() - getWidth());
+        float y = MathUtils.random(0, game.getWorldHeight() - getHeight());
         setPosition(x, y);
     }
 
     /**
-     * Positions the actor in a random position on the screen at a minimum
+     * Positions the actor in a random position in the world at a minimum
      * distance from the specified point.
+     * <p>If no position far enough is found after some tries (the world may
+     * be too small), the farthest one tried is used.</p>
      * @param minDistance The minimum distance from the specified point.
      * @param x X coordinate of the point.
      * @param y Y coordinate of the point.
      */
     public final void setRandomPositionFarFromPoint(float minDistance, float x, float y) {
-        do {
+        float farthestX = 0, farthestY = 0, farthest = -1;
+        for(int i = 0; i < MAX_RANDOM_POSITION_TRIES; i++) {
             setRandomPosition();
-        } while(Vector2.dst(getX(), getY(), x, y) < minDistance);
+            float distance = Vector2.dst(getX(), getY(), x, y);
+            if(distance >= minDistance) return;
+            if(distance > farthest) {
+                farthest = distance;
+                farthestX = getX();
+                farthestY = getY();
+            }
+        }
+        setPosition(farthestX, farthestY);
     }
 
     /**
-     * Positions the actor in a random position on the screen at a minimum
-     * distance from the player ball, if found.
+     * Positions the actor in a random position in the world at a minimum
+     * distance from the player ball (between their centers), if found,
+     * without overlapping any enemy ball (see {@link SpawnPlacer}).
      * @param minDistance The minimum distance from the player.
      */
     public final void setRandomPositionFarFromPlayer(float minDistance) {
-        if(game.getGameScreen() != null && game.getGameScreen().getPlayer() != null) {
-            setRandomPositionFarFromPoint(minDistance,
-                    game.getGameScreen().getPlayer().getX(),
-                    game.getGameScreen().getPlayer().getY());
+        GameScreen screen = game.getGameScreen();
+        if(screen != null && screen.getPlayer() != null && screen.getSpawnPlacer() != null) {
+            SpawnPlacer placer = screen.getSpawnPlacer();
+            placer.place(Math.max(getWidth(), getHeight()) / 2, screen.getPlayer().getX(Align.center),
+                         screen.getPlayer().getY(Align.center), minDistance);
+            setPosition(placer.getX(), placer.getY(), Align.center);
         } else {
             setRandomPosition();
         }
@@ -18,11 +18,12 @@ package brunonova.collision.core.actors;
 
 import brunonova.collision.core.Collision;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
+import com.badlogic.gdx.utils.Pool;
 
 /**
  * A bonus.
  */
-public class Bonus extends Ball {
+public class Bonus extends Ball implements Pool.Poolable {
     /** The minimum distance to the player ball when created. */
     public static final float MINIMUM_DISTANCE_TO_PLAYER = 200;
 
@@ -61,6 +62,14 @@ public class Bonus extends Ball {
         clearActions();
     }
 
+    /**
+     * Hides the bonus, to be reused.
+     */
+    @Override
+    public void reset() {
+        hide();
+    }
+
     /**
      * Returns whether the bonus is enabled, visible and catchable.
      * @return {@code true} if the bonus is enabled.
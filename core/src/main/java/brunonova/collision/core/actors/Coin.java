@@ -17,47 +17,50 @@
 package brunonova.collision.core.actors;
 
 import brunonova.collision.core.Collision;
-import com.badlogic.gdx.math.Circle;
+import brunonova.collision.core.physics.Collider;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
-import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Pool;
 
 /**
  * A coin used in the "Coins" mode.
  */
-public class Coin extends AnimatedActor {
+public class Coin extends AnimatedActor implements Pool.Poolable {
     /** The minimum distance to the player ball when created. */
     public static final float MINIMUM_DISTANCE_TO_PLAYER = 200;
 
-    /** The bounding circle for collision detection, updated automatically. */
-    protected Circle boundingCircle;
     private boolean enabled = false;
+    /** Enables the coin (kept, to not create it each time the coin spawns). */
+    private final Runnable enableTask = this::enable;
 
     /**
-     * Creates this coin.
+     * Creates this coin (out of the game, until {@link #spawn()} is called).
      * @param game The game.
      */
     @SuppressWarnings("OverridableMethodCallInConstructor")
     public Coin(Collision game) {
         super(game, "coin.png", 1, 61, 0.02f);
-        boundingCircle = new Circle(0, 0, getRadius());
+        collider = new Collider(this);
+        collider.setCircle(getRadius());
+    }
+
+    /**
+     * Puts the coin in the game, in a random position.
+     */
+    public void spawn() {
         setRandomPositionFarFromPlayer(MINIMUM_DISTANCE_TO_PLAYER);
 
         // Set ball transparent, fade-in during 1 second then enable the coin
         getColor().a = 0;
-        addAction(Actions.sequence(Actions.fadeIn(1), Actions.run(this::enable)));
-    }
-
-    @Override
-    protected void positionChanged() {
-        super.positionChanged();
-        updateBoundingCircle();
+        addAction(Actions.sequence(Actions.fadeIn(1), Actions.run(enableTask)));
     }
 
     /**
-     * Updates the position of the bounding circle.
+     * Takes the coin out of the game, to be reused.
      */
-    protected final void updateBoundingCircle() {
-        boundingCircle.setPosition(getX(Align.center), getY(Align.center));
+    @Override
+    public void reset() {
+        clearActions();
+        enabled = false;
     }
 
     /**
@@ -17,22 +17,32 @@
 package brunonova.collision.core.actors;
 
 import brunonova.collision.core.Collision;
-import com.badlogic.gdx.audio.Sound;
+import brunonova.collision.core.Constants;
+import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.physics.BallSystem;
+import brunonova.collision.core.physics.CollisionEngine;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 
 /**
  * An enemy ball.
+ * <p>The ball is moved by the {@link CollisionEngine} of the
+ * game, which keeps its state in a {@link BallSystem}: the actor only
+ * follows it, with {@link #updatePosition()}.</p>
+ * <p>The enemy balls are reused (see {@link ActorPool}): each time a ball
+ * enters the game, it's given a new size and position by
+ * {@link #spawn(BallSystem)}.</p>
  */
-public class Enemy extends Ball {
+public class Enemy extends Ball implements Pool.Poolable {
     /** The minimum distance to the player ball when created. */
     public static final float MINIMUM_DISTANCE_TO_PLAYER = 100;
-    /** Mass of the ball (used when balls collide). */
+    /** Mass of a ball of the default size (used when balls collide). */
     public static final float MASS = 1;
     /**
      * Factor to multiply the game volume by when playing the "bounce" sound
-     * after an enemy ball collides with the window border.
+     * after an enemy ball collides with the world border.
      */
     public static final float BOUNCE_WITH_BORDER_VOLUME_FACTOR = 0.2f;
     /**
@@ -41,118 +51,60 @@ public class Enemy extends Ball {
      */
     public static final float BOUNCE_WITH_ENEMY_VOLUME_FACTOR = 0.4f;
 
-    /** Sound played when an enemy ball collides with another one or with the window border. */
-    private final Sound bounceSound;
-
-    private float speedX = 0;
-    private float speedY = 0;
+    /** Radius of a ball of the default size (the size of its image). */
+    private final float defaultRadius;
+    /** Enables the ball (kept, to not create it each time the ball spawns). */
+    private final Runnable enableTask = this::enable;
+    /** The state of the enemy balls (while in the game). */
+    private BallSystem balls;
+    /** Handle of this ball in {@link #balls}. */
+    private int ball;
+    /** Mass of the ball (proportional to its area). */
+    private float mass;
     private boolean enabled = false;
 
     /**
-     * Creates this enemy ball.
+     * Creates this enemy ball (out of the game, until
+     * {@link #spawn(BallSystem)} is called).
      * @param game The game.
      */
-    @SuppressWarnings("OverridableMethodCallInConstructor")
     public Enemy(Collision game) {
         super(game, "enemy.png");
-        setRandomPositionFarFromPlayer(MINIMUM_DISTANCE_TO_PLAYER);
+        defaultRadius = getRadius();
+    }
 
-        // Prepare the "bounce" sound
-        bounceSound = game.getSound("bounce.mp3");
+    /**
+     * Puts the ball in the game, with a new size and position.
+     * @param balls The state of the enemy balls, where this ball is added.
+     */
+    public void spawn(BallSystem balls) {
+        // Choose a random size in the "Swarm" mode (mostly small balls, with a
+        // few large ones)
+        if(game.getGameMode() == GameMode.SWARM) {
+            float ratio = Constants.SWARM_ENEMY_MAX_RADIUS / Constants.SWARM_ENEMY_MIN_RADIUS;
+            float exponent = (float) Math.pow(MathUtils.random(), Constants.SWARM_ENEMY_SIZE_SKEW);
+            setRadius(Constants.SWARM_ENEMY_MIN_RADIUS * (float) Math.pow(ratio, exponent));
+        } else {
+            setRadius(defaultRadius);
+        }
+        mass = MASS * (getRadius() / defaultRadius) * (getRadius() / defaultRadius);
+        setRandomPositionFarFromPlayer(MINIMUM_DISTANCE_TO_PLAYER);
+        this.balls = balls;
+        ball = balls.add(getX(Align.center), getY(Align.center), getRadius(), mass);
 
         // Set ball transparent, fade-in during 1 second then enable the ball
         getColor().a = 0;
-        addAction(Actions.sequence(Actions.fadeIn(1), Actions.run(this::enable)));
-    }
-
-    @Override
-    public void act(float delta) {
-        super.act(delta);
-
-        if(enabled) {
-            // Get the factor to multiply the speed by
-            float factor = game.getGameScreen().getEnemyBallsSpeedFactor();
-
-            // Move the ball
-            moveBy(speedX * delta * factor, speedY * delta * factor);
-
-            // Bounce the ball off the borders of the window
-            boolean bounced = false;
-            if(getX() < 0 || getRight() > game.getWidth()) {
-                speedX = -speedX;
-                bounced = true;
-            }
-            if(getY() < 0 || getTop() > game.getHeight()) {
-                speedY = -speedY;
-                bounced = true;
-            }
-            if(bounced) bounceSound.play(game.getVolume() * BOUNCE_WITH_BORDER_VOLUME_FACTOR);
-
-            // Ensure the ball is inside the window
-            keepInsideWindow();
-        }
+        addAction(Actions.sequence(Actions.fadeIn(1), Actions.run(enableTask)));
     }
 
     /**
-     * Bounces the two balls off one another after a collision.
-     * @param b1 The first ball.
-     * @param b2 The second ball.
+     * Takes the ball out of the game, to be reused.
      */
-    public static void bounceBalls(Enemy b1, Enemy b2) {
-        // Warning: LibGDX Vector2's operations modify the vector!
-        Vector2 pos1 = new Vector2(b1.getX(), b1.getY());
-        Vector2 pos2 = new Vector2(b2.getX(), b2.getY());
-        Vector2 delta = pos1.cpy().sub(pos2);
-        float dist = delta.len();
-
-        // Prevent a possible division by zero
-        if(dist == 0) {
-            dist = b1.getRadius() + b2.getRadius() - 1;
-            delta = new Vector2(b1.getRadius() + b2.getRadius(), 0);
-        }
-
-        // Minimum Translation Distance to push balls apart after the collision
-        Vector2 mtd = delta.cpy().scl((b1.getRadius() + b2.getRadius() - dist) / dist);
-
-        // Inverse mass quantities
-        float im1 = 1 / Enemy.MASS;
-        float im2 = 1 / Enemy.MASS;
-
-        // Push-pull them apart
-        pos1.add(mtd.cpy().scl(im1 / (im1 + im2)));
-        pos2.sub(mtd.cpy().scl(im2 / (im1 + im2)));
-        b1.setPosition(pos1.x, pos1.y);
-        b2.setPosition(pos2.x, pos2.y);
-
-        // Ensure the balls are still inside the window
-        b1.keepInsideWindow();
-        b2.keepInsideWindow();
-
-        // Impact speed
-        Vector2 speed1 = new Vector2(b1.speedX, b1.speedY);
-        Vector2 speed2 = new Vector2(b2.speedX, b2.speedY);
-        Vector2 v = speed1.cpy().sub(speed2);
-        mtd.nor();  // normalize the vector
-        float vn = v.dot(mtd);
-
-        // Sphere intersecting but moving away from each other already
-        if(vn > 0) return;
-
-        // Collision impulse
-        float restitution = 1;
-        float i = (-(1 + restitution) * vn) / (im1 + im2);
-        Vector2 impulse = mtd.cpy().scl(i);
-
-        // Change in momentum
-        speed1.add(impulse.cpy().scl(im1));
-        speed2.sub(impulse.cpy().scl(im2));
-        b1.speedX = speed1.x;
-        b1.speedY = speed1.y;
-        b2.speedX = speed2.x;
-        b2.speedY = speed2.y;
-
-        // Play the "bounce" sound
-        b1.bounceSound.play(b1.game.getVolume() * BOUNCE_WITH_ENEMY_VOLUME_FACTOR);
+    @Override
+    public void reset() {
+        clearActions();
+        enabled = false;
+        balls = null;
     }
 
     /**
@@ -163,8 +115,12 @@ public class Enemy extends Ball {
 
         // Choose the initial direction and speed
         float angle = MathUtils.random(MathUtils.PI);
-        speedX = MathUtils.cos(angle) * game.getDifficulty().getEnemySpeed();
-        speedY = MathUtils.sin(angle) * game.getDifficulty().getEnemySpeed();
+        float speed = game.getDifficulty().getEnemySpeed();
+        if(game.getGameMode() == GameMode.SWARM) {
+            speed *= Constants.SWARM_ENEMY_SPEED_FACTOR * Math.sqrt(Constants.SWARM_ENEMY_MIN_RADIUS / getRadius());
+        }
+        balls.setSpeed(ball, MathUtils.cos(angle) * speed, MathUtils.sin(angle) * speed);
+        balls.setEnabled(ball, true);
     }
 
     /**
@@ -172,7 +128,15 @@ public class Enemy extends Ball {
      */
     public void disable() {
         enabled = false;
-        speedX = speedY = 0;
+        balls.setSpeed(ball, 0, 0);
+        balls.setEnabled(ball, false);
+    }
+
+    /**
+     * Moves the actor to the current position of the ball.
+     */
+    public void updatePosition() {
+        setPosition(balls.getX(ball), balls.getY(ball), Align.center);
     }
 
     /**
@@ -182,4 +146,12 @@ public class Enemy extends Ball {
     public boolean isEnabled() {
         return enabled;
     }
+
+    /**
+     * Returns the mass of the ball.
+     * @return The mass of the ball.
+     */
+    public float getMass() {
+        return mass;
+    }
 }
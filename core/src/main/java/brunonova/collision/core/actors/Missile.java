@@ -17,18 +17,23 @@
 package brunonova.collision.core.actors;
 
 import brunonova.collision.core.Collision;
+import brunonova.collision.core.physics.Obstacles;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Pool;
 
 /**
  * A homing missile that tries to hit the player.
  */
-public class Missile extends Ball {
+public class Missile extends Ball implements Pool.Poolable {
     /** The minimum distance to the player ball when created. */
     public static final float MINIMUM_DISTANCE_TO_PLAYER = 200;
+    /** Distance between the centers of the rounded ends of the missile. */
+    private static final float BODY_LENGTH = 24;
+    /** Radius of the body of the missile (a capsule). */
+    private static final float BODY_RADIUS = 4;
 
-    /** The bounding circle for collision detection, updated automatically. */
     private boolean enabled = false;
 
     /**
@@ -39,6 +44,7 @@ public class Missile extends Ball {
     public Missile(Collision game) {
         super(game, "missile.png");
         sprite.setOriginCenter();
+        collider.setCapsule(BODY_LENGTH, BODY_RADIUS);
         getColor().a = 0;  // make invisible
     }
 
@@ -49,13 +55,21 @@ public class Missile extends Ball {
         // Rotate the missile in the direction of the player
         float angleToPlayer = getAngleToPlayer();
         sprite.setRotation(angleToPlayer);
+        collider.setAngle(angleToPlayer);
 
         if(isEnabled() && game.getGameScreen().getPlayer().isEnabled()) {
             // Move the missile towards the player
             float speed = game.getDifficulty().getMissileSpeed();
             float speedX = MathUtils.cosDeg(angleToPlayer) * speed * delta;
             float speedY = MathUtils.sinDeg(angleToPlayer) * speed * delta;
+            float previousX = getX(Align.center), previousY = getY(Align.center);
             setPosition(getX() + speedX, getY() + speedY);
+
+            // Slide along the obstacles
+            Obstacles obstacles = game.getObstacles();
+            if(obstacles.push(previousX, previousY, getX(Align.center), getY(Align.center), getRadius())) {
+                setPosition(obstacles.getX(), obstacles.getY(), Align.center);
+            }
         }
     }
 
@@ -68,6 +82,7 @@ public class Missile extends Ball {
 
             // Rotate the missile in the direction of the player
             sprite.setRotation(getAngleToPlayer());
+            collider.setAngle(sprite.getRotation());
 
             // Fade-in during half a second, then enable the missile
             clearActions();
@@ -90,6 +105,17 @@ public class Missile extends Ball {
         }
     }
 
+    /**
+     * Hides and disables the missile (even while it's still fading in), to be
+     * reused.
+     */
+    @Override
+    public void reset() {
+        enabled = false;
+        clearActions();
+        getColor().a = 0;  // make invisible
+    }
+
     /**
      * Returns whether the missile is enabled.
      * @return {@code true} if the missile is enabled.
@@ -104,6 +130,7 @@ public class Missile extends Ball {
      */
     private float getAngleToPlayer() {
         Player player = game.getGameScreen().getPlayer();
-        return new Vector2(player.getX() - getX(), player.getY() - getY()).angle();
+        float angle = MathUtils.atan2(player.getY() - getY(), player.getX() - getX()) * MathUtils.radiansToDegrees;
+        return angle < 0 ? angle + 360 : angle;
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.actors;
+
+import brunonova.collision.core.Collision;
+import brunonova.collision.core.physics.MissileSwarm;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * An actor that draws the missiles of a {@link MissileSwarm}, covering the
+ * whole world.
+ * <p>The missiles aren't actors, so hundreds of them can be drawn (and
+ * moved) cheaply. The missiles outside the culling area of the parent are
+ * skipped.</p>
+ */
+public class MissileSwarmActor extends BaseActor {
+    /** The image of the missiles. */
+    private final TextureRegion region;
+    /** The missiles. */
+    private MissileSwarm swarm;
+
+    /**
+     * Creates the actor.
+     * @param game The game.
+     */
+    public MissileSwarmActor(Collision game) {
+        super(game);
+        region = new TextureRegion(game.getImage("missile.png"));
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        super.draw(batch, parentAlpha);
+        if(swarm == null || swarm.getCount() == 0) return;
+
+        Rectangle culling = getParent() != null ? getParent().getCullingArea() : null;
+        float radius = swarm.getRadius();
+        float size = radius * 2;
+        Color color = batch.getColor();
+        float r = color.r, g = color.g, b = color.b, a = color.a;
+        for(int i = 0; i < swarm.getCount(); i++) {
+            float x = swarm.getX(i) - radius;
+            float y = swarm.getY(i) - radius;
+            if(culling != null && (x > culling.x + culling.width || x + size < culling.x
+                    || y > culling.y + culling.height || y + size < culling.y)) {
+                continue;
+            }
+
+            // Fade-in the new missiles, pointing them in their direction
+            batch.setColor(r, g, b, a * parentAlpha * getColor().a * swarm.getFadeIn(i));
+            batch.draw(region, x, y, radius, radius, size, size, 1, 1, swarm.getAngle(i));
+        }
+        batch.setColor(r, g, b, a);
+    }
+
+    /**
+     * Changes the missiles drawn by the actor.
+     * @param swarm The missiles ({@code null} to draw nothing).
+     */
+    public void setSwarm(MissileSwarm swarm) {
+        this.swarm = swarm;
+        setBounds(0, 0, game.getWorldWidth(), game.getWorldHeight());
+    }
+}
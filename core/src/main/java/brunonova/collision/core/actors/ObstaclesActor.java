@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.actors;
+
+import brunonova.collision.core.Collision;
+import brunonova.collision.core.physics.Obstacles;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * An actor that draws the static obstacles of the arena, covering the whole
+ * world.
+ * <p>The obstacles outside the culling area of the parent are skipped.</p>
+ */
+public class ObstaclesActor extends BaseActor {
+    /** The color of the obstacles. */
+    private static final Color COLOR = new Color(0.35f, 0.35f, 0.35f, 1);
+    /** Width of the lines drawn for the segments. */
+    private static final float SEGMENT_WIDTH = 2;
+
+    private final Obstacles obstacles;
+    private final ShapeRenderer shapeRenderer;
+    /** Projection of the shape renderer, restored after drawing. */
+    private final Matrix4 projection = new Matrix4();
+
+    /**
+     * Creates the actor.
+     * @param game The game.
+     */
+    public ObstaclesActor(Collision game) {
+        super(game);
+        obstacles = game.getObstacles();
+        shapeRenderer = game.getShapeRenderer();
+        setBounds(0, 0, game.getWorldWidth(), game.getWorldHeight());
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        super.draw(batch, parentAlpha);
+        if(obstacles.getCount() == 0) return;
+
+        // Can't use both a Batch and a ShapeRenderer at the same time (the
+        // shapes are drawn with the camera of the batch)
+        batch.end();
+        projection.set(shapeRenderer.getProjectionMatrix());
+        shapeRenderer.setProjectionMatrix(batch.getProjectionMatrix());
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        shapeRenderer.setColor(COLOR.r, COLOR.g, COLOR.b, COLOR.a * parentAlpha * getColor().a);
+
+        Rectangle culling = getParent() != null ? getParent().getCullingArea() : null;
+        for(int i = 0; i < obstacles.getCount(); i++) {
+            float x1 = obstacles.getX1(i), y1 = obstacles.getY1(i);
+            float x2 = obstacles.getX2(i), y2 = obstacles.getY2(i);
+            if(culling != null && (Math.min(x1, x2) > culling.x + culling.width || Math.max(x1, x2) < culling.x
+                    || Math.min(y1, y2) > culling.y + culling.height || Math.max(y1, y2) < culling.y)) {
+                continue;
+            }
+            switch(obstacles.getShape(i)) {
+                case RECTANGLE:
+                    shapeRenderer.rect(x1, y1, x2 - x1, y2 - y1);
+                    break;
+                case CIRCLE:
+                    shapeRenderer.circle((x1 + x2) / 2, (y1 + y2) / 2, (x2 - x1) / 2);
+                    break;
+                case SEGMENT:
+                    shapeRenderer.rectLine(x1, y1, x2, y2, SEGMENT_WIDTH);
+                    break;
+            }
+        }
+
+        shapeRenderer.end();
+        shapeRenderer.setProjectionMatrix(projection);
+        batch.begin();
+    }
+}
@@ -17,11 +17,13 @@
 package brunonova.collision.core.actors;
 
 import brunonova.collision.core.Collision;
+import brunonova.collision.core.physics.Obstacles;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
+import com.badlogic.gdx.utils.Align;
 
 
 /**
@@ -51,7 +53,7 @@ public class Player extends Ball {
      */
     public Player(Collision game) {
         super(game, "player.png");
-        centerOnScreen();
+        centerInWorld();
         normalSprite = sprite;
 
         // Set the "frozen" sprite
@@ -88,10 +90,16 @@ public class Player extends Ball {
             dx = Math.min(Math.max(dx, -maxSpeed), maxSpeed);
             dy = Math.min(Math.max(dy, -maxSpeed), maxSpeed);
 
-            // Move the player
+            // Move the player, sliding along the obstacles
             if(dx != 0 || dy != 0) {
+                float previousX = getX(Align.center), previousY = getY(Align.center);
                 moveBy(dx, dy);
-                keepInsideWindow();  // ensure the player is inside of the window
+                keepInsideWorld();  // ensure the player is inside of the world
+                Obstacles obstacles = game.getObstacles();
+                if(obstacles.push(previousX, previousY, getX(Align.center), getY(Align.center), getRadius())) {
+                    setPosition(obstacles.getX(), obstacles.getY(), Align.center);
+                    keepInsideWorld();
+                }
             }
         }
     }
@@ -105,22 +113,13 @@ public class Player extends Ball {
     }
 
     @Override
-    protected void positionChanged() {
-        super.positionChanged();
+    protected void transformChanged() {
+        super.transformChanged();
 
         // Updates the position of the "invulnerable" overlay
         if(invulnerableOverlay != null) invulnerableOverlay.setPosition(getX(), getY());
     }
 
-    /**
-     * Returns whether the player overlaps (collides with) the specified coin.
-     * @param coin The coin.
-     * @return {@code true} if the player and coin overlap.
-     */
-    public boolean overlaps(Coin coin) {
-        return boundingCircle.overlaps(coin.boundingCircle);
-    }
-
     /**
      * Freezes the player in place.
      */
@@ -128,7 +127,7 @@ public class Player extends Ball {
         if(!isFrozen()) {
             frozen = true;
             sprite = frozenSprite;
-            positionChanged();  // ensure the sprite is drawn at the right position
+            invalidateTransform();  // ensure the sprite is drawn at the right position
         }
     }
 
@@ -139,7 +138,7 @@ public class Player extends Ball {
         if(isFrozen()) {
             frozen = false;
             sprite = normalSprite;
-            positionChanged();  // ensure the sprite is drawn at the right position
+            invalidateTransform();  // ensure the sprite is drawn at the right position
         }
     }
 
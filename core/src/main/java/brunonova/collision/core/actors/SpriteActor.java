@@ -47,6 +47,7 @@ public abstract class SpriteActor extends BaseActor {
     @Override
     public void draw(Batch batch, float parentAlpha) {
         super.draw(batch, parentAlpha);
+        updateTransform();
         if(isVisible()) {
             sprite.draw(batch, parentAlpha * getColor().a);
         }
@@ -58,8 +59,8 @@ public abstract class SpriteActor extends BaseActor {
      * the actor.
      */
     @Override
-    protected void positionChanged() {
-        super.positionChanged();
+    protected void transformChanged() {
+        super.transformChanged();
         sprite.setPosition(getX(), getY());
     }
 
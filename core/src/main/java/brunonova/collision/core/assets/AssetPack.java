@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.assets;
+
+import com.badlogic.gdx.Gdx;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only pack of game assets, generated by the {@code packAssets} Gradle
+ * task.
+ * <p>The pack starts with an index header, followed by the contents of all
+ * the packed files:</p>
+ * <ul>
+ * <li>the magic number {@link #MAGIC} (int);</li>
+ * <li>the number of entries (int);</li>
+ * <li>for each entry, the length of its path (short), the path in UTF-8,
+ *     the offset of its contents from the start of the pack (int) and the
+ *     length of its contents (int);</li>
+ * <li>the contents of all the entries.</li>
+ * </ul>
+ * <p>All numbers are big-endian. The paths are the same paths used to load the
+ * files as internal files (e.g.
+ * {@code brunonova/collision/res/images/player.png}).</p>
+ * <p>When the pack is a file on disk, it's memory-mapped and the entries are
+ * served as slices of the mapped buffer. When it's inside a JAR, it's read
+ * once into a direct buffer (out of the Java heap).</p>
+ */
+public final class AssetPack {
+    private static final String TAG = AssetPack.class.getName();
+
+    /** Magic number at the start of the pack ("CPK1"). */
+    public static final int MAGIC = 0x43504B31;
+
+    /** The contents of the whole pack. */
+    private final ByteBuffer buffer;
+    /** Offset and length of each entry, by path. */
+    private final Map<String, int[]> entries;
+    /** Directories that contain at least one entry. */
+    private final Set<String> directories;
+
+    /**
+     * Creates the pack and reads its index.
+     * @param buffer The contents of the whole pack.
+     * @throws IOException If the index is invalid.
+     */
+    private AssetPack(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        this.entries = new HashMap<>();
+        this.directories = new HashSet<>();
+
+        try {
+            if(buffer.getInt(0) != MAGIC) {
+                throw new IOException("not an asset pack");
+            }
+
+            // Read the index
+            ByteBuffer header = buffer.duplicate();
+            header.position(4);
+            int count = header.getInt();
+            for(int i = 0; i < count; i++) {
+                byte[] pathBytes = new byte[header.getShort() & 0xFFFF];
+                header.get(pathBytes);
+                String path = new String(pathBytes, StandardCharsets.UTF_8);
+                int offset = header.getInt();
+                int length = header.getInt();
+                if(offset < 0 || length < 0 || offset + length > buffer.limit()) {
+                    throw new IOException("entry " + path + " is out of bounds");
+                }
+                entries.put(path, new int[] {offset, length});
+
+                // Register all the parent directories of the entry
+                int slash = path.lastIndexOf('/');
+                while(slash > 0) {
+                    path = path.substring(0, slash);
+                    directories.add(path);
+                    slash = path.lastIndexOf('/');
+                }
+            }
+        } catch(RuntimeException ex) {
+            throw new IOException("corrupted asset pack", ex);
+        }
+    }
+
+    /**
+     * Opens the asset pack with the specified internal path.
+     * <p>If the pack is a file in the classpath, it's memory-mapped. If it's
+     * inside a JAR, it's read into a direct buffer.</p>
+     * @param internalPath Internal path of the pack.
+     * @return The pack, or {@code null} if it doesn't exist or is invalid.
+     */
+    public static AssetPack open(String internalPath) {
+        URL url = AssetPack.class.getResource("/" + internalPath);
+        if(url == null) {
+            Gdx.app.log(TAG, "asset pack " + internalPath + " not found, using loose files");
+            return null;
+        }
+
+        try {
+            if("file".equals(url.getProtocol())) {
+                // Map the file into memory
+                File file = new File(url.toURI());
+                try(RandomAccessFile raf = new RandomAccessFile(file, "r");
+                        FileChannel channel = raf.getChannel()) {
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    return new AssetPack(buffer);
+                }
+            } else {
+                // Can't map a file inside a JAR, so read it all at once, out of
+                // the Java heap (the size is usually known, so it's read
+                // directly into a buffer of the right size)
+                URLConnection connection = url.openConnection();
+                long size = connection.getContentLengthLong();
+                try(InputStream input = connection.getInputStream();
+                        ReadableByteChannel channel = Channels.newChannel(input)) {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(size >= 0 ? (int) size : 1 << 20);
+                    while(channel.read(buffer) != -1) {
+                        if(!buffer.hasRemaining()) {
+                            if(size >= 0) break;
+                            ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                            buffer.flip();
+                            larger.put(buffer);
+                            buffer = larger;
+                        }
+                    }
+                    buffer.flip();
+                    return new AssetPack(buffer);
+                }
+            }
+        } catch(IOException | URISyntaxException ex) {
+            Gdx.app.error(TAG, "error opening asset pack " + internalPath, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the pack contains the file with the specified path.
+     * @param path Path of the file.
+     * @return {@code true} if the file exists in the pack.
+     */
+    public boolean contains(String path) {
+        return entries.containsKey(path);
+    }
+
+    /**
+     * Returns whether the specified path is a directory with files in the
+     * pack.
+     * @param path Path of the directory (without the trailing slash).
+     * @return {@code true} if it's a directory of the pack.
+     */
+    public boolean isDirectory(String path) {
+        return directories.contains(path);
+    }
+
+    /**
+     * Returns the contents of the specified file as a read-only slice of the
+     * pack, without copying them.
+     * <p>Each call returns a new slice, with its own position, so it can be
+     * used by multiple threads at the same time.</p>
+     * @param path Path of the file.
+     * @return The contents of the file, or {@code null} if it isn't in the
+     *         pack.
+     */
+    public ByteBuffer slice(String path) {
+        int[] entry = entries.get(path);
+        if(entry == null) return null;
+
+        ByteBuffer slice = buffer.asReadOnlyBuffer();
+        slice.position(entry[0]);
+        slice.limit(entry[0] + entry[1]);
+        return slice.slice();
+    }
+
+    /**
+     * Returns the length of the specified file.
+     * @param path Path of the file.
+     * @return The length of the file in bytes, or 0 if it isn't in the pack.
+     */
+    public int length(String path) {
+        int[] entry = entries.get(path);
+        return entry == null ? 0 : entry[1];
+    }
+}
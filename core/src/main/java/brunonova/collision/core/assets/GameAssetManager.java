@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.assets;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+
+/**
+ * The game's asset manager.
+ * <p>Unlike {@link AssetManager}, it allows adding assets that were loaded
+ * elsewhere (like by the {@link ParallelAssetLoader}).</p>
+ */
+public class GameAssetManager extends AssetManager {
+    /**
+     * Creates the asset manager.
+     * @param resolver The resolver used to find the asset files.
+     */
+    public GameAssetManager(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    public synchronized <T> void addAsset(String fileName, Class<T> type, T asset) {
+        super.addAsset(fileName, type, asset);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.assets;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A file handle for a file inside an {@link AssetPack}.
+ * <p>The file is read from the pack's buffer, which is already in memory, so
+ * reading it doesn't open a file or a JAR entry. The loaders of libGDX still
+ * copy the contents of the file into their own arrays.</p>
+ */
+public class PackFileHandle extends FileHandle {
+    private final AssetPack pack;
+    private final String path;
+
+    /**
+     * Creates the file handle.
+     * @param pack The asset pack.
+     * @param path Path of the file inside the pack.
+     */
+    public PackFileHandle(AssetPack pack, String path) {
+        super(path, Files.FileType.Internal);
+        this.pack = pack;
+        this.path = path;
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public InputStream read() {
+        return new ByteBufferInputStream(slice());
+    }
+
+    @Override
+    public byte[] readBytes() {
+        ByteBuffer slice = slice();
+        byte[] bytes = new byte[slice.remaining()];
+        slice.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public int readBytes(byte[] bytes, int offset, int size) {
+        ByteBuffer slice = slice();
+        size = Math.min(size, slice.remaining());
+        slice.get(bytes, offset, size);
+        return size;
+    }
+
+    @Override
+    public long length() {
+        return pack.length(path);
+    }
+
+    @Override
+    public boolean exists() {
+        return pack.contains(path) || pack.isDirectory(path);
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return pack.isDirectory(path);
+    }
+
+    @Override
+    public FileHandle child(String name) {
+        return new PackFileHandle(pack, path.isEmpty() ? name : path + "/" + name);
+    }
+
+    @Override
+    public FileHandle sibling(String name) {
+        int slash = path.lastIndexOf('/');
+        return new PackFileHandle(pack, slash < 0 ? name : path.substring(0, slash + 1) + name);
+    }
+
+    @Override
+    public FileHandle parent() {
+        int slash = path.lastIndexOf('/');
+        return new PackFileHandle(pack, slash < 0 ? "" : path.substring(0, slash));
+    }
+
+    @Override
+    public long lastModified() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Returns the contents of the file as a read-only slice of the pack.
+     * @return The contents of the file.
+     * @throws GdxRuntimeException If the file isn't in the pack.
+     */
+    private ByteBuffer slice() {
+        ByteBuffer slice = pack.slice(path);
+        if(slice == null) {
+            throw new GdxRuntimeException("File not found in asset pack: " + path);
+        }
+        return slice;
+    }
+
+
+    /**
+     * An input stream that reads from a byte buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates the stream.
+         * @param buffer The buffer to read from.
+         */
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if(length == 0) return 0;
+            if(!buffer.hasRemaining()) return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
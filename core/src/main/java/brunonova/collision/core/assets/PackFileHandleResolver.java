@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.assets;
+
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * A file handle resolver that resolves files from an {@link AssetPack}.
+ * <p>Files that aren't in the pack (and aren't in one of its directories) are
+ * resolved by the fallback resolver.</p>
+ */
+public class PackFileHandleResolver implements FileHandleResolver {
+    private final AssetPack pack;
+    private final FileHandleResolver fallback;
+
+    /**
+     * Creates the resolver.
+     * @param pack The asset pack (can be {@code null}, in which case all files
+     *             are resolved by the fallback resolver).
+     * @param fallback Resolver for files that aren't in the pack.
+     */
+    public PackFileHandleResolver(AssetPack pack, FileHandleResolver fallback) {
+        this.pack = pack;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public FileHandle resolve(String fileName) {
+        if(pack != null) {
+            // Files in a directory of the pack are also resolved by the pack,
+            // so that siblings (like i18n bundles) can be found
+            int slash = fileName.lastIndexOf('/');
+            if(pack.contains(fileName) || (slash > 0 && pack.isDirectory(fileName.substring(0, slash)))) {
+                return new PackFileHandle(pack, fileName);
+            }
+        }
+        return fallback.resolve(fileName);
+    }
+}
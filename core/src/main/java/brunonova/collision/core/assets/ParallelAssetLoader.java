@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.assets;
+
+import brunonova.collision.core.StartupTracer;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Loads assets in parallel, and adds them to a {@link GameAssetManager}.
+ * <p>The CPU-heavy work (decoding images into {@link Pixmap}s, rasterizing
+ * fonts and decoding sounds) is done in the worker threads of an
+ * {@link AsyncExecutor}. Only the creation of the OpenGL textures and audio
+ * buffers is done in the render thread, in {@link #update(int)}.</p>
+ * <p>Queue the assets with the {@code load*} methods, then call
+ * {@link #start()} and keep calling {@link #update(int)} until it returns
+ * {@code true}.</p>
+ */
+public class ParallelAssetLoader {
+    private static final String TAG = ParallelAssetLoader.class.getName();
+
+    /** Size of the pages where the font glyphs are packed. */
+    private static final int FONT_PAGE_SIZE = 1024;
+
+    private final GameAssetManager assetManager;
+    private final FileHandleResolver resolver;
+    private final AsyncExecutor executor;
+    private final SoundDecoder<?> soundDecoder;
+
+    /** All the queued assets. */
+    private final List<Task<?>> tasks = new ArrayList<>();
+    /** Assets decoded by the worker threads, waiting to be finished. */
+    private final Queue<Task<?>> decodedTasks = new ConcurrentLinkedQueue<>();
+
+    private long totalBytes = 0;
+    private long loadedBytes = 0;
+    private int remainingTasks = 0;
+    private long startTime = 0;
+    private long endTime = 0;
+    private boolean started = false;
+
+    /**
+     * Creates the loader.
+     * @param assetManager The asset manager where the assets are added.
+     * @param resolver The resolver used to find the asset files.
+     * @param executor The executor used to decode the assets.
+     * @param soundDecoder The decoder used to load the sounds.
+     */
+    public ParallelAssetLoader(GameAssetManager assetManager, FileHandleResolver resolver,
+            AsyncExecutor executor, SoundDecoder<?> soundDecoder) {
+        this.assetManager = assetManager;
+        this.resolver = resolver;
+        this.executor = executor;
+        this.soundDecoder = soundDecoder;
+    }
+
+    /**
+     * Queues a texture to be loaded.
+     * @param fileName The file name of the image.
+     */
+    public void loadTexture(String fileName) {
+        addTask(new TextureTask(fileName));
+    }
+
+    /**
+     * Queues a sound to be loaded.
+     * @param fileName The file name of the sound.
+     */
+    public void loadSound(String fileName) {
+        addTask(new SoundTask<>(fileName, soundDecoder));
+    }
+
+    /**
+     * Queues a FreeType font to be loaded.
+     * @param name The name to be used to retrieve the font from the asset
+     *             manager.
+     * @param fontFileName The file name of the TTF file.
+     * @param parameter The parameters of the font.
+     */
+    public void loadFont(String name, String fontFileName, FreeTypeFontGenerator.FreeTypeFontParameter parameter) {
+        addTask(new FontTask(name, fontFileName, parameter));
+    }
+
+    /**
+     * Starts decoding all the queued assets in the worker threads.
+     */
+    public void start() {
+        if(started) return;
+        started = true;
+        startTime = TimeUtils.nanoTime();
+
+        for(Task<?> task: tasks) {
+            executor.submit(() -> {
+                task.decode();
+                decodedTasks.add(task);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Finishes loading the assets that were already decoded, in the render
+     * thread, for at most about the specified amount of time (the asset
+     * being finished when it runs out is still finished).
+     * @param millis Maximum amount of time (milliseconds) to block.
+     * @return {@code true} if all assets were loaded.
+     * @throws GdxRuntimeException If an asset couldn't be loaded.
+     */
+    public boolean update(int millis) {
+        start();
+        long endOfUpdate = TimeUtils.millis() + millis;
+
+        Task<?> task;
+        while(remainingTasks > 0 && (task = decodedTasks.poll()) != null) {
+            task.finish();
+            loadedBytes += task.bytes;
+            remainingTasks--;
+
+            if(remainingTasks == 0) {
+                endTime = TimeUtils.nanoTime();
+            } else if(TimeUtils.millis() >= endOfUpdate) {
+                break;
+            }
+        }
+
+        return isFinished();
+    }
+
+    /**
+     * Returns whether all assets were loaded.
+     * @return {@code true} if all assets were loaded.
+     */
+    public boolean isFinished() {
+        return started && remainingTasks == 0;
+    }
+
+    /**
+     * Returns the progress of the loading, weighted by the size of the files.
+     * @return The progress, between 0 and 1.
+     */
+    public float getProgress() {
+        return totalBytes == 0 ? 1 : (float) loadedBytes / totalBytes;
+    }
+
+    /**
+     * Logs the time spent loading each asset, and in total.
+     */
+    public void logReport() {
+        long decodeTime = 0, finishTime = 0;
+        for(Task<?> task: tasks) {
+            Gdx.app.log(TAG, String.format("%-50s %8d bytes  decode %7.2f ms  upload %6.2f ms",
+                    task.name, task.bytes, task.decodeNanos / 1e6, task.finishNanos / 1e6));
+            decodeTime += task.decodeNanos;
+            finishTime += task.finishNanos;
+        }
+        Gdx.app.log(TAG, String.format("loaded %d assets (%d bytes) in %.2f ms: "
+                + "decode %.2f ms (in worker threads), upload %.2f ms (in render thread)",
+                tasks.size(), totalBytes, (endTime - startTime) / 1e6, decodeTime / 1e6, finishTime / 1e6));
+    }
+
+    /**
+     * Adds a task to the queue.
+     * @param task The task.
+     */
+    private void addTask(Task<?> task) {
+        if(started) {
+            throw new GdxRuntimeException("Can't queue assets after the loading started");
+        }
+        tasks.add(task);
+        totalBytes += task.bytes;
+        remainingTasks++;
+    }
+
+
+    /**
+     * Loading of an asset, split into the decode step (worker thread) and the
+     * finish step (render thread).
+     * @param <T> Type of the decoded data.
+     */
+    private abstract class Task<T> {
+        /** Name of the asset in the asset manager. */
+        final String name;
+        /** File of the asset. */
+        final FileHandle file;
+        /** Size of the file (at least 1 byte, so every asset has some weight). */
+        final long bytes;
+
+        T decoded;
+        Throwable error;
+        long decodeNanos;
+        long finishNanos;
+
+        /**
+         * Creates the task.
+         * @param name Name of the asset in the asset manager.
+         * @param fileName File name of the asset.
+         */
+        Task(String name, String fileName) {
+            this.name = name;
+            this.file = resolver.resolve(fileName);
+            this.bytes = Math.max(1, file.length());
+        }
+
+        /**
+         * Decodes the asset (called in a worker thread).
+         */
+        final void decode() {
+            StartupTracer.begin("decode " + name);
+            long start = TimeUtils.nanoTime();
+            try {
+                decoded = decodeAsset();
+            } catch(Throwable ex) {
+                error = ex;
+            }
+            decodeNanos = TimeUtils.nanoTime() - start;
+            StartupTracer.end("decode " + name);
+        }
+
+        /**
+         * Finishes loading the asset and adds it to the asset manager (called
+         * in the render thread).
+         */
+        final void finish() {
+            if(error != null) {
+                throw new GdxRuntimeException("Couldn't load asset: " + name, error);
+            }
+            long start = TimeUtils.nanoTime();
+            finishAsset(decoded);
+            decoded = null;
+            finishNanos = TimeUtils.nanoTime() - start;
+        }
+
+        abstract T decodeAsset();
+
+        abstract void finishAsset(T decoded);
+    }
+
+    /**
+     * Decodes an image into a pixmap, then uploads it into a texture.
+     */
+    private class TextureTask extends Task<Pixmap> {
+        TextureTask(String fileName) {
+            super(fileName, fileName);
+        }
+
+        @Override
+        Pixmap decodeAsset() {
+            return new Pixmap(file);
+        }
+
+        @Override
+        void finishAsset(Pixmap pixmap) {
+            Texture texture = new Texture(pixmap);
+            pixmap.dispose();
+            assetManager.addAsset(name, Texture.class, texture);
+        }
+    }
+
+    /**
+     * Decodes a sound with a {@link SoundDecoder}, then creates it.
+     * @param <T> Type of the decoded data.
+     */
+    private class SoundTask<T> extends Task<T> {
+        private final SoundDecoder<T> decoder;
+
+        SoundTask(String fileName, SoundDecoder<T> decoder) {
+            super(fileName, fileName);
+            this.decoder = decoder;
+        }
+
+        @Override
+        T decodeAsset() {
+            return decoder.decode(file);
+        }
+
+        @Override
+        void finishAsset(T decoded) {
+            assetManager.addAsset(name, Sound.class, decoder.create(decoded));
+        }
+    }
+
+    /**
+     * Rasterizes the glyphs of a font into pixmaps, then uploads them into
+     * textures.
+     */
+    private class FontTask extends Task<FontTask.FontData> {
+        private final FreeTypeFontGenerator.FreeTypeFontParameter parameter;
+
+        FontTask(String name, String fontFileName, FreeTypeFontGenerator.FreeTypeFontParameter parameter) {
+            super(name, fontFileName);
+            this.parameter = parameter;
+        }
+
+        @Override
+        FontData decodeAsset() {
+            // With a packer of our own, the generator only rasterizes the
+            // glyphs into the packer's pixmaps, without creating any textures
+            PixmapPacker packer = new PixmapPacker(FONT_PAGE_SIZE, FONT_PAGE_SIZE, Pixmap.Format.RGBA8888, 1, false);
+            packer.setTransparentColor(parameter.color);
+            packer.getTransparentColor().a = 0;
+            parameter.packer = packer;
+
+            FreeTypeFontGenerator generator = new FreeTypeFontGenerator(file);
+            try {
+                return new FontData(generator.generateData(parameter), packer);
+            } finally {
+                parameter.packer = null;
+                generator.dispose();
+            }
+        }
+
+        @Override
+        void finishAsset(FontData font) {
+            // Upload each page into a texture of its own (unlike the ones of
+            // the packer, these don't keep the pixmap), then dispose the
+            // pixmaps of the pages
+            Array<TextureRegion> regions = new Array<>();
+            for(PixmapPacker.Page page: font.packer.getPages()) {
+                Texture texture = new Texture(page.getPixmap(), parameter.genMipMaps);
+                texture.setFilter(parameter.minFilter, parameter.magFilter);
+                regions.add(new TextureRegion(texture));
+            }
+            font.packer.dispose();
+            BitmapFont bitmapFont = new BitmapFont(font.data, regions, true);
+            bitmapFont.setOwnsTexture(true);
+            assetManager.addAsset(name, BitmapFont.class, bitmapFont);
+        }
+
+        /**
+         * The rasterized glyphs of a font.
+         */
+        private class FontData {
+            final FreeTypeFontGenerator.FreeTypeBitmapFontData data;
+            final PixmapPacker packer;
+
+            FontData(FreeTypeFontGenerator.FreeTypeBitmapFontData data, PixmapPacker packer) {
+                this.data = data;
+                this.packer = packer;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.assets;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Loads sounds in two steps, so that the decoding can happen in a worker
+ * thread and only the creation of the audio buffers happens in the render
+ * thread.
+ * <p>The audio API is backend-specific, so each backend may provide its own
+ * implementation. The {@link #DEFAULT} implementation does all the work in
+ * the render thread.</p>
+ * @param <T> Type of the decoded data.
+ */
+public interface SoundDecoder<T> {
+    /**
+     * Decoder that doesn't decode anything in advance, and simply creates the
+     * sound with {@link com.badlogic.gdx.Audio#newSound(FileHandle)}.
+     */
+    SoundDecoder<FileHandle> DEFAULT = new SoundDecoder<FileHandle>() {
+        @Override
+        public FileHandle decode(FileHandle file) {
+            return file;
+        }
+
+        @Override
+        public Sound create(FileHandle file) {
+            return Gdx.audio.newSound(file);
+        }
+    };
+
+    /**
+     * Decodes the sound file.
+     * <p>Called in a worker thread.</p>
+     * @param file The sound file.
+     * @return The decoded data.
+     */
+    T decode(FileHandle file);
+
+    /**
+     * Creates the sound from the decoded data.
+     * <p>Called in the render thread.</p>
+     * @param decoded The data returned by {@link #decode(FileHandle)}.
+     * @return The sound.
+     */
+    Sound create(T decoded);
+}
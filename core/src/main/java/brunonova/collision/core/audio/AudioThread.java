@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.audio;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Sound;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A thread that plays and stops the sounds, so the game loop doesn't wait
+ * for the audio backend.
+ * <p>The commands are sent through a single-producer / single-consumer ring
+ * buffer, without locks: sending a command only writes to the buffer and
+ * publishes the new tail index. The commands are executed in the order they
+ * were sent. If the buffer is full, the command is rejected.</p>
+ * <p>Only one thread (the rendering thread) can send commands, and all the
+ * calls to the {@link Sound}s must be done through this class, since the
+ * audio backend isn't thread-safe.</p>
+ * <p>The sounds are identified by voices, numbers chosen by the sender, so
+ * the sender doesn't need to wait for the id returned by
+ * {@link Sound#play(float)}.</p>
+ */
+public class AudioThread {
+    private static final String TAG = AudioThread.class.getName();
+
+    /** Number of commands the buffer can hold (a power of 2). */
+    public static final int CAPACITY = 1024;
+    /** Number of voices whose sound ids are remembered (a power of 2). */
+    static final int VOICE_SLOTS = 1024;
+    /**
+     * Maximum time (nanoseconds) the thread sleeps while idle (and so the
+     * maximum delay of a command if its wake up is missed).
+     */
+    private static final long MAX_PARK_NANOS = 5000000;
+    /** Number of times the thread checks for commands before sleeping. */
+    private static final int SPINS = 100;
+
+    private static final byte PLAY = 1;
+    private static final byte STOP = 2;
+
+    // The ring buffer (each command is in the same index of these arrays)
+    private final byte[] types = new byte[CAPACITY];
+    private final Sound[] sounds = new Sound[CAPACITY];
+    private final float[] volumes = new float[CAPACITY];
+    private final long[] voices = new long[CAPACITY];
+    /** Index of the next command to execute (written by the consumer). */
+    private final AtomicLong head = new AtomicLong();
+    /** Index of the next command to send (written by the producer). */
+    private final AtomicLong tail = new AtomicLong();
+    /** Last value of the head seen by the producer. */
+    private long cachedHead = 0;
+
+    // The voice played in each slot and its sound id (only used by the
+    // audio thread)
+    private final long[] slotVoices = new long[VOICE_SLOTS];
+    private final long[] soundIds = new long[VOICE_SLOTS];
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean sleeping = false;
+    private long rejected = 0;
+
+    /**
+     * Creates the thread (without starting it).
+     */
+    public AudioThread() {
+        thread = new Thread(this::run, "audio");
+        thread.setDaemon(true);
+        Arrays.fill(slotVoices, -1);
+    }
+
+    /**
+     * Starts the thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Plays a sound.
+     * @param sound The sound.
+     * @param volume The volume, from 0 to 1.
+     * @param voice Number that identifies this play of the sound, to stop it
+     *              with {@link #stop(Sound, long)}.
+     * @return {@code true} if the command was sent, {@code false} if the
+     *         buffer is full.
+     */
+    public boolean play(Sound sound, float volume, long voice) {
+        return send(PLAY, sound, volume, voice);
+    }
+
+    /**
+     * Stops a voice of a sound.
+     * @param sound The sound.
+     * @param voice The voice given to {@link #play(Sound, float, long)}.
+     * @return {@code true} if the command was sent, {@code false} if the
+     *         buffer is full.
+     */
+    public boolean stop(Sound sound, long voice) {
+        return send(STOP, sound, 0, voice);
+    }
+
+    /**
+     * Executes the pending commands, then stops the thread and waits for it
+     * to finish.
+     * <p>No more commands can be sent after this is called.</p>
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of commands rejected because the buffer was full.
+     * @return The number of rejected commands.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Sends a command (called by the producer).
+     * @param type The type of the command.
+     * @param sound The sound.
+     * @param volume The volume (for {@link #PLAY}).
+     * @param voice The voice.
+     * @return {@code true} if the command was sent.
+     */
+    private boolean send(byte type, Sound sound, float volume, long voice) {
+        long t = tail.get();
+        if(t - cachedHead >= CAPACITY) {
+            // The buffer seems full: read the real head
+            cachedHead = head.get();
+            if(t - cachedHead >= CAPACITY || !running) {
+                rejected++;
+                return false;
+            }
+        }
+
+        // Write the command, then publish it
+        int index = (int) (t & (CAPACITY - 1));
+        types[index] = type;
+        sounds[index] = sound;
+        volumes[index] = volume;
+        voices[index] = voice;
+        tail.lazySet(t + 1);
+
+        // Wake up the thread, if it's sleeping (if the wake up is missed, it
+        // wakes up by itself shortly after)
+        if(sleeping) LockSupport.unpark(thread);
+        return true;
+    }
+
+    /**
+     * The loop of the audio thread (the consumer).
+     */
+    private void run() {
+        int idle = 0;
+        while(true) {
+            long h = head.get();
+            if(h == tail.get()) {
+                // No commands: stop if shutting down, or spin for a while,
+                // then sleep
+                if(!running) break;
+                if(++idle < SPINS) {
+                    Thread.yield();
+                } else {
+                    sleeping = true;
+                    if(head.get() == tail.get() && running) LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                    sleeping = false;
+                }
+                continue;
+            }
+            idle = 0;
+
+            // Execute the command, then release its slot
+            int index = (int) (h & (CAPACITY - 1));
+            execute(types[index], sounds[index], volumes[index], voices[index]);
+            sounds[index] = null;
+            head.lazySet(h + 1);
+        }
+    }
+
+    /**
+     * Executes a command.
+     * @param type The type of the command.
+     * @param sound The sound.
+     * @param volume The volume.
+     * @param voice The voice.
+     */
+    private void execute(byte type, Sound sound, float volume, long voice) {
+        int slot = (int) (voice & (VOICE_SLOTS - 1));
+        try {
+            switch(type) {
+                case PLAY:
+                    long id = sound.play(volume);
+                    slotVoices[slot] = voice;
+                    soundIds[slot] = id;
+                    break;
+                case STOP:
+                    // The slot may have been reused by a newer voice
+                    if(slotVoices[slot] == voice && soundIds[slot] != -1) sound.stop(soundIds[slot]);
+                    break;
+            }
+        } catch(RuntimeException ex) {
+            Gdx.app.error(TAG, "Error playing a sound", ex);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.audio;
+
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.utils.TimeUtils;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the sounds requested during a frame, and plays them at the end of
+ * the frame.
+ * <p>Requests of the same sound in the same frame are merged into a single
+ * play, louder the more requests were merged (but never louder than
+ * {@link #MAX_MERGE_GAIN} times the loudest request). At most
+ * {@link #MAX_PLAYS_PER_FRAME} sounds are played per frame, by order of
+ * priority, and each sound has a maximum number of simultaneous voices. When
+ * a sound reaches it, new requests are dropped, except for sounds with
+ * {@link Priority#HIGH} priority, which stop their oldest voice instead.</p>
+ * <p>Every request is counted as played, merged or dropped.</p>
+ * <p>The sounds are played by an {@link AudioThread}, so the mixer never
+ * waits for the audio backend.</p>
+ * <p>This class must only be used from the rendering thread.</p>
+ */
+public class SoundMixer {
+    /** Default maximum number of simultaneous voices of a sound. */
+    public static final int DEFAULT_VOICE_CAP = 4;
+    /** Default duration (seconds) a voice is considered to be playing. */
+    public static final float DEFAULT_VOICE_LENGTH = 0.5f;
+    /** Maximum number of sounds played per frame. */
+    public static final int MAX_PLAYS_PER_FRAME = 8;
+    /** How much louder a sound gets each time the number of merged requests doubles. */
+    private static final float MERGE_GAIN = 0.25f;
+    /** Maximum factor of the volume of merged requests. */
+    private static final float MAX_MERGE_GAIN = 2;
+
+    /**
+     * Priority of a sound.
+     */
+    public enum Priority {
+        /** Frequent, unimportant sounds (e.g. bounces). */
+        LOW,
+        /** Normal sounds. */
+        NORMAL,
+        /** Important sounds (e.g. losing), that must always be heard. */
+        HIGH
+    }
+
+    /** The thread that plays the sounds. */
+    private final AudioThread audioThread;
+    /** Number of the last voice played. */
+    private long lastVoice = 0;
+    /** The state of each sound. */
+    private final Map<Sound, Channel> channels = new IdentityHashMap<>();
+    /** The channels requested in the current frame. */
+    private final List<Channel> requested = new ArrayList<>();
+
+    // Statistics
+    private long requests = 0;
+    private long played = 0;
+    private long merged = 0;
+    private long dropped = 0;
+
+    /**
+     * Creates the mixer.
+     * @param audioThread The thread that plays the sounds.
+     */
+    public SoundMixer(AudioThread audioThread) {
+        this.audioThread = audioThread;
+    }
+
+    /**
+     * Configures how a sound is mixed.
+     * @param sound The sound.
+     * @param priority The priority of the sound.
+     * @param voiceCap Maximum number of simultaneous voices of the sound.
+     * @param voiceLength Duration (seconds) of each voice (it doesn't have to
+     *                    be the exact duration of the sound).
+     */
+    public void configure(Sound sound, Priority priority, int voiceCap, float voiceLength) {
+        Channel channel = getChannel(sound);
+        channel.priority = priority;
+        channel.voiceIds = new long[Math.max(1, voiceCap)];
+        channel.voiceStarts = new long[channel.voiceIds.length];
+        channel.firstVoice = 0;
+        channel.voices = 0;
+        channel.voiceLength = (long) (voiceLength * 1e9);
+    }
+
+    /**
+     * Requests a sound to be played at the end of the frame.
+     * @param sound The sound.
+     * @param volume The volume, from 0 to 1 (the request is ignored if 0).
+     */
+    public void play(Sound sound, float volume) {
+        if(volume <= 0) return;
+        requests++;
+
+        Channel channel = getChannel(sound);
+        if(channel.requestCount == 0) {
+            requested.add(channel);
+            channel.requestVolume = volume;
+        } else {
+            channel.requestVolume = Math.max(channel.requestVolume, volume);
+        }
+        channel.requestCount++;
+    }
+
+    /**
+     * Plays the sounds requested in this frame.
+     * <p>Should be called at the end of every frame.</p>
+     */
+    public void flush() {
+        if(requested.isEmpty()) return;
+
+        // Play the most important (and loudest) sounds first
+        requested.sort((a, b) -> a.priority != b.priority
+                ? b.priority.compareTo(a.priority)
+                : Float.compare(b.requestVolume, a.requestVolume));
+
+        long now = TimeUtils.nanoTime();
+        int plays = 0;
+        for(Channel channel: requested) {
+            // Play the merged requests once, louder the more they are
+            float gain = 1 + MERGE_GAIN * (float) (Math.log(channel.requestCount) / Math.log(2));
+            float volume = Math.min(1, channel.requestVolume * Math.min(gain, MAX_MERGE_GAIN));
+            if(plays < MAX_PLAYS_PER_FRAME && channel.canPlay(now)
+                    && audioThread.play(channel.sound, volume, lastVoice + 1)) {
+                channel.addVoice(++lastVoice, now, audioThread);
+                plays++;
+                played++;
+                merged += channel.requestCount - 1;
+            } else {
+                dropped += channel.requestCount;
+            }
+            channel.requestCount = 0;
+        }
+        requested.clear();
+    }
+
+    /**
+     * Returns the number of requested sounds.
+     * @return The number of requests (played, merged or dropped).
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of sounds actually played.
+     * @return The number of plays.
+     */
+    public long getPlayed() {
+        return played;
+    }
+
+    /**
+     * Returns the number of requests merged into the play of another request
+     * of the same sound.
+     * @return The number of merged requests.
+     */
+    public long getMerged() {
+        return merged;
+    }
+
+    /**
+     * Returns the number of requests dropped because of the voice cap or of
+     * the maximum number of plays per frame.
+     * @return The number of dropped requests.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the channel of a sound, creating it if needed.
+     * @param sound The sound.
+     * @return The channel.
+     */
+    private Channel getChannel(Sound sound) {
+        Channel channel = channels.get(sound);
+        if(channel == null) {
+            channel = new Channel(sound);
+            channels.put(sound, channel);
+        }
+        return channel;
+    }
+
+
+    /**
+     * The state of a sound: its configuration, its voices and the requests of
+     * the current frame.
+     */
+    private static class Channel {
+        final Sound sound;
+        Priority priority = Priority.NORMAL;
+        long voiceLength = (long) (DEFAULT_VOICE_LENGTH * 1e9);
+        /** Ids of the voices, in a ring buffer (oldest first). */
+        long[] voiceIds = new long[DEFAULT_VOICE_CAP];
+        /** Start times of the voices. */
+        long[] voiceStarts = new long[DEFAULT_VOICE_CAP];
+        /** Index of the oldest voice. */
+        int firstVoice = 0;
+        /** Number of voices playing. */
+        int voices = 0;
+        /** Number of requests in the current frame. */
+        int requestCount = 0;
+        /** Maximum volume of the requests in the current frame. */
+        float requestVolume = 0;
+
+        Channel(Sound sound) {
+            this.sound = sound;
+        }
+
+        /**
+         * Returns whether a new voice can be played (the oldest one is only
+         * stolen by {@link #addVoice(long, long, AudioThread)}, after the new
+         * one was accepted by the audio thread).
+         * @param now The current time.
+         * @return {@code true} if a new voice can be played.
+         */
+        boolean canPlay(long now) {
+            // Forget the voices that have ended
+            while(voices > 0 && now - voiceStarts[firstVoice] >= voiceLength) {
+                firstVoice = (firstVoice + 1) % voiceIds.length;
+                voices--;
+            }
+            return voices < voiceIds.length || priority == Priority.HIGH;
+        }
+
+        /**
+         * Adds a new voice, stopping the oldest one if there's no room for it.
+         * @param id The voice (as given to the audio thread).
+         * @param now The current time.
+         * @param audioThread The thread that plays the sounds.
+         */
+        void addVoice(long id, long now, AudioThread audioThread) {
+            if(voices == voiceIds.length) {
+                // Steal the oldest voice
+                audioThread.stop(sound, voiceIds[firstVoice]);
+                firstVoice = (firstVoice + 1) % voiceIds.length;
+                voices--;
+            }
+
+            int index = (firstVoice + voices) % voiceIds.length;
+            voiceIds[index] = id;
+            voiceStarts[index] = now;
+            voices++;
+        }
+    }
+}
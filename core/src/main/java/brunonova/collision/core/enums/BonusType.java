@@ -33,7 +33,9 @@ public enum BonusType {
     /** Makes the player invulnerable */
     INVULNERABILITY(5, true),
     /** A homing missile that tries to hit the player. */
-    MISSILE(5, false);
+    MISSILE(5, false),
+    /** A swarm of small homing missiles that try to hit the player. */
+    MISSILE_SWARM(6, false);
 
     private final float duration;
     private final boolean good;
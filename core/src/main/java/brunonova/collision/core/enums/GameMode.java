@@ -21,5 +21,6 @@ package brunonova.collision.core.enums;
  */
 public enum GameMode {
     TIME,
-    COINS;
+    COINS,
+    SWARM;
 }
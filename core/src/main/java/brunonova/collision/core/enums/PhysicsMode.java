@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.enums;
+
+/**
+ * Enumeration of the engines that move the enemy balls and bounce them off
+ * each other.
+ */
+public enum PhysicsMode {
+    /** Move the balls by a step each tick, then separate the overlapping ones. */
+    STEPPED,
+    /** Advance the balls from one exact collision to the next. */
+    EVENT_DRIVEN;
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.leaderboard;
+
+import brunonova.collision.core.HighScores;
+import brunonova.collision.core.ScoreJournal;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import com.badlogic.gdx.Gdx;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Client of the shared leaderboard server.
+ * <p>All the network operations run in a background thread, so no method of
+ * this class ever waits for the network:</p>
+ * <ul>
+ * <li>Submitted scores are queued and sent in batches. If the server can't
+ *     be reached, they're kept and sent again later (waiting longer after
+ *     each failure, up to {@link #MAX_RETRY_DELAY} milliseconds).</li>
+ * <li>The best {@link #TOP_SIZE} scores of each game mode and difficulty are
+ *     cached, and refreshed periodically and after scores are sent.</li>
+ * </ul>
+ * <p>The queued scores aren't stored, so they're lost if the game is closed
+ * while the server is unreachable (they're still in the local high
+ * scores).</p>
+ */
+public class LeaderboardClient {
+    private static final String TAG = LeaderboardClient.class.getName();
+
+    /** Maximum number of scores sent in each request. */
+    public static final int BATCH_SIZE = 50;
+    /** Number of best scores cached per game mode and difficulty. */
+    public static final int TOP_SIZE = 50;
+    /** Timeout (milliseconds) to connect to the server. */
+    private static final int CONNECT_TIMEOUT = 2000;
+    /** Timeout (milliseconds) to wait for a response. */
+    private static final int READ_TIMEOUT = 5000;
+    /** Time (milliseconds) to wait before the first retry. */
+    private static final long MIN_RETRY_DELAY = 500;
+    /** Maximum time (milliseconds) to wait before retrying. */
+    private static final long MAX_RETRY_DELAY = 30000;
+    /** Time (milliseconds) between refreshes of the cached scores. */
+    private static final long REFRESH_INTERVAL = 30000;
+
+    private final String host;
+    private final int port;
+    /** Random id of this client, so the server can ignore repeated scores. */
+    private final long clientId = new SecureRandom().nextLong();
+    private final AtomicLong lastSequence = new AtomicLong();
+    /** Scores not acknowledged by the server yet, in order. */
+    private final Queue<ScoreJournal.Entry> pendingEntries = new ConcurrentLinkedQueue<>();
+    /** The cached best scores, one list per game mode and difficulty. */
+    private final AtomicReferenceArray<List<HighScores.Score>> topScores =
+            new AtomicReferenceArray<>(GameMode.values().length * Difficulty.values().length);
+
+    private final Object signal = new Object();
+    /** Whether there's work to do (guarded by {@link #signal}). */
+    private boolean workAvailable = false;
+    private volatile boolean refreshRequested = true;
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private Thread thread;
+
+    // Connection (only used by the background thread)
+    private Socket socket;
+    private DataInputStream input;
+    private OutputStream output;
+
+    /**
+     * Creates the client (without connecting to the server).
+     * @param host Host name or address of the server.
+     * @param port Port of the server.
+     */
+    public LeaderboardClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+        for(int i = 0; i < topScores.length(); i++) {
+            topScores.set(i, Collections.<HighScores.Score>emptyList());
+        }
+    }
+
+    /**
+     * Starts the background thread, which connects to the server.
+     */
+    public synchronized void start() {
+        if(running) return;
+        running = true;
+        thread = new Thread(this::run, "leaderboard-client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread and closes the connection.
+     */
+    public void close() {
+        Thread oldThread;
+        synchronized(this) {
+            running = false;
+            oldThread = thread;
+            thread = null;
+        }
+        if(oldThread == null) return;
+
+        wakeUp();
+        oldThread.interrupt();
+        try {
+            oldThread.join(READ_TIMEOUT);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a score to be sent to the server.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @param score The score.
+     */
+    public void submit(GameMode mode, Difficulty difficulty, HighScores.Score score) {
+        pendingEntries.add(new ScoreJournal.Entry(mode, difficulty, score, lastSequence.incrementAndGet()));
+        requestRefresh();
+    }
+
+    /**
+     * Returns the cached best scores of the shared leaderboard.
+     * <p>The list is replaced (not modified) when the cache is refreshed.</p>
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @return The best scores (up to {@link #TOP_SIZE}), or an empty list if
+     *         they weren't received yet.
+     */
+    public List<HighScores.Score> getTopScores(GameMode mode, Difficulty difficulty) {
+        return topScores.get(HighScores.tableIndex(mode, difficulty));
+    }
+
+    /**
+     * Requests the cached scores to be refreshed as soon as possible.
+     */
+    public void requestRefresh() {
+        refreshRequested = true;
+        wakeUp();
+    }
+
+    /**
+     * Returns whether the client is connected to the server.
+     * @return {@code true} if connected.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Returns the number of scores not acknowledged by the server yet.
+     * @return The number of pending scores.
+     */
+    public int getPendingCount() {
+        return pendingEntries.size();
+    }
+
+    /**
+     * The loop of the background thread.
+     */
+    private void run() {
+        long retryDelay = MIN_RETRY_DELAY;
+        long lastRefresh = 0;
+        while(running) {
+            try {
+                // Send the queued scores, then refresh the cache if needed
+                if(socket == null) connect();
+                sendPendingEntries();
+                long now = System.currentTimeMillis();
+                if(refreshRequested || now - lastRefresh >= REFRESH_INTERVAL) {
+                    refreshRequested = false;
+                    refreshTopScores();
+                    lastRefresh = now;
+                }
+                retryDelay = MIN_RETRY_DELAY;
+
+                // Wait for more scores, or until the next refresh
+                waitForWork(Math.max(1, REFRESH_INTERVAL - (System.currentTimeMillis() - lastRefresh)));
+            } catch(IOException ex) {
+                if(connected && running) {
+                    Gdx.app.error(TAG, "Lost the connection to the leaderboard server", ex);
+                }
+                disconnect();
+
+                // Wait before retrying (longer after each failure)
+                sleep(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+            }
+        }
+        disconnect();
+    }
+
+    /**
+     * Sends the pending scores in batches, removing each batch when the
+     * server acknowledges it.
+     * @throws IOException If there was a network error.
+     */
+    private void sendPendingEntries() throws IOException {
+        while(!pendingEntries.isEmpty()) {
+            // Send the next batch (the entries are only removed from the
+            // queue after being acknowledged)
+            List<ScoreJournal.Entry> batch = new ArrayList<>(BATCH_SIZE);
+            Iterator<ScoreJournal.Entry> it = pendingEntries.iterator();
+            while(it.hasNext() && batch.size() < BATCH_SIZE) {
+                batch.add(it.next());
+            }
+
+            LeaderboardProtocol.Message request = LeaderboardProtocol.newMessage(LeaderboardProtocol.SUBMIT);
+            request.writeLong(clientId);
+            request.writeInt(batch.size());
+            for(ScoreJournal.Entry entry: batch) {
+                LeaderboardProtocol.writeEntry(request, entry);
+            }
+            send(request);
+
+            // Remove the acknowledged entries
+            long acknowledged = readResponse(LeaderboardProtocol.ACK).readLong();
+            ScoreJournal.Entry entry;
+            while((entry = pendingEntries.peek()) != null && entry.getSequence() <= acknowledged) {
+                pendingEntries.poll();
+            }
+            if(acknowledged < batch.get(batch.size() - 1).getSequence()) {
+                throw new IOException("The server didn't acknowledge all the scores");
+            }
+        }
+    }
+
+    /**
+     * Requests the best scores of every game mode and difficulty, and
+     * replaces the cached ones.
+     * @throws IOException If there was a network error.
+     */
+    private void refreshTopScores() throws IOException {
+        for(GameMode mode: GameMode.values()) {
+            for(Difficulty difficulty: Difficulty.values()) {
+                LeaderboardProtocol.Message request = LeaderboardProtocol.newMessage(LeaderboardProtocol.TOP);
+                request.writeUTF(mode.name());
+                request.writeUTF(difficulty.name());
+                request.writeInt(0);
+                request.writeInt(TOP_SIZE);
+                send(request);
+
+                DataInputStream response = readResponse(LeaderboardProtocol.SCORES);
+                GameMode responseMode = LeaderboardProtocol.readGameMode(response);
+                Difficulty responseDifficulty = LeaderboardProtocol.readDifficulty(response);
+                response.readInt();  // total number of scores
+                int count = response.readInt();
+                if(count < 0 || count > LeaderboardProtocol.MAX_SCORES) {
+                    throw new IOException("Invalid number of scores: " + count);
+                }
+                List<HighScores.Score> scores = new ArrayList<>(count);
+                for(int i = 0; i < count; i++) {
+                    String name = response.readUTF();
+                    scores.add(new HighScores.Score(name, response.readInt()));
+                }
+                topScores.set(HighScores.tableIndex(responseMode, responseDifficulty),
+                        Collections.unmodifiableList(scores));
+            }
+        }
+    }
+
+    /**
+     * Connects to the server.
+     * @throws IOException If the connection failed.
+     */
+    private void connect() throws IOException {
+        Socket newSocket = new Socket();
+        try {
+            newSocket.setTcpNoDelay(true);
+            newSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            newSocket.setSoTimeout(READ_TIMEOUT);
+            input = new DataInputStream(new BufferedInputStream(newSocket.getInputStream()));
+            output = new BufferedOutputStream(newSocket.getOutputStream());
+            socket = newSocket;
+        } catch(IOException ex) {
+            newSocket.close();
+            throw ex;
+        }
+        connected = true;
+        Gdx.app.log(TAG, "connected to the leaderboard server at " + host + ":" + port);
+    }
+
+    /**
+     * Closes the connection, if open.
+     */
+    private void disconnect() {
+        connected = false;
+        if(socket != null) {
+            try {
+                socket.close();
+            } catch(IOException ignored) {
+            }
+            socket = null;
+            input = null;
+            output = null;
+        }
+    }
+
+    /**
+     * Sends a request.
+     * @param request The request.
+     * @throws IOException If there was a network error.
+     */
+    private void send(LeaderboardProtocol.Message request) throws IOException {
+        output.write(request.toFrame());
+        output.flush();
+    }
+
+    /**
+     * Reads the response to the last request.
+     * <p>The whole frame is read, so a response with unread data can't be
+     * mistaken for the start of the next one.</p>
+     * @param type The expected type of the response.
+     * @return The payload of the response, after its type.
+     * @throws IOException If there was a network error, or the response
+     *                     isn't of the expected type.
+     */
+    private DataInputStream readResponse(byte type) throws IOException {
+        int length = input.readInt();
+        if(length <= 0 || length > LeaderboardProtocol.MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] payload = new byte[length];
+        input.readFully(payload);
+
+        DataInputStream response = new DataInputStream(new ByteArrayInputStream(payload));
+        byte responseType = response.readByte();
+        if(responseType == LeaderboardProtocol.ERROR) {
+            throw new IOException("Error from the leaderboard server: " + response.readUTF());
+        } else if(responseType != type) {
+            throw new IOException("Unexpected response type: " + responseType);
+        }
+        return response;
+    }
+
+    /**
+     * Wakes up the background thread.
+     */
+    private void wakeUp() {
+        synchronized(signal) {
+            workAvailable = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until there's work to do (scores to send or a refresh request),
+     * the client is closed or the timeout expires.
+     * @param timeout Maximum time to wait, in milliseconds.
+     */
+    private void waitForWork(long timeout) {
+        synchronized(signal) {
+            long end = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while(!workAvailable && running && remaining > 0) {
+                try {
+                    signal.wait(remaining);
+                } catch(InterruptedException ex) {
+                    return;
+                }
+                remaining = end - System.currentTimeMillis();
+            }
+            workAvailable = false;
+        }
+    }
+
+    /**
+     * Waits for some time, or until the client is closed.
+     * @param millis Time to wait, in milliseconds.
+     */
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch(InterruptedException ex) {
+            // Closed
+        }
+    }
+}
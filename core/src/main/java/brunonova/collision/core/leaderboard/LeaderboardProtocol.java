@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.leaderboard;
+
+import brunonova.collision.core.HighScores;
+import brunonova.collision.core.ScoreJournal;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The binary protocol of the shared leaderboard.
+ * <p>Every message is a frame composed by the length of its payload (int)
+ * and the payload. The payload starts with the type of the message (byte).
+ * The client sends requests and the server answers each one, in order:</p>
+ * <ul>
+ * <li>{@link #SUBMIT}: the id of the client (long), the number of scores
+ *     (int) and the scores (see {@link #writeEntry(DataOutput, ScoreJournal.Entry)}).
+ *     Answered with {@link #ACK}: the sequence number of the last score of
+ *     the client that the server has (long).</li>
+ * <li>{@link #TOP}: the game mode and difficulty (UTF strings), the index of
+ *     the first score and the maximum number of scores (ints). Answered with
+ *     {@link #SCORES}: the game mode and difficulty, the total number of
+ *     scores (int), the number of returned scores (int) and the scores (name
+ *     as an UTF string and score as an int).</li>
+ * </ul>
+ * <p>An invalid request is answered with {@link #ERROR} (a message as an
+ * UTF string), and the connection is closed.</p>
+ * <p>The entries of a client have increasing sequence numbers, and the
+ * server ignores the ones it already has, so a batch can be safely sent again
+ * if its acknowledgement was lost.</p>
+ */
+public final class LeaderboardProtocol {
+    /** Default port of the server. */
+    public static final int DEFAULT_PORT = 7413;
+    /** Maximum length of the payload of a frame. */
+    public static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    /** Maximum number of scores in a request or response. */
+    public static final int MAX_SCORES = 1000;
+
+    /** Request to add scores. */
+    public static final byte SUBMIT = 1;
+    /** Response to {@link #SUBMIT}. */
+    public static final byte ACK = 2;
+    /** Request for a page of the scores of a game mode and difficulty. */
+    public static final byte TOP = 3;
+    /** Response to {@link #TOP}. */
+    public static final byte SCORES = 4;
+    /** Response to an invalid request. */
+    public static final byte ERROR = 5;
+
+    /**
+     * Writes a score entry: the game mode, the difficulty, the name of the
+     * player (UTF strings), the score (int) and the sequence number (long).
+     * @param output Where to write to.
+     * @param entry The entry.
+     * @throws IOException If the entry couldn't be written.
+     */
+    public static void writeEntry(DataOutput output, ScoreJournal.Entry entry) throws IOException {
+        output.writeUTF(entry.getMode().name());
+        output.writeUTF(entry.getDifficulty().name());
+        output.writeUTF(entry.getScore().getName());
+        output.writeInt(entry.getScore().getScore());
+        output.writeLong(entry.getSequence());
+    }
+
+    /**
+     * Reads a score entry written by
+     * {@link #writeEntry(DataOutput, ScoreJournal.Entry)}.
+     * @param input Where to read from.
+     * @return The entry.
+     * @throws IOException If the entry couldn't be read or is invalid.
+     */
+    public static ScoreJournal.Entry readEntry(DataInput input) throws IOException {
+        GameMode mode = readGameMode(input);
+        Difficulty difficulty = readDifficulty(input);
+        String name = input.readUTF();
+        int score = input.readInt();
+        long sequence = input.readLong();
+        return new ScoreJournal.Entry(mode, difficulty, new HighScores.Score(name, score), sequence);
+    }
+
+    /**
+     * Reads a game mode (an UTF string with its name).
+     * @param input Where to read from.
+     * @return The game mode.
+     * @throws IOException If the game mode couldn't be read or is unknown.
+     */
+    public static GameMode readGameMode(DataInput input) throws IOException {
+        String name = input.readUTF();
+        try {
+            return GameMode.valueOf(name);
+        } catch(IllegalArgumentException ex) {
+            throw new IOException("Unknown game mode: " + name);
+        }
+    }
+
+    /**
+     * Reads a difficulty (an UTF string with its name).
+     * @param input Where to read from.
+     * @return The difficulty.
+     * @throws IOException If the difficulty couldn't be read or is unknown.
+     */
+    public static Difficulty readDifficulty(DataInput input) throws IOException {
+        String name = input.readUTF();
+        try {
+            return Difficulty.valueOf(name);
+        } catch(IllegalArgumentException ex) {
+            throw new IOException("Unknown difficulty: " + name);
+        }
+    }
+
+    /**
+     * Creates a new message.
+     * @param type Type of the message.
+     * @return The message, with space reserved for the length of the frame
+     *         (see {@link Message#toFrame()}).
+     * @throws IOException Never.
+     */
+    public static Message newMessage(byte type) throws IOException {
+        Message message = new Message();
+        message.writeInt(0);
+        message.writeByte(type);
+        return message;
+    }
+
+    // Prevent this class from being instantiated
+    private LeaderboardProtocol() {
+    }
+
+
+    /**
+     * A message being written.
+     */
+    public static final class Message extends DataOutputStream {
+        /**
+         * Creates the message.
+         */
+        private Message() {
+            super(new ByteArrayOutputStream(64));
+        }
+
+        /**
+         * Returns the frame of the message, ready to be sent.
+         * @return The length of the payload followed by the payload.
+         */
+        public byte[] toFrame() {
+            byte[] frame = ((ByteArrayOutputStream) out).toByteArray();
+            int length = frame.length - 4;
+            frame[0] = (byte) (length >>> 24);
+            frame[1] = (byte) (length >>> 16);
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * The state of a set of balls (position, velocity, radius and mass), moved and
+ * bounced off each other by a {@link CollisionEngine}.
+ * <p>The state is kept in parallel arrays, so the engines can go through
+ * thousands of balls per tick without following references. The positions
+ * are the centers of the balls.</p>
+ * <p>Disabled balls don't move, and don't collide with anything. The balls
+ * bounce off the borders of the world and off its {@link Obstacles}, if it
+ * has any.</p>
+ * <p>The balls are known from outside by handles, returned by
+ * {@link #add(float, float, float, float)}, that never change. Their indices
+ * in the arrays do: {@link #sortByPosition()} reorders the balls along a
+ * Z-order curve (by the Morton code of their positions), so the balls near
+ * each other in the world are also near each other in memory, and the
+ * collision pass finds the state of the neighbours of a ball already in the
+ * cache. Otherwise, the balls would stay in the order they were added, which
+ * has nothing to do with their positions.</p>
+ */
+public class BallSystem {
+    /**
+     * Size of the cells of the Z-order curve (the order of the balls in the
+     * same cell doesn't matter, so they don't need to be sorted again when
+     * they move inside it).
+     */
+    private static final float SORT_CELL_SIZE = 4;
+    /** Number of bits of each coordinate (cell) in the Morton codes. */
+    private static final int MORTON_BITS = 15;
+    /** Number of bits sorted by each pass of the radix sort. */
+    private static final int RADIX_BITS = 10;
+
+    // The state of the balls (each ball is in the same index of these arrays)
+    float[] x = new float[64];
+    float[] y = new float[64];
+    float[] speedX = new float[64];
+    float[] speedY = new float[64];
+    float[] radius = new float[64];
+    float[] mass = new float[64];
+    boolean[] enabled = new boolean[64];
+    /** Handle of the ball in each index. */
+    int[] handles = new int[64];
+    /** Number of balls. */
+    int count = 0;
+    /**
+     * Number of times the balls were reordered (the engines must forget
+     * anything they keep by index when it changes).
+     */
+    int reorders = 0;
+    /** Index of the ball of each handle. */
+    private int[] indices = new int[64];
+    // Scratch arrays of the sort (the Morton codes of the balls and the
+    // indices they came from, in sorted order)
+    private int[] keys = new int[0];
+    private int[] sourceIndices = new int[0];
+    private int[] scratchKeys = new int[0];
+    private int[] scratchIndices = new int[0];
+    private float[] scratchFloats = new float[0];
+    private boolean[] scratchBooleans = new boolean[0];
+    private final int[] radixCounts = new int[1 << RADIX_BITS];
+    // The world the balls are in
+    private final float width;
+    private final float height;
+    private Obstacles obstacles;
+
+    /**
+     * Creates an empty set of balls.
+     * @param width Width of the world.
+     * @param height Height of the world.
+     */
+    public BallSystem(float width, float height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Adds a new ball (disabled and stopped).
+     * @param x X coordinate of the center of the ball.
+     * @param y Y coordinate of the center of the ball.
+     * @param radius Radius of the ball.
+     * @param mass Mass of the ball.
+     * @return The handle of the ball.
+     */
+    public int add(float x, float y, float radius, float mass) {
+        if(count == this.x.length) grow();
+        this.x[count] = x;
+        this.y[count] = y;
+        this.radius[count] = radius;
+        this.mass[count] = mass;
+        speedX[count] = speedY[count] = 0;
+        enabled[count] = false;
+        // Balls are never removed, so the handles are given in order
+        handles[count] = count;
+        indices[count] = count;
+        return count++;
+    }
+
+    /**
+     * Returns the number of balls.
+     * @return The number of balls.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the width of the world.
+     * @return The width of the world.
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the world.
+     * @return The height of the world.
+     */
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * Changes the static obstacles of the world.
+     * @param obstacles The obstacles ({@code null} for none).
+     */
+    public void setObstacles(Obstacles obstacles) {
+        this.obstacles = obstacles;
+    }
+
+    /**
+     * Returns the static obstacles of the world.
+     * @return The obstacles, or {@code null} if it has none.
+     */
+    public Obstacles getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * Returns the X coordinate of the center of a ball.
+     * @param ball Handle of the ball.
+     * @return The X coordinate.
+     */
+    public float getX(int ball) {
+        return x[indices[ball]];
+    }
+
+    /**
+     * Returns the Y coordinate of the center of a ball.
+     * @param ball Handle of the ball.
+     * @return The Y coordinate.
+     */
+    public float getY(int ball) {
+        return y[indices[ball]];
+    }
+
+    /**
+     * Returns the speed of a ball along the X axis.
+     * @param ball Handle of the ball.
+     * @return The speed along the X axis.
+     */
+    public float getSpeedX(int ball) {
+        return speedX[indices[ball]];
+    }
+
+    /**
+     * Returns the speed of a ball along the Y axis.
+     * @param ball Handle of the ball.
+     * @return The speed along the Y axis.
+     */
+    public float getSpeedY(int ball) {
+        return speedY[indices[ball]];
+    }
+
+    /**
+     * Returns the radius of a ball.
+     * @param ball Handle of the ball.
+     * @return The radius.
+     */
+    public float getRadius(int ball) {
+        return radius[indices[ball]];
+    }
+
+    /**
+     * Returns the mass of a ball.
+     * @param ball Handle of the ball.
+     * @return The mass.
+     */
+    public float getMass(int ball) {
+        return mass[indices[ball]];
+    }
+
+    /**
+     * Changes the velocity of a ball.
+     * @param ball Handle of the ball.
+     * @param speedX The speed along the X axis.
+     * @param speedY The speed along the Y axis.
+     */
+    public void setSpeed(int ball, float speedX, float speedY) {
+        int index = indices[ball];
+        this.speedX[index] = speedX;
+        this.speedY[index] = speedY;
+    }
+
+    /**
+     * Returns whether a ball is enabled.
+     * @param ball Handle of the ball.
+     * @return {@code true} if the ball is enabled.
+     */
+    public boolean isEnabled(int ball) {
+        return enabled[indices[ball]];
+    }
+
+    /**
+     * Enables or disables a ball.
+     * @param ball Handle of the ball.
+     * @param enabled {@code true} to enable the ball.
+     */
+    public void setEnabled(int ball, boolean enabled) {
+        this.enabled[indices[ball]] = enabled;
+    }
+
+    /**
+     * Returns the total kinetic energy of the enabled balls (which perfectly
+     * elastic collisions keep constant).
+     * @return The kinetic energy.
+     */
+    public double getKineticEnergy() {
+        double energy = 0;
+        for(int i = 0; i < count; i++) {
+            if(enabled[i]) energy += 0.5 * mass[i] * (speedX[i] * speedX[i] + speedY[i] * speedY[i]);
+        }
+        return energy;
+    }
+
+    /**
+     * Reorders the balls by the Morton code of their positions, so the balls
+     * near each other in the world are near each other in the arrays (the
+     * handles don't change).
+     * <p>Should be called periodically, since the balls move. The balls are
+     * sorted by a radix sort, in linear time, and are only moved if their
+     * order changed. (A ball that moves a little can jump far along the
+     * curve, so even a few moves make an insertion sort slower than this.)</p>
+     * @return {@code true} if the order of the balls changed.
+     */
+    public boolean sortByPosition() {
+        if(count < 2) return false;
+        if(keys.length != x.length) {
+            // The scratch arrays have the capacity of the other arrays, since
+            // they're swapped with them
+            keys = new int[x.length];
+            sourceIndices = new int[x.length];
+            scratchKeys = new int[x.length];
+            scratchIndices = new int[x.length];
+        }
+
+        // Sort the Morton codes of the balls, in their current order
+        for(int i = 0; i < count; i++) {
+            keys[i] = mortonCode((int) (x[i] / SORT_CELL_SIZE), (int) (y[i] / SORT_CELL_SIZE));
+            sourceIndices[i] = i;
+        }
+        radixSort();
+
+        // Move the balls to their new indices, if any of them changed
+        int first = 0;
+        while(first < count && sourceIndices[first] == first) first++;
+        if(first == count) return false;
+        x = reorder(x);
+        y = reorder(y);
+        speedX = reorder(speedX);
+        speedY = reorder(speedY);
+        radius = reorder(radius);
+        mass = reorder(mass);
+        boolean[] newEnabled = scratchBooleans.length == x.length ? scratchBooleans : new boolean[x.length];
+        int[] newHandles = scratchKeys;
+        for(int i = 0; i < count; i++) {
+            newEnabled[i] = enabled[sourceIndices[i]];
+            newHandles[i] = handles[sourceIndices[i]];
+            indices[newHandles[i]] = i;
+        }
+        scratchBooleans = enabled;
+        enabled = newEnabled;
+        scratchKeys = handles;
+        handles = newHandles;
+        reorders++;
+        return true;
+    }
+
+    /**
+     * Returns the number of times the balls were reordered by
+     * {@link #sortByPosition()}.
+     * @return The number of reorders.
+     */
+    public int getReorders() {
+        return reorders;
+    }
+
+    /**
+     * Returns the index of a ball in the arrays, which changes when the balls
+     * are reordered.
+     * @param ball Handle of the ball.
+     * @return Index of the ball.
+     */
+    public int indexOf(int ball) {
+        return indices[ball];
+    }
+
+    /**
+     * Moves a ball back inside the world, if it's (partly) outside of it.
+     * @param ball Index of the ball.
+     */
+    void keepInsideWorld(int ball) {
+        float r = radius[ball];
+        x[ball] = Math.min(Math.max(x[ball], r), width - r);
+        y[ball] = Math.min(Math.max(y[ball], r), height - r);
+    }
+
+    /**
+     * Pushes a ball that moved out of the obstacles it overlaps (or went
+     * through), and bounces it off them.
+     * @param ball Index of the ball.
+     * @param previousX X coordinate of the center of the ball before it moved.
+     * @param previousY Y coordinate of the center of the ball before it moved.
+     * @return {@code true} if the ball hit an obstacle.
+     */
+    boolean bounceOffObstacles(int ball, float previousX, float previousY) {
+        if(obstacles == null || !obstacles.push(previousX, previousY, x[ball], y[ball], radius[ball])) return false;
+        x[ball] = obstacles.getX();
+        y[ball] = obstacles.getY();
+        keepInsideWorld(ball);
+
+        // Reflect the speed, if the ball is moving into the obstacle
+        float normalX = obstacles.getNormalX(), normalY = obstacles.getNormalY();
+        float speed = speedX[ball] * normalX + speedY[ball] * normalY;
+        if(speed < 0) {
+            speedX[ball] -= 2 * speed * normalX;
+            speedY[ball] -= 2 * speed * normalY;
+        }
+        return true;
+    }
+
+    /**
+     * Sorts the keys (and the source indices along with them) with a least
+     * significant digit radix sort.
+     */
+    private void radixSort() {
+        for(int shift = 0; shift < MORTON_BITS * 2; shift += RADIX_BITS) {
+            // Count the keys with each digit, then place them in order of
+            // digit (keeping the order of the previous passes)
+            Arrays.fill(radixCounts, 0);
+            int mask = (1 << RADIX_BITS) - 1;
+            for(int i = 0; i < count; i++) {
+                radixCounts[(keys[i] >>> shift) & mask]++;
+            }
+            int start = 0;
+            for(int digit = 0; digit < radixCounts.length; digit++) {
+                int digitCount = radixCounts[digit];
+                radixCounts[digit] = start;
+                start += digitCount;
+            }
+            for(int i = 0; i < count; i++) {
+                int index = radixCounts[(keys[i] >>> shift) & mask]++;
+                scratchKeys[index] = keys[i];
+                scratchIndices[index] = sourceIndices[i];
+            }
+            int[] swap = keys;
+            keys = scratchKeys;
+            scratchKeys = swap;
+            swap = sourceIndices;
+            sourceIndices = scratchIndices;
+            scratchIndices = swap;
+        }
+    }
+
+    /**
+     * Returns the values of an array in the sorted order of the balls.
+     * <p>The values are written to the scratch array, and the given array
+     * becomes the new scratch array.</p>
+     * @param values The values, in the current order of the balls.
+     * @return The values in the new order.
+     */
+    private float[] reorder(float[] values) {
+        float[] sorted = scratchFloats.length == values.length ? scratchFloats : new float[values.length];
+        for(int i = 0; i < count; i++) {
+            sorted[i] = values[sourceIndices[i]];
+        }
+        scratchFloats = values;
+        return sorted;
+    }
+
+    /**
+     * Returns the Morton code of a position: the bits of its coordinates
+     * interleaved, so close positions tend to have close codes.
+     * @param x The column of the cell.
+     * @param y The row of the cell.
+     * @return The Morton code.
+     */
+    private static int mortonCode(int x, int y) {
+        return spreadBits(x) | spreadBits(y) << 1;
+    }
+
+    /**
+     * Inserts a 0 bit before each of the lower {@link #MORTON_BITS} bits of
+     * a number (clamped to that many bits).
+     * @param value The number.
+     * @return The number with the bits spread.
+     */
+    private static int spreadBits(int value) {
+        value = Math.min(Math.max(value, 0), (1 << MORTON_BITS) - 1);
+        value = (value | value << 8) & 0x00ff00ff;
+        value = (value | value << 4) & 0x0f0f0f0f;
+        value = (value | value << 2) & 0x33333333;
+        value = (value | value << 1) & 0x55555555;
+        return value;
+    }
+
+    /**
+     * Doubles the capacity of the arrays.
+     */
+    private void grow() {
+        int size = x.length * 2;
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        speedX = Arrays.copyOf(speedX, size);
+        speedY = Arrays.copyOf(speedY, size);
+        radius = Arrays.copyOf(radius, size);
+        mass = Arrays.copyOf(mass, size);
+        enabled = Arrays.copyOf(enabled, size);
+        handles = Arrays.copyOf(handles, size);
+        indices = Arrays.copyOf(indices, size);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * The shape of an actor for collision detection: a circle, an axis-aligned
+ * box or a capsule (a segment with a radius, like a rotated missile), kept at
+ * the position of the actor.
+ * <p>Two colliders are tested with {@link #overlaps(Collider)}, which rejects
+ * the pairs whose bounding circles don't overlap and then dispatches to the
+ * test of their pair of shapes. Many colliders are tested at once by putting
+ * them in a {@link ColliderSet}.</p>
+ */
+public class Collider {
+    /**
+     * A shape of a collider.
+     */
+    public enum Shape {
+        /** A circle. */
+        CIRCLE,
+        /** A box aligned with the axes. */
+        BOX,
+        /** A segment with a radius, that can be rotated. */
+        CAPSULE
+    }
+
+    /** The object that owns the collider (usually an actor). */
+    private final Object owner;
+    Shape shape = Shape.CIRCLE;
+    // The position of the center
+    float x = 0;
+    float y = 0;
+    /** Radius of the circle or capsule. */
+    float radius = 0;
+    // Half of the size of the box
+    float halfWidth = 0;
+    float halfHeight = 0;
+    /** Half of the length of the segment of the capsule. */
+    float halfLength = 0;
+    // Direction of the segment of the capsule (a unit vector)
+    float axisX = 1;
+    float axisY = 0;
+    /** Radius of the circle that contains the whole shape. */
+    float boundingRadius = 0;
+    /** Index in the {@link ColliderSet} it was added to (-1 if none). */
+    int index = -1;
+
+    /**
+     * Creates the collider, as a point (a circle of radius 0).
+     * @param owner The object that owns the collider (returned by
+     *              {@link #getOwner()}).
+     */
+    public Collider(Object owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Makes the collider a circle.
+     * @param radius The radius of the circle.
+     */
+    public void setCircle(float radius) {
+        shape = Shape.CIRCLE;
+        this.radius = radius;
+        boundingRadius = radius;
+    }
+
+    /**
+     * Makes the collider a box aligned with the axes (it isn't rotated by
+     * {@link #setAngle(float)}).
+     * @param width The width of the box.
+     * @param height The height of the box.
+     */
+    public void setBox(float width, float height) {
+        shape = Shape.BOX;
+        halfWidth = width / 2;
+        halfHeight = height / 2;
+        boundingRadius = (float) Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight);
+    }
+
+    /**
+     * Makes the collider a capsule, pointing in the direction given to
+     * {@link #setAngle(float)}.
+     * @param length Distance between the centers of the two ends.
+     * @param radius The radius of the capsule.
+     */
+    public void setCapsule(float length, float radius) {
+        shape = Shape.CAPSULE;
+        halfLength = length / 2;
+        this.radius = radius;
+        boundingRadius = halfLength + radius;
+    }
+
+    /**
+     * Moves the collider.
+     * @param x X coordinate of the center.
+     * @param y Y coordinate of the center.
+     */
+    public void setPosition(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Rotates the collider (only capsules are affected).
+     * @param degrees The direction of the capsule, in degrees.
+     */
+    public void setAngle(float degrees) {
+        axisX = MathUtils.cosDeg(degrees);
+        axisY = MathUtils.sinDeg(degrees);
+    }
+
+    /**
+     * Returns whether this collider overlaps another.
+     * @param other The other collider.
+     * @return {@code true} if the colliders overlap.
+     */
+    public boolean overlaps(Collider other) {
+        return Narrowphase.overlaps(this, other);
+    }
+
+    /**
+     * Returns the object that owns the collider.
+     * @return The owner.
+     */
+    public Object getOwner() {
+        return owner;
+    }
+
+    /**
+     * Returns the shape of the collider.
+     * @return The shape.
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns the X coordinate of the center of the collider.
+     * @return The X coordinate.
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinate of the center of the collider.
+     * @return The Y coordinate.
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Returns the radius of the circle that contains the whole collider.
+     * @return The bounding radius.
+     */
+    public float getBoundingRadius() {
+        return boundingRadius;
+    }
+}
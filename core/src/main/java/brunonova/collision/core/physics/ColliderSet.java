@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * The broadphase of the collision detection: a set of {@link Collider}s that
+ * can be queried for the ones overlapping another collider.
+ * <p>The colliders are added when their actors enter the game and removed
+ * when they leave it. Before querying, {@link #build()} puts the bounding
+ * circles of every collider in a {@link HierarchicalGrid}; the query then
+ * only tests the colliders near the queried one with
+ * {@link Collider#overlaps(Collider)}.</p>
+ * <p>Colliders larger than the largest radius of the grid are kept out of it
+ * and always tested, so they're never missed.</p>
+ */
+public class ColliderSet {
+    /** Largest bounding radius of the colliders put in the grid. */
+    private final float maxRadius;
+    /** Grid of the bounding circles of the colliders. */
+    private final HierarchicalGrid grid;
+    /** The colliders (each collider knows its index). */
+    private Collider[] colliders = new Collider[64];
+    private int count = 0;
+
+    // The bounding circles given to the grid (the colliders in the grid are
+    // identified by their index in these arrays)
+    private float[] x = new float[64];
+    private float[] y = new float[64];
+    private float[] radius = new float[64];
+    private Collider[] gridColliders = new Collider[64];
+    /** The colliders too large for the grid. */
+    private Collider[] largeColliders = new Collider[8];
+    private int largeCount = 0;
+
+    /** The colliders found by the last query. */
+    private Collider[] results = new Collider[64];
+
+    /**
+     * Creates the set.
+     * @param width Width of the area covered by the set.
+     * @param height Height of the area covered by the set.
+     * @param minRadius Smallest bounding radius of the colliders.
+     * @param maxRadius Largest bounding radius of the colliders (the larger
+     *                  ones are tested with every query).
+     */
+    public ColliderSet(float width, float height, float minRadius, float maxRadius) {
+        this.maxRadius = maxRadius;
+        grid = new HierarchicalGrid(width, height, minRadius, maxRadius);
+    }
+
+    /**
+     * Adds a collider (it can only be in one set).
+     * @param collider The collider.
+     */
+    public void add(Collider collider) {
+        if(collider.index >= 0) throw new IllegalArgumentException("The collider is already in a set");
+        if(count == colliders.length) colliders = Arrays.copyOf(colliders, count * 2);
+        collider.index = count;
+        colliders[count++] = collider;
+    }
+
+    /**
+     * Removes a collider (nothing happens if it isn't in the set).
+     * @param collider The collider.
+     */
+    public void remove(Collider collider) {
+        int index = collider.index;
+        if(index < 0 || index >= count || colliders[index] != collider) return;
+
+        // Move the last collider to the free index
+        Collider last = colliders[--count];
+        colliders[index] = last;
+        last.index = index;
+        colliders[count] = null;
+        collider.index = -1;
+    }
+
+    /**
+     * Removes every collider.
+     */
+    public void clear() {
+        for(int i = 0; i < count; i++) {
+            colliders[i].index = -1;
+            colliders[i] = null;
+        }
+        count = 0;
+        Arrays.fill(gridColliders, null);
+        Arrays.fill(largeColliders, null);
+        largeCount = 0;
+    }
+
+    /**
+     * Puts the current position of every collider in the grid.
+     * <p>Must be called after the colliders move, and before they're
+     * queried.</p>
+     */
+    public void build() {
+        if(x.length < count) {
+            int size = Math.max(count, x.length * 2);
+            x = new float[size];
+            y = new float[size];
+            radius = new float[size];
+            gridColliders = new Collider[size];
+            results = new Collider[size];  // a query can't find more colliders than this
+        }
+
+        int gridCount = 0;
+        largeCount = 0;
+        for(int i = 0; i < count; i++) {
+            Collider collider = colliders[i];
+            if(collider.boundingRadius <= maxRadius) {
+                x[gridCount] = collider.x;
+                y[gridCount] = collider.y;
+                radius[gridCount] = collider.boundingRadius;
+                gridColliders[gridCount++] = collider;
+            } else {
+                if(largeCount == largeColliders.length) {
+                    largeColliders = Arrays.copyOf(largeColliders, largeCount * 2);
+                }
+                largeColliders[largeCount++] = collider;
+            }
+        }
+        grid.build(x, y, radius, gridCount);
+    }
+
+    /**
+     * Finds the colliders that overlap a collider (it doesn't need to be in
+     * the set, and is never found itself).
+     * <p>The colliders found are returned by {@link #getResult(int)}, and
+     * stay valid if colliders are added or removed before the next
+     * query.</p>
+     * @param collider The collider.
+     * @return The number of colliders found.
+     */
+    public int query(Collider collider) {
+        int found = 0;
+        int candidates = grid.query(collider.x, collider.y, collider.boundingRadius);
+        for(int k = 0; k < candidates; k++) {
+            Collider other = gridColliders[grid.getResult(k)];
+            if(other != collider && collider.overlaps(other)) results[found++] = other;
+        }
+        for(int i = 0; i < largeCount; i++) {
+            Collider other = largeColliders[i];
+            if(other != collider && collider.overlaps(other)) results[found++] = other;
+        }
+        return found;
+    }
+
+    /**
+     * Returns a collider found by the last query.
+     * @param index Index of the result, from 0 to the number of colliders
+     *              found (exclusive).
+     * @return The collider.
+     */
+    public Collider getResult(int index) {
+        return results[index];
+    }
+
+    /**
+     * Returns the number of colliders in the set.
+     * @return The number of colliders.
+     */
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+/**
+ * Moves the balls of a {@link BallSystem} and bounces them off each other and
+ * off the borders of the world (perfectly elastic collisions).
+ */
+public interface CollisionEngine {
+    /**
+     * Advances the balls in time.
+     * @param balls The balls.
+     * @param delta Time (seconds) to advance (0 keeps the balls still).
+     * @param listener Notified of each collision (can be {@code null}).
+     */
+    void advance(BallSystem balls, float delta, Listener listener);
+
+    /**
+     * Returns the number of collisions resolved since the engine was created.
+     * @return The number of collisions (with balls and with the borders).
+     */
+    long getCollisions();
+
+
+    /**
+     * Notified of the collisions resolved by an engine.
+     */
+    interface Listener {
+        /**
+         * Called after a ball bounces off a border of the world or off an
+         * obstacle.
+         * @param ball Handle of the ball.
+         */
+        void wallCollision(int ball);
+
+        /**
+         * Called after two balls bounce off each other.
+         * @param a Handle of the first ball.
+         * @param b Handle of the second ball.
+         */
+        void ballCollision(int a, int b);
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * A collision engine that computes the exact time of each collision and
+ * advances the balls from one collision to the next, so the balls never
+ * overlap nor pass through each other.
+ * <p>At the start of each tick, the collisions of every ball during the tick
+ * (with the borders of the world and with the balls the grid finds within
+ * reach) are predicted and put in a priority queue. Then the earliest
+ * collision is resolved, and the next collisions of the balls involved are
+ * predicted again, until there are no more collisions in the tick. The
+ * events of a ball that collided since they were predicted are just skipped
+ * when they come out of the queue (each ball counts its collisions, and each
+ * event keeps the counts of its balls).</p>
+ * <p>Each ball keeps the time of its position, so only the balls involved in
+ * a collision are moved to its time; the others are moved at the end of the
+ * tick.</p>
+ * <p>The collisions with the {@link Obstacles} aren't predicted: the balls
+ * that overlap or went through an obstacle are bounced off it at the end of
+ * the tick, like in the {@link SteppedEngine}.</p>
+ * <p>It's slower than the {@link SteppedEngine}, and more so the more
+ * collisions there are per tick (see {@code CollisionEngineBenchmark}).</p>
+ */
+public class EventDrivenEngine implements CollisionEngine {
+    /** Second "ball" of the collisions with the left or right border. */
+    private static final int VERTICAL_WALL = -1;
+    /** Second "ball" of the collisions with the bottom or top border. */
+    private static final int HORIZONTAL_WALL = -2;
+    /**
+     * Maximum number of collisions per ball and tick (to not freeze the game
+     * if balls get stuck bouncing between each other, the remaining
+     * collisions of the tick are ignored).
+     */
+    private static final int MAX_COLLISIONS_PER_BALL = 100;
+    /**
+     * Radius of the largest balls of the first level of the grid (the
+     * queries reach as far as the balls can travel in a tick, a few pixels,
+     * so cells much smaller than that only make the queries slower).
+     */
+    private static final float MIN_GRID_RADIUS = 6;
+
+    /** Grid of the balls (at the start of the tick), to find the ones in reach. */
+    private final HierarchicalGrid grid;
+    private final EventQueue queue = new EventQueue();
+    // Positions of the balls given to the grid
+    private float[] gridX = new float[64];
+    private float[] gridY = new float[64];
+    /** Time of the position of each ball (since the start of the tick). */
+    private double[] times = new double[64];
+    /** Number of collisions of each ball. */
+    private int[] counts = new int[64];
+    /** Duration of the current tick. */
+    private double end;
+    /** Highest speed of a ball in the current tick. */
+    private float maxSpeed;
+    private long collisions = 0;
+    private long events = 0;
+    private long staleEvents = 0;
+
+    /**
+     * Creates the engine.
+     * @param width Width of the world.
+     * @param height Height of the world.
+     * @param minRadius Radius of the smallest ball.
+     * @param maxRadius Radius of the largest ball.
+     */
+    public EventDrivenEngine(float width, float height, float minRadius, float maxRadius) {
+        grid = new HierarchicalGrid(width, height,
+                Math.min(maxRadius, Math.max(minRadius, MIN_GRID_RADIUS)), maxRadius);
+    }
+
+    @Override
+    public void advance(BallSystem balls, float delta, Listener listener) {
+        if(delta <= 0) return;
+        int count = balls.count;
+        if(gridX.length < count) {
+            int size = balls.x.length;
+            gridX = new float[size];
+            gridY = new float[size];
+            times = new double[size];
+            counts = Arrays.copyOf(counts, size);
+        }
+
+        // Put the balls in the grid, as they are at the start of the tick
+        System.arraycopy(balls.x, 0, gridX, 0, count);
+        System.arraycopy(balls.y, 0, gridY, 0, count);
+        grid.build(gridX, gridY, balls.radius, count);
+        end = delta;
+        maxSpeed = 0;
+        for(int i = 0; i < count; i++) {
+            times[i] = 0;
+            if(balls.enabled[i]) maxSpeed = Math.max(maxSpeed, speed(balls, i));
+        }
+
+        // Predict the collisions of every ball (each pair of balls only once)
+        queue.clear();
+        for(int i = 0; i < count; i++) {
+            if(balls.enabled[i]) predict(balls, i, 0, i);
+        }
+
+        // Resolve the collisions, earliest first
+        int budget = MAX_COLLISIONS_PER_BALL * count;
+        while(!queue.isEmpty() && queue.peekTime() <= end && budget > 0) {
+            queue.poll();
+            events++;
+            int a = queue.getBallA();
+            int b = queue.getBallB();
+            if(counts[a] != queue.getCountA() || (b >= 0 && counts[b] != queue.getCountB())) {
+                // One of the balls collided since the event was predicted
+                staleEvents++;
+                continue;
+            }
+            double time = queue.getTime();
+            budget--;
+            collisions++;
+
+            if(b < 0) {
+                // Bounce off a border of the world
+                moveTo(balls, a, time);
+                if(b == VERTICAL_WALL) {
+                    balls.speedX[a] = -balls.speedX[a];
+                } else {
+                    balls.speedY[a] = -balls.speedY[a];
+                }
+                counts[a]++;
+                if(listener != null) listener.wallCollision(balls.handles[a]);
+                predict(balls, a, time, -1);
+            } else {
+                // Bounce off each other
+                moveTo(balls, a, time);
+                moveTo(balls, b, time);
+                bounce(balls, a, b);
+                counts[a]++;
+                counts[b]++;
+                maxSpeed = Math.max(maxSpeed, Math.max(speed(balls, a), speed(balls, b)));
+                if(listener != null) listener.ballCollision(balls.handles[a], balls.handles[b]);
+                predict(balls, a, time, -1);
+                predict(balls, b, time, -1);
+            }
+        }
+
+        // Move every ball to the end of the tick, and bounce the ones that hit
+        // an obstacle during it
+        for(int i = 0; i < count; i++) {
+            if(!balls.enabled[i]) continue;
+            moveTo(balls, i, end);
+            balls.keepInsideWorld(i);  // (only fixes rounding errors)
+            if(balls.bounceOffObstacles(i, gridX[i], gridY[i])) {
+                collisions++;
+                if(listener != null) listener.wallCollision(balls.handles[i]);
+            }
+        }
+    }
+
+    @Override
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * Returns the number of events taken out of the queue since the engine
+     * was created (resolved collisions and stale events).
+     * @return The number of events.
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the number of events skipped because one of their balls
+     * collided after they were predicted.
+     * @return The number of stale events.
+     */
+    public long getStaleEvents() {
+        return staleEvents;
+    }
+
+    /**
+     * Predicts the collisions of a ball until the end of the tick, and puts
+     * them in the queue.
+     * @param balls The balls.
+     * @param ball Index of the ball (already moved to the current time).
+     * @param now The current time.
+     * @param minIndex Only the balls with a larger index are considered.
+     */
+    private void predict(BallSystem balls, int ball, double now, int minIndex) {
+        float x = balls.x[ball];
+        float y = balls.y[ball];
+        float speedX = balls.speedX[ball];
+        float speedY = balls.speedY[ball];
+        float r = balls.radius[ball];
+
+        // Collisions with the borders (immediate if already outside)
+        if(speedX != 0) {
+            double time = speedX > 0 ? (balls.getWidth() - r - x) / speedX : (r - x) / speedX;
+            addEvent(now + Math.max(0, time), ball, VERTICAL_WALL);
+        }
+        if(speedY != 0) {
+            double time = speedY > 0 ? (balls.getHeight() - r - y) / speedY : (r - y) / speedY;
+            addEvent(now + Math.max(0, time), ball, HORIZONTAL_WALL);
+        }
+
+        // Collisions with the balls within reach until the end of the tick:
+        // this ball can still move speed * (end - now), and the other balls
+        // can have moved up to maxSpeed * end since they were put in the grid
+        float reach = r + (float) (speed(balls, ball) * (end - now) + maxSpeed * end);
+        int found = grid.query(x, y, reach);
+        for(int k = 0; k < found; k++) {
+            int other = grid.getResult(k);
+            if(other <= minIndex || other == ball || !balls.enabled[other]) continue;
+
+            // Relative position and velocity, with the other ball at the
+            // current time
+            double elapsed = now - times[other];
+            double deltaX = balls.x[other] + balls.speedX[other] * elapsed - x;
+            double deltaY = balls.y[other] + balls.speedY[other] * elapsed - y;
+            double deltaSpeedX = balls.speedX[other] - speedX;
+            double deltaSpeedY = balls.speedY[other] - speedY;
+            double dvdr = deltaX * deltaSpeedX + deltaY * deltaSpeedY;
+            if(dvdr >= 0) continue;  // moving away from each other
+
+            // Solve |delta + deltaSpeed * t| = radii (immediate if they
+            // already overlap)
+            double radii = r + balls.radius[other];
+            double drdr = deltaX * deltaX + deltaY * deltaY;
+            double dvdv = deltaSpeedX * deltaSpeedX + deltaSpeedY * deltaSpeedY;
+            if(drdr < radii * radii) {
+                addEvent(now, ball, other);
+                continue;
+            }
+            double d = dvdr * dvdr - dvdv * (drdr - radii * radii);
+            if(d < 0) continue;  // they miss each other
+            addEvent(now - (dvdr + Math.sqrt(d)) / dvdv, ball, other);
+        }
+    }
+
+    /**
+     * Puts a collision in the queue, if it happens until the end of the tick.
+     * @param time Time of the collision.
+     * @param a Index of the ball.
+     * @param b Index of the other ball, or the border.
+     */
+    private void addEvent(double time, int a, int b) {
+        if(time <= end) queue.add(time, a, b, counts[a], b >= 0 ? counts[b] : 0);
+    }
+
+    /**
+     * Moves a ball in a straight line to a time.
+     * @param balls The balls.
+     * @param ball Index of the ball.
+     * @param time The time.
+     */
+    private void moveTo(BallSystem balls, int ball, double time) {
+        double elapsed = time - times[ball];
+        balls.x[ball] += (float) (balls.speedX[ball] * elapsed);
+        balls.y[ball] += (float) (balls.speedY[ball] * elapsed);
+        times[ball] = time;
+    }
+
+    /**
+     * Bounces two touching balls off one another, according to their masses
+     * (perfectly elastic collision).
+     * @param balls The balls.
+     * @param a Index of the first ball.
+     * @param b Index of the second ball.
+     */
+    private static void bounce(BallSystem balls, int a, int b) {
+        double deltaX = balls.x[b] - balls.x[a];
+        double deltaY = balls.y[b] - balls.y[a];
+        double dist = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        if(dist == 0) return;
+        double dvdr = deltaX * (balls.speedX[b] - balls.speedX[a]) + deltaY * (balls.speedY[b] - balls.speedY[a]);
+
+        // Impulse along the line between the centers
+        double ma = balls.mass[a];
+        double mb = balls.mass[b];
+        double impulse = 2 * ma * mb * dvdr / ((ma + mb) * dist);
+        double impulseX = impulse * deltaX / dist;
+        double impulseY = impulse * deltaY / dist;
+        balls.speedX[a] += (float) (impulseX / ma);
+        balls.speedY[a] += (float) (impulseY / ma);
+        balls.speedX[b] -= (float) (impulseX / mb);
+        balls.speedY[b] -= (float) (impulseY / mb);
+    }
+
+    /**
+     * Returns the speed of a ball.
+     * @param balls The balls.
+     * @param ball Index of the ball.
+     * @return The speed.
+     */
+    private static float speed(BallSystem balls, int ball) {
+        return (float) Math.sqrt(balls.speedX[ball] * balls.speedX[ball] + balls.speedY[ball] * balls.speedY[ball]);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of the collisions predicted by the
+ * {@link EventDrivenEngine}, earliest first.
+ * <p>It's a binary heap kept in parallel arrays, so adding and removing events
+ * doesn't allocate memory (unless the queue grows). An event between a ball
+ * and a border of the world has a negative second ball.</p>
+ */
+class EventQueue {
+    // The events (each event is in the same index of these arrays)
+    private double[] times = new double[256];
+    private int[] ballsA = new int[256];
+    private int[] ballsB = new int[256];
+    private int[] countsA = new int[256];
+    private int[] countsB = new int[256];
+    private int size = 0;
+
+    // The last event removed by poll()
+    private double time;
+    private int ballA;
+    private int ballB;
+    private int countA;
+    private int countB;
+
+    /**
+     * Adds an event.
+     * @param time Time of the collision.
+     * @param a Index of the first ball.
+     * @param b Index of the second ball (negative for a border).
+     * @param countA Number of collisions of the first ball when the event was
+     *               predicted.
+     * @param countB Number of collisions of the second ball when the event
+     *               was predicted.
+     */
+    void add(double time, int a, int b, int countA, int countB) {
+        if(size == times.length) grow();
+
+        // Move the larger parents down until the event fits
+        int index = size++;
+        while(index > 0) {
+            int parent = (index - 1) / 2;
+            if(times[parent] <= time) break;
+            set(index, parent);
+            index = parent;
+        }
+        times[index] = time;
+        ballsA[index] = a;
+        ballsB[index] = b;
+        countsA[index] = countA;
+        countsB[index] = countB;
+    }
+
+    /**
+     * Removes the earliest event, whose values are then returned by
+     * {@link #getTime()}, {@link #getBallA()}, etc.
+     * <p>The queue can't be empty.</p>
+     */
+    void poll() {
+        time = times[0];
+        ballA = ballsA[0];
+        ballB = ballsB[0];
+        countA = countsA[0];
+        countB = countsB[0];
+
+        // Move the last event to the root, and then down until it fits
+        int last = --size;
+        double lastTime = times[last];
+        int index = 0;
+        while(true) {
+            int child = index * 2 + 1;
+            if(child >= size) break;
+            if(child + 1 < size && times[child + 1] < times[child]) child++;
+            if(times[child] >= lastTime) break;
+            set(index, child);
+            index = child;
+        }
+        set(index, last);
+    }
+
+    /**
+     * Returns the time of the earliest event.
+     * <p>The queue can't be empty.</p>
+     * @return The time.
+     */
+    double peekTime() {
+        return times[0];
+    }
+
+    /**
+     * Returns whether the queue is empty.
+     * @return {@code true} if it has no events.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every event.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the time of the last event removed.
+     * @return The time.
+     */
+    double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the first ball of the last event removed.
+     * @return Index of the ball.
+     */
+    int getBallA() {
+        return ballA;
+    }
+
+    /**
+     * Returns the second ball of the last event removed.
+     * @return Index of the ball, or a negative number for a border.
+     */
+    int getBallB() {
+        return ballB;
+    }
+
+    /**
+     * Returns the number of collisions of the first ball when the last event
+     * removed was predicted.
+     * @return The number of collisions.
+     */
+    int getCountA() {
+        return countA;
+    }
+
+    /**
+     * Returns the number of collisions of the second ball when the last event
+     * removed was predicted.
+     * @return The number of collisions.
+     */
+    int getCountB() {
+        return countB;
+    }
+
+    /**
+     * Copies an event to another position of the heap.
+     * @param to The destination.
+     * @param from The source.
+     */
+    private void set(int to, int from) {
+        times[to] = times[from];
+        ballsA[to] = ballsA[from];
+        ballsB[to] = ballsB[from];
+        countsA[to] = countsA[from];
+        countsB[to] = countsB[from];
+    }
+
+    /**
+     * Doubles the capacity of the queue.
+     */
+    private void grow() {
+        int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        ballsA = Arrays.copyOf(ballsA, capacity);
+        ballsB = Arrays.copyOf(ballsB, capacity);
+        countsA = Arrays.copyOf(countsA, capacity);
+        countsB = Arrays.copyOf(countsB, capacity);
+    }
+}
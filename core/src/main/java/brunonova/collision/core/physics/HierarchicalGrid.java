@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * A grid of balls of very different sizes, made of several
+ * {@link UniformGrid}s (levels), each with cells twice as large as the
+ * previous one.
+ * <p>Each ball is put in the level with the smallest cells it fits in, so
+ * small balls don't share large cells with many other balls, and large balls
+ * don't need to be looked for in many small cells.</p>
+ * <p>The grid is rebuilt from scratch every tick, and doesn't allocate memory
+ * unless the number of balls grows.</p>
+ */
+public class HierarchicalGrid {
+    private final UniformGrid[] levels;
+    /** Radius of the largest balls of the first level. */
+    private final float minRadius;
+    /** Number of balls in each level. */
+    private final int[] levelCounts;
+    /** Position in {@link #sorted} of the first ball of each level. */
+    private final int[] levelStarts;
+    /** Indices of the balls, grouped by level. */
+    private int[] sorted = new int[64];
+    /** Level of each ball. */
+    private int[] ballLevels = new int[64];
+    /** Indices of the balls found by the last query. */
+    private int[] results = new int[64];
+    // The balls given to the last build
+    private float[] x;
+    private float[] y;
+    private float[] radius;
+
+    /**
+     * Creates the grid.
+     * @param width Width of the area covered by the grid.
+     * @param height Height of the area covered by the grid.
+     * @param minRadius Radius of the smallest ball.
+     * @param maxRadius Radius of the largest ball.
+     */
+    public HierarchicalGrid(float width, float height, float minRadius, float maxRadius) {
+        this.minRadius = minRadius;
+        int count = 1;
+        while(minRadius * (1 << (count - 1)) < maxRadius) count++;
+        levels = new UniformGrid[count];
+        for(int i = 0; i < count; i++) {
+            levels[i] = new UniformGrid(width, height, minRadius * (1 << i));
+        }
+        levelCounts = new int[count];
+        levelStarts = new int[count];
+    }
+
+    /**
+     * Puts the balls in the grid, replacing the previous ones.
+     * <p>The arrays are kept (not copied) until the next build, and must not
+     * be changed while the grid is used.</p>
+     * @param x X coordinates of the centers of the balls.
+     * @param y Y coordinates of the centers of the balls.
+     * @param radius Radii of the balls (from the minimum to the maximum
+     *               radius of the grid).
+     * @param count Number of balls (they're identified by their index in the
+     *              arrays).
+     */
+    public void build(float[] x, float[] y, float[] radius, int count) {
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+        if(sorted.length < count) {
+            int size = Math.max(count, sorted.length * 2);
+            sorted = new int[size];
+            ballLevels = new int[size];
+            results = new int[size];  // a query can't find more balls than this
+        }
+
+        // Find the level of each ball, then group the balls by level
+        Arrays.fill(levelCounts, 0);
+        for(int i = 0; i < count; i++) {
+            ballLevels[i] = levelOf(radius[i]);
+            levelCounts[ballLevels[i]]++;
+        }
+        levelStarts[0] = 0;
+        for(int l = 1; l < levels.length; l++) {
+            levelStarts[l] = levelStarts[l - 1] + levelCounts[l - 1];
+        }
+        for(int i = 0; i < count; i++) {
+            sorted[levelStarts[ballLevels[i]]++] = i;
+        }
+        for(int l = 0; l < levels.length; l++) {
+            levelStarts[l] -= levelCounts[l];  // back to the start of the level
+        }
+
+        // Build each level that has balls (the empty ones are skipped by the
+        // queries)
+        for(int l = 0; l < levels.length; l++) {
+            if(levelCounts[l] > 0) levels[l].build(x, y, sorted, levelStarts[l], levelCounts[l]);
+        }
+    }
+
+    /**
+     * Finds the balls that may overlap a circle (it may also find some balls
+     * that don't).
+     * <p>The balls found are returned by {@link #getResult(int)}.</p>
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return The number of balls found.
+     */
+    public int query(float x, float y, float radius) {
+        return collect(x, y, radius, 0, -1);
+    }
+
+    /**
+     * Finds the balls that may overlap a ball, without finding any pair of
+     * balls twice when this is called for every ball: only the balls of the
+     * same level with a larger index, and the balls of the levels of larger
+     * balls, are returned.
+     * <p>The balls found are returned by {@link #getResult(int)}.</p>
+     * @param ball Index of the ball.
+     * @return The number of balls found.
+     */
+    public int queryPairs(int ball) {
+        return collect(x[ball], y[ball], radius[ball], ballLevels[ball], ball);
+    }
+
+    /**
+     * Returns a ball found by the last query.
+     * @param index Index of the result, from 0 to the number of balls found
+     *              (exclusive).
+     * @return The index of the ball.
+     */
+    public int getResult(int index) {
+        return results[index];
+    }
+
+    /**
+     * Returns the number of levels of the grid.
+     * @return The number of levels.
+     */
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Finds the balls of some levels that may overlap a circle.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @param firstLevel The first level to search.
+     * @param ball Only the balls with a larger index are returned from the
+     *             first level (-1 to return every ball).
+     * @return The number of balls found.
+     */
+    private int collect(float x, float y, float radius, int firstLevel, int ball) {
+        int found = 0;
+        for(int l = firstLevel; l < levels.length; l++) {
+            if(levelCounts[l] > 0) {
+                found = levels[l].collect(x, y, radius, l == firstLevel ? ball : -1, results, found);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the level of a ball.
+     * @param radius The radius of the ball.
+     * @return The level with the smallest cells the ball fits in.
+     */
+    private int levelOf(float radius) {
+        int level = 0;
+        float levelRadius = minRadius;
+        while(levelRadius < radius && level < levels.length - 1) {
+            levelRadius *= 2;
+            level++;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import java.util.Arrays;
+
+/**
+ * A swarm of homing missiles, which steer towards a target while keeping
+ * apart from each other and avoiding the balls of a {@link BallSystem} and
+ * the {@link Obstacles} of its world.
+ * <p>The state of the missiles is kept in parallel arrays, and each missile
+ * only looks at the missiles and balls near it, found with a
+ * {@link UniformGrid} and a {@link HierarchicalGrid}, so the cost of a tick
+ * grows linearly with the number of missiles. Moving the missiles doesn't
+ * allocate memory (unless the swarm grows).</p>
+ * <p>A missile is armed (can hit the target and moves) after
+ * {@link #ARM_TIME} seconds, and is removed when it expires. The missiles
+ * aren't kept in order: removing one moves the last missile to its
+ * index.</p>
+ */
+public class MissileSwarm {
+    /** Time (seconds) a new missile takes to be armed (while it fades in). */
+    public static final float ARM_TIME = 0.5f;
+    /** Distance between centers, in radii, the missiles try to keep. */
+    private static final float SEPARATION_RADII = 3;
+    /** Distance, in radii, from which the missiles avoid the balls. */
+    private static final float AVOIDANCE_RADII = 3;
+    /** Weight of the separation from the other missiles. */
+    private static final float SEPARATION_WEIGHT = 1.5f;
+    /** Weight of the avoidance of the balls. */
+    private static final float AVOIDANCE_WEIGHT = 2;
+    /** Maximum turning speed of a missile (radians per second). */
+    private static final float MAX_TURN_SPEED = 4;
+
+    private final float width;
+    private final float height;
+    private final float radius;
+    private final float separation;
+    private final float avoidance;
+    /** Grid of the missiles, for the separation and the hits. */
+    private final UniformGrid grid;
+    /** Whether the grid doesn't have the current positions of the missiles. */
+    private boolean gridDirty = true;
+    /** Grid of the balls to avoid (rebuilt every tick). */
+    private final HierarchicalGrid ballGrid;
+
+    // The missiles (each missile is in the same index of these arrays)
+    float[] x = new float[64];
+    float[] y = new float[64];
+    /** Direction of each missile (a unit vector). */
+    float[] directionX = new float[64];
+    float[] directionY = new float[64];
+    /** Time each missile was added. */
+    float[] starts = new float[64];
+    /** Time each missile expires. */
+    float[] expirations = new float[64];
+    int count = 0;
+    /** Time since the swarm was created. */
+    private float time = 0;
+
+    // Statistics
+    private long missileTicks = 0;
+    private long nanos = 0;
+
+    /**
+     * Creates an empty swarm.
+     * @param width Width of the world.
+     * @param height Height of the world.
+     * @param radius Radius of the missiles.
+     * @param minBallRadius Radius of the smallest ball to avoid.
+     * @param maxBallRadius Radius of the largest ball to avoid.
+     */
+    public MissileSwarm(float width, float height, float radius, float minBallRadius, float maxBallRadius) {
+        this.width = width;
+        this.height = height;
+        this.radius = radius;
+        separation = SEPARATION_RADII * radius;
+        avoidance = AVOIDANCE_RADII * radius;
+        grid = new UniformGrid(width, height, separation / 2);
+        ballGrid = new HierarchicalGrid(width, height, minBallRadius, maxBallRadius);
+    }
+
+    /**
+     * Adds a missile, unarmed.
+     * @param x X coordinate of the center of the missile.
+     * @param y Y coordinate of the center of the missile.
+     * @param angle Initial direction of the missile (radians).
+     * @param duration Time (seconds) until the missile expires.
+     */
+    public void add(float x, float y, float angle, float duration) {
+        if(count == this.x.length) grow();
+        this.x[count] = x;
+        this.y[count] = y;
+        directionX[count] = MathUtils.cos(angle);
+        directionY[count] = MathUtils.sin(angle);
+        starts[count] = time;
+        expirations[count] = time + duration;
+        count++;
+        gridDirty = true;
+    }
+
+    /**
+     * Removes every missile.
+     */
+    public void clear() {
+        count = 0;
+        gridDirty = true;
+    }
+
+    /**
+     * Removes the expired missiles, and steers and moves the others.
+     * @param delta Duration of the tick.
+     * @param targetX X coordinate of the target.
+     * @param targetY Y coordinate of the target.
+     * @param speed Speed of the missiles.
+     * @param balls The balls to avoid, along with the obstacles of their
+     *              world ({@code null} for none).
+     */
+    public void advance(float delta, float targetX, float targetY, float speed, BallSystem balls) {
+        time += delta;
+        for(int i = count - 1; i >= 0; i--) {
+            if(expirations[i] <= time) remove(i);
+        }
+        if(count == 0) return;
+        long start = System.nanoTime();
+
+        buildGrid();
+        boolean avoid = balls != null && balls.count > 0;
+        if(avoid) {
+            ballGrid.build(balls.x, balls.y, balls.radius, balls.count);
+        }
+        Obstacles obstacles = balls != null ? balls.getObstacles() : null;
+
+        // Turn every missile first, so the order of the missiles doesn't
+        // matter (the neighbours are only read from the grid positions)
+        float maxTurn = MAX_TURN_SPEED * delta;
+        for(int i = 0; i < count; i++) {
+            float px = x[i], py = y[i];
+
+            // Seek the target
+            float dx = targetX - px, dy = targetY - py;
+            float distance = (float) Math.sqrt(dx * dx + dy * dy);
+            float steerX = distance > 0 ? dx / distance : 0;
+            float steerY = distance > 0 ? dy / distance : 0;
+
+            // Move away from the missiles too close, more the closer they are
+            int found = grid.query(px, py, separation / 2);
+            for(int k = 0; k < found; k++) {
+                int j = grid.getResult(k);
+                if(j == i) continue;
+                float ox = px - x[j], oy = py - y[j];
+                float d2 = ox * ox + oy * oy;
+                if(d2 >= separation * separation) continue;
+                if(d2 == 0) {
+                    // Exactly on top of each other: separate by index
+                    ox = j < i ? 1 : -1;
+                    oy = 0;
+                    d2 = 1;
+                }
+                float d = (float) Math.sqrt(d2);
+                float weight = SEPARATION_WEIGHT * (1 - d / separation) / d;
+                steerX += ox * weight;
+                steerY += oy * weight;
+            }
+
+            // Move away from the balls ahead, more the closer they are (only
+            // the balls in a circle in front of the missile are looked at)
+            float aheadX = px + directionX[i] * avoidance / 2;
+            float aheadY = py + directionY[i] * avoidance / 2;
+            if(avoid) {
+                found = ballGrid.query(aheadX, aheadY, radius + avoidance / 2);
+                for(int k = 0; k < found; k++) {
+                    int b = ballGrid.getResult(k);
+                    if(!balls.enabled[b]) continue;
+                    float ox = px - balls.x[b], oy = py - balls.y[b];
+                    if(ox * directionX[i] + oy * directionY[i] > 0) continue;  // behind
+                    float reach = balls.radius[b] + radius + avoidance;
+                    float d2 = ox * ox + oy * oy;
+                    if(d2 >= reach * reach || d2 == 0) continue;
+                    float d = (float) Math.sqrt(d2);
+                    float gap = d - balls.radius[b] - radius;
+                    float weight = AVOIDANCE_WEIGHT * (1 - Math.max(0, gap) / avoidance) / d;
+                    steerX += ox * weight;
+                    steerY += oy * weight;
+                }
+            }
+
+            // Move away from the obstacle ahead, if any
+            if(obstacles != null && obstacles.push(px, py, aheadX, aheadY, radius)) {
+                steerX += obstacles.getNormalX() * AVOIDANCE_WEIGHT;
+                steerY += obstacles.getNormalY() * AVOIDANCE_WEIGHT;
+            }
+
+            // Turn towards the steering direction, limited by the turning
+            // speed
+            float cross = directionX[i] * steerY - directionY[i] * steerX;
+            float dot = directionX[i] * steerX + directionY[i] * steerY;
+            float turn = MathUtils.clamp(MathUtils.atan2(cross, dot), -maxTurn, maxTurn);
+            float cos = MathUtils.cos(turn), sin = MathUtils.sin(turn);
+            float newX = directionX[i] * cos - directionY[i] * sin;
+            float newY = directionX[i] * sin + directionY[i] * cos;
+            float length = (float) Math.sqrt(newX * newX + newY * newY);
+            directionX[i] = newX / length;
+            directionY[i] = newY / length;
+        }
+
+        // Move the armed missiles, keeping them inside the world and out of
+        // the obstacles (they slide along them)
+        for(int i = 0; i < count; i++) {
+            if(time - starts[i] < ARM_TIME) continue;
+            float previousX = x[i], previousY = y[i];
+            x[i] = MathUtils.clamp(x[i] + directionX[i] * speed * delta, radius, width - radius);
+            y[i] = MathUtils.clamp(y[i] + directionY[i] * speed * delta, radius, height - radius);
+            if(obstacles != null && obstacles.push(previousX, previousY, x[i], y[i], radius)) {
+                x[i] = MathUtils.clamp(obstacles.getX(), radius, width - radius);
+                y[i] = MathUtils.clamp(obstacles.getY(), radius, height - radius);
+            }
+        }
+        gridDirty = true;
+
+        missileTicks += count;
+        nanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Returns whether an armed missile overlaps a circle.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return {@code true} if a missile hits the circle.
+     */
+    public boolean hits(float x, float y, float radius) {
+        if(count == 0) return false;
+        buildGrid();
+        int found = grid.query(x, y, radius);
+        float reach = radius + this.radius;
+        for(int k = 0; k < found; k++) {
+            int i = grid.getResult(k);
+            float dx = this.x[i] - x, dy = this.y[i] - y;
+            if(isArmed(i) && dx * dx + dy * dy < reach * reach) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of missiles.
+     * @return The number of missiles.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the radius of the missiles.
+     * @return The radius.
+     */
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns the X coordinate of the center of a missile.
+     * @param index Index of the missile.
+     * @return The X coordinate.
+     */
+    public float getX(int index) {
+        return x[index];
+    }
+
+    /**
+     * Returns the Y coordinate of the center of a missile.
+     * @param index Index of the missile.
+     * @return The Y coordinate.
+     */
+    public float getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * Returns the direction of a missile.
+     * @param index Index of the missile.
+     * @return The angle of the direction, in degrees.
+     */
+    public float getAngle(int index) {
+        return MathUtils.atan2(directionY[index], directionX[index]) * MathUtils.radiansToDegrees;
+    }
+
+    /**
+     * Returns how much a missile has faded in.
+     * @param index Index of the missile.
+     * @return From 0 (just added) to 1 (armed).
+     */
+    public float getFadeIn(int index) {
+        return Math.min(1, (time - starts[index]) / ARM_TIME);
+    }
+
+    /**
+     * Returns whether a missile is armed.
+     * @param index Index of the missile.
+     * @return {@code true} if the missile can hit.
+     */
+    public boolean isArmed(int index) {
+        return time - starts[index] >= ARM_TIME;
+    }
+
+    /**
+     * Returns the number of times a missile was steered and moved.
+     * @return The sum of the number of missiles of every tick.
+     */
+    public long getMissileTicks() {
+        return missileTicks;
+    }
+
+    /**
+     * Returns the time spent steering and moving the missiles.
+     * @return The time, in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Puts the missiles in the grid, if they moved since it was built.
+     */
+    private void buildGrid() {
+        if(gridDirty) {
+            grid.build(x, y, count);
+            gridDirty = false;
+        }
+    }
+
+    /**
+     * Removes a missile, moving the last missile to its index.
+     * @param index Index of the missile.
+     */
+    private void remove(int index) {
+        int last = --count;
+        x[index] = x[last];
+        y[index] = y[last];
+        directionX[index] = directionX[last];
+        directionY[index] = directionY[last];
+        starts[index] = starts[last];
+        expirations[index] = expirations[last];
+        gridDirty = true;
+    }
+
+    /**
+     * Doubles the capacity of the arrays.
+     */
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        directionX = Arrays.copyOf(directionX, capacity);
+        directionY = Arrays.copyOf(directionY, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        expirations = Arrays.copyOf(expirations, capacity);
+    }
+}
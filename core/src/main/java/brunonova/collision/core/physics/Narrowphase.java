@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+/**
+ * The exact overlap tests between the shapes of two {@link Collider}s.
+ * <p>The test of each pair of shapes is in a table indexed by the two shapes,
+ * so adding a shape only needs its tests to be added to the table. The pairs
+ * in the "wrong" order swap their colliders and reuse the other test.</p>
+ */
+final class Narrowphase {
+    /**
+     * An overlap test between two shapes.
+     */
+    private interface Test {
+        /**
+         * Returns whether two colliders overlap.
+         * @param a The first collider.
+         * @param b The second collider.
+         * @return {@code true} if they overlap.
+         */
+        boolean overlaps(Collider a, Collider b);
+    }
+
+    /** The test of each pair of shapes, indexed by their ordinals. */
+    private static final Test[][] TESTS = new Test[Collider.Shape.values().length][];
+    static {
+        TESTS[Collider.Shape.CIRCLE.ordinal()] = new Test[] {
+            Narrowphase::circleCircle, Narrowphase::circleBox, Narrowphase::circleCapsule
+        };
+        TESTS[Collider.Shape.BOX.ordinal()] = new Test[] {
+            (a, b) -> circleBox(b, a), Narrowphase::boxBox, Narrowphase::boxCapsule
+        };
+        TESTS[Collider.Shape.CAPSULE.ordinal()] = new Test[] {
+            (a, b) -> circleCapsule(b, a), (a, b) -> boxCapsule(b, a), Narrowphase::capsuleCapsule
+        };
+    }
+
+    private Narrowphase() {
+    }
+
+    /**
+     * Returns whether two colliders overlap (touching isn't overlapping).
+     * @param a The first collider.
+     * @param b The second collider.
+     * @return {@code true} if they overlap.
+     */
+    static boolean overlaps(Collider a, Collider b) {
+        // Reject the colliders whose bounding circles don't overlap
+        float dx = b.x - a.x, dy = b.y - a.y;
+        float reach = a.boundingRadius + b.boundingRadius;
+        if(dx * dx + dy * dy >= reach * reach) return false;
+
+        return TESTS[a.shape.ordinal()][b.shape.ordinal()].overlaps(a, b);
+    }
+
+    /**
+     * Tests two circles.
+     * @param a The first circle.
+     * @param b The second circle.
+     * @return {@code true} if they overlap.
+     */
+    private static boolean circleCircle(Collider a, Collider b) {
+        // The bounding circles are the circles themselves
+        return true;
+    }
+
+    /**
+     * Tests a circle and a box.
+     * @param a The circle.
+     * @param b The box.
+     * @return {@code true} if they overlap.
+     */
+    private static boolean circleBox(Collider a, Collider b) {
+        return boxDistance2(b, a.x, a.y) < a.radius * a.radius;
+    }
+
+    /**
+     * Tests a circle and a capsule.
+     * @param a The circle.
+     * @param b The capsule.
+     * @return {@code true} if they overlap.
+     */
+    private static boolean circleCapsule(Collider a, Collider b) {
+        float reach = a.radius + b.radius;
+        return segmentDistance2(a.x, a.y, b.x - b.axisX * b.halfLength, b.y - b.axisY * b.halfLength,
+                                b.x + b.axisX * b.halfLength, b.y + b.axisY * b.halfLength) < reach * reach;
+    }
+
+    /**
+     * Tests two boxes.
+     * @param a The first box.
+     * @param b The second box.
+     * @return {@code true} if they overlap.
+     */
+    private static boolean boxBox(Collider a, Collider b) {
+        return Math.abs(b.x - a.x) < a.halfWidth + b.halfWidth && Math.abs(b.y - a.y) < a.halfHeight + b.halfHeight;
+    }
+
+    /**
+     * Tests a box and a capsule.
+     * @param a The box.
+     * @param b The capsule.
+     * @return {@code true} if they overlap.
+     */
+    private static boolean boxCapsule(Collider a, Collider b) {
+        float x1 = b.x - b.axisX * b.halfLength, y1 = b.y - b.axisY * b.halfLength;
+        float x2 = b.x + b.axisX * b.halfLength, y2 = b.y + b.axisY * b.halfLength;
+        if(segmentCrossesBox(a, x1, y1, x2, y2)) return true;
+
+        // Otherwise, the closest points are an end of the segment or a corner
+        // of the box
+        float r2 = b.radius * b.radius;
+        if(boxDistance2(a, x1, y1) < r2 || boxDistance2(a, x2, y2) < r2) return true;
+        for(int corner = 0; corner < 4; corner++) {
+            float cx = (corner & 1) == 0 ? a.x - a.halfWidth : a.x + a.halfWidth;
+            float cy = (corner & 2) == 0 ? a.y - a.halfHeight : a.y + a.halfHeight;
+            if(segmentDistance2(cx, cy, x1, y1, x2, y2) < r2) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tests two capsules.
+     * @param a The first capsule.
+     * @param b The second capsule.
+     * @return {@code true} if they overlap.
+     */
+    private static boolean capsuleCapsule(Collider a, Collider b) {
+        float ax1 = a.x - a.axisX * a.halfLength, ay1 = a.y - a.axisY * a.halfLength;
+        float ax2 = a.x + a.axisX * a.halfLength, ay2 = a.y + a.axisY * a.halfLength;
+        float bx1 = b.x - b.axisX * b.halfLength, by1 = b.y - b.axisY * b.halfLength;
+        float bx2 = b.x + b.axisX * b.halfLength, by2 = b.y + b.axisY * b.halfLength;
+
+        // Segments that cross are at distance 0
+        float d1 = cross(bx1, by1, bx2, by2, ax1, ay1), d2 = cross(bx1, by1, bx2, by2, ax2, ay2);
+        float d3 = cross(ax1, ay1, ax2, ay2, bx1, by1), d4 = cross(ax1, ay1, ax2, ay2, bx2, by2);
+        if(d1 * d2 < 0 && d3 * d4 < 0) return true;
+
+        // Otherwise, one of the closest points is an end of a segment
+        float reach = a.radius + b.radius;
+        float r2 = reach * reach;
+        return segmentDistance2(ax1, ay1, bx1, by1, bx2, by2) < r2
+                || segmentDistance2(ax2, ay2, bx1, by1, bx2, by2) < r2
+                || segmentDistance2(bx1, by1, ax1, ay1, ax2, ay2) < r2
+                || segmentDistance2(bx2, by2, ax1, ay1, ax2, ay2) < r2;
+    }
+
+    /**
+     * Returns the squared distance between a point and a box.
+     * @param box The box.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return The squared distance (0 if the point is inside).
+     */
+    private static float boxDistance2(Collider box, float x, float y) {
+        float dx = Math.max(Math.abs(x - box.x) - box.halfWidth, 0);
+        float dy = Math.max(Math.abs(y - box.y) - box.halfHeight, 0);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns the squared distance between a point and a segment.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @param x1 X coordinate of the start of the segment.
+     * @param y1 Y coordinate of the start of the segment.
+     * @param x2 X coordinate of the end of the segment.
+     * @param y2 Y coordinate of the end of the segment.
+     * @return The squared distance.
+     */
+    static float segmentDistance2(float x, float y, float x1, float y1, float x2, float y2) {
+        float sx = x2 - x1, sy = y2 - y1;
+        float length2 = sx * sx + sy * sy;
+        float t = length2 > 0 ? Math.min(1, Math.max(0, ((x - x1) * sx + (y - y1) * sy) / length2)) : 0;
+        float dx = x - (x1 + sx * t), dy = y - (y1 + sy * t);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns whether a segment crosses (or is inside of) a box, clipping it
+     * against the slabs of the box.
+     * @param box The box.
+     * @param x1 X coordinate of the start of the segment.
+     * @param y1 Y coordinate of the start of the segment.
+     * @param x2 X coordinate of the end of the segment.
+     * @param y2 Y coordinate of the end of the segment.
+     * @return {@code true} if part of the segment is inside of the box.
+     */
+    private static boolean segmentCrossesBox(Collider box, float x1, float y1, float x2, float y2) {
+        float enter = 0, exit = 1;
+        float dx = x2 - x1, dy = y2 - y1;
+        if(dx != 0) {
+            float t1 = (box.x - box.halfWidth - x1) / dx, t2 = (box.x + box.halfWidth - x1) / dx;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        } else if(Math.abs(x1 - box.x) >= box.halfWidth) {
+            return false;
+        }
+        if(dy != 0) {
+            float t1 = (box.y - box.halfHeight - y1) / dy, t2 = (box.y + box.halfHeight - y1) / dy;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+        } else if(Math.abs(y1 - box.y) >= box.halfHeight) {
+            return false;
+        }
+        return enter < exit;
+    }
+
+    /**
+     * Returns the cross product of a segment and the vector from its start to
+     * a point (positive if the point is to the left of the segment).
+     * @param x1 X coordinate of the start of the segment.
+     * @param y1 Y coordinate of the start of the segment.
+     * @param x2 X coordinate of the end of the segment.
+     * @param y2 Y coordinate of the end of the segment.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return The cross product.
+     */
+    private static float cross(float x1, float y1, float x2, float y2, float x, float y) {
+        return (x2 - x1) * (y - y1) - (y2 - y1) * (x - x1);
+    }
+}
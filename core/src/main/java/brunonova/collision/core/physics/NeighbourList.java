@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * A list of the pairs of balls that are near each other (a Verlet list),
+ * kept across ticks while the balls don't move much.
+ * <p>Each ball gets a margin (its skin), and the list has every pair of balls
+ * closer than the sum of their radii and skins. While no ball moved more than
+ * its skin since it was put in the list, no pair outside of the list can
+ * overlap, so the pairs only need to be found again (with a
+ * {@link HierarchicalGrid}) when some ball moved more than that, or when
+ * balls are added or reordered.</p>
+ * <p>The skin of each ball is the distance it travels in a given time (the
+ * skin time), between {@link #MIN_SKIN} and {@link #MAX_SKIN}: with a single
+ * skin for every ball, the fastest balls would force a rebuild every tick.
+ * The longer the skin time, the less often the pairs are found again, but the
+ * more pairs the list has.</p>
+ * <p>When only a few balls moved more than their skin, only their pairs are
+ * found again (refreshed), using the grid of the last rebuild for the other
+ * balls, and comparing them directly with the balls refreshed since then. The
+ * whole list is only rebuilt when too many balls were refreshed.</p>
+ * <p>Disabled balls are also in the list (they can be enabled at any time,
+ * and don't move while disabled).</p>
+ */
+public class NeighbourList {
+    /** Minimum skin of a ball (so slow balls pushed by others don't need refreshes). */
+    public static final float MIN_SKIN = 1;
+    /** Maximum skin of a ball. */
+    public static final float MAX_SKIN = 16;
+    /** Maximum number of balls refreshed between two rebuilds. */
+    public static final int MAX_REFRESHED = 64;
+
+    /** Time the balls can move, at their current speed, before being refreshed. */
+    private final float skinTime;
+    private final HierarchicalGrid grid;
+    // Positions and radii plus skins of the balls in the last rebuild (given
+    // to the grid)
+    private float[] gridX = new float[64];
+    private float[] gridY = new float[64];
+    private float[] gridReach = new float[64];
+    // Positions, skins and radii plus skins of the balls when they were put
+    // in the list
+    private float[] listX = new float[64];
+    private float[] listY = new float[64];
+    private float[] skins = new float[64];
+    private float[] reach = new float[64];
+    /** Number of balls in the last rebuild ({@code -1} if never built). */
+    private int builtCount = -1;
+    /** Number of reorders of the balls in the last rebuild. */
+    private int builtReorders = -1;
+    // The balls refreshed since the last rebuild (their position in the grid
+    // is outdated)
+    private boolean[] refreshed = new boolean[64];
+    private final int[] refreshedBalls = new int[MAX_REFRESHED];
+    private int refreshedCount = 0;
+    // The balls to refresh in the current update
+    private final int[] movedBalls = new int[MAX_REFRESHED];
+    private boolean[] moved = new boolean[64];
+    // The pairs (each pair is in the same index of these arrays)
+    private int[] pairsA = new int[256];
+    private int[] pairsB = new int[256];
+    private int pairCount = 0;
+
+    // Statistics
+    private long updates = 0;
+    private long rebuilds = 0;
+    private long refreshes = 0;
+    private long pairsTested = 0;
+
+    /**
+     * Creates an empty list.
+     * @param width Width of the world.
+     * @param height Height of the world.
+     * @param minRadius Radius of the smallest ball.
+     * @param maxRadius Radius of the largest ball.
+     * @param skinTime Time (seconds) the balls can move, at their current
+     *                 speed, before being refreshed ({@code 0} refreshes a
+     *                 ball whenever it moves more than {@link #MIN_SKIN}).
+     */
+    public NeighbourList(float width, float height, float minRadius, float maxRadius, float skinTime) {
+        this.skinTime = skinTime;
+        grid = new HierarchicalGrid(width, height, minRadius + MIN_SKIN, maxRadius + MAX_SKIN);
+    }
+
+    /**
+     * Updates the list, if needed, with the current positions of the balls.
+     * <p>Should be called every tick, before the pairs are used.</p>
+     * @param balls The balls.
+     */
+    public void update(BallSystem balls) {
+        updates++;
+        if(balls.count != builtCount || balls.reorders != builtReorders) {
+            rebuild(balls);
+        } else {
+            // Find the balls that moved more than their skin (rebuilding the
+            // list if there are too many of them)
+            int movedCount = 0;
+            for(int i = 0; i < balls.count; i++) {
+                float deltaX = balls.x[i] - listX[i];
+                float deltaY = balls.y[i] - listY[i];
+                if(deltaX * deltaX + deltaY * deltaY > skins[i] * skins[i]) {
+                    if(refreshedCount + movedCount == MAX_REFRESHED) {
+                        movedCount = -1;
+                        break;
+                    }
+                    movedBalls[movedCount++] = i;
+                }
+            }
+            if(movedCount < 0) {
+                rebuild(balls);
+            } else if(movedCount > 0) {
+                refresh(balls, movedCount);
+            }
+        }
+        pairsTested += pairCount;
+    }
+
+    /**
+     * Returns the number of pairs in the list.
+     * @return The number of pairs.
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    /**
+     * Returns the first ball of a pair.
+     * @param pair Index of the pair, from 0 to the number of pairs (exclusive).
+     * @return Index of the ball.
+     */
+    public int getPairA(int pair) {
+        return pairsA[pair];
+    }
+
+    /**
+     * Returns the second ball of a pair.
+     * @param pair Index of the pair, from 0 to the number of pairs (exclusive).
+     * @return Index of the ball.
+     */
+    public int getPairB(int pair) {
+        return pairsB[pair];
+    }
+
+    /**
+     * Returns the time the balls can move before being refreshed.
+     * @return The skin time (seconds).
+     */
+    public float getSkinTime() {
+        return skinTime;
+    }
+
+    /**
+     * Returns the number of times {@link #update(BallSystem)} was called.
+     * @return The number of updates.
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Returns the number of times the whole list was rebuilt.
+     * @return The number of rebuilds.
+     */
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * Returns the number of times the pairs of a single ball were found again,
+     * without rebuilding the whole list.
+     * @return The number of balls refreshed.
+     */
+    public long getRefreshes() {
+        return refreshes;
+    }
+
+    /**
+     * Returns the total number of pairs given by the list in every update (the
+     * pairs whose overlap is tested).
+     * @return The number of pairs tested.
+     */
+    public long getPairsTested() {
+        return pairsTested;
+    }
+
+    /**
+     * Rebuilds the whole list with the current positions of the balls.
+     * @param balls The balls.
+     */
+    private void rebuild(BallSystem balls) {
+        rebuilds++;
+        int count = balls.count;
+        if(listX.length < count) {
+            int size = balls.x.length;
+            gridX = new float[size];
+            gridY = new float[size];
+            gridReach = new float[size];
+            listX = new float[size];
+            listY = new float[size];
+            skins = new float[size];
+            reach = new float[size];
+            refreshed = new boolean[size];
+            moved = new boolean[size];
+        }
+        for(int i = 0; i < count; i++) {
+            putBall(balls, i);
+        }
+        System.arraycopy(listX, 0, gridX, 0, count);
+        System.arraycopy(listY, 0, gridY, 0, count);
+        System.arraycopy(reach, 0, gridReach, 0, count);
+        builtCount = count;
+        builtReorders = balls.reorders;
+        for(int k = 0; k < refreshedCount; k++) {
+            refreshed[refreshedBalls[k]] = false;
+        }
+        refreshedCount = 0;
+
+        // Find the pairs closer than the sum of their radii and skins
+        grid.build(gridX, gridY, gridReach, count);
+        pairCount = 0;
+        for(int i = 0; i < count; i++) {
+            int found = grid.queryPairs(i);  // each pair is found once
+            for(int k = 0; k < found; k++) {
+                addPairIfNear(i, grid.getResult(k));
+            }
+        }
+    }
+
+    /**
+     * Finds again the pairs of the balls that moved more than their skin.
+     * @param balls The balls.
+     * @param movedCount Number of balls in {@link #movedBalls}.
+     */
+    private void refresh(BallSystem balls, int movedCount) {
+        refreshes += movedCount;
+
+        // Remove the pairs of the balls
+        for(int k = 0; k < movedCount; k++) {
+            moved[movedBalls[k]] = true;
+        }
+        int kept = 0;
+        for(int k = 0; k < pairCount; k++) {
+            if(!moved[pairsA[k]] && !moved[pairsB[k]]) {
+                pairsA[kept] = pairsA[k];
+                pairsB[kept] = pairsB[k];
+                kept++;
+            }
+        }
+        pairCount = kept;
+
+        for(int k = 0; k < movedCount; k++) {
+            int ball = movedBalls[k];
+            putBall(balls, ball);
+
+            // Find its pairs with the balls still where they are in the grid
+            // (the moved balls not refreshed yet find this one later)
+            int found = grid.query(listX[ball], listY[ball], reach[ball]);
+            for(int f = 0; f < found; f++) {
+                int other = grid.getResult(f);
+                if(!moved[other] && !refreshed[other]) addPairIfNear(ball, other);
+            }
+
+            // And with the balls refreshed before it
+            for(int r = 0; r < refreshedCount; r++) {
+                int other = refreshedBalls[r];
+                if(other != ball && !moved[other]) addPairIfNear(ball, other);
+            }
+            moved[ball] = false;
+            if(!refreshed[ball]) {
+                refreshed[ball] = true;
+                refreshedBalls[refreshedCount++] = ball;
+            }
+        }
+    }
+
+    /**
+     * Puts a ball in the list at its current position, with a skin for its
+     * current speed.
+     * @param balls The balls.
+     * @param ball Index of the ball.
+     */
+    private void putBall(BallSystem balls, int ball) {
+        float speedX = balls.speedX[ball];
+        float speedY = balls.speedY[ball];
+        float speed = (float) Math.sqrt(speedX * speedX + speedY * speedY);
+        listX[ball] = balls.x[ball];
+        listY[ball] = balls.y[ball];
+        skins[ball] = Math.min(Math.max(speed * skinTime, MIN_SKIN), MAX_SKIN);
+        reach[ball] = balls.radius[ball] + skins[ball];
+    }
+
+    /**
+     * Adds a pair to the list, if the balls are closer than the sum of their
+     * radii and skins.
+     * @param a Index of the first ball.
+     * @param b Index of the second ball.
+     */
+    private void addPairIfNear(int a, int b) {
+        float deltaX = listX[a] - listX[b];
+        float deltaY = listY[a] - listY[b];
+        float distance = reach[a] + reach[b];
+        if(deltaX * deltaX + deltaY * deltaY >= distance * distance) return;
+
+        if(pairCount == pairsA.length) {
+            pairsA = Arrays.copyOf(pairsA, pairCount * 2);
+            pairsB = Arrays.copyOf(pairsB, pairCount * 2);
+        }
+        pairsA[pairCount] = a;
+        pairsB[pairCount] = b;
+        pairCount++;
+    }
+}
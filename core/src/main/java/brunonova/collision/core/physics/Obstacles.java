@@ -0,0 +1,711 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter.OutputType;
+import java.util.Arrays;
+
+/**
+ * The static obstacles of an arena: rectangles, circles and line segments,
+ * which the balls, the player and the missiles can't go through.
+ * <p>The obstacles are put in a bounding volume hierarchy (a binary tree of
+ * boxes, each containing the boxes of its children) when they're loaded, so
+ * finding the obstacles near a ball only visits a few boxes, however many
+ * obstacles there are. The tree is kept in parallel arrays, and the queries
+ * don't allocate memory.</p>
+ * <p>Moving circles are pushed out of the obstacles they overlap. A circle
+ * that went through an obstacle during a tick (usually a segment or a thin
+ * rectangle) is pushed back to the side it came from.</p>
+ * <p>The arenas are JSON files with a list of obstacles, in world
+ * coordinates:</p>
+ * <pre>
+ * {"obstacles": [
+ *     {"type": "rectangle", "x": 100, "y": 100, "width": 50, "height": 20},
+ *     {"type": "circle", "x": 300, "y": 450, "radius": 30},
+ *     {"type": "segment", "x1": 0, "y1": 0, "x2": 80, "y2": 80}
+ * ]}
+ * </pre>
+ */
+public class Obstacles {
+    /** Maximum number of obstacles in a leaf of the tree. */
+    private static final int LEAF_SIZE = 4;
+    /** Maximum number of times a circle is pushed out of the obstacles. */
+    private static final int MAX_PUSHES = 3;
+
+    /**
+     * Shape of an obstacle.
+     */
+    public enum Shape {
+        /** An axis-aligned rectangle. */
+        RECTANGLE,
+        /** A circle. */
+        CIRCLE,
+        /** A line segment (with no thickness). */
+        SEGMENT
+    }
+
+    // The obstacles (each obstacle is in the same index of these arrays):
+    // the corners of the rectangles, the bounding boxes of the circles and
+    // the ends of the segments
+    private Shape[] shapes = new Shape[16];
+    private float[] x1 = new float[16];
+    private float[] y1 = new float[16];
+    private float[] x2 = new float[16];
+    private float[] y2 = new float[16];
+    private int count = 0;
+
+    // The nodes of the tree (each node is in the same index of these arrays,
+    // and the root is the first one)
+    private float[] nodeMinX = new float[0];
+    private float[] nodeMinY = new float[0];
+    private float[] nodeMaxX = new float[0];
+    private float[] nodeMaxY = new float[0];
+    /** First obstacle (in {@link #order}) of each leaf, or first child of each inner node. */
+    private int[] nodeFirst = new int[0];
+    /** Number of obstacles of each leaf (0 for the inner nodes, whose second child follows the first). */
+    private int[] nodeCounts = new int[0];
+    private int nodeCount = 0;
+    /** Indices of the obstacles, grouped by leaf. */
+    private int[] order = new int[0];
+    /** Whether the tree has the current obstacles. */
+    private boolean built = true;
+    /** Nodes still to visit by a query. */
+    private int[] stack = new int[64];
+    /** Obstacles found by the last query. */
+    private int[] results = new int[0];
+
+    // The result of the last push
+    private float x;
+    private float y;
+    private float normalX;
+    private float normalY;
+    // The deepest contact found by the last call to contact()
+    private float contactDepth;
+    private float contactNormalX;
+    private float contactNormalY;
+
+    /**
+     * Loads the obstacles of an arena from a JSON file, and builds the tree.
+     * @param file The file.
+     * @return The obstacles.
+     * @throws com.badlogic.gdx.utils.SerializationException If the file isn't
+     *         valid JSON.
+     * @throws IllegalArgumentException If an obstacle is invalid.
+     */
+    public static Obstacles load(FileHandle file) {
+        return parse(new JsonReader().parse(file));
+    }
+
+    /**
+     * Reads the obstacles of an arena from JSON, and builds the tree.
+     * @param json The JSON.
+     * @return The obstacles.
+     * @throws com.badlogic.gdx.utils.SerializationException If it isn't valid
+     *         JSON.
+     * @throws IllegalArgumentException If an obstacle is invalid.
+     */
+    public static Obstacles parse(String json) {
+        return parse(new JsonReader().parse(json));
+    }
+
+    /**
+     * Reads the obstacles of an arena, and builds the tree.
+     * @param root The root of the JSON document.
+     * @return The obstacles.
+     * @throws IllegalArgumentException If an obstacle is invalid.
+     */
+    private static Obstacles parse(JsonValue root) {
+        Obstacles obstacles = new Obstacles();
+        JsonValue list = root.get("obstacles");
+        if(list == null) throw new IllegalArgumentException("Missing \"obstacles\" list");
+        for(JsonValue obstacle = list.child; obstacle != null; obstacle = obstacle.next) {
+            try {
+                String type = obstacle.getString("type");
+                switch(type) {
+                    case "rectangle":
+                        obstacles.addRectangle(obstacle.getFloat("x"), obstacle.getFloat("y"),
+                                obstacle.getFloat("width"), obstacle.getFloat("height"));
+                        break;
+                    case "circle":
+                        obstacles.addCircle(obstacle.getFloat("x"), obstacle.getFloat("y"),
+                                obstacle.getFloat("radius"));
+                        break;
+                    case "segment":
+                        obstacles.addSegment(obstacle.getFloat("x1"), obstacle.getFloat("y1"),
+                                obstacle.getFloat("x2"), obstacle.getFloat("y2"));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown obstacle type: " + type);
+                }
+            } catch(IllegalArgumentException ex) {
+                // (the JSON getters also throw it, for missing values)
+                throw new IllegalArgumentException("Invalid obstacle: " + obstacle.toJson(OutputType.minimal), ex);
+            }
+        }
+        obstacles.build();
+        return obstacles;
+    }
+
+    /**
+     * Adds a rectangle.
+     * <p>{@link #build()} must be called after adding the obstacles.</p>
+     * @param x X coordinate of the bottom left corner.
+     * @param y Y coordinate of the bottom left corner.
+     * @param width Width of the rectangle.
+     * @param height Height of the rectangle.
+     */
+    public void addRectangle(float x, float y, float width, float height) {
+        if(width < 0 || height < 0) throw new IllegalArgumentException("Negative size");
+        add(Shape.RECTANGLE, x, y, x + width, y + height);
+    }
+
+    /**
+     * Adds a circle.
+     * <p>{@link #build()} must be called after adding the obstacles.</p>
+     * @param x X coordinate of the center.
+     * @param y Y coordinate of the center.
+     * @param radius Radius of the circle.
+     */
+    public void addCircle(float x, float y, float radius) {
+        if(radius <= 0) throw new IllegalArgumentException("Non-positive radius");
+        add(Shape.CIRCLE, x - radius, y - radius, x + radius, y + radius);
+    }
+
+    /**
+     * Adds a line segment.
+     * <p>{@link #build()} must be called after adding the obstacles.</p>
+     * @param x1 X coordinate of one end.
+     * @param y1 Y coordinate of one end.
+     * @param x2 X coordinate of the other end.
+     * @param y2 Y coordinate of the other end.
+     */
+    public void addSegment(float x1, float y1, float x2, float y2) {
+        add(Shape.SEGMENT, x1, y1, x2, y2);
+    }
+
+    /**
+     * Builds the tree of the obstacles added.
+     */
+    public void build() {
+        order = new int[count];
+        for(int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        results = new int[count];
+        int capacity = Math.max(1, 2 * count);
+        nodeMinX = new float[capacity];
+        nodeMinY = new float[capacity];
+        nodeMaxX = new float[capacity];
+        nodeMaxY = new float[capacity];
+        nodeFirst = new int[capacity];
+        nodeCounts = new int[capacity];
+        nodeCount = count > 0 ? 1 : 0;
+        if(count > 0) buildNode(0, 0, count);
+        built = true;
+    }
+
+    /**
+     * Returns the number of obstacles.
+     * @return The number of obstacles.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the shape of an obstacle.
+     * @param obstacle Index of the obstacle.
+     * @return The shape.
+     */
+    public Shape getShape(int obstacle) {
+        return shapes[obstacle];
+    }
+
+    /**
+     * Returns the X coordinate of the first point of an obstacle: the bottom
+     * left corner of a rectangle or of the bounding box of a circle, or an
+     * end of a segment.
+     * @param obstacle Index of the obstacle.
+     * @return The X coordinate.
+     */
+    public float getX1(int obstacle) {
+        return x1[obstacle];
+    }
+
+    /**
+     * Returns the Y coordinate of the first point of an obstacle.
+     * @param obstacle Index of the obstacle.
+     * @return The Y coordinate.
+     * @see #getX1(int)
+     */
+    public float getY1(int obstacle) {
+        return y1[obstacle];
+    }
+
+    /**
+     * Returns the X coordinate of the second point of an obstacle: the top
+     * right corner of a rectangle or of the bounding box of a circle, or the
+     * other end of a segment.
+     * @param obstacle Index of the obstacle.
+     * @return The X coordinate.
+     */
+    public float getX2(int obstacle) {
+        return x2[obstacle];
+    }
+
+    /**
+     * Returns the Y coordinate of the second point of an obstacle.
+     * @param obstacle Index of the obstacle.
+     * @return The Y coordinate.
+     * @see #getX2(int)
+     */
+    public float getY2(int obstacle) {
+        return y2[obstacle];
+    }
+
+    /**
+     * Returns whether a circle overlaps any obstacle.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return {@code true} if it overlaps an obstacle.
+     */
+    public boolean overlaps(float x, float y, float radius) {
+        int found = query(x - radius, y - radius, x + radius, y + radius);
+        for(int k = 0; k < found; k++) {
+            if(overlaps(results[k], x, y, radius)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a circle overlaps an obstacle.
+     * @param obstacle Index of the obstacle.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return {@code true} if it overlaps the obstacle.
+     */
+    public boolean overlaps(int obstacle, float x, float y, float radius) {
+        contactDepth = 0;
+        contact(obstacle, x, y, x, y, radius);
+        return contactDepth > 0;
+    }
+
+    /**
+     * Pushes a circle that moved out of the obstacles it overlaps (or went
+     * through).
+     * <p>The new position is returned by {@link #getX()} and {@link #getY()},
+     * and the direction it was pushed in (to bounce the circle) by
+     * {@link #getNormalX()} and {@link #getNormalY()}.</p>
+     * @param previousX X coordinate of the center of the circle before it
+     *                  moved.
+     * @param previousY Y coordinate of the center of the circle before it
+     *                  moved.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return {@code true} if the circle was pushed.
+     */
+    public boolean push(float previousX, float previousY, float x, float y, float radius) {
+        if(count == 0) return false;
+        boolean pushed = false;
+        for(int i = 0; i < MAX_PUSHES; i++) {
+            // Find the deepest contact with the obstacles near the path of
+            // the circle
+            int found = query(Math.min(previousX, x) - radius, Math.min(previousY, y) - radius,
+                              Math.max(previousX, x) + radius, Math.max(previousY, y) + radius);
+            contactDepth = 0;
+            for(int k = 0; k < found; k++) {
+                contact(results[k], previousX, previousY, x, y, radius);
+            }
+            if(contactDepth <= 0) break;
+
+            // Push the circle out of it
+            x += contactNormalX * contactDepth;
+            y += contactNormalY * contactDepth;
+            normalX = contactNormalX;
+            normalY = contactNormalY;
+            pushed = true;
+        }
+        this.x = x;
+        this.y = y;
+        return pushed;
+    }
+
+    /**
+     * Returns the X coordinate of the center of the circle after the last
+     * {@link #push(float, float, float, float, float)}.
+     * @return The X coordinate.
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinate of the center of the circle after the last
+     * {@link #push(float, float, float, float, float)}.
+     * @return The Y coordinate.
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Returns the X coordinate of the direction the circle was last pushed
+     * in by {@link #push(float, float, float, float, float)} (a unit vector).
+     * @return The X coordinate of the normal of the obstacle.
+     */
+    public float getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * Returns the Y coordinate of the direction the circle was last pushed
+     * in.
+     * @return The Y coordinate of the normal of the obstacle.
+     * @see #getNormalX()
+     */
+    public float getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * Finds the obstacles whose bounding boxes overlap a box.
+     * @param minX Left of the box.
+     * @param minY Bottom of the box.
+     * @param maxX Right of the box.
+     * @param maxY Top of the box.
+     * @return The number of obstacles found (in {@link #results}).
+     */
+    private int query(float minX, float minY, float maxX, float maxY) {
+        if(!built) throw new IllegalStateException("The obstacles were added without building the tree");
+        if(nodeCount == 0) return 0;
+        int found = 0;
+        int size = 0;
+        stack[size++] = 0;
+        while(size > 0) {
+            int node = stack[--size];
+            if(nodeMinX[node] > maxX || nodeMaxX[node] < minX || nodeMinY[node] > maxY || nodeMaxY[node] < minY) {
+                continue;
+            }
+            if(nodeCounts[node] > 0) {
+                int end = nodeFirst[node] + nodeCounts[node];
+                for(int i = nodeFirst[node]; i < end; i++) {
+                    results[found++] = order[i];
+                }
+            } else {
+                if(size + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[size++] = nodeFirst[node] + 1;
+                stack[size++] = nodeFirst[node];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the contact between a moving circle and an obstacle, keeping it
+     * in {@link #contactDepth} and {@link #contactNormalX} /
+     * {@link #contactNormalY} if it's deeper than the contact already found.
+     * @param obstacle Index of the obstacle.
+     * @param previousX X coordinate of the center before the circle moved.
+     * @param previousY Y coordinate of the center before the circle moved.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     */
+    private void contact(int obstacle, float previousX, float previousY, float x, float y, float radius) {
+        float ax = x1[obstacle], ay = y1[obstacle], bx = x2[obstacle], by = y2[obstacle];
+        switch(shapes[obstacle]) {
+            case RECTANGLE: {
+                // Inside the rectangle: push it out through the side it came
+                // from (or the nearest side)
+                if(x >= ax && x <= bx && y >= ay && y <= by) {
+                    float left = x - ax, right = bx - x, bottom = y - ay, top = by - y;
+                    if(previousX < ax) right = bottom = top = Float.MAX_VALUE;
+                    else if(previousX > bx) left = bottom = top = Float.MAX_VALUE;
+                    else if(previousY < ay) left = right = top = Float.MAX_VALUE;
+                    else if(previousY > by) left = right = bottom = Float.MAX_VALUE;
+                    float min = Math.min(Math.min(left, right), Math.min(bottom, top));
+                    if(min == left) keepContact(min + radius, -1, 0);
+                    else if(min == right) keepContact(min + radius, 1, 0);
+                    else if(min == bottom) keepContact(min + radius, 0, -1);
+                    else keepContact(min + radius, 0, 1);
+                    return;
+                }
+
+                // Touching it from outside
+                float closestX = Math.min(Math.max(x, ax), bx);
+                float closestY = Math.min(Math.max(y, ay), by);
+                float dx = x - closestX, dy = y - closestY;
+                float distance2 = dx * dx + dy * dy;
+                if(distance2 < radius * radius) {
+                    float distance = (float) Math.sqrt(distance2);
+                    keepContact(radius - distance, dx / distance, dy / distance);
+                    return;
+                }
+
+                // Went through it: find where the path enters and leaves the
+                // rectangle grown by the radius, along each axis (the path
+                // crosses the rectangle if it's inside both ranges at once)
+                float minX = ax - radius, minY = ay - radius, maxX = bx + radius, maxY = by + radius;
+                float pathX = x - previousX, pathY = y - previousY;
+                float enterX, exitX, enterY, exitY;
+                if(pathX != 0) {
+                    enterX = ((pathX > 0 ? minX : maxX) - previousX) / pathX;
+                    exitX = ((pathX > 0 ? maxX : minX) - previousX) / pathX;
+                } else if(previousX > minX && previousX < maxX) {
+                    enterX = Float.NEGATIVE_INFINITY;
+                    exitX = Float.POSITIVE_INFINITY;
+                } else {
+                    return;
+                }
+                if(pathY != 0) {
+                    enterY = ((pathY > 0 ? minY : maxY) - previousY) / pathY;
+                    exitY = ((pathY > 0 ? maxY : minY) - previousY) / pathY;
+                } else if(previousY > minY && previousY < maxY) {
+                    enterY = Float.NEGATIVE_INFINITY;
+                    exitY = Float.POSITIVE_INFINITY;
+                } else {
+                    return;
+                }
+                float enter = Math.max(enterX, enterY);
+                if(enter < 0 || enter > 1 || enter > Math.min(exitX, exitY)) return;
+
+                // If it entered near a corner (where the grown rectangle is
+                // rounded), it only went through if it passed near a corner
+                float enterAlong = enterX >= enterY ? previousY + pathY * enter : previousX + pathX * enter;
+                boolean nearCorner = enterX >= enterY ? enterAlong < ay || enterAlong > by
+                                                      : enterAlong < ax || enterAlong > bx;
+                if(nearCorner) {
+                    float r2 = radius * radius;
+                    if(Narrowphase.segmentDistance2(ax, ay, previousX, previousY, x, y) >= r2
+                            && Narrowphase.segmentDistance2(bx, ay, previousX, previousY, x, y) >= r2
+                            && Narrowphase.segmentDistance2(ax, by, previousX, previousY, x, y) >= r2
+                            && Narrowphase.segmentDistance2(bx, by, previousX, previousY, x, y) >= r2) {
+                        return;
+                    }
+                }
+
+                // Push it back out through the side it entered
+                if(enterX >= enterY) {
+                    if(pathX > 0) keepContact(x - minX, -1, 0);
+                    else keepContact(maxX - x, 1, 0);
+                } else {
+                    if(pathY > 0) keepContact(y - minY, 0, -1);
+                    else keepContact(maxY - y, 0, 1);
+                }
+                return;
+            }
+
+            case CIRCLE: {
+                float circleRadius = (bx - ax) / 2;
+                float centerX = ax + circleRadius, centerY = ay + circleRadius;
+                float dx = x - centerX, dy = y - centerY;
+                float radii = radius + circleRadius;
+                float distance2 = dx * dx + dy * dy;
+                if(distance2 >= radii * radii) {
+                    // Went through it: find where the path entered the circle
+                    // grown by the radius, and push it back out along the
+                    // normal there
+                    float pathX = x - previousX, pathY = y - previousY;
+                    float fromX = previousX - centerX, fromY = previousY - centerY;
+                    float a = pathX * pathX + pathY * pathY;
+                    float b = fromX * pathX + fromY * pathY;
+                    float c = fromX * fromX + fromY * fromY - radii * radii;
+                    float discriminant = b * b - a * c;
+                    if(c <= 0 || b >= 0 || discriminant <= 0) return;
+                    float t = (-b - (float) Math.sqrt(discriminant)) / a;
+                    if(t > 1) return;
+                    float normalX = (fromX + pathX * t) / radii, normalY = (fromY + pathY * t) / radii;
+                    keepContact(radii - (dx * normalX + dy * normalY), normalX, normalY);
+                    return;
+                }
+                float distance = (float) Math.sqrt(distance2);
+                if(distance == 0) {
+                    keepContact(radii, 1, 0);
+                } else {
+                    keepContact(radii - distance, dx / distance, dy / distance);
+                }
+                return;
+            }
+
+            case SEGMENT: {
+                float sx = bx - ax, sy = by - ay;
+                float length2 = sx * sx + sy * sy;
+                float length = (float) Math.sqrt(length2);
+
+                // Crossed the segment: push it back to the side it came from
+                float sideBefore = sx * (previousY - ay) - sy * (previousX - ax);
+                float sideAfter = sx * (y - ay) - sy * (x - ax);
+                if(length > 0 && (sideBefore > 0 && sideAfter < 0 || sideBefore < 0 && sideAfter > 0)) {
+                    // (where the path crosses the line of the segment)
+                    float t = sideBefore / (sideBefore - sideAfter);
+                    float crossX = previousX + (x - previousX) * t, crossY = previousY + (y - previousY) * t;
+                    float along = ((crossX - ax) * sx + (crossY - ay) * sy) / length2;
+                    if(along >= 0 && along <= 1) {
+                        float sign = sideBefore > 0 ? 1 : -1;
+                        keepContact(radius + Math.abs(sideAfter) / length, -sy / length * sign, sx / length * sign);
+                        return;
+                    }
+                }
+
+                // Touching it
+                float along = length2 > 0 ? ((x - ax) * sx + (y - ay) * sy) / length2 : 0;
+                along = Math.min(Math.max(along, 0), 1);
+                float dx = x - (ax + sx * along), dy = y - (ay + sy * along);
+                float distance2 = dx * dx + dy * dy;
+                if(distance2 >= radius * radius) return;
+                float distance = (float) Math.sqrt(distance2);
+                if(distance > 0) {
+                    keepContact(radius - distance, dx / distance, dy / distance);
+                } else if(length > 0) {
+                    float sign = sideBefore >= 0 ? 1 : -1;
+                    keepContact(radius, -sy / length * sign, sx / length * sign);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps a contact, if it's deeper than the deepest one found.
+     * @param depth How far the circle must be pushed.
+     * @param normalX X coordinate of the direction to push it in.
+     * @param normalY Y coordinate of the direction to push it in.
+     */
+    private void keepContact(float depth, float normalX, float normalY) {
+        if(depth > contactDepth) {
+            contactDepth = depth;
+            contactNormalX = normalX;
+            contactNormalY = normalY;
+        }
+    }
+
+    /**
+     * Adds an obstacle.
+     * @param shape The shape.
+     * @param x1 X coordinate of the first point.
+     * @param y1 Y coordinate of the first point.
+     * @param x2 X coordinate of the second point.
+     * @param y2 Y coordinate of the second point.
+     */
+    private void add(Shape shape, float x1, float y1, float x2, float y2) {
+        if(count == shapes.length) {
+            int capacity = count * 2;
+            shapes = Arrays.copyOf(shapes, capacity);
+            this.x1 = Arrays.copyOf(this.x1, capacity);
+            this.y1 = Arrays.copyOf(this.y1, capacity);
+            this.x2 = Arrays.copyOf(this.x2, capacity);
+            this.y2 = Arrays.copyOf(this.y2, capacity);
+        }
+        shapes[count] = shape;
+        this.x1[count] = x1;
+        this.y1[count] = y1;
+        this.x2[count] = x2;
+        this.y2[count] = y2;
+        count++;
+        built = false;
+    }
+
+    /**
+     * Builds a node of the tree (and its children) with some of the
+     * obstacles, splitting them in half along the longest axis of their
+     * centers.
+     * @param node Index of the node.
+     * @param first Position in {@link #order} of the first obstacle.
+     * @param size Number of obstacles.
+     */
+    private void buildNode(int node, int first, int size) {
+        // The box of the node, and the extent of the centers of its obstacles
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        float minCenterX = Float.MAX_VALUE, minCenterY = Float.MAX_VALUE;
+        float maxCenterX = -Float.MAX_VALUE, maxCenterY = -Float.MAX_VALUE;
+        for(int i = first; i < first + size; i++) {
+            int obstacle = order[i];
+            minX = Math.min(minX, Math.min(x1[obstacle], x2[obstacle]));
+            minY = Math.min(minY, Math.min(y1[obstacle], y2[obstacle]));
+            maxX = Math.max(maxX, Math.max(x1[obstacle], x2[obstacle]));
+            maxY = Math.max(maxY, Math.max(y1[obstacle], y2[obstacle]));
+            minCenterX = Math.min(minCenterX, center(obstacle, true));
+            minCenterY = Math.min(minCenterY, center(obstacle, false));
+            maxCenterX = Math.max(maxCenterX, center(obstacle, true));
+            maxCenterY = Math.max(maxCenterY, center(obstacle, false));
+        }
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeMaxX[node] = maxX;
+        nodeMaxY[node] = maxY;
+
+        if(size <= LEAF_SIZE) {
+            nodeFirst[node] = first;
+            nodeCounts[node] = size;
+        } else {
+            // Split the obstacles at the median of their centers (the two
+            // children are next to each other)
+            boolean alongX = maxCenterX - minCenterX >= maxCenterY - minCenterY;
+            int half = size / 2;
+            select(first, first + size - 1, first + half, alongX);
+            int left = nodeCount;
+            nodeCount += 2;
+            nodeFirst[node] = left;
+            nodeCounts[node] = 0;
+            buildNode(left, first, half);
+            buildNode(left + 1, first + half, size - half);
+        }
+    }
+
+    /**
+     * Reorders some obstacles of {@link #order} so the one at a position has
+     * the center it would have if they were sorted, with smaller centers
+     * before it and larger ones after it (quickselect).
+     * @param low Position of the first obstacle.
+     * @param high Position of the last obstacle.
+     * @param k The position.
+     * @param alongX Whether to compare the X (or the Y) coordinates.
+     */
+    private void select(int low, int high, int k, boolean alongX) {
+        while(low < high) {
+            float pivot = center(order[(low + high) >>> 1], alongX);
+            int i = low, j = high;
+            while(i <= j) {
+                while(center(order[i], alongX) < pivot) i++;
+                while(center(order[j], alongX) > pivot) j--;
+                if(i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if(k <= j) high = j;
+            else if(k >= i) low = i;
+            else return;
+        }
+    }
+
+    /**
+     * Returns a coordinate of the center of the bounding box of an obstacle.
+     * @param obstacle Index of the obstacle.
+     * @param alongX Whether to return the X (or the Y) coordinate.
+     * @return The coordinate.
+     */
+    private float center(int obstacle, boolean alongX) {
+        return alongX ? (x1[obstacle] + x2[obstacle]) / 2 : (y1[obstacle] + y2[obstacle]) / 2;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import java.util.Arrays;
+
+/**
+ * Finds free positions for new objects (balls, coins, bonuses, etc.), far
+ * enough from a point (the player) and not overlapping any of the balls of a
+ * {@link BallSystem} nor the {@link Obstacles} of its world, in a bounded
+ * time.
+ * <p>First, a few random positions are tried, each checked against the balls
+ * near it (found with a {@link HierarchicalGrid}). That's enough unless the
+ * world is crowded. If they all fail, the free space is searched: the points
+ * of a lattice over the world are marked as blocked by each ball and by the
+ * point to keep away from (and by each obstacle), and one of the free points
+ * is chosen at random.
+ * The lattice has a limited number of points, so this takes a time
+ * proportional to the number of balls, however crowded the world is.</p>
+ * <p>The grid is rebuilt when the balls moved (after
+ * {@link #invalidate()}) or were reordered. The balls added since then (e.g.
+ * in the same wave) are checked one by one, until there are too many of
+ * them.</p>
+ */
+public class SpawnPlacer {
+    /** Number of random positions tried before searching the free space. */
+    private static final int RANDOM_TRIES = 16;
+    /** Maximum number of balls added since the grid was built, before rebuilding it. */
+    private static final int MAX_PENDING_BALLS = 64;
+    /** Maximum number of points of the lattice searched for free space. */
+    private static final int MAX_LATTICE_POINTS = 16384;
+    /** Minimum distance between the points of the lattice. */
+    private static final float MIN_LATTICE_SPACING = 2;
+
+    /** The balls to not overlap. */
+    private final BallSystem balls;
+    /** Grid of the balls. */
+    private final HierarchicalGrid grid;
+    // Positions and radii of the balls in the grid (given to the grid)
+    private float[] gridX = new float[0];
+    private float[] gridY = new float[0];
+    private float[] gridRadius = new float[0];
+    /** Number of balls in the grid ({@code -1} if it must be rebuilt). */
+    private int builtCount = -1;
+    /** Number of reorders of the balls when the grid was built. */
+    private int builtReorders = -1;
+    /** The points of the lattice blocked by a ball or by the point to keep away from. */
+    private boolean[] blocked = new boolean[0];
+
+    // The position found
+    private float x;
+    private float y;
+
+    /**
+     * Creates the placer.
+     * @param balls The balls to not overlap.
+     * @param minRadius Radius of the smallest ball.
+     * @param maxRadius Radius of the largest ball.
+     */
+    public SpawnPlacer(BallSystem balls, float minRadius, float maxRadius) {
+        this.balls = balls;
+        grid = new HierarchicalGrid(balls.getWidth(), balls.getHeight(), minRadius, maxRadius);
+    }
+
+    /**
+     * Marks the grid as outdated, because the balls moved.
+     * <p>Should be called every tick, after the balls are moved.</p>
+     */
+    public void invalidate() {
+        builtCount = -1;
+    }
+
+    /**
+     * Finds a position for a new object, with {@link #getX()} and
+     * {@link #getY()} returning it.
+     * @param radius Radius of the object.
+     * @param avoidX X coordinate of the point to keep away from.
+     * @param avoidY Y coordinate of the point to keep away from.
+     * @param minDistance Minimum distance between the center of the object
+     *                    and the point.
+     * @return {@code true} if the position is far enough from the point and
+     *         doesn't overlap any ball nor obstacle, {@code false} if there's
+     *         no room for
+     *         the object (the position is then only the farthest from the
+     *         point that was tried).
+     */
+    public boolean place(float radius, float avoidX, float avoidY, float minDistance) {
+        updateGrid();
+        float minX = Math.min(radius, balls.getWidth() / 2);
+        float minY = Math.min(radius, balls.getHeight() / 2);
+        float maxX = balls.getWidth() - minX;
+        float maxY = balls.getHeight() - minY;
+
+        // Try a few random positions (keeping the farthest from the point, in
+        // case there's no room anywhere)
+        float farthest = -1;
+        for(int i = 0; i < RANDOM_TRIES; i++) {
+            float candidateX = MathUtils.random(minX, maxX);
+            float candidateY = MathUtils.random(minY, maxY);
+            float distance = distance2(candidateX, candidateY, avoidX, avoidY);
+            if(distance >= minDistance * minDistance && isFree(candidateX, candidateY, radius)) {
+                x = candidateX;
+                y = candidateY;
+                return true;
+            }
+            if(distance > farthest) {
+                farthest = distance;
+                x = candidateX;
+                y = candidateY;
+            }
+        }
+
+        // The world is crowded: search the free space
+        return searchFreeSpace(radius, minX, minY, maxX, maxY, avoidX, avoidY, minDistance);
+    }
+
+    /**
+     * Returns the X coordinate of the center of the position found by the
+     * last call to {@link #place(float, float, float, float)}.
+     * @return The X coordinate.
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinate of the center of the position found by the
+     * last call to {@link #place(float, float, float, float)}.
+     * @return The Y coordinate.
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Rebuilds the grid, if it's outdated or there are too many balls
+     * outside of it.
+     */
+    private void updateGrid() {
+        if(builtCount >= 0 && balls.reorders == builtReorders
+                && balls.count - builtCount <= MAX_PENDING_BALLS) return;
+
+        int count = balls.count;
+        if(gridX.length < count) {
+            int size = balls.x.length;
+            gridX = new float[size];
+            gridY = new float[size];
+            gridRadius = new float[size];
+        }
+        System.arraycopy(balls.x, 0, gridX, 0, count);
+        System.arraycopy(balls.y, 0, gridY, 0, count);
+        System.arraycopy(balls.radius, 0, gridRadius, 0, count);
+        grid.build(gridX, gridY, gridRadius, count);
+        builtCount = count;
+        builtReorders = balls.reorders;
+    }
+
+    /**
+     * Returns whether a circle doesn't overlap any ball nor obstacle.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return {@code true} if it doesn't overlap anything.
+     */
+    private boolean isFree(float x, float y, float radius) {
+        Obstacles obstacles = balls.getObstacles();
+        if(obstacles != null && obstacles.overlaps(x, y, radius)) return false;
+
+        // The balls in the grid near the circle
+        int found = grid.query(x, y, radius);
+        for(int k = 0; k < found; k++) {
+            int ball = grid.getResult(k);
+            float radii = radius + gridRadius[ball];
+            if(distance2(x, y, gridX[ball], gridY[ball]) < radii * radii) return false;
+        }
+
+        // The balls added since the grid was built
+        for(int ball = builtCount; ball < balls.count; ball++) {
+            float radii = radius + balls.radius[ball];
+            if(distance2(x, y, balls.x[ball], balls.y[ball]) < radii * radii) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Chooses a random free point of a lattice over the world, as the
+     * position found.
+     * @param radius Radius of the object.
+     * @param minX Minimum X coordinate of the center of the object.
+     * @param minY Minimum Y coordinate of the center of the object.
+     * @param maxX Maximum X coordinate of the center of the object.
+     * @param maxY Maximum Y coordinate of the center of the object.
+     * @param avoidX X coordinate of the point to keep away from.
+     * @param avoidY Y coordinate of the point to keep away from.
+     * @param minDistance Minimum distance to the point.
+     * @return {@code true} if a free point was found.
+     */
+    private boolean searchFreeSpace(float radius, float minX, float minY, float maxX, float maxY,
+                                    float avoidX, float avoidY, float minDistance) {
+        // The points are as far apart as the radius of the object (so it still
+        // fits through gaps about its size), but not closer than the minimum
+        // spacing, and farther apart if there would be too many of them
+        float area = (maxX - minX) * (maxY - minY);
+        float spacing = Math.max(Math.max(radius, MIN_LATTICE_SPACING),
+                                 (float) Math.sqrt(area / MAX_LATTICE_POINTS));
+        int columns = (int) ((maxX - minX) / spacing) + 1;
+        int rows = (int) ((maxY - minY) / spacing) + 1;
+        if(blocked.length < columns * rows) blocked = new boolean[columns * rows];
+        Arrays.fill(blocked, 0, columns * rows, false);
+
+        // Block the points too close to the point to avoid, and to each ball
+        block(avoidX, avoidY, minDistance, minX, minY, spacing, columns, rows);
+        for(int ball = 0; ball < balls.count; ball++) {
+            block(balls.x[ball], balls.y[ball], radius + balls.radius[ball], minX, minY, spacing, columns, rows);
+        }
+        Obstacles obstacles = balls.getObstacles();
+        if(obstacles != null) {
+            for(int obstacle = 0; obstacle < obstacles.getCount(); obstacle++) {
+                blockObstacle(obstacles, obstacle, radius, minX, minY, spacing, columns, rows);
+            }
+        }
+
+        // Choose one of the free points at random
+        int free = 0;
+        for(int i = 0; i < columns * rows; i++) {
+            if(!blocked[i]) free++;
+        }
+        if(free == 0) return false;
+        int chosen = MathUtils.random(free - 1);
+        for(int i = 0; i < columns * rows; i++) {
+            if(!blocked[i] && chosen-- == 0) {
+                x = minX + (i % columns) * spacing;
+                y = minY + (i / columns) * spacing;
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the points of the lattice closer than a distance to a point as
+     * blocked.
+     * @param centerX X coordinate of the point.
+     * @param centerY Y coordinate of the point.
+     * @param distance The distance.
+     * @param minX X coordinate of the first column of the lattice.
+     * @param minY Y coordinate of the first row of the lattice.
+     * @param spacing Distance between the points of the lattice.
+     * @param columns Number of columns of the lattice.
+     * @param rows Number of rows of the lattice.
+     */
+    private void block(float centerX, float centerY, float distance, float minX, float minY, float spacing,
+                       int columns, int rows) {
+        int firstColumn = Math.max(0, (int) Math.ceil((centerX - distance - minX) / spacing));
+        int lastColumn = Math.min(columns - 1, (int) Math.floor((centerX + distance - minX) / spacing));
+        int firstRow = Math.max(0, (int) Math.ceil((centerY - distance - minY) / spacing));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((centerY + distance - minY) / spacing));
+        for(int row = firstRow; row <= lastRow; row++) {
+            float deltaY = minY + row * spacing - centerY;
+            for(int column = firstColumn; column <= lastColumn; column++) {
+                float deltaX = minX + column * spacing - centerX;
+                if(deltaX * deltaX + deltaY * deltaY < distance * distance) blocked[row * columns + column] = true;
+            }
+        }
+    }
+
+    /**
+     * Marks the points of the lattice where the object would overlap an
+     * obstacle as blocked (only the points near the obstacle are checked).
+     * @param obstacles The obstacles.
+     * @param obstacle Index of the obstacle.
+     * @param radius Radius of the object.
+     * @param minX X coordinate of the first column of the lattice.
+     * @param minY Y coordinate of the first row of the lattice.
+     * @param spacing Distance between the points of the lattice.
+     * @param columns Number of columns of the lattice.
+     * @param rows Number of rows of the lattice.
+     */
+    private void blockObstacle(Obstacles obstacles, int obstacle, float radius, float minX, float minY,
+                               float spacing, int columns, int rows) {
+        float left = Math.min(obstacles.getX1(obstacle), obstacles.getX2(obstacle)) - radius;
+        float right = Math.max(obstacles.getX1(obstacle), obstacles.getX2(obstacle)) + radius;
+        float bottom = Math.min(obstacles.getY1(obstacle), obstacles.getY2(obstacle)) - radius;
+        float top = Math.max(obstacles.getY1(obstacle), obstacles.getY2(obstacle)) + radius;
+        int firstColumn = Math.max(0, (int) Math.ceil((left - minX) / spacing));
+        int lastColumn = Math.min(columns - 1, (int) Math.floor((right - minX) / spacing));
+        int firstRow = Math.max(0, (int) Math.ceil((bottom - minY) / spacing));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((top - minY) / spacing));
+        for(int row = firstRow; row <= lastRow; row++) {
+            for(int column = firstColumn; column <= lastColumn; column++) {
+                int point = row * columns + column;
+                if(!blocked[point] && obstacles.overlaps(obstacle, minX + column * spacing, minY + row * spacing,
+                                                         radius)) {
+                    blocked[point] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the squared distance between two points.
+     * @param x1 X coordinate of the first point.
+     * @param y1 Y coordinate of the first point.
+     * @param x2 X coordinate of the second point.
+     * @param y2 Y coordinate of the second point.
+     * @return The squared distance.
+     */
+    private static float distance2(float x1, float y1, float x2, float y2) {
+        float deltaX = x1 - x2;
+        float deltaY = y1 - y2;
+        return deltaX * deltaX + deltaY * deltaY;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+/**
+ * A collision engine that moves every ball by a fixed step each tick, and then
+ * separates the balls that ended up overlapping.
+ * <p>It's cheap, but only approximate: the balls overlap for a while before
+ * they're separated, and fast or small balls can pass through each other
+ * between ticks.</p>
+ * <p>The pairs of balls that may overlap are taken from a
+ * {@link NeighbourList}, which is only rebuilt every few ticks.</p>
+ */
+public class SteppedEngine implements CollisionEngine {
+    /**
+     * Default skin time of the neighbour list (seconds): the pairs of each
+     * ball are found again about every this much time (5 ticks at 60 FPS).
+     */
+    public static final float DEFAULT_SKIN_TIME = 0.08f;
+
+    /** The pairs of balls near each other. */
+    private final NeighbourList neighbours;
+    private long collisions = 0;
+
+    /**
+     * Creates the engine, with the default skin time of the neighbour list.
+     * @param width Width of the world.
+     * @param height Height of the world.
+     * @param minRadius Radius of the smallest ball.
+     * @param maxRadius Radius of the largest ball.
+     */
+    public SteppedEngine(float width, float height, float minRadius, float maxRadius) {
+        this(width, height, minRadius, maxRadius, DEFAULT_SKIN_TIME);
+    }
+
+    /**
+     * Creates the engine.
+     * @param width Width of the world.
+     * @param height Height of the world.
+     * @param minRadius Radius of the smallest ball.
+     * @param maxRadius Radius of the largest ball.
+     * @param skinTime The skin time of the neighbour list (see
+     *                 {@link NeighbourList}).
+     */
+    public SteppedEngine(float width, float height, float minRadius, float maxRadius, float skinTime) {
+        neighbours = new NeighbourList(width, height, minRadius, maxRadius, skinTime);
+    }
+
+    @Override
+    public void advance(BallSystem balls, float delta, Listener listener) {
+        // Move the balls, bouncing them off the borders of the world and off
+        // the obstacles
+        for(int i = 0; i < balls.count; i++) {
+            if(!balls.enabled[i]) continue;
+            float previousX = balls.x[i], previousY = balls.y[i];
+            balls.x[i] += balls.speedX[i] * delta;
+            balls.y[i] += balls.speedY[i] * delta;
+
+            boolean bounced = false;
+            float r = balls.radius[i];
+            if(balls.x[i] < r || balls.x[i] > balls.getWidth() - r) {
+                balls.speedX[i] = -balls.speedX[i];
+                bounced = true;
+            }
+            if(balls.y[i] < r || balls.y[i] > balls.getHeight() - r) {
+                balls.speedY[i] = -balls.speedY[i];
+                bounced = true;
+            }
+            if(bounced) balls.keepInsideWorld(i);
+            if(balls.bounceOffObstacles(i, previousX, previousY)) bounced = true;
+            if(bounced) {
+                collisions++;
+                if(listener != null) listener.wallCollision(balls.handles[i]);
+            }
+        }
+
+        // Bounce the balls that overlap (only checking the pairs near each
+        // other)
+        neighbours.update(balls);
+        for(int k = 0; k < neighbours.getPairCount(); k++) {
+            int i = neighbours.getPairA(k);
+            int j = neighbours.getPairB(k);
+            if(balls.enabled[i] && balls.enabled[j] && overlap(balls, i, j) && bounce(balls, i, j)) {
+                collisions++;
+                if(listener != null) listener.ballCollision(balls.handles[i], balls.handles[j]);
+            }
+        }
+    }
+
+    @Override
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * Returns the list of the pairs of balls near each other (to get its
+     * statistics).
+     * @return The neighbour list.
+     */
+    public NeighbourList getNeighbours() {
+        return neighbours;
+    }
+
+    /**
+     * Returns whether two balls overlap.
+     * @param balls The balls.
+     * @param a Index of the first ball.
+     * @param b Index of the second ball.
+     * @return {@code true} if they overlap.
+     */
+    private static boolean overlap(BallSystem balls, int a, int b) {
+        float deltaX = balls.x[a] - balls.x[b];
+        float deltaY = balls.y[a] - balls.y[b];
+        float radii = balls.radius[a] + balls.radius[b];
+        return deltaX * deltaX + deltaY * deltaY < radii * radii;
+    }
+
+    /**
+     * Pushes two overlapping balls apart, and bounces them off one another
+     * according to their masses.
+     * @param balls The balls.
+     * @param a Index of the first ball.
+     * @param b Index of the second ball.
+     * @return {@code true} if the balls bounced, {@code false} if they were
+     *         already moving away from each other.
+     */
+    private static boolean bounce(BallSystem balls, int a, int b) {
+        float deltaX = balls.x[a] - balls.x[b];
+        float deltaY = balls.y[a] - balls.y[b];
+        float dist = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+        float radii = balls.radius[a] + balls.radius[b];
+
+        // Prevent a possible division by zero
+        if(dist == 0) {
+            dist = radii - 1;
+            deltaX = radii;
+            deltaY = 0;
+        }
+
+        // Minimum Translation Distance to push balls apart after the collision
+        float mtdX = deltaX * (radii - dist) / dist;
+        float mtdY = deltaY * (radii - dist) / dist;
+
+        // Inverse mass quantities (the lighter ball moves more)
+        float ima = 1 / balls.mass[a];
+        float imb = 1 / balls.mass[b];
+
+        // Push-pull them apart
+        balls.x[a] += mtdX * ima / (ima + imb);
+        balls.y[a] += mtdY * ima / (ima + imb);
+        balls.x[b] -= mtdX * imb / (ima + imb);
+        balls.y[b] -= mtdY * imb / (ima + imb);
+
+        // Ensure the balls are still inside the world
+        balls.keepInsideWorld(a);
+        balls.keepInsideWorld(b);
+
+        // Impact speed along the normal
+        float mtdLength = (float) Math.sqrt(mtdX * mtdX + mtdY * mtdY);
+        if(mtdLength == 0) return false;
+        float normalX = mtdX / mtdLength;
+        float normalY = mtdY / mtdLength;
+        float vn = (balls.speedX[a] - balls.speedX[b]) * normalX + (balls.speedY[a] - balls.speedY[b]) * normalY;
+
+        // Sphere intersecting but moving away from each other already
+        if(vn > 0) return false;
+
+        // Collision impulse
+        float restitution = 1;
+        float i = (-(1 + restitution) * vn) / (ima + imb);
+
+        // Change in momentum
+        balls.speedX[a] += normalX * i * ima;
+        balls.speedY[a] += normalY * i * ima;
+        balls.speedX[b] -= normalX * i * imb;
+        balls.speedY[b] -= normalY * i * imb;
+        return true;
+    }
+}
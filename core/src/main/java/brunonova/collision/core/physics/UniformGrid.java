@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of balls, used to find the balls near a point without
+ * checking every ball.
+ * <p>Each ball is put in the cell that contains its center, and the cells are
+ * as large as the largest ball, so a circle can only overlap the balls of the
+ * cells around it. If the balls have very different sizes, use a
+ * {@link HierarchicalGrid} instead.</p>
+ * <p>The balls are stored in buckets: one per cell, or, if there are many
+ * more cells than balls, a hash table with about twice as many buckets as
+ * balls, so the cost of the grid depends on the number of balls, not on the
+ * size of the world. It's rebuilt from scratch every tick (with a counting
+ * sort), and doesn't allocate memory unless the number of balls grows.</p>
+ */
+public class UniformGrid {
+    /** Maximum number of cells per ball for each cell to have its own bucket. */
+    private static final int DENSE_CELLS_PER_BALL = 16;
+
+    private final float maxRadius;
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    /** Whether each cell has its own bucket (otherwise the cells are hashed). */
+    private boolean dense;
+    /** Number of buckets. */
+    private int bucketCount;
+    /** Index in {@link #items} of the first ball of each bucket (plus the total). */
+    private int[] bucketStarts = new int[1];
+    /** Indices of the balls, sorted by bucket. */
+    private int[] items = new int[64];
+    /** Cell of each ball in {@link #items}. */
+    private int[] itemCells = new int[64];
+    /** Cell of each ball, in the order they were given. */
+    private int[] cells = new int[64];
+    /** Bucket of each ball, in the order they were given. */
+    private int[] buckets = new int[64];
+    /** Indices of the balls found by the last query. */
+    private int[] results = new int[64];
+
+    /**
+     * Creates the grid.
+     * @param width Width of the area covered by the grid.
+     * @param height Height of the area covered by the grid.
+     * @param maxRadius Radius of the largest ball.
+     */
+    public UniformGrid(float width, float height, float maxRadius) {
+        this.maxRadius = maxRadius;
+        cellSize = Math.max(1, 2 * maxRadius);
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+    }
+
+    /**
+     * Puts the balls in the grid, replacing the previous ones.
+     * @param x X coordinates of the centers of the balls.
+     * @param y Y coordinates of the centers of the balls.
+     * @param count Number of balls (they're identified by their index in the
+     *              arrays).
+     */
+    public void build(float[] x, float[] y, int count) {
+        build(x, y, null, 0, count);
+    }
+
+    /**
+     * Puts some of the balls in the grid, replacing the previous ones.
+     * @param x X coordinates of the centers of the balls.
+     * @param y Y coordinates of the centers of the balls.
+     * @param indices Indices of the balls to put in the grid ({@code null} for
+     *                the first {@code count} balls).
+     * @param offset Position in {@code indices} of the first ball.
+     * @param count Number of balls to put in the grid.
+     */
+    public void build(float[] x, float[] y, int[] indices, int offset, int count) {
+        if(items.length < count) {
+            int size = Math.max(count, items.length * 2);
+            items = new int[size];
+            itemCells = new int[size];
+            cells = new int[size];
+            buckets = new int[size];
+            results = new int[size];  // a query can't find more balls than this
+        }
+        // Use a bucket per cell, unless that's many more buckets than balls
+        int cellCount = columns * rows;
+        int hashedCount = Integer.highestOneBit(Math.max(8, count) * 2);
+        dense = cellCount <= DENSE_CELLS_PER_BALL * Math.max(8, count);
+        bucketCount = dense ? cellCount : hashedCount;
+        if(bucketStarts.length < bucketCount + 1) {
+            bucketStarts = new int[Math.max(bucketCount + 1, bucketStarts.length * 2)];
+        }
+
+        // Count the balls of each bucket
+        Arrays.fill(bucketStarts, 0, bucketCount + 1, 0);
+        for(int i = 0; i < count; i++) {
+            int ball = indices == null ? i : indices[offset + i];
+            int column = column(x[ball]), row = row(y[ball]);
+            cells[i] = row * columns + column;
+            buckets[i] = bucketOf(column, row);
+            bucketStarts[buckets[i]]++;
+        }
+
+        // Find where each bucket ends, then fill the buckets backwards (so
+        // each bucket ends up with its start index, and its balls in order)
+        for(int b = 1; b < bucketCount; b++) {
+            bucketStarts[b] += bucketStarts[b - 1];
+        }
+        for(int i = count - 1; i >= 0; i--) {
+            int position = --bucketStarts[buckets[i]];
+            items[position] = indices == null ? i : indices[offset + i];
+            itemCells[position] = cells[i];
+        }
+        bucketStarts[bucketCount] = count;
+    }
+
+    /**
+     * Finds the balls that may overlap a circle (it may also find some balls
+     * that don't).
+     * <p>The balls found are returned by {@link #getResult(int)}.</p>
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return The number of balls found.
+     */
+    public int query(float x, float y, float radius) {
+        return collect(x, y, radius, -1, results, 0);
+    }
+
+    /**
+     * Returns a ball found by the last {@link #query(float, float, float)}.
+     * @param index Index of the result, from 0 to the number of balls found
+     *              (exclusive).
+     * @return The index of the ball.
+     */
+    public int getResult(int index) {
+        return results[index];
+    }
+
+    /**
+     * Adds the balls that may overlap a circle to an array.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @param minIndex Only the balls with a larger index are added.
+     * @param found The array (large enough for every ball in the grid).
+     * @param foundCount Number of balls already in the array.
+     * @return The new number of balls in the array.
+     */
+    int collect(float x, float y, float radius, int minIndex, int[] found, int foundCount) {
+        float reach = radius + maxRadius;
+        int firstColumn = column(x - reach), lastColumn = column(x + reach);
+        int firstRow = row(y - reach), lastRow = row(y + reach);
+
+        if(dense) {
+            for(int row = firstRow; row <= lastRow; row++) {
+                // The buckets of the cells of a row are contiguous
+                int end = bucketStarts[bucketOf(lastColumn, row) + 1];
+                for(int i = bucketStarts[bucketOf(firstColumn, row)]; i < end; i++) {
+                    if(items[i] > minIndex) found[foundCount++] = items[i];
+                }
+            }
+            return foundCount;
+        }
+
+        for(int row = firstRow; row <= lastRow; row++) {
+            for(int column = firstColumn; column <= lastColumn; column++) {
+                // Several cells can share a bucket: only take the balls of
+                // this cell
+                int cell = row * columns + column;
+                int bucket = bucketOf(column, row);
+                int end = bucketStarts[bucket + 1];
+                for(int i = bucketStarts[bucket]; i < end; i++) {
+                    if(itemCells[i] == cell && items[i] > minIndex) found[foundCount++] = items[i];
+                }
+            }
+        }
+        return foundCount;
+    }
+
+    /**
+     * Returns the column of an X coordinate (clamped to the grid).
+     * @param x The X coordinate.
+     * @return The column.
+     */
+    private int column(float x) {
+        return Math.min(columns - 1, Math.max(0, (int) (x / cellSize)));
+    }
+
+    /**
+     * Returns the row of an Y coordinate (clamped to the grid).
+     * @param y The Y coordinate.
+     * @return The row.
+     */
+    private int row(float y) {
+        return Math.min(rows - 1, Math.max(0, (int) (y / cellSize)));
+    }
+
+    /**
+     * Returns the bucket of a cell.
+     * @param column The column of the cell.
+     * @param row The row of the cell.
+     * @return The bucket of the cell.
+     */
+    private int bucketOf(int column, int row) {
+        if(dense) {
+            return row * columns + column;
+        } else {
+            return ((column * 73856093) ^ (row * 19349663)) & (bucketCount - 1);
+        }
+    }
+}
@@ -81,6 +81,26 @@ public abstract class BaseScreen implements Screen, InputProcessor {
         inputMultiplexer.addProcessor(stage);
     }
 
+    /**
+     * Calls the {@link #create()} method, if it hasn't been called yet.
+     * <p>Can be called before the screen is shown, so that showing it for the
+     * first time doesn't cause a hitch.</p>
+     */
+    public void prepare() {
+        if(!created) {
+            create();
+            created = true;
+        }
+    }
+
+    /**
+     * Returns whether the {@link #create()} method has already been called.
+     * @return {@code true} if the screen was created.
+     */
+    public boolean isCreated() {
+        return created;
+    }
+
     /**
      * {@inheritDoc}
      * The {@link #create()} method is called when this method is first called.
@@ -89,10 +109,7 @@ public abstract class BaseScreen implements Screen, InputProcessor {
     @Override
     public void show() {
         // Call the "create" method if it hasn't been called yet.
-        if(!created) {
-            create();
-            created = true;
-        }
+        prepare();
 
         // Set this screen as the input processor, or else the previous screen
         // will still be the input processor
@@ -20,8 +20,6 @@ import brunonova.collision.core.Collision;
 import brunonova.collision.core.enums.Difficulty;
 import brunonova.collision.core.enums.GameMode;
 import brunonova.collision.core.widgets.Menu;
-import com.badlogic.gdx.Application;
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.scenes.scene2d.ui.TextField;
 
@@ -49,16 +47,9 @@ public class GameOverScreen extends BaseScreen {
     public void create() {
         super.create();
 
-        // Define the default player name
-        String defaultPlayerName = game.t("gameOver.defaultName");
-        if(Gdx.app.getType() == Application.ApplicationType.Desktop) {
-            // If on the desktop, get the system user name
-            defaultPlayerName = System.getProperty("user.name");
-        }
-
-        // Create the menu
+        // Create the menu (with the last name used as the default)
         menu = addActor(new Menu(game, game.t("gameOver.title")));
-        nameField = menu.addTextField(game.t("gameOver.yourName"), defaultPlayerName);
+        nameField = menu.addTextField(game.t("gameOver.yourName"), game.getPlayerName());
         menu.addButton(game.t("gameOver.ok"), this::ok);
         menu.addButton(game.t("gameOver.ignore"), this::ignore);
     }
@@ -80,6 +71,7 @@ public class GameOverScreen extends BaseScreen {
     private void ok() {
         String name = nameField.getText();
         if(name != null && !name.isEmpty()) {
+            game.setPlayerName(name);
             int index = game.getHighScores().addScore(mode, difficulty, name, score);
             game.showHighScores(index);
         } else {
@@ -89,8 +81,11 @@ public class GameOverScreen extends BaseScreen {
 
     /**
      * Returns to the main menu.
+     * <p>Every run is kept, so the score is still added, with the last name
+     * used.</p>
      */
     private void ignore() {
+        game.getHighScores().addScore(mode, difficulty, game.getPlayerName(), score);
         game.returnToMenu();
     }
 
@@ -18,22 +18,46 @@ package brunonova.collision.core.screens;
 
 import brunonova.collision.core.Collision;
 import brunonova.collision.core.Constants;
+import brunonova.collision.core.Scheduler;
+import brunonova.collision.core.actors.ActorPool;
+import brunonova.collision.core.actors.BaseActor;
 import brunonova.collision.core.actors.Bonus;
 import brunonova.collision.core.actors.Coin;
 import brunonova.collision.core.actors.Enemy;
 import brunonova.collision.core.actors.Missile;
+import brunonova.collision.core.actors.MissileSwarmActor;
+import brunonova.collision.core.actors.ObstaclesActor;
 import brunonova.collision.core.actors.Player;
 import brunonova.collision.core.enums.BonusType;
+import brunonova.collision.core.enums.DeathCause;
 import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.enums.PhysicsMode;
+import brunonova.collision.core.physics.BallSystem;
+import brunonova.collision.core.physics.ColliderSet;
+import brunonova.collision.core.physics.CollisionEngine;
+import brunonova.collision.core.physics.EventDrivenEngine;
+import brunonova.collision.core.physics.MissileSwarm;
+import brunonova.collision.core.physics.NeighbourList;
+import brunonova.collision.core.physics.Obstacles;
+import brunonova.collision.core.physics.SpawnPlacer;
+import brunonova.collision.core.physics.SteppedEngine;
+import brunonova.collision.core.stats.SessionStats;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.utils.Align;
-import java.util.LinkedList;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.Pool;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -41,6 +65,8 @@ import java.util.List;
  * The screen of the game itself.
  */
 public class GameScreen extends BaseScreen {
+    private static final String TAG = GameScreen.class.getName();
+
     // Actors
     /** The player ball. */
     private Player player;
@@ -48,10 +74,39 @@ public class GameScreen extends BaseScreen {
     private List<Enemy> enemies;
     /** The coin for the "Coins" mode. */
     private Coin coin;
-    /** The bonus (only 1 bonus is created, and then it's reused). */
-    private Bonus bonus;
-    /** The missile (only 1 missile is created, and then it's reused). */
-    private Missile missile;
+    /** The bonuses in the game. */
+    private List<Bonus> bonuses;
+    /** The missiles in the game, oldest first. */
+    private List<Missile> missiles;
+    /** Time each missile expires, in the order of {@link #missiles}. */
+    private FloatArray missileExpirations;
+    /** The missiles of the missile swarms. */
+    private MissileSwarm missileSwarm;
+    /** The state of the enemy balls (positions, velocities, etc.). */
+    private BallSystem enemyBalls;
+    /** Moves the enemy balls and bounces them off each other. */
+    private CollisionEngine engine;
+    /** Plays the "bounce" sound when the enemy balls collide. */
+    private CollisionEngine.Listener bounceListener;
+    /** Finds free positions for the new actors (not overlapping the enemy balls). */
+    private SpawnPlacer spawnPlacer;
+    /**
+     * Colliders of the actors the player can hit (enemy balls, bonuses,
+     * missiles and coin), to find the ones near the player.
+     */
+    private ColliderSet colliders;
+
+    // Pools of the actors (the actors of a game are reused by the next ones)
+    private final ActorPool<Enemy> enemyPool;
+    private final ActorPool<Bonus> bonusPool;
+    private final ActorPool<Missile> missilePool;
+    private final ActorPool<Coin> coinPool;
+
+    // View
+    /** The area of the world visible by the camera (only the actors inside it are drawn). */
+    private final Rectangle visibleArea = new Rectangle();
+    /** Projection of the HUD (fixed, while the camera follows the player). */
+    private final Matrix4 hudProjection = new Matrix4();
 
     // Resources
     /** Font used on the HUD. */
@@ -74,24 +129,37 @@ public class GameScreen extends BaseScreen {
     private float time;
     /** The number of collected coins for the "Coins" mode. */
     private int coins;
+    /** The number of waves of enemy balls added in the "Swarm" mode. */
+    private int waves;
+
+    // Statistics
+    /** Number of times each bonus was picked, by {@link BonusType#ordinal()}. */
+    private int[] bonusCounts;
+    /** Time each bonus was active, by {@link BonusType#ordinal()}. */
+    private float[] bonusTimes;
+    /** Number of frames rendered. */
+    private int frames;
+    /** Duration of the longest frame. */
+    private float longestFrame;
+    /** Number of frames that took longer than 1/60 seconds. */
+    private int slowFrames;
 
     // Timers
-    /** Time remaining to add a new enemy ball. */
-    private float timerNewEnemy;
-    /** Time remaining to add a new bonus. */
-    private float timerNewBonus;
-    /** Time until the {@link BonusType#SLOW_DOWN_ENEMIES} bonus is over. */
-    private float timerSlowDownEnemiesBonus;
-    /** Time until the {@link BonusType#SPEED_UP_ENEMIES} bonus is over. */
-    private float timerSpeedUpEnemiesBonus;
-    /** Time until the {@link BonusType#FREEZE_ENEMIES} bonus is over. */
-    private float timerFreezeEnemiesBonus;
-    /** Time until the {@link BonusType#FREEZE_PLAYER} bonus is over. */
-    private float timerFreezePlayerBonus;
-    /** Time until the {@link BonusType#INVULNERABILITY} bonus is over. */
-    private float timerInvulnerabilityBonus;
-    /** Time until the {@link BonusType#MISSILE} bonus is over. */
-    private float timerMissileBonus;
+    /** Runs the timers of the game (stopped when the game ends). */
+    private Scheduler scheduler;
+    /** Adds a new enemy ball (or a new wave of enemy balls). */
+    private Scheduler.Timer newEnemyTimer;
+    /** Shows a new bonus. */
+    private Scheduler.Timer newBonusTimer;
+    /** Removes the oldest missile. */
+    private Scheduler.Timer missileTimer;
+    /** Sorts the enemy balls by position. */
+    private Scheduler.Timer sortEnemiesTimer;
+    /**
+     * Timer of each bonus, by {@link BonusType#ordinal()} (scheduled while the
+     * bonus is active).
+     */
+    private Scheduler.Timer[] bonusTimers;
 
     /**
      * Creates the screen.
@@ -99,6 +167,30 @@ public class GameScreen extends BaseScreen {
      */
     public GameScreen(Collision game) {
         super(game);
+        enemyPool = new ActorPool<Enemy>() {
+            @Override
+            protected Enemy newObject() {
+                return new Enemy(game);
+            }
+        };
+        bonusPool = new ActorPool<Bonus>() {
+            @Override
+            protected Bonus newObject() {
+                return new Bonus(game);
+            }
+        };
+        missilePool = new ActorPool<Missile>() {
+            @Override
+            protected Missile newObject() {
+                return new Missile(game);
+            }
+        };
+        coinPool = new ActorPool<Coin>() {
+            @Override
+            protected Coin newObject() {
+                return new Coin(game);
+            }
+        };
     }
 
     @Override
@@ -115,39 +207,116 @@ public class GameScreen extends BaseScreen {
         bonusBadSound = game.getSound("bonus_bad.mp3");
         loseSound = game.getSound("lose.mp3");
         highScoreSound = game.getSound("high_score.mp3");
+        Sound bounceSound = game.getSound("bounce.mp3");
+        bounceListener = new CollisionEngine.Listener() {
+            @Override
+            public void wallCollision(int ball) {
+                game.getSoundMixer().play(bounceSound, game.getVolume() * Enemy.BOUNCE_WITH_BORDER_VOLUME_FACTOR);
+            }
 
-        // Add the bonus (disabled and invisible)
-        bonus = addActor(new Bonus(game));
+            @Override
+            public void ballCollision(int a, int b) {
+                game.getSoundMixer().play(bounceSound, game.getVolume() * Enemy.BOUNCE_WITH_ENEMY_VOLUME_FACTOR);
+            }
+        };
 
-        // Add the player
+        // Add the obstacles of the arena (below everything else), and the
+        // player (out of the obstacles, if the center of the world isn't
+        // free)
+        addActor(new ObstaclesActor(game));
         player = addActor(new Player(game));
+        Obstacles obstacles = game.getObstacles();
+        float playerX = player.getX(Align.center), playerY = player.getY(Align.center);
+        if(obstacles.push(playerX, playerY, playerX, playerY, player.getRadius())) {
+            player.setPosition(obstacles.getX(), obstacles.getY(), Align.center);
+            player.keepInsideWorld();
+        }
 
         // Add the enemy balls
-        enemies = new LinkedList<>();
-        for(int i = 0; i < Constants.STARTING_NUMBER_OF_ENEMY_BALLS; i++) {
+        boolean swarm = game.getGameMode() == GameMode.SWARM;
+        float minRadius = swarm ? Constants.SWARM_ENEMY_MIN_RADIUS : player.getRadius();
+        float maxRadius = swarm ? Constants.SWARM_ENEMY_MAX_RADIUS : player.getRadius();
+        enemies = new ArrayList<>();
+        enemyBalls = new BallSystem(game.getWorldWidth(), game.getWorldHeight());
+        enemyBalls.setObstacles(obstacles);
+        if(game.getPhysicsMode() == PhysicsMode.EVENT_DRIVEN) {
+            engine = new EventDrivenEngine(game.getWorldWidth(), game.getWorldHeight(), minRadius, maxRadius);
+        } else {
+            engine = new SteppedEngine(game.getWorldWidth(), game.getWorldHeight(), minRadius, maxRadius);
+        }
+        colliders = new ColliderSet(game.getWorldWidth(), game.getWorldHeight(),
+                Math.min(minRadius, player.getRadius()), Math.max(maxRadius, player.getRadius()));
+        spawnPlacer = new SpawnPlacer(enemyBalls, minRadius, maxRadius);
+        int startingEnemies = swarm ? Constants.SWARM_STARTING_NUMBER_OF_ENEMY_BALLS
+                                    : Constants.STARTING_NUMBER_OF_ENEMY_BALLS;
+        for(int i = 0; i < startingEnemies; i++) {
             addEnemy();
         }
 
-        // Add the missile (disabled and invisible)
-        missile = addActor(new Missile(game));
+        // The bonuses and missiles are added during the game
+        bonuses = new ArrayList<>();
+        missiles = new ArrayList<>();
+        missileExpirations = new FloatArray();
+        missileSwarm = new MissileSwarm(game.getWorldWidth(), game.getWorldHeight(),
+                Constants.MISSILE_SWARM_RADIUS, minRadius, maxRadius);
+        addActor(new MissileSwarmActor(game)).setSwarm(missileSwarm);
 
-        // Create the coin, if in "Coins" mode
+        // Add the coin, if in "Coins" mode
         if(game.getGameMode() == GameMode.COINS) {
-            coin = addActor(new Coin(game));
+            coin = obtainActor(coinPool);
+            coin.spawn();
         }
 
         // Set counters and timers
         gameEnding = false;
         coins = 0;
+        waves = 0;
         time = 0;
-        timerNewEnemy = game.getDifficulty().getNewEnemyInterval();
-        timerNewBonus = MathUtils.random(Constants.NEW_BONUS_MIN_TIME, Constants.NEW_BONUS_MAX_TIME);
-        timerSlowDownEnemiesBonus = 0;
-        timerSpeedUpEnemiesBonus = 0;
-        timerFreezeEnemiesBonus = 0;
-        timerFreezePlayerBonus = 0;
-        timerInvulnerabilityBonus = 0;
-        timerMissileBonus = 0;
+        scheduler = new Scheduler();
+
+        // Add enemy balls periodically (waves of them in the "Swarm" mode),
+        // except in the "Coins" mode
+        float newEnemyInterval = swarm ? Constants.SWARM_WAVE_INTERVAL : game.getDifficulty().getNewEnemyInterval();
+        newEnemyTimer = scheduler.createTimer(() -> {
+            if(swarm) {
+                addWave();
+            } else {
+                addEnemy();
+            }
+            newEnemyTimer.schedule(newEnemyInterval);
+        });
+        if(game.getGameMode() != GameMode.COINS) newEnemyTimer.schedule(newEnemyInterval);
+
+        // Show a new bonus from time to time (while there aren't too many
+        // of them), and remove the missiles when they expire
+        newBonusTimer = scheduler.createTimer(this::addBonus);
+        scheduleNewBonus();
+        missileTimer = scheduler.createTimer(this::removeOldestMissile);
+
+        // Keep the enemy balls near each other also near each other in
+        // memory
+        sortEnemiesTimer = scheduler.createTimer(() -> {
+            enemyBalls.sortByPosition();
+            sortEnemiesTimer.schedule(Constants.ENEMY_SORT_INTERVAL);
+        });
+        sortEnemiesTimer.schedule(Constants.ENEMY_SORT_INTERVAL);
+
+        // The timers of the bonuses are only scheduled when they're caught
+        bonusTimers = new Scheduler.Timer[BonusType.values().length];
+        for(BonusType type: BonusType.values()) {
+            bonusTimers[type.ordinal()] = scheduler.createTimer(getBonusEndTask(type));
+        }
+        bonusCounts = new int[BonusType.values().length];
+        bonusTimes = new float[BonusType.values().length];
+        frames = 0;
+        longestFrame = 0;
+        slowFrames = 0;
+
+        // Skip drawing the actors outside of the camera, and draw the HUD
+        // with a fixed projection
+        stage.getRoot().setCullingArea(visibleArea);
+        hudProjection.setToOrtho2D(0, 0, game.getWidth(), game.getHeight());
+        followPlayer();
     }
 
     @Override
@@ -167,99 +336,64 @@ public class GameScreen extends BaseScreen {
         super.act(delta);
 
         if(!gameEnding) {
-            // Update timers
+            // Run the timers that expire in this tick (adding enemy balls,
+            // showing the bonus, ending the bonuses, etc.)
             time += delta;
-            timerNewEnemy -= delta;
-            timerNewBonus -= delta;
-            timerSlowDownEnemiesBonus -= delta;
-            timerSpeedUpEnemiesBonus -= delta;
-            timerFreezeEnemiesBonus -= delta;
-            timerFreezePlayerBonus -= delta;
-            timerInvulnerabilityBonus -= delta;
-            timerMissileBonus -= delta;
-
-            // Detect collision between player and coin
-            if(game.getGameMode() == GameMode.COINS && coin.isEnabled() && player.overlaps(coin)) {
-                coins++;
-                coin.setRandomPositionFarFromPlayer(Coin.MINIMUM_DISTANCE_TO_PLAYER);
-                coinSound.play(game.getVolume());
-
-                // Add a new enemy ball?
-                if(coins % game.getDifficulty().getNewEnemyCoins() == 0) {
-                    addEnemy();
-                }
+            scheduler.advance(delta);
+
+            // Move the enemy balls and bounce them off each other (the
+            // bonuses make the time of the enemy balls run slower or faster)
+            engine.advance(enemyBalls, delta * getEnemyBallsSpeedFactor(), bounceListener);
+            spawnPlacer.invalidate();
+            for(Enemy enemy: enemies) {
+                enemy.updatePosition();
             }
 
-            // Detect collision between player and bonus
-            if(bonus.isEnabled() && player.overlaps(bonus)) {
-                giveBonus();
+            // Steer the missiles of the swarms towards the player, around the
+            // enemy balls (they only move while the player can be hit)
+            if(player.isEnabled()) {
+                missileSwarm.advance(delta, player.getX(Align.center), player.getY(Align.center),
+                                     game.getDifficulty().getMissileSpeed(), enemyBalls);
             }
 
-            // Detect collisions between enemy balls
-            for(int i = 0; i < enemies.size() - 1; i++) {
-                for(int j = i + 1; j < enemies.size(); j++) {
-                    Enemy a = enemies.get(i);
-                    Enemy b = enemies.get(j);
-                    if(a.isEnabled() && b.isEnabled() && a.overlaps(b)) {
-                        Enemy.bounceBalls(a, b);
-                    }
-                }
-            }
-
-            // Detect collision between player and enemy balls
-            if(player.isEnabled() && !player.isInvulnerable()) {
-                for(Enemy enemy: enemies) {
-                    if(enemy.isEnabled() && player.overlaps(enemy)) {
-                        gameOver();
-                    }
-                }
-            }
-
-            // Detect collision between player and missile
-            if(player.isEnabled() && !player.isInvulnerable()) {
-                if(missile.isEnabled() && player.overlaps(missile)) {
-                    gameOver();
-                }
-            }
-
-            // Time to add another enemy ball?
-            if(game.getGameMode() == GameMode.TIME && timerNewEnemy <= 0) {
-                timerNewEnemy += game.getDifficulty().getNewEnemyInterval();
-                addEnemy();
+            // Detect the collisions between the player and the other actors
+            // (only checking the ones near the player)
+            updateColliders();
+            colliders.build();
+            int found = colliders.query(player.getCollider());
+            for(int k = 0; k < found; k++) {
+                playerHit(colliders.getResult(k).getOwner());
             }
-
-            // Time to show the bonus?
-            if(timerNewBonus <= 0 && !bonus.isEnabled()) {
-                bonus.show();
-            }
-
-            // Time to unfreeze the player?
-            if(timerFreezePlayerBonus <= 0 && player.isFrozen() && player.isEnabled()) {
-                player.unfreeze();
-            }
-
-            // Time to make the player vulnerable again?
-            if(timerInvulnerabilityBonus <= 0 && player.isInvulnerable() && player.isEnabled()) {
-                player.makeVulnerable();
-            }
-
-            // Time to hide the missile?
-            if(timerMissileBonus <= 0 && missile.isEnabled()) {
-                missile.hide();
+            if(player.isEnabled() && !player.isInvulnerable()
+                    && missileSwarm.hits(player.getX(Align.center), player.getY(Align.center), player.getRadius())) {
+                gameOver(DeathCause.MISSILE);
             }
         }
+
+        // Move the camera after the player moved (the world is simulated
+        // everywhere, but only the visible part is drawn)
+        followPlayer();
     }
 
     @Override
     public void render(float delta) {
         super.render(delta);
 
+        // Record the frame times (reported at the end of "Swarm" games)
+        if(!gameEnding) {
+            frames++;
+            longestFrame = Math.max(longestFrame, delta);
+            if(delta > 1 / 60f * 1.05f) slowFrames++;
+        }
+
         // Draw the HUD
+        batch.setProjectionMatrix(hudProjection);
         batch.begin();
 
         // Draw the score (time or coins)
         switch(game.getGameMode()) {
             case TIME:
+            case SWARM:
                 hudFont.draw(batch, game.t("hud.time", (int) time), 10, game.getHeight() - 15);
                 break;
             case COINS:
@@ -305,16 +439,89 @@ public class GameScreen extends BaseScreen {
 
     @Override
     public void dispose() {
+        // Return the actors to their pools, for the next game
+        if(enemies != null) {
+            for(Enemy enemy: enemies) {
+                freeActor(enemyPool, enemy);
+            }
+            enemies.clear();
+        }
+        if(bonuses != null) {
+            for(Bonus bonus: bonuses) {
+                freeActor(bonusPool, bonus);
+            }
+            bonuses.clear();
+        }
+        if(missiles != null) {
+            for(Missile missile: missiles) {
+                freeActor(missilePool, missile);
+            }
+            missiles.clear();
+            missileExpirations.clear();
+        }
+        if(missileSwarm != null) {
+            missileSwarm.clear();
+        }
+        if(coin != null) {
+            freeActor(coinPool, coin);
+            coin = null;
+        }
         super.dispose();
     }
 
+    /**
+     * Runs the game logic for some ticks without showing or drawing the
+     * screen, and then disposes it.
+     * <p>This is used to warm up the JIT compiler (and load the classes) of
+     * the gameplay code paths, so that the first frames of the real game run
+     * at full speed. The player is disabled, so the game can't end, and the
+     * game should be muted with {@link Collision#setMuted(boolean)}.</p>
+     * @param ticks The number of ticks to run.
+     * @param enemies The number of enemy balls to add, to exercise the
+     *                collision detection.
+     */
+    public void warmUp(int ticks, int enemies) {
+        prepare();
+        player.setEnabled(false);
+        for(int i = this.enemies.size(); i < enemies; i++) {
+            addEnemy();
+        }
+
+        // Run the game at 60 ticks per second
+        for(int i = 0; i < ticks; i++) {
+            act(1 / 60f);
+        }
+
+        dispose();
+    }
+
+    /**
+     * Creates some of the actors of the next games in advance, so they don't
+     * need to be created while playing.
+     * <p>Creating all the enemy balls of the "Swarm" mode at once would stall
+     * a frame, so this should be called in several frames until it returns
+     * {@code true}. (The actors of the warm-up are already back in their
+     * pools.)</p>
+     * @param enemies Maximum number of enemy balls to create.
+     * @return {@code true} if the pools are full.
+     */
+    public boolean fillPools(int enemies) {
+        bonusPool.fill(Constants.MAX_BONUSES);
+        missilePool.fill(Constants.POOLED_MISSILES);
+        coinPool.fill(1);
+
+        int target = Math.min(enemyPool.getFree() + enemies, Constants.SWARM_MAX_ENEMY_BALLS);
+        enemyPool.fill(target);
+        return target == Constants.SWARM_MAX_ENEMY_BALLS;
+    }
+
     /**
      * Returns whether the {@link BonusType#SLOW_DOWN_ENEMIES} is currently
      * active.
      * @return {@code true} if the bonus is active.
      */
     public boolean isSlowDownEnemiesBonusActive() {
-        return timerSlowDownEnemiesBonus > 0;
+        return bonusTimers[BonusType.SLOW_DOWN_ENEMIES.ordinal()].isScheduled();
     }
 
     /**
@@ -323,7 +530,7 @@ public class GameScreen extends BaseScreen {
      * @return {@code true} if the bonus is active.
      */
     public boolean isSpeedUpEnemiesBonusActive() {
-        return timerSpeedUpEnemiesBonus > 0;
+        return bonusTimers[BonusType.SPEED_UP_ENEMIES.ordinal()].isScheduled();
     }
 
     /**
@@ -332,7 +539,7 @@ public class GameScreen extends BaseScreen {
      * @return {@code true} if the bonus is active.
      */
     public boolean isFreezeEnemiesBonusActive() {
-        return timerFreezeEnemiesBonus > 0;
+        return bonusTimers[BonusType.FREEZE_ENEMIES.ordinal()].isScheduled();
     }
 
     /**
@@ -352,68 +559,283 @@ public class GameScreen extends BaseScreen {
         }
     }
 
+    /**
+     * Centers the camera on the player, without showing anything outside of
+     * the world, and updates the visible area.
+     */
+    private void followPlayer() {
+        float halfWidth = game.getWidth() / 2f;
+        float halfHeight = game.getHeight() / 2f;
+        Camera camera = stage.getCamera();
+        camera.position.x = MathUtils.clamp(player.getX(Align.center), halfWidth, game.getWorldWidth() - halfWidth);
+        camera.position.y = MathUtils.clamp(player.getY(Align.center), halfHeight, game.getWorldHeight() - halfHeight);
+        visibleArea.set(camera.position.x - halfWidth, camera.position.y - halfHeight,
+                        game.getWidth(), game.getHeight());
+    }
+
+    /**
+     * Updates the colliders of the actors that moved (once per tick, however
+     * many times they moved).
+     */
+    private void updateColliders() {
+        Array<Actor> actors = stage.getActors();
+        for(int i = 0; i < actors.size; i++) {
+            Actor actor = actors.get(i);
+            if(actor instanceof BaseActor) ((BaseActor) actor).updateCollider();
+        }
+    }
+
+    /**
+     * Takes an actor from a pool and puts it in the game: in the stage, and
+     * its collider in the set of colliders the player can hit.
+     * @param pool The pool.
+     * @param <T> The type of the actor.
+     * @return The actor.
+     */
+    private <T extends BaseActor & Pool.Poolable> T obtainActor(ActorPool<T> pool) {
+        T actor = addActor(pool.obtain());
+        colliders.add(actor.getCollider());
+        return actor;
+    }
+
+    /**
+     * Takes an actor out of the game (removing its collider), and returns it
+     * to its pool.
+     * @param pool The pool.
+     * @param actor The actor.
+     * @param <T> The type of the actor.
+     */
+    private <T extends BaseActor & Pool.Poolable> void freeActor(ActorPool<T> pool, T actor) {
+        colliders.remove(actor.getCollider());
+        pool.free(actor);
+    }
+
+    /**
+     * Reacts to the player touching another actor: catching a coin or a
+     * bonus, or losing to an enemy ball or a missile.
+     * @param actor The actor touched.
+     */
+    private void playerHit(Object actor) {
+        boolean vulnerable = player.isEnabled() && !player.isInvulnerable();
+        if(actor instanceof Enemy) {
+            if(vulnerable && ((Enemy) actor).isEnabled()) gameOver(DeathCause.ENEMY);
+        } else if(actor instanceof Missile) {
+            if(vulnerable && ((Missile) actor).isEnabled()) gameOver(DeathCause.MISSILE);
+        } else if(actor instanceof Bonus) {
+            if(((Bonus) actor).isEnabled()) giveBonus((Bonus) actor);
+        } else if(actor == coin && coin.isEnabled()) {
+            coins++;
+            coin.setRandomPositionFarFromPlayer(Coin.MINIMUM_DISTANCE_TO_PLAYER);
+            game.getSoundMixer().play(coinSound, game.getVolume());
+
+            // Add a new enemy ball?
+            if(coins % game.getDifficulty().getNewEnemyCoins() == 0) {
+                addEnemy();
+            }
+        }
+    }
+
     /**
      * Adds a new enemy ball.
      */
     private void addEnemy() {
-        enemies.add(addActor(new Enemy(game)));
+        Enemy enemy = obtainActor(enemyPool);
+        enemy.spawn(enemyBalls);
+        enemies.add(enemy);
     }
 
     /**
-     * Gives the player a random bonus (or anti-bonus), and resets the bonus
-     * timer.
+     * Shows a new bonus, and schedules the next one, unless there are now too
+     * many bonuses (then the next one is scheduled when one is caught).
      */
-    private void giveBonus() {
-        // Hide the bonus and reset the timer
-        bonus.hide();
-        timerNewBonus = MathUtils.random(Constants.NEW_BONUS_MIN_TIME, Constants.NEW_BONUS_MAX_TIME);
+    private void addBonus() {
+        Bonus bonus = obtainActor(bonusPool);
+        bonus.setZIndex(0);  // below the other actors
+        bonus.show();
+        bonuses.add(bonus);
+        if(bonuses.size() < Constants.MAX_BONUSES) scheduleNewBonus();
+    }
+
+    /**
+     * Schedules a new bonus to appear after a random time.
+     */
+    private void scheduleNewBonus() {
+        newBonusTimer.schedule(MathUtils.random(Constants.NEW_BONUS_MIN_TIME, Constants.NEW_BONUS_MAX_TIME));
+    }
+
+    /**
+     * Adds a new missile, which lasts for the duration of the
+     * {@link BonusType#MISSILE} bonus.
+     */
+    private void addMissile() {
+        Missile missile = obtainActor(missilePool);
+        missile.show();
+        missiles.add(missile);
+
+        // Every missile lasts the same, so they expire by the order they were
+        // added (only the oldest needs a timer)
+        float duration = BonusType.MISSILE.getDuration();
+        missileExpirations.add((float) scheduler.getTime() + duration);
+        if(!missileTimer.isScheduled()) missileTimer.schedule(duration);
+    }
+
+    /**
+     * Removes the oldest missile (when it expires), and schedules the removal
+     * of the next one.
+     */
+    private void removeOldestMissile() {
+        freeActor(missilePool, missiles.remove(0));
+        missileExpirations.removeIndex(0);
+        if(!missiles.isEmpty()) {
+            missileTimer.schedule(missileExpirations.first() - (float) scheduler.getTime());
+        }
+    }
+
+    /**
+     * Launches a swarm of missiles from a free area far from the player,
+     * pointing at the player, which last for the duration of the
+     * {@link BonusType#MISSILE_SWARM} bonus.
+     */
+    private void launchMissileSwarm() {
+        float playerX = player.getX(Align.center), playerY = player.getY(Align.center);
+        float launchRadius = Constants.MISSILE_SWARM_LAUNCH_RADIUS;
+        spawnPlacer.place(launchRadius, playerX, playerY, Missile.MINIMUM_DISTANCE_TO_PLAYER + launchRadius);
+        float centerX = spawnPlacer.getX(), centerY = spawnPlacer.getY();
+        float angle = MathUtils.atan2(playerY - centerY, playerX - centerX);
+        for(int i = 0; i < Constants.MISSILE_SWARM_SIZE; i++) {
+            // Spread the missiles uniformly over the launch area
+            float distance = launchRadius * (float) Math.sqrt(MathUtils.random());
+            float direction = MathUtils.random(MathUtils.PI2);
+            missileSwarm.add(centerX + MathUtils.cos(direction) * distance,
+                             centerY + MathUtils.sin(direction) * distance,
+                             angle, BonusType.MISSILE_SWARM.getDuration());
+        }
+    }
+
+    /**
+     * Adds a wave of enemy balls (in the "Swarm" mode), larger than the
+     * previous one, without exceeding the maximum number of balls.
+     */
+    private void addWave() {
+        int size = Constants.SWARM_FIRST_WAVE_SIZE + waves * Constants.SWARM_WAVE_GROWTH;
+        size = Math.min(size, Constants.SWARM_MAX_ENEMY_BALLS - enemies.size());
+        for(int i = 0; i < size; i++) {
+            addEnemy();
+        }
+        waves++;
+    }
+
+    /**
+     * Returns the score of the game, according to the game mode.
+     * @return The score (seconds survived or coins collected).
+     */
+    private int getScore() {
+        return (game.getGameMode() == GameMode.COINS) ? coins : ((int) time);
+    }
+
+    /**
+     * Gives the player a random bonus (or anti-bonus) when a bonus is caught.
+     * @param bonus The bonus caught.
+     */
+    private void giveBonus(Bonus bonus) {
+        // Remove the bonus, and schedule a new one if there were too many
+        bonuses.remove(bonus);
+        freeActor(bonusPool, bonus);
+        if(!newBonusTimer.isScheduled()) scheduleNewBonus();
 
         // Select the bonus
         BonusType type = BonusType.pickRandom();
+        bonusCounts[type.ordinal()]++;
         switch(type) {
             case SLOW_DOWN_ENEMIES:
-                timerSlowDownEnemiesBonus = type.getDuration();
-                timerSpeedUpEnemiesBonus = 0;
-                timerFreezeEnemiesBonus = 0;
-                break;
             case SPEED_UP_ENEMIES:
-                timerSlowDownEnemiesBonus = 0;
-                timerSpeedUpEnemiesBonus = type.getDuration();
-                timerFreezeEnemiesBonus = 0;
-                break;
             case FREEZE_ENEMIES:
-                timerSlowDownEnemiesBonus = 0;
-                timerSpeedUpEnemiesBonus = 0;
-                timerFreezeEnemiesBonus = type.getDuration();
+                // Only one bonus affects the speed of the enemy balls at a time
+                stopBonus(BonusType.SLOW_DOWN_ENEMIES);
+                stopBonus(BonusType.SPEED_UP_ENEMIES);
+                stopBonus(BonusType.FREEZE_ENEMIES);
                 break;
             case FREEZE_PLAYER:
-                timerFreezePlayerBonus = type.getDuration();
                 player.freeze();
                 break;
             case INVULNERABILITY:
-                timerInvulnerabilityBonus = type.getDuration();
                 player.makeInvulnerable();
                 break;
             case MISSILE:
-                timerMissileBonus = type.getDuration();
-                missile.show();
+                addMissile();
+                break;
+            case MISSILE_SWARM:
+                launchMissileSwarm();
                 break;
         }
+        startBonus(type);
 
         // Play a sound
         Sound sound = type.isGood() ? bonusGoodSound : bonusBadSound;
-        sound.play(game.getVolume());
+        game.getSoundMixer().play(sound, game.getVolume());
+    }
+
+    /**
+     * Schedules the timer of a bonus (again, if it's already active), adding
+     * its duration to the time the bonus was active.
+     * @param type The bonus type.
+     */
+    private void startBonus(BonusType type) {
+        Scheduler.Timer timer = bonusTimers[type.ordinal()];
+        bonusTimes[type.ordinal()] += type.getDuration() - timer.getRemaining();
+        timer.schedule(type.getDuration());
+    }
+
+    /**
+     * Cancels the timer of a bonus (without running its task), if it's
+     * active, removing the time it would still be active from the time the
+     * bonus was active.
+     * @param type The bonus type.
+     */
+    private void stopBonus(BonusType type) {
+        Scheduler.Timer timer = bonusTimers[type.ordinal()];
+        bonusTimes[type.ordinal()] -= timer.getRemaining();
+        timer.cancel();
+    }
+
+    /**
+     * Returns the task that ends the effect of a bonus, run when its timer
+     * expires.
+     * @param type The bonus type.
+     * @return The task, or {@code null} if the bonus only needs its timer to
+     *         be scheduled while it's active.
+     */
+    private Runnable getBonusEndTask(BonusType type) {
+        switch(type) {
+            case FREEZE_PLAYER:
+                return () -> {
+                    if(player.isFrozen() && player.isEnabled()) player.unfreeze();
+                };
+            case INVULNERABILITY:
+                return () -> {
+                    if(player.isInvulnerable() && player.isEnabled()) player.makeVulnerable();
+                };
+            default:
+                return null;
+        }
     }
 
     /**
      * Ends the game.
+     * @param cause What hit the player.
      */
-    private void gameOver() {
+    private void gameOver(DeathCause cause) {
+        if(gameEnding) return;  // the player may hit several balls at once
         gameEnding = true;
 
         // Disable the player ball
         player.setEnabled(false);
 
+        // Stop the bonuses (only the time they were active until now counts)
+        for(BonusType type: BonusType.values()) {
+            stopBonus(type);
+        }
+
         // Stop and disable all enemy balls
         for(Enemy enemy: enemies) {
             enemy.disable();
@@ -421,14 +843,48 @@ public class GameScreen extends BaseScreen {
         }
 
         // Play the "lose" sound
-        loseSound.play(game.getVolume());
+        game.getSoundMixer().play(loseSound, game.getVolume());
+
+        // Save the statistics of the session in the background
+        SessionStats stats = new SessionStats(game.getGameMode(), game.getDifficulty(), cause, time,
+                getScore(), coins, enemies.size(), bonusCounts, bonusTimes);
+        game.getAsyncExecutor().submit(() -> {
+            game.getStatsStore().add(stats);
+            return null;
+        });
+
+        // Report how well the "Swarm" game ran
+        if(game.getGameMode() == GameMode.SWARM && frames > 0) {
+            Gdx.app.log(TAG, String.format("Swarm: %d balls, %d frames, average %.1f ms, longest %.1f ms, "
+                    + "%d frames below 60 FPS", enemies.size(), frames, time * 1000 / frames,
+                    longestFrame * 1000, slowFrames));
+            if(engine instanceof SteppedEngine) {
+                NeighbourList neighbours = ((SteppedEngine) engine).getNeighbours();
+                Gdx.app.log(TAG, String.format("Neighbour list: rebuilt in %.0f%% of the ticks, %.1f balls "
+                        + "refreshed and %.0f pairs tested per tick", neighbours.getRebuilds() * 100f
+                        / neighbours.getUpdates(), neighbours.getRefreshes() / (float) neighbours.getUpdates(),
+                        neighbours.getPairsTested() / (float) neighbours.getUpdates()));
+            }
+        }
+
+        // Report the cost of the missile swarms
+        if(missileSwarm.getMissileTicks() > 0) {
+            Gdx.app.log(TAG, String.format("Missile swarm: %.2f us per missile per tick",
+                    missileSwarm.getNanos() / 1000f / missileSwarm.getMissileTicks()));
+        }
+
+        // Report how many actors the pools reused
+        Gdx.app.log(TAG, String.format("Pools (reused/created): enemies %d/%d, bonuses %d/%d, missiles %d/%d, "
+                + "coins %d/%d", enemyPool.getHits(), enemyPool.getMisses(), bonusPool.getHits(),
+                bonusPool.getMisses(), missilePool.getHits(), missilePool.getMisses(), coinPool.getHits(),
+                coinPool.getMisses()));
 
         // Fade-out the player, then end the game
         player.addAction(Actions.sequence(
                 Actions.fadeOut(2),
                 Actions.run(() -> {
                     // Get the score according to the game mode
-                    int score = (game.getGameMode() == GameMode.TIME) ? ((int) time) : coins;
+                    int score = getScore();
 
                     if(game.getHighScores().isHighScore(game.getGameMode(), game.getDifficulty(), score)) {
                         // Go to the "game over" screen
@@ -436,9 +892,14 @@ public class GameScreen extends BaseScreen {
                         game.showGameOverScreen(score);
 
                         // Play the "high score" sound
-                        highScoreSound.play(game.getVolume());
+                        game.getSoundMixer().play(highScoreSound, game.getVolume());
                     } else {
-                        // Return to the menu
+                        // Keep the score (every run is kept), and return to
+                        // the menu
+                        if(score > 0) {
+                            game.getHighScores().addScore(game.getGameMode(), game.getDifficulty(),
+                                    game.getPlayerName(), score);
+                        }
                         dispose();
                         game.returnToMenu();
                     }
@@ -453,6 +914,14 @@ public class GameScreen extends BaseScreen {
         return player;
     }
 
+    /**
+     * Returns the placer of the new actors.
+     * @return The spawn placer (while the game is running).
+     */
+    public SpawnPlacer getSpawnPlacer() {
+        return spawnPlacer;
+    }
+
     /**
      * Returns the enemy balls.
      * @return List of enemy balls.
@@ -20,8 +20,10 @@ import brunonova.collision.core.Collision;
 import brunonova.collision.core.HighScores;
 import brunonova.collision.core.enums.Difficulty;
 import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.leaderboard.LeaderboardClient;
 import brunonova.collision.core.widgets.ButtonChoice;
 import brunonova.collision.core.widgets.Menu;
+import brunonova.collision.core.widgets.MenuButton;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.scenes.scene2d.Action;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
@@ -32,15 +34,35 @@ import java.util.List;
 
 /**
  * The screen that shows the high scores.
+ * <p>All the scores are kept, so they're shown in pages, which can be
+ * changed with the Page Up / Page Down / Home / End keys or with the mouse
+ * wheel.</p>
+ * <p>If a shared leaderboard is used, its best scores (cached by the
+ * {@link LeaderboardClient}) can also be shown.</p>
  */
 public class HighScoresScreen extends BaseScreen {
+    /** Number of scores shown per page. */
+    public static final int PAGE_SIZE = 5;
+
     private Menu menu;
+    private List<MenuButton> modeOptions;
+    private List<MenuButton> difficultyOptions;
+    private List<MenuButton> sourceOptions;
     private Label[] tableHeaderColumns;
     private Label[][] tableCells;
+    private Label pageLabel;
 
     private GameMode mode;
     private Difficulty difficulty;
+    /** Whether the scores of the shared leaderboard are shown. */
+    private boolean shared = false;
+    /** The shown scores of the shared leaderboard. */
+    private List<HighScores.Score> sharedScores;
+    /** Index of the first score of the current page. */
+    private int firstIndex = 0;
     private int scoreIndexToHighlight = -1;
+    private GameMode highlightMode;
+    private Difficulty highlightDifficulty;
 
     /**
      * Creates the screen.
@@ -68,45 +90,117 @@ public class HighScoresScreen extends BaseScreen {
 
         // Create the menu
         menu = addActor(new Menu(game, game.t("highScores.title")));
-        menu.addButtonChoices(game.t("options.mode"), game.getGameMode(),
+        modeOptions = menu.addButtonChoices(game.t("options.mode"), game.getGameMode(),
                 new ButtonChoice<>(game.t("options.mode.time"), GameMode.TIME, this::changeMode),
-                new ButtonChoice<>(game.t("options.mode.coins"), GameMode.COINS, this::changeMode));
-        menu.addButtonChoices(game.t("options.difficulty"), game.getDifficulty(),
+                new ButtonChoice<>(game.t("options.mode.coins"), GameMode.COINS, this::changeMode),
+                new ButtonChoice<>(game.t("options.mode.swarm"), GameMode.SWARM, this::changeMode));
+        difficultyOptions = menu.addButtonChoices(game.t("options.difficulty"), game.getDifficulty(),
                 new ButtonChoice<>(game.t("options.difficulty.easy"), Difficulty.EASY, this::changeDifficulty),
                 new ButtonChoice<>(game.t("options.difficulty.medium"), Difficulty.MEDIUM, this::changeDifficulty),
                 new ButtonChoice<>(game.t("options.difficulty.hard"), Difficulty.HARD, this::changeDifficulty));
+        if(game.getHighScores().getLeaderboard() != null) {
+            sourceOptions = menu.addButtonChoices(game.t("highScores.source"), false,
+                    new ButtonChoice<>(game.t("highScores.source.local"), false, this::changeSource),
+                    new ButtonChoice<>(game.t("highScores.source.shared"), true, this::changeSource));
+        }
 
         // Add the high scores table to the menu, before the "Back" button
         menu.row();
         menu.add(createScoresTable())
                 .width(game.getWidth() - 20)
-                .spaceTop(30)
-                .spaceBottom(30);
+                .spaceTop(30);
+
+        // Add the page indicator below the table
+        pageLabel = new Label("", menu.getLabelStyle());
+        menu.row();
+        menu.add(pageLabel).spaceBottom(20);
 
         menu.addButton(game.t("options.back"), this::back);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The screen is reused, so the selected game mode and difficulty are
+     * reset to the current ones, and the scores are updated.
+     */
+    @Override
+    public void show() {
+        super.show();
+
+        // Select the current game mode and difficulty
+        mode = game.getGameMode();
+        difficulty = game.getDifficulty();
+        selectOption(modeOptions, mode.ordinal());
+        selectOption(difficultyOptions, difficulty.ordinal());
+        shared = false;
+        if(sourceOptions != null) {
+            selectOption(sourceOptions, 0);
+            game.getHighScores().getLeaderboard().requestRefresh();
+        }
+
+        // Show the page with the new high score, if there is one
+        highlightMode = mode;
+        highlightDifficulty = difficulty;
+        firstIndex = scoreIndexToHighlight >= 0 ? scoreIndexToHighlight / PAGE_SIZE * PAGE_SIZE : 0;
 
         // Fill the high scores table
         updateScores();
+    }
 
-        // Highlight the new high score, if there is one
-        if(scoreIndexToHighlight >= 0 && scoreIndexToHighlight < tableCells.length) {
-            Label[] row = tableCells[scoreIndexToHighlight];
-            row[0].addAction(createBlinkAction());
-            row[1].addAction(createBlinkAction());
+    /**
+     * Sets the index of the score to highlight the next time the screen is
+     * shown.
+     * @param scoreIndexToHighlight The index of the score to highlight, or -1
+     *                              to not highlight any score.
+     */
+    public void setScoreIndexToHighlight(int scoreIndexToHighlight) {
+        this.scoreIndexToHighlight = scoreIndexToHighlight;
+    }
+
+    @Override
+    public void act(float delta) {
+        super.act(delta);
+
+        // Show the shared scores as soon as they're refreshed
+        if(shared && getLeaderboard().getTopScores(mode, difficulty) != sharedScores) {
+            updateScores();
         }
     }
 
     @Override
     public boolean keyDown(int keycode) {
-        // Return to the main menu when Escape is pressed
-        if(keycode == Input.Keys.ESCAPE) {
-            back();
-            return true;
-        } else {
-            return false;
+        switch(keycode) {
+            // Return to the main menu when Escape is pressed
+            case Input.Keys.ESCAPE:
+                back();
+                return true;
+
+            // Change the page
+            case Input.Keys.PAGE_UP:
+                showPage(firstIndex - PAGE_SIZE);
+                return true;
+            case Input.Keys.PAGE_DOWN:
+                showPage(firstIndex + PAGE_SIZE);
+                return true;
+            case Input.Keys.HOME:
+                showPage(0);
+                return true;
+            case Input.Keys.END:
+                showPage(Integer.MAX_VALUE);
+                return true;
+
+            default:
+                return false;
         }
     }
 
+    @Override
+    public boolean scrolled(int amount) {
+        // Change the page with the mouse wheel
+        showPage(firstIndex + amount * PAGE_SIZE);
+        return true;
+    }
+
     /**
      * Creates and returns the table that will show the high scores.
      * @return Table that will show the high scores.
@@ -116,66 +210,128 @@ public class HighScoresScreen extends BaseScreen {
         Label.LabelStyle labelStyle = menu.getLabelStyle();
 
         // Create the header columns
-        tableHeaderColumns = new Label[2];
-        tableHeaderColumns[0] = new Label(game.t("highScores.name"), labelStyle);
-        tableHeaderColumns[1] = new Label(game.t("highScores.time"), labelStyle);
-        tableHeaderColumns[0].setAlignment(Align.left);
-        tableHeaderColumns[1].setAlignment(Align.right);
-        table.add(tableHeaderColumns[0]).expandX().left();
-        table.add(tableHeaderColumns[1]).width(100).right();
+        tableHeaderColumns = new Label[3];
+        tableHeaderColumns[0] = new Label(game.t("highScores.rank"), labelStyle);
+        tableHeaderColumns[1] = new Label(game.t("highScores.name"), labelStyle);
+        tableHeaderColumns[2] = new Label(game.t("highScores.time"), labelStyle);
+        tableHeaderColumns[0].setAlignment(Align.right);
+        tableHeaderColumns[1].setAlignment(Align.left);
+        tableHeaderColumns[2].setAlignment(Align.right);
+        table.add(tableHeaderColumns[0]).width(110).right().padRight(20);
+        table.add(tableHeaderColumns[1]).expandX().left();
+        table.add(tableHeaderColumns[2]).width(100).right();
 
         // Create the rows of the table body
-        tableCells = new Label[HighScores.MAX_SCORES][2];
+        tableCells = new Label[PAGE_SIZE][3];
         for(Label[] row : tableCells) {
             row[0] = new Label("-", labelStyle);
             row[1] = new Label("-", labelStyle);
-            row[0].setAlignment(Align.left);
-            row[1].setAlignment(Align.right);
+            row[2] = new Label("-", labelStyle);
+            row[0].setAlignment(Align.right);
+            row[1].setAlignment(Align.left);
+            row[2].setAlignment(Align.right);
 
             table.row();
-            table.add(row[0]).expandX().left();
-            table.add(row[1]).width(150).right();
+            table.add(row[0]).width(110).right().padRight(20);
+            table.add(row[1]).expandX().left();
+            table.add(row[2]).width(150).right();
         }
 
         return table;
     }
 
+    /**
+     * Shows the page that starts at the specified index.
+     * @param index Index of the first score (it's limited to the existing
+     *              pages).
+     */
+    private void showPage(int index) {
+        int count = shared ? sharedScores.size() : game.getHighScores().getCount(mode, difficulty);
+        int lastPage = Math.max(0, (count - 1) / PAGE_SIZE * PAGE_SIZE);
+        int newIndex = Math.max(0, Math.min(index, lastPage)) / PAGE_SIZE * PAGE_SIZE;
+        if(newIndex != firstIndex) {
+            firstIndex = newIndex;
+            updateScores();
+        }
+    }
+
     /**
      * Updates the scores in the high scores table.
      */
     private void updateScores() {
-        // Update the 2nd column header according to the game mode
+        // Update the 3rd column header according to the game mode
         switch(mode) {
             case TIME:
-                tableHeaderColumns[1].setText(game.t("highScores.time"));
+            case SWARM:
+                tableHeaderColumns[2].setText(game.t("highScores.time"));
                 break;
             case COINS:
-                tableHeaderColumns[1].setText(game.t("highScores.coins"));
+                tableHeaderColumns[2].setText(game.t("highScores.coins"));
                 break;
         }
 
-        // Update the scores
-        List<HighScores.Score> scores = game.getHighScores().getScores(mode, difficulty);
+        // Update the scores of the current page
+        int count;
+        List<HighScores.Score> scores;
+        if(shared) {
+            // Use the cached scores of the shared leaderboard
+            sharedScores = getLeaderboard().getTopScores(mode, difficulty);
+            count = sharedScores.size();
+            firstIndex = Math.min(firstIndex, Math.max(0, (count - 1) / PAGE_SIZE * PAGE_SIZE));
+            scores = sharedScores.subList(Math.min(firstIndex, count), Math.min(firstIndex + PAGE_SIZE, count));
+        } else {
+            HighScores highScores = game.getHighScores();
+            count = highScores.getCount(mode, difficulty);
+            scores = highScores.getScores(mode, difficulty, firstIndex, PAGE_SIZE);
+        }
         for(int i = 0; i < tableCells.length; i++) {
             Label[] row = tableCells[i];
-            if(i <scores.size()) {
+            if(i < scores.size()) {
                 HighScores.Score score = scores.get(i);
-                row[0].setText(score.getName());
-                row[1].setText("" + score.getScore());
+                row[0].setText(String.valueOf(firstIndex + i + 1));
+                row[1].setText(score.getName());
+                row[2].setText(String.valueOf(score.getScore()));
             } else {
                 // No score in this index
                 row[0].setText("-");
                 row[1].setText("-");
+                row[2].setText("-");
             }
 
             // Stop blinking, if applicable
-            row[0].clearActions();
-            row[0].getColor().a = 1;
-            row[1].clearActions();
-            row[1].getColor().a = 1;
+            for(Label cell: row) {
+                cell.clearActions();
+                cell.getColor().a = 1;
+            }
+        }
+
+        // Update the page indicator
+        pageLabel.setText(count == 0 ? "" : game.t("highScores.page",
+                firstIndex + 1, firstIndex + scores.size(), count));
+
+        // Highlight the new high score, if it's in this page
+        int highlightRow = scoreIndexToHighlight - firstIndex;
+        if(!shared && mode == highlightMode && difficulty == highlightDifficulty
+                && highlightRow >= 0 && highlightRow < tableCells.length) {
+            for(Label cell: tableCells[highlightRow]) {
+                cell.addAction(createBlinkAction());
+            }
         }
     }
 
+    /**
+     * Checks one of the buttons of a multiple choice option, without firing
+     * events.
+     * @param options The buttons of the option.
+     * @param index Index of the button to check.
+     */
+    private void selectOption(List<MenuButton> options, int index) {
+        MenuButton button = options.get(index);
+        button.setProgrammaticChangeEvents(false);
+        button.setChecked(true);
+        button.setProgrammaticChangeEvents(true);
+    }
+
     /**
      * Creates and returns a blinking action.
      * @return A "blink" action.
@@ -193,6 +349,7 @@ public class HighScoresScreen extends BaseScreen {
      */
     private void changeMode(GameMode mode) {
         this.mode = mode;
+        firstIndex = 0;
         updateScores();
     }
 
@@ -202,9 +359,28 @@ public class HighScoresScreen extends BaseScreen {
      */
     private void changeDifficulty(Difficulty difficulty) {
         this.difficulty = difficulty;
+        firstIndex = 0;
         updateScores();
     }
 
+    /**
+     * Changes between the local and the shared scores.
+     * @param shared {@code true} to show the scores of the shared leaderboard.
+     */
+    private void changeSource(Boolean shared) {
+        this.shared = shared;
+        firstIndex = 0;
+        updateScores();
+    }
+
+    /**
+     * Returns the client of the shared leaderboard.
+     * @return The client, or {@code null} if not used.
+     */
+    private LeaderboardClient getLeaderboard() {
+        return game.getHighScores().getLeaderboard();
+    }
+
     /**
      * Returns to the main menu.
      */
@@ -57,9 +57,9 @@ public class LoadingScreen extends BaseScreen {
     public void render(float delta) {
         super.render(delta);
 
-        // Keep loading the assets
-        boolean finished = game.getAssetManager().update(100);
-        float progress = game.getAssetManager().getProgress();
+        // Keep loading the assets (the progress is weighted by file size)
+        boolean finished = game.getAssetLoader().update(100);
+        float progress = game.getAssetLoader().getProgress();
 
         // Draw the "Loading..." text
         batch.begin();
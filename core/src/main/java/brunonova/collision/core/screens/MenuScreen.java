@@ -18,6 +18,7 @@ package brunonova.collision.core.screens;
 
 import brunonova.collision.core.Collision;
 import brunonova.collision.core.Constants;
+import brunonova.collision.core.StartupTracer;
 import brunonova.collision.core.widgets.Menu;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
@@ -50,6 +51,7 @@ public class MenuScreen extends BaseScreen {
         menu.addButton(game.t("menu.play"), this::play);
         menu.addButton(game.t("menu.options"), this::options);
         menu.addButton(game.t("menu.highscores"), this::highscores);
+        menu.addButton(game.t("menu.stats"), this::stats);
         menu.addButton(game.t("menu.quit"), this::quit);
 
         // Add the version of the game to the bottom left corner
@@ -58,6 +60,15 @@ public class MenuScreen extends BaseScreen {
         addActor(version);
     }
 
+    @Override
+    public void render(float delta) {
+        super.render(delta);
+
+        // The menu is interactive from its first frame on
+        StartupTracer.end("first menu frame");
+        StartupTracer.finish();
+    }
+
     @Override
     public boolean keyDown(int keycode) {
         // Quit game when the Escape key is pressed
@@ -90,6 +101,13 @@ public class MenuScreen extends BaseScreen {
         game.showHighScores();
     }
 
+    /**
+     * Opens the statistics screen.
+     */
+    private void stats() {
+        game.showStats();
+    }
+
     /**
      * Exits the game.
      */
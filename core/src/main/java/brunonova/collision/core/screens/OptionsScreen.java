@@ -19,6 +19,7 @@ package brunonova.collision.core.screens;
 import brunonova.collision.core.Collision;
 import brunonova.collision.core.enums.Difficulty;
 import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.enums.PhysicsMode;
 import brunonova.collision.core.widgets.ButtonChoice;
 import brunonova.collision.core.widgets.Menu;
 import brunonova.collision.core.widgets.MenuButton;
@@ -48,11 +49,15 @@ public class OptionsScreen extends BaseScreen {
         menu = addActor(new Menu(game, game.t("options.title")));
         menu.addButtonChoices(game.t("options.mode"), game.getGameMode(),
                 new ButtonChoice<>(game.t("options.mode.time"), GameMode.TIME, this::changeMode),
-                new ButtonChoice<>(game.t("options.mode.coins"), GameMode.COINS, this::changeMode));
+                new ButtonChoice<>(game.t("options.mode.coins"), GameMode.COINS, this::changeMode),
+                new ButtonChoice<>(game.t("options.mode.swarm"), GameMode.SWARM, this::changeMode));
         menu.addButtonChoices(game.t("options.difficulty"), game.getDifficulty(),
                 new ButtonChoice<>(game.t("options.difficulty.easy"), Difficulty.EASY, this::changeDifficulty),
                 new ButtonChoice<>(game.t("options.difficulty.medium"), Difficulty.MEDIUM, this::changeDifficulty),
                 new ButtonChoice<>(game.t("options.difficulty.hard"), Difficulty.HARD, this::changeDifficulty));
+        menu.addButtonChoices(game.t("options.physics"), game.getPhysicsMode(),
+                new ButtonChoice<>(game.t("options.physics.stepped"), PhysicsMode.STEPPED, this::changePhysics),
+                new ButtonChoice<>(game.t("options.physics.exact"), PhysicsMode.EVENT_DRIVEN, this::changePhysics));
         fullScreenOptions = menu.addButtonChoices(game.t("options.fullScreen"), game.isFullScreen(),
                 new ButtonChoice<>(game.t("options.off"), false, this::changeFullScreen),
                 new ButtonChoice<>(game.t("options.on"), true, this::changeFullScreen));
@@ -109,6 +114,14 @@ public class OptionsScreen extends BaseScreen {
         game.setDifficulty(difficulty);
     }
 
+    /**
+     * Changes the engine used to move the enemy balls.
+     * @param physicsMode The new physics mode.
+     */
+    private void changePhysics(PhysicsMode physicsMode) {
+        game.setPhysicsMode(physicsMode);
+    }
+
     /**
      * Enables or disables full screen mode.
      * @param fullScreen {@code true} to enable it.
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.screens;
+
+import brunonova.collision.core.Collision;
+import brunonova.collision.core.enums.DeathCause;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.stats.SessionStatsStore;
+import brunonova.collision.core.stats.StatsSummary;
+import brunonova.collision.core.widgets.ButtonChoice;
+import brunonova.collision.core.widgets.Histogram;
+import brunonova.collision.core.widgets.Menu;
+import brunonova.collision.core.widgets.MenuButton;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.utils.Align;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The screen that shows the statistics of the played sessions.
+ * <p>For the selected game mode, it shows the number of games, the average
+ * and best scores and the average duration per difficulty, how the games
+ * ended and an histogram of the duration of the games.</p>
+ */
+public class StatsScreen extends BaseScreen {
+    /** Duration (seconds) of the games counted by each bar of the histogram. */
+    public static final int HISTOGRAM_BIN_SECONDS = 10;
+    /** Number of bars of the histogram. */
+    public static final int HISTOGRAM_BINS = 12;
+
+    private Menu menu;
+    private List<MenuButton> modeOptions;
+    /** Cells of the table, one row per difficulty plus a row for the total. */
+    private Label[][] tableCells;
+    private Label deathsLabel;
+    private Label histogramLabel;
+    private Histogram histogram;
+
+    private GameMode mode;
+
+    /**
+     * Creates the screen.
+     * @param game The game.
+     */
+    public StatsScreen(Collision game) {
+        super(game);
+        mode = game.getGameMode();
+    }
+
+    @Override
+    public void create() {
+        super.create();
+
+        // Create the menu
+        menu = addActor(new Menu(game, game.t("stats.title")));
+        modeOptions = menu.addButtonChoices(game.t("options.mode"), game.getGameMode(),
+                new ButtonChoice<>(game.t("options.mode.time"), GameMode.TIME, this::changeMode),
+                new ButtonChoice<>(game.t("options.mode.coins"), GameMode.COINS, this::changeMode),
+                new ButtonChoice<>(game.t("options.mode.swarm"), GameMode.SWARM, this::changeMode));
+
+        // Add the statistics table, the deaths and the histogram to the menu,
+        // before the "Back" button
+        Label.LabelStyle labelStyle = new Label.LabelStyle(game.getFont("font-hud.ttf"), menu.getTextColor());
+        menu.row();
+        menu.add(createStatsTable(labelStyle))
+                .width(game.getWidth() - 20)
+                .spaceTop(20);
+
+        deathsLabel = new Label("", labelStyle);
+        menu.row();
+        menu.add(deathsLabel).spaceTop(10);
+
+        histogramLabel = new Label(game.t("stats.duration", HISTOGRAM_BIN_SECONDS), labelStyle);
+        menu.row();
+        menu.add(histogramLabel).spaceTop(10);
+
+        histogram = new Histogram(shapeRenderer, menu.getTextColor(), game.getWidth() - 100, 60);
+        menu.row();
+        menu.add(histogram).spaceTop(5).spaceBottom(10);
+
+        menu.addButton(game.t("options.back"), this::back);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The screen is reused, so the selected game mode is reset to the current
+     * one, and the statistics are updated.
+     */
+    @Override
+    public void show() {
+        super.show();
+
+        // Select the current game mode
+        mode = game.getGameMode();
+        MenuButton button = modeOptions.get(mode.ordinal());
+        button.setProgrammaticChangeEvents(false);
+        button.setChecked(true);
+        button.setProgrammaticChangeEvents(true);
+
+        updateStats();
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        // Return to the main menu when Escape is pressed
+        if(keycode == Input.Keys.ESCAPE) {
+            back();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Creates and returns the table that will show the statistics.
+     * @param labelStyle Style of the labels.
+     * @return Table that will show the statistics.
+     */
+    private Table createStatsTable(Label.LabelStyle labelStyle) {
+        Table table = new Table();
+
+        // Create the header
+        String[] headers = {"", game.t("stats.games"), game.t("stats.average"),
+                            game.t("stats.best"), game.t("stats.time")};
+        for(String header: headers) {
+            Label label = new Label(header, labelStyle);
+            label.setAlignment(Align.right);
+            table.add(label).expandX().fillX();
+        }
+
+        // Create a row for each difficulty and a row for all of them
+        String[] rowNames = {game.t("options.difficulty.easy"), game.t("options.difficulty.medium"),
+                             game.t("options.difficulty.hard"), game.t("stats.all")};
+        tableCells = new Label[rowNames.length][headers.length];
+        for(int i = 0; i < rowNames.length; i++) {
+            table.row();
+            for(int j = 0; j < headers.length; j++) {
+                Label label = new Label(j == 0 ? rowNames[i] : "-", labelStyle);
+                label.setAlignment(j == 0 ? Align.left : Align.right);
+                table.add(label).expandX().fillX();
+                tableCells[i][j] = label;
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Updates the statistics of the selected game mode.
+     */
+    private void updateStats() {
+        SessionStatsStore store = game.getStatsStore();
+
+        // Fill a row of the table per difficulty (aggregated in a single
+        // pass), and the row with the total
+        Map<Difficulty, StatsSummary> summaries = store.summarizeByDifficulty(mode);
+        for(Difficulty difficulty: Difficulty.values()) {
+            fillRow(tableCells[difficulty.ordinal()], summaries.get(difficulty));
+        }
+        StatsSummary total = store.summarize(mode, null);
+        fillRow(tableCells[tableCells.length - 1], total);
+
+        // Show how the games ended
+        deathsLabel.setText(game.t("stats.deaths", total.getDeaths(DeathCause.ENEMY),
+                total.getDeaths(DeathCause.MISSILE)));
+
+        // Show the histogram of the duration of the games
+        histogram.setBins(store.histogram(SessionStatsStore.Metric.DURATION, mode, null,
+                HISTOGRAM_BIN_SECONDS, HISTOGRAM_BINS));
+        histogramLabel.setVisible(total.getCount() > 0);
+    }
+
+    /**
+     * Fills a row of the statistics table.
+     * @param row The labels of the row.
+     * @param summary The statistics of the row.
+     */
+    private void fillRow(Label[] row, StatsSummary summary) {
+        if(summary.getCount() == 0) {
+            for(int j = 1; j < row.length; j++) {
+                row[j].setText("-");
+            }
+        } else {
+            row[1].setText(String.valueOf(summary.getCount()));
+            row[2].setText(String.format("%.1f", summary.getAverageScore()));
+            row[3].setText(String.valueOf(summary.getBestScore()));
+            row[4].setText(game.t("stats.seconds", Math.round(summary.getAverageDuration())));
+        }
+    }
+
+    /**
+     * Changes the selected game mode.
+     * @param mode The new game mode.
+     */
+    private void changeMode(GameMode mode) {
+        this.mode = mode;
+        updateStats();
+    }
+
+    /**
+     * Returns to the main menu.
+     */
+    private void back() {
+        game.returnToMenu();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.stats;
+
+import brunonova.collision.core.enums.BonusType;
+import brunonova.collision.core.enums.DeathCause;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+
+/**
+ * The statistics of a single game session.
+ */
+public class SessionStats {
+    private final GameMode mode;
+    private final Difficulty difficulty;
+    private final DeathCause deathCause;
+    private final float duration;
+    private final int score;
+    private final int coins;
+    private final int enemies;
+    private final int[] bonusCounts;
+    private final float[] bonusTimes;
+
+    /**
+     * Creates the statistics.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @param deathCause How the game ended.
+     * @param duration Duration of the game, in seconds.
+     * @param score The final score.
+     * @param coins The number of collected coins.
+     * @param enemies The number of enemy balls reached.
+     * @param bonusCounts Number of times each bonus was picked, indexed by
+     *                    {@link BonusType#ordinal()}.
+     * @param bonusTimes Time (seconds) each bonus was active, indexed by
+     *                   {@link BonusType#ordinal()}.
+     */
+    public SessionStats(GameMode mode, Difficulty difficulty, DeathCause deathCause, float duration,
+            int score, int coins, int enemies, int[] bonusCounts, float[] bonusTimes) {
+        this.mode = mode;
+        this.difficulty = difficulty;
+        this.deathCause = deathCause;
+        this.duration = duration;
+        this.score = score;
+        this.coins = coins;
+        this.enemies = enemies;
+        this.bonusCounts = bonusCounts.clone();
+        this.bonusTimes = bonusTimes.clone();
+    }
+
+    /**
+     * Returns the game mode.
+     * @return The game mode.
+     */
+    public GameMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the difficulty.
+     * @return The difficulty.
+     */
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Returns how the game ended.
+     * @return The cause of death.
+     */
+    public DeathCause getDeathCause() {
+        return deathCause;
+    }
+
+    /**
+     * Returns the duration of the game.
+     * @return The duration, in seconds.
+     */
+    public float getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the final score.
+     * @return The score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the number of collected coins.
+     * @return The number of coins.
+     */
+    public int getCoins() {
+        return coins;
+    }
+
+    /**
+     * Returns the number of enemy balls reached.
+     * @return The number of enemy balls.
+     */
+    public int getEnemies() {
+        return enemies;
+    }
+
+    /**
+     * Returns the number of times a bonus was picked.
+     * @param type The bonus type.
+     * @return The number of times.
+     */
+    public int getBonusCount(BonusType type) {
+        return bonusCounts[type.ordinal()];
+    }
+
+    /**
+     * Returns the time a bonus was active.
+     * @param type The bonus type.
+     * @return The time, in seconds.
+     */
+    public float getBonusTime(BonusType type) {
+        return bonusTimes[type.ordinal()];
+    }
+}
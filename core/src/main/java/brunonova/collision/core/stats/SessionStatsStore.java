@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.stats;
+
+import brunonova.collision.core.enums.BonusType;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import com.badlogic.gdx.Gdx;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only, columnar store of the statistics of the game sessions.
+ * <p>Each column (game mode, difficulty, duration, score, etc.) is stored in
+ * its own file in the store directory, as an array of fixed-width big-endian
+ * values (the enumerations are stored as their ordinals). Adding a session
+ * appends one value to each file. If the files have different numbers of
+ * rows, or end with part of a value (e.g. the game crashed while adding a
+ * session), they're truncated to the shortest one, in whole values, when the
+ * store is opened, and columns added in a new version of the game start with
+ * zeros in the old rows.</p>
+ * <p>The columns are kept in memory as arrays, so the aggregate queries scan
+ * hundreds of thousands of sessions in a few milliseconds. The queries can
+ * run in any thread without locking, while sessions are added in another
+ * thread.</p>
+ */
+public class SessionStatsStore {
+    private static final String TAG = SessionStatsStore.class.getName();
+
+    /** Name of the directory of the store, in the game's data directory. */
+    public static final String DIRECTORY = "stats";
+
+    // Indices of the columns
+    static final int COL_MODE = 0;
+    static final int COL_DIFFICULTY = 1;
+    static final int COL_DEATH_CAUSE = 2;
+    static final int COL_DURATION = 3;
+    static final int COL_SCORE = 4;
+    static final int COL_COINS = 5;
+    static final int COL_ENEMIES = 6;
+    /** Index of the first bonus column (2 columns per bonus type: count and time). */
+    static final int COL_BONUS = 7;
+
+    /** The columns (name, width in bytes and whether it holds floats). */
+    private static final Column[] COLUMNS = createColumns();
+    /** Initial number of rows allocated in memory. */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * A metric of the sessions, for histograms.
+     */
+    public enum Metric {
+        DURATION(COL_DURATION),
+        SCORE(COL_SCORE),
+        COINS(COL_COINS),
+        ENEMIES(COL_ENEMIES);
+
+        private final int column;
+
+        Metric(int column) {
+            this.column = column;
+        }
+    }
+
+    private final File directory;
+    /** Lock held while adding sessions. */
+    private final Object writeLock = new Object();
+    /** The streams used to append to the column files. */
+    private DataOutputStream[] outputs;
+    /** The current rows (replaced whenever a session is added). */
+    private volatile Rows rows = new Rows(0, new int[COLUMNS.length][INITIAL_CAPACITY]);
+
+    /**
+     * Creates the store (without opening it).
+     * @param directory Directory of the store.
+     */
+    public SessionStatsStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the store, loading all the columns into memory.
+     * <p>If the store can't be read, it starts empty, and sessions aren't
+     * saved.</p>
+     */
+    public void open() {
+        synchronized(writeLock) {
+            close();
+            try {
+                directory.mkdirs();
+
+                // Read all the columns
+                int[][] values = new int[COLUMNS.length][];
+                int count = Integer.MAX_VALUE;
+                for(int i = 0; i < COLUMNS.length; i++) {
+                    values[i] = readColumn(COLUMNS[i]);
+                    if(values[i] != null) count = Math.min(count, values[i].length);
+                }
+                if(count == Integer.MAX_VALUE) count = 0;
+
+                // Truncate the columns with more rows than the others (or
+                // with part of a value after the last row, which would
+                // misalign the values appended after it), fill the new
+                // columns (e.g. of a new bonus type) with zeros, and open
+                // them for appending
+                outputs = new DataOutputStream[COLUMNS.length];
+                int capacity = Math.max(INITIAL_CAPACITY, count + count / 2);
+                for(int i = 0; i < COLUMNS.length; i++) {
+                    File file = getFile(COLUMNS[i]);
+                    if(values[i] == null) {
+                        values[i] = new int[count];
+                        try(FileOutputStream output = new FileOutputStream(file)) {
+                            output.write(new byte[count * COLUMNS[i].width]);
+                        }
+                    } else if(file.length() != (long) count * COLUMNS[i].width) {
+                        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                            raf.setLength((long) count * COLUMNS[i].width);
+                        }
+                    }
+                    values[i] = Arrays.copyOf(values[i], capacity);
+                    outputs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 16));
+                }
+                rows = new Rows(count, values);
+            } catch(IOException ex) {
+                Gdx.app.error(TAG, "Error opening the session statistics in " + directory, ex);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Adds a session to the store, appending it to the column files.
+     * @param stats The statistics of the session.
+     */
+    public void add(SessionStats stats) {
+        int[] row = toRow(stats);
+        synchronized(writeLock) {
+            // Append the values to the files
+            if(outputs != null) {
+                try {
+                    for(int i = 0; i < COLUMNS.length; i++) {
+                        COLUMNS[i].write(outputs[i], row[i]);
+                    }
+                    for(DataOutputStream output: outputs) {
+                        output.flush();
+                    }
+                } catch(IOException ex) {
+                    Gdx.app.error(TAG, "Error saving the session statistics", ex);
+                }
+            }
+
+            // Add the values in memory (readers of the current rows only read
+            // up to their count, so the arrays are only copied when full)
+            Rows current = rows;
+            int[][] values = current.values;
+            if(current.count == values[0].length) {
+                values = new int[COLUMNS.length][];
+                for(int i = 0; i < COLUMNS.length; i++) {
+                    values[i] = Arrays.copyOf(current.values[i], current.count * 2);
+                }
+            }
+            for(int i = 0; i < COLUMNS.length; i++) {
+                values[i][current.count] = row[i];
+            }
+            rows = new Rows(current.count + 1, values);
+        }
+    }
+
+    /**
+     * Closes the column files.
+     */
+    public void close() {
+        synchronized(writeLock) {
+            if(outputs != null) {
+                for(DataOutputStream output: outputs) {
+                    try {
+                        if(output != null) output.close();
+                    } catch(IOException ignored) {
+                    }
+                }
+                outputs = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sessions in the store.
+     * @return The number of sessions.
+     */
+    public int getCount() {
+        return rows.count;
+    }
+
+    /**
+     * Returns the aggregated statistics of the sessions with the specified
+     * game mode and difficulty.
+     * @param mode The game mode, or {@code null} for all game modes.
+     * @param difficulty The difficulty, or {@code null} for all difficulties.
+     * @return The aggregated statistics.
+     */
+    public StatsSummary summarize(GameMode mode, Difficulty difficulty) {
+        Rows current = rows;
+        int[][] values = current.values;
+        int[] modes = values[COL_MODE], difficulties = values[COL_DIFFICULTY];
+        int modeFilter = mode == null ? -1 : mode.ordinal();
+        int difficultyFilter = difficulty == null ? -1 : difficulty.ordinal();
+
+        StatsSummary summary = new StatsSummary();
+        for(int row = 0; row < current.count; row++) {
+            if((modeFilter < 0 || modes[row] == modeFilter)
+                    && (difficultyFilter < 0 || difficulties[row] == difficultyFilter)) {
+                summary.add(values, row);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Returns the aggregated statistics of the sessions with the specified
+     * game mode, for each difficulty (in a single scan).
+     * @param mode The game mode, or {@code null} for all game modes.
+     * @return The aggregated statistics of each difficulty.
+     */
+    public Map<Difficulty, StatsSummary> summarizeByDifficulty(GameMode mode) {
+        Rows current = rows;
+        int[][] values = current.values;
+        int[] modes = values[COL_MODE], difficulties = values[COL_DIFFICULTY];
+        int modeFilter = mode == null ? -1 : mode.ordinal();
+
+        Difficulty[] allDifficulties = Difficulty.values();
+        StatsSummary[] summaries = new StatsSummary[allDifficulties.length];
+        for(int i = 0; i < summaries.length; i++) {
+            summaries[i] = new StatsSummary();
+        }
+        for(int row = 0; row < current.count; row++) {
+            int difficulty = difficulties[row];
+            if((modeFilter < 0 || modes[row] == modeFilter) && difficulty >= 0 && difficulty < summaries.length) {
+                summaries[difficulty].add(values, row);
+            }
+        }
+
+        Map<Difficulty, StatsSummary> result = new EnumMap<>(Difficulty.class);
+        for(Difficulty difficulty: allDifficulties) {
+            result.put(difficulty, summaries[difficulty.ordinal()]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a histogram of a metric of the sessions with the specified game
+     * mode and difficulty.
+     * @param metric The metric.
+     * @param mode The game mode, or {@code null} for all game modes.
+     * @param difficulty The difficulty, or {@code null} for all difficulties.
+     * @param binWidth Width of each bin (bin {@code i} counts the values in
+     *                 {@code [i * binWidth, (i + 1) * binWidth)}).
+     * @param bins Number of bins (the last bin also counts all the bigger
+     *             values).
+     * @return The number of sessions in each bin.
+     */
+    public int[] histogram(Metric metric, GameMode mode, Difficulty difficulty, float binWidth, int bins) {
+        Rows current = rows;
+        int[][] values = current.values;
+        int[] modes = values[COL_MODE], difficulties = values[COL_DIFFICULTY];
+        int[] column = values[metric.column];
+        boolean floating = COLUMNS[metric.column].floating;
+        int modeFilter = mode == null ? -1 : mode.ordinal();
+        int difficultyFilter = difficulty == null ? -1 : difficulty.ordinal();
+
+        int[] histogram = new int[bins];
+        for(int row = 0; row < current.count; row++) {
+            if((modeFilter < 0 || modes[row] == modeFilter)
+                    && (difficultyFilter < 0 || difficulties[row] == difficultyFilter)) {
+                float value = floating ? Float.intBitsToFloat(column[row]) : column[row];
+                int bin = (int) (value / binWidth);
+                histogram[Math.max(0, Math.min(bin, bins - 1))]++;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the index of the column with the number of times a bonus was
+     * picked.
+     * @param bonus Ordinal of the bonus type.
+     * @return The index of the column.
+     */
+    static int bonusCountColumn(int bonus) {
+        return COL_BONUS + bonus * 2;
+    }
+
+    /**
+     * Returns the index of the column with the time a bonus was active.
+     * @param bonus Ordinal of the bonus type.
+     * @return The index of the column.
+     */
+    static int bonusTimeColumn(int bonus) {
+        return COL_BONUS + bonus * 2 + 1;
+    }
+
+    /**
+     * Converts the statistics of a session into the values of a row.
+     * @param stats The statistics of the session.
+     * @return The values of the columns.
+     */
+    private static int[] toRow(SessionStats stats) {
+        int[] row = new int[COLUMNS.length];
+        row[COL_MODE] = stats.getMode().ordinal();
+        row[COL_DIFFICULTY] = stats.getDifficulty().ordinal();
+        row[COL_DEATH_CAUSE] = stats.getDeathCause().ordinal();
+        row[COL_DURATION] = Float.floatToIntBits(stats.getDuration());
+        row[COL_SCORE] = stats.getScore();
+        row[COL_COINS] = stats.getCoins();
+        row[COL_ENEMIES] = stats.getEnemies();
+        for(BonusType type: BonusType.values()) {
+            row[bonusCountColumn(type.ordinal())] = stats.getBonusCount(type);
+            row[bonusTimeColumn(type.ordinal())] = Float.floatToIntBits(stats.getBonusTime(type));
+        }
+        return row;
+    }
+
+    /**
+     * Reads all the values of a column from its file.
+     * @param column The column.
+     * @return The values, or {@code null} if the file doesn't exist.
+     * @throws IOException If the file couldn't be read.
+     */
+    private int[] readColumn(Column column) throws IOException {
+        File file = getFile(column);
+        if(!file.exists()) return null;
+
+        try(RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() / column.width * column.width));
+            while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full
+            }
+            buffer.flip();
+
+            int[] values = new int[buffer.remaining() / column.width];
+            for(int i = 0; i < values.length; i++) {
+                values[i] = column.read(buffer);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Returns the file of a column.
+     * @param column The column.
+     * @return The file.
+     */
+    private File getFile(Column column) {
+        return new File(directory, column.name + ".col");
+    }
+
+    /**
+     * Creates the definitions of the columns.
+     * @return The columns, in the order of their indices.
+     */
+    private static Column[] createColumns() {
+        BonusType[] bonusTypes = BonusType.values();
+        Column[] columns = new Column[COL_BONUS + bonusTypes.length * 2];
+        columns[COL_MODE] = new Column("mode", 1, false);
+        columns[COL_DIFFICULTY] = new Column("difficulty", 1, false);
+        columns[COL_DEATH_CAUSE] = new Column("death_cause", 1, false);
+        columns[COL_DURATION] = new Column("duration", 4, true);
+        columns[COL_SCORE] = new Column("score", 4, false);
+        columns[COL_COINS] = new Column("coins", 4, false);
+        columns[COL_ENEMIES] = new Column("enemies", 2, false);
+        for(BonusType type: bonusTypes) {
+            String name = "bonus_" + type.name().toLowerCase(Locale.ROOT);
+            columns[bonusCountColumn(type.ordinal())] = new Column(name + "_count", 2, false);
+            columns[bonusTimeColumn(type.ordinal())] = new Column(name + "_time", 4, true);
+        }
+        return columns;
+    }
+
+
+    /**
+     * Definition of a column.
+     */
+    private static class Column {
+        final String name;
+        final int width;
+        final boolean floating;
+
+        /**
+         * Creates the column.
+         * @param name Name of the column (and of its file).
+         * @param width Width of each value, in bytes (1, 2 or 4).
+         * @param floating Whether the values are floats (stored in memory as
+         *                 their bits).
+         */
+        Column(String name, int width, boolean floating) {
+            this.name = name;
+            this.width = width;
+            this.floating = floating;
+        }
+
+        /**
+         * Reads a value from a buffer.
+         * @param buffer The buffer.
+         * @return The value.
+         */
+        int read(ByteBuffer buffer) {
+            switch(width) {
+                case 1: return buffer.get();
+                case 2: return buffer.getShort();
+                default: return buffer.getInt();
+            }
+        }
+
+        /**
+         * Writes a value into a stream.
+         * @param output The stream.
+         * @param value The value.
+         * @throws IOException If the value couldn't be written.
+         */
+        void write(DataOutputStream output, int value) throws IOException {
+            switch(width) {
+                case 1: output.writeByte(value); break;
+                case 2: output.writeShort(value); break;
+                default: output.writeInt(value); break;
+            }
+        }
+    }
+
+    /**
+     * The rows of the store, in memory.
+     * <p>The arrays may have more capacity than the number of rows. Values
+     * beyond the count may be written by the next session added.</p>
+     */
+    private static class Rows {
+        final int count;
+        final int[][] values;
+
+        Rows(int count, int[][] values) {
+            this.count = count;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.stats;
+
+import brunonova.collision.core.enums.BonusType;
+import brunonova.collision.core.enums.DeathCause;
+
+/**
+ * Aggregated statistics of a set of game sessions.
+ */
+public class StatsSummary {
+    private int count = 0;
+    private double totalDuration = 0;
+    private long totalScore = 0;
+    private int bestScore = 0;
+    private long totalCoins = 0;
+    private long totalEnemies = 0;
+    private int maxEnemies = 0;
+    private final int[] deaths = new int[DeathCause.values().length];
+    private final long[] bonusCounts = new long[BonusType.values().length];
+    private final double[] bonusTimes = new double[BonusType.values().length];
+
+    /**
+     * Adds a session to the statistics.
+     * @param columns The values of the columns of the session store.
+     * @param row The row of the session.
+     */
+    void add(int[][] columns, int row) {
+        count++;
+        totalDuration += Float.intBitsToFloat(columns[SessionStatsStore.COL_DURATION][row]);
+        int score = columns[SessionStatsStore.COL_SCORE][row];
+        totalScore += score;
+        bestScore = Math.max(bestScore, score);
+        totalCoins += columns[SessionStatsStore.COL_COINS][row];
+        int enemies = columns[SessionStatsStore.COL_ENEMIES][row];
+        totalEnemies += enemies;
+        maxEnemies = Math.max(maxEnemies, enemies);
+
+        int deathCause = columns[SessionStatsStore.COL_DEATH_CAUSE][row];
+        if(deathCause >= 0 && deathCause < deaths.length) deaths[deathCause]++;
+
+        for(int i = 0; i < bonusCounts.length; i++) {
+            bonusCounts[i] += columns[SessionStatsStore.bonusCountColumn(i)][row];
+            bonusTimes[i] += Float.intBitsToFloat(columns[SessionStatsStore.bonusTimeColumn(i)][row]);
+        }
+    }
+
+    /**
+     * Returns the number of sessions.
+     * @return The number of sessions.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the total time played.
+     * @return The total duration of the sessions, in seconds.
+     */
+    public double getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * Returns the average duration of the sessions.
+     * @return The average duration, in seconds (0 if there are no sessions).
+     */
+    public float getAverageDuration() {
+        return count == 0 ? 0 : (float) (totalDuration / count);
+    }
+
+    /**
+     * Returns the average score.
+     * @return The average score (0 if there are no sessions).
+     */
+    public float getAverageScore() {
+        return count == 0 ? 0 : (float) totalScore / count;
+    }
+
+    /**
+     * Returns the best score.
+     * @return The best score (0 if there are no sessions).
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Returns the average number of collected coins.
+     * @return The average number of coins (0 if there are no sessions).
+     */
+    public float getAverageCoins() {
+        return count == 0 ? 0 : (float) totalCoins / count;
+    }
+
+    /**
+     * Returns the average number of enemy balls reached.
+     * @return The average number of enemy balls (0 if there are no
+     *         sessions).
+     */
+    public float getAverageEnemies() {
+        return count == 0 ? 0 : (float) totalEnemies / count;
+    }
+
+    /**
+     * Returns the maximum number of enemy balls reached.
+     * @return The maximum number of enemy balls.
+     */
+    public int getMaxEnemies() {
+        return maxEnemies;
+    }
+
+    /**
+     * Returns the number of sessions that ended with the specified cause.
+     * @param cause The cause of death.
+     * @return The number of sessions.
+     */
+    public int getDeaths(DeathCause cause) {
+        return deaths[cause.ordinal()];
+    }
+
+    /**
+     * Returns the number of times a bonus was picked.
+     * @param type The bonus type.
+     * @return The number of times.
+     */
+    public long getBonusCount(BonusType type) {
+        return bonusCounts[type.ordinal()];
+    }
+
+    /**
+     * Returns the average time a bonus was active, each time it was picked.
+     * @param type The bonus type.
+     * @return The average time, in seconds (0 if it was never picked).
+     */
+    public float getAverageBonusTime(BonusType type) {
+        long picks = bonusCounts[type.ordinal()];
+        return picks == 0 ? 0 : (float) (bonusTimes[type.ordinal()] / picks);
+    }
+}
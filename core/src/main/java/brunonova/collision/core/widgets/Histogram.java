@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.widgets;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.scenes.scene2d.ui.Widget;
+
+/**
+ * Widget that draws a bar chart of the bins of an histogram.
+ */
+public class Histogram extends Widget {
+    /** Space between two bars, in pixels. */
+    private static final float BAR_SPACING = 2;
+
+    private final ShapeRenderer shapeRenderer;
+    private final Color color;
+    private final float prefWidth;
+    private final float prefHeight;
+    private int[] bins = new int[0];
+
+    /**
+     * Creates the widget.
+     * @param shapeRenderer The game's shape renderer.
+     * @param color The color of the bars.
+     * @param prefWidth The preferred width.
+     * @param prefHeight The preferred height.
+     */
+    public Histogram(ShapeRenderer shapeRenderer, Color color, float prefWidth, float prefHeight) {
+        this.shapeRenderer = shapeRenderer;
+        this.color = new Color(color);
+        this.prefWidth = prefWidth;
+        this.prefHeight = prefHeight;
+    }
+
+    /**
+     * Sets the bins to show.
+     * @param bins The number of values in each bin.
+     */
+    public void setBins(int[] bins) {
+        this.bins = bins.clone();
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        // Find the tallest bar
+        int max = 0;
+        for(int count: bins) {
+            max = Math.max(max, count);
+        }
+        if(max == 0) return;
+
+        // Can't use both a Batch and a ShapeRenderer at the same time
+        batch.end();
+
+        // Draw the bars (with the height proportional to the tallest one) and
+        // the baseline
+        float barWidth = getWidth() / bins.length;
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        shapeRenderer.setColor(color.r, color.g, color.b, color.a * parentAlpha);
+        for(int i = 0; i < bins.length; i++) {
+            float height = getHeight() * bins[i] / max;
+            shapeRenderer.rect(getX() + i * barWidth, getY(), Math.max(1, barWidth - BAR_SPACING), height);
+        }
+        shapeRenderer.rect(getX(), getY(), getWidth(), 1);
+        shapeRenderer.end();
+
+        batch.begin();
+    }
+
+    @Override
+    public float getPrefWidth() {
+        return prefWidth;
+    }
+
+    @Override
+    public float getPrefHeight() {
+        return prefHeight;
+    }
+}
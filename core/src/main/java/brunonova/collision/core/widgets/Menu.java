@@ -114,7 +114,7 @@ public class Menu extends Table {
         button.addListener(new ChangeListener() {
             @Override
             public void changed(ChangeListener.ChangeEvent event, Actor actor) {
-                clickSound.play(game.getVolume());
+                game.getSoundMixer().play(clickSound, game.getVolume());
                 action.run();
             }
         });
@@ -172,7 +172,7 @@ public class Menu extends Table {
                 public void changed(ChangeListener.ChangeEvent event, Actor actor) {
                     TextButton button = (TextButton) actor;  // it's always a TextButton
                     if(button.isChecked()) {
-                        clickSound.play(game.getVolume());
+                        game.getSoundMixer().play(clickSound, game.getVolume());
                         choice.getAction().run(choice.getValue());
                     }
                 }
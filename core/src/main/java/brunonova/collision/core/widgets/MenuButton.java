@@ -77,25 +77,29 @@ public class MenuButton extends TextButton implements SupportsKeyboardNavigation
                     case Input.Keys.DOWN:
                         if(getNextWidget() != null) {
                             focusNext();
-                            navigateSound.play(game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
+                            game.getSoundMixer().play(navigateSound,
+                                    game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
                         }
                         return true;
                     case Input.Keys.UP:
                         if(getPreviousWidget() != null) {
                             focusPrevious();
-                            navigateSound.play(game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
+                            game.getSoundMixer().play(navigateSound,
+                                    game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
                         }
                         return true;
                     case Input.Keys.LEFT:
                         if(getLeftWidget() != null) {
                             focusLeft();
-                            navigateSound.play(game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
+                            game.getSoundMixer().play(navigateSound,
+                                    game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
                         }
                         return true;
                     case Input.Keys.RIGHT:
                         if(getRightWidget() != null) {
                             focusRight();
-                            navigateSound.play(game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
+                            game.getSoundMixer().play(navigateSound,
+                                    game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
                         }
                         return true;
                 }
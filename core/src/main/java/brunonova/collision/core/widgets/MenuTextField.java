@@ -74,13 +74,15 @@ public class MenuTextField extends TextField implements SupportsKeyboardNavigati
                     case Input.Keys.DOWN:
                         if(getNextWidget() != null) {
                             focusNext();
-                            navigateSound.play(game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
+                            game.getSoundMixer().play(navigateSound,
+                                    game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
                         }
                         return true;
                     case Input.Keys.UP:
                         if(getPreviousWidget() != null) {
                             focusPrevious();
-                            navigateSound.play(game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
+                            game.getSoundMixer().play(navigateSound,
+                                    game.getVolume() * Menu.MENU_NAVIGATE_VOLUME_FACTOR);
                         }
                         return true;
                 }
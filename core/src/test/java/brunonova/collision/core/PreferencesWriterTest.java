@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link PreferencesWriter} writing into a temporary folder.
+ */
+public class PreferencesWriterTest {
+    /** Write interval long enough to never pass during a test (seconds). */
+    private static final float LONG_INTERVAL = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, Object> values = new HashMap<>();
+    private Preferences preferences;
+    private AsyncExecutor executor;
+    private File file;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // Write errors are logged through Gdx.app, which only needs to
+        // accept the calls here
+        if(Gdx.app == null) {
+            Gdx.app = (Application) Proxy.newProxyInstance(Application.class.getClassLoader(),
+                    new Class<?>[] {Application.class}, (proxy, method, args) -> null);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // Only the values of the preferences are read by the writer
+        preferences = (Preferences) Proxy.newProxyInstance(Preferences.class.getClassLoader(),
+                new Class<?>[] {Preferences.class},
+                (proxy, method, args) -> method.getName().equals("get") ? values : null);
+        executor = new AsyncExecutor(1);
+        file = new File(folder.getRoot(), "prefs/collision.xml");
+    }
+
+    @After
+    public void tearDown() {
+        executor.dispose();
+    }
+
+    /**
+     * The changes made before a write are coalesced into it, and nothing is
+     * written again before the interval passes, except when flushing.
+     */
+    @Test
+    public void coalescesChanges() throws IOException {
+        PreferencesWriter writer = new PreferencesWriter(preferences, file, executor, LONG_INTERVAL);
+        writer.update();
+        waitForWrites();
+        assertFalse(file.exists());
+
+        for(int i = 1; i <= 5; i++) {
+            values.put("sound", i);
+            writer.markDirty();
+        }
+        writer.update();
+        waitForWrites();
+        assertEquals(1, writer.getWrites());
+        assertEquals(4, writer.getAvoidedWrites());
+        assertEquals("5", read().getProperty("sound"));
+
+        // The interval hasn't passed yet
+        values.put("sound", 6);
+        writer.markDirty();
+        writer.update();
+        waitForWrites();
+        assertEquals(1, writer.getWrites());
+        assertEquals("5", read().getProperty("sound"));
+
+        writer.flush();
+        assertEquals(2, writer.getWrites());
+        assertEquals("6", read().getProperty("sound"));
+        writer.flush();
+        assertEquals(2, writer.getWrites());
+    }
+
+    /**
+     * Once the interval passed, the next change is written by the next
+     * update.
+     */
+    @Test
+    public void writesAfterTheInterval() throws IOException, InterruptedException {
+        PreferencesWriter writer = new PreferencesWriter(preferences, file, executor, 0.05f);
+        values.put("music", true);
+        writer.markDirty();
+        writer.update();
+        values.put("music", false);
+        writer.markDirty();
+        writer.update();
+        waitForWrites();
+        assertEquals(1, writer.getWrites());
+        assertEquals("true", read().getProperty("music"));
+
+        Thread.sleep(100);
+        writer.update();
+        waitForWrites();
+        assertEquals(2, writer.getWrites());
+        assertEquals("false", read().getProperty("music"));
+    }
+
+    /**
+     * The file is replaced as a whole by the temporary file, overwriting a
+     * leftover one, and a failed write isn't counted.
+     */
+    @Test
+    public void replacesTheFile() throws IOException {
+        assertTrue(file.getParentFile().mkdirs());
+        try(FileOutputStream out = new FileOutputStream(file.getPath() + ".tmp")) {
+            out.write("torn".getBytes("UTF-8"));
+        }
+        values.put("name", "old");
+        PreferencesWriter writer = new PreferencesWriter(preferences, file, executor, LONG_INTERVAL);
+        writer.markDirty();
+        writer.flush();
+        values.put("name", "new");
+        values.put("difficulty", "HARD");
+        writer.markDirty();
+        writer.flush();
+        assertEquals(2, writer.getWrites());
+        Properties properties = read();
+        assertEquals(2, properties.size());
+        assertEquals("new", properties.getProperty("name"));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        // A directory where the file should be can't be replaced
+        File blocked = new File(folder.getRoot(), "blocked");
+        assertTrue(new File(blocked, "child").mkdirs());
+        writer = new PreferencesWriter(preferences, blocked, executor, LONG_INTERVAL);
+        writer.markDirty();
+        writer.flush();
+        assertEquals(0, writer.getWrites());
+    }
+
+    /**
+     * Waits until the writes submitted so far are done (the executor has a
+     * single thread, so they run in order).
+     */
+    private void waitForWrites() {
+        executor.submit(() -> null).get();
+    }
+
+    /**
+     * Reads the preferences file.
+     * @return The preferences in the file.
+     * @throws IOException If the file couldn't be read.
+     */
+    private Properties read() throws IOException {
+        Properties properties = new Properties();
+        try(FileInputStream in = new FileInputStream(file)) {
+            properties.loadFromXML(in);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link Scheduler}.
+ */
+public class SchedulerTest {
+    private final Scheduler scheduler = new Scheduler();
+    /** Names of the timers that expired, in order. */
+    private final List<String> expired = new ArrayList<>();
+    /** Times the timers expired, in the same order. */
+    private final List<Double> times = new ArrayList<>();
+
+    /**
+     * Timers that expire in the same call to {@code advance} run by order of
+     * expiration, each seeing the time it expired.
+     */
+    @Test
+    public void runsTimersByExpiration() {
+        float[] delays = {0.5f, 0.1f, 0.4f, 0.2f, 0.3f, 2};
+        for(int i = 0; i < delays.length; i++) {
+            timer("t" + i).schedule(delays[i]);
+        }
+        scheduler.advance(1);
+
+        assertEquals(Arrays.asList("t1", "t3", "t4", "t2", "t0"), expired);
+        for(int i = 1; i < times.size(); i++) {
+            assertTrue(times.get(i - 1) <= times.get(i));
+        }
+        assertEquals(0.1, times.get(0), 1e-6);
+        assertEquals(1, scheduler.getTime(), 1e-6);
+        assertEquals(1, scheduler.getScheduledCount());
+    }
+
+    /**
+     * Random timers expire in order, whatever order they were scheduled in.
+     */
+    @Test
+    public void keepsHeapOrder() {
+        Random random = new Random(3);
+        for(int i = 0; i < 500; i++) {
+            timer("t" + i).schedule(random.nextFloat() * 10);
+        }
+        for(int step = 0; step < 100; step++) {
+            scheduler.advance(0.1f);
+        }
+        assertEquals(500, times.size());
+        for(int i = 1; i < times.size(); i++) {
+            assertTrue(times.get(i - 1) <= times.get(i));
+        }
+    }
+
+    /**
+     * Cancelling a timer in the middle of the heap removes only that timer.
+     */
+    @Test
+    public void cancelsNonRootTimers() {
+        List<Scheduler.Timer> timers = new ArrayList<>();
+        for(int i = 0; i < 10; i++) {
+            Scheduler.Timer timer = timer("t" + i);
+            timer.schedule(i + 1);
+            timers.add(timer);
+        }
+        timers.get(4).cancel();
+        timers.get(7).cancel();
+        timers.get(7).cancel();  // nothing happens
+        assertFalse(timers.get(4).isScheduled());
+        assertEquals(0, timers.get(4).getRemaining(), 0);
+        assertEquals(8, scheduler.getScheduledCount());
+
+        scheduler.advance(20);
+        assertEquals(Arrays.asList("t0", "t1", "t2", "t3", "t5", "t6", "t8", "t9"), expired);
+    }
+
+    /**
+     * Scheduling a timer that is already scheduled replaces its expiration,
+     * both earlier and later, without running it twice.
+     */
+    @Test
+    public void reschedulesInPlace() {
+        Scheduler.Timer a = timer("a");
+        Scheduler.Timer b = timer("b");
+        Scheduler.Timer c = timer("c");
+        a.schedule(1);
+        b.schedule(2);
+        c.schedule(3);
+
+        a.schedule(5);  // later
+        c.schedule(0.5f);  // earlier
+        assertEquals(3, scheduler.getScheduledCount());
+        assertEquals(5, a.getRemaining(), 1e-6);
+
+        scheduler.advance(1.5f);
+        b.schedule(1);  // from the current time
+        assertEquals(1, b.getRemaining(), 1e-6);
+        scheduler.advance(10);
+        assertEquals(Arrays.asList("c", "b", "a"), expired);
+        assertEquals(2.5, times.get(1), 1e-6);
+    }
+
+    /**
+     * A timer scheduled again by its own task counts from the time it
+     * expired, so it doesn't drift, however the time is advanced.
+     */
+    @Test
+    public void periodicTimersDontDrift() {
+        Scheduler.Timer[] timer = new Scheduler.Timer[1];
+        timer[0] = scheduler.createTimer(() -> {
+            times.add(scheduler.getTime());
+            timer[0].schedule(0.25f);
+        });
+        timer[0].schedule(0.25f);
+
+        // Advance by uneven frames, for 1000 seconds
+        Random random = new Random(5);
+        double end = 0;
+        while(end < 1000) {
+            float delta = 0.001f + random.nextFloat() * 0.05f;
+            scheduler.advance(delta);
+            end += delta;
+        }
+
+        int expected = (int) (scheduler.getTime() / 0.25);
+        assertEquals(expected, times.size());
+        for(int i = 0; i < times.size(); i++) {
+            assertEquals(0.25 * (i + 1), times.get(i), 1e-9);
+        }
+    }
+
+    /**
+     * Creates a timer that records when it expires.
+     * @param name Name of the timer.
+     * @return The timer.
+     */
+    private Scheduler.Timer timer(String name) {
+        return scheduler.createTimer(() -> {
+            expired.add(name);
+            times.add(scheduler.getTime());
+        });
+    }
+}
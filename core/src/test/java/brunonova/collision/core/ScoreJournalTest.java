@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link ScoreJournal}: replaying, recovering from torn and
+ * corrupted records, compacting and upgrading journals of the first version.
+ */
+public class ScoreJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private ScoreJournal journal;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "scores.journal");
+        journal = new ScoreJournal(file);
+    }
+
+    @After
+    public void tearDown() {
+        journal.close();
+    }
+
+    /**
+     * A new journal is created empty, and the appended entries are replayed
+     * in order when it's reopened.
+     */
+    @Test
+    public void replaysAppendedEntries() throws IOException {
+        assertTrue(journal.open().isEmpty());
+        assertTrue(file.exists());
+        List<ScoreJournal.Entry> added = entries(5);
+        for(ScoreJournal.Entry entry: added) {
+            journal.append(entry);
+        }
+        journal.close();
+
+        List<ScoreJournal.Entry> replayed = journal.open();
+        assertEntries(added, replayed);
+        assertEquals(0, journal.getSnapshotSize());
+        assertEquals(5, journal.getTailSize());
+    }
+
+    /**
+     * A record cut anywhere (the game crashed while writing it) is discarded,
+     * and the file is truncated to the last whole record, so the next records
+     * are appended after it.
+     */
+    @Test
+    public void truncatesTornTail() throws IOException {
+        List<ScoreJournal.Entry> added = entries(3);
+        journal.open();
+        journal.append(added.get(0));
+        journal.append(added.get(1));
+        journal.close();
+        long validLength = file.length();
+
+        // Cut the third record at every possible length
+        journal.open();
+        journal.append(added.get(2));
+        journal.close();
+        long fullLength = file.length();
+        byte[] whole = Files.readAllBytes(file.toPath());
+        for(long length = validLength + 1; length < fullLength; length++) {
+            try(FileOutputStream out = new FileOutputStream(file)) {
+                out.write(whole, 0, (int) length);
+            }
+            List<ScoreJournal.Entry> replayed = journal.open();
+            journal.close();
+            assertEntries(added.subList(0, 2), replayed);
+            assertEquals(validLength, file.length());
+        }
+
+        // The next record is appended right after the last whole one
+        journal.open();
+        journal.append(added.get(2));
+        journal.close();
+        assertEntries(added, journal.open());
+    }
+
+    /**
+     * A record whose checksum doesn't match is discarded with everything
+     * after it.
+     */
+    @Test
+    public void discardsCorruptedRecords() throws IOException {
+        List<ScoreJournal.Entry> added = entries(4);
+        journal.open();
+        journal.append(added.get(0));
+        journal.append(added.get(1));
+        journal.close();
+        long validLength = file.length();
+        journal.open();
+        journal.append(added.get(2));
+        journal.append(added.get(3));
+        journal.close();
+
+        // Flip a bit in the payload of the third record
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(validLength + 6);
+            int b = raf.read();
+            raf.seek(validLength + 6);
+            raf.write(b ^ 0x10);
+        }
+        assertEntries(added.subList(0, 2), journal.open());
+        assertEquals(validLength, file.length());
+    }
+
+    /**
+     * A record with an impossible length is discarded (instead of trying to
+     * allocate it).
+     */
+    @Test
+    public void discardsInvalidLengths() throws IOException {
+        List<ScoreJournal.Entry> added = entries(1);
+        journal.open();
+        journal.append(added.get(0));
+        journal.close();
+        long validLength = file.length();
+        try(DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeInt(12345);
+        }
+        assertEntries(added, journal.open());
+        assertEquals(validLength, file.length());
+    }
+
+    /**
+     * A file that isn't a journal is rejected (and left untouched).
+     */
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        try(FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not a journal".getBytes("UTF-8"));
+        }
+        journal.open();
+    }
+
+    /**
+     * The compaction replaces the journal with the snapshot, and the entries
+     * appended after it follow the snapshot when replayed.
+     */
+    @Test
+    public void compactsIntoSnapshot() throws IOException {
+        List<ScoreJournal.Entry> added = entries(6);
+        journal.open();
+        for(ScoreJournal.Entry entry: added) {
+            journal.append(entry);
+        }
+        List<ScoreJournal.Entry> snapshot = added.subList(2, 6);
+        journal.compact(snapshot);
+        assertEquals(4, journal.getSnapshotSize());
+        assertEquals(0, journal.getTailSize());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        ScoreJournal.Entry later = entry(GameMode.SWARM, Difficulty.HARD, "later", 7, 100);
+        journal.append(later);
+        journal.close();
+
+        List<ScoreJournal.Entry> expected = new ArrayList<>(snapshot);
+        expected.add(later);
+        assertEntries(expected, journal.open());
+        assertEquals(4, journal.getSnapshotSize());
+        assertEquals(1, journal.getTailSize());
+    }
+
+    /**
+     * A temporary file left by a compaction interrupted before replacing the
+     * journal doesn't change the journal, and is replaced by the next
+     * compaction.
+     */
+    @Test
+    public void ignoresInterruptedCompaction() throws IOException {
+        List<ScoreJournal.Entry> added = entries(3);
+        journal.open();
+        for(ScoreJournal.Entry entry: added) {
+            journal.append(entry);
+        }
+        journal.close();
+        try(FileOutputStream out = new FileOutputStream(file.getPath() + ".tmp")) {
+            out.write(new byte[] {0x43, 0x53, 0x4A});  // half-written header
+        }
+
+        assertEntries(added, journal.open());
+        journal.compact(added);
+        journal.close();
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEntries(added, journal.open());
+    }
+
+    /**
+     * Creates some entries with different modes, difficulties and scores.
+     * @param count Number of entries.
+     * @return The entries, numbered from 1.
+     */
+    private static List<ScoreJournal.Entry> entries(int count) {
+        List<ScoreJournal.Entry> entries = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            entries.add(entry(GameMode.values()[i % GameMode.values().length],
+                              Difficulty.values()[i % Difficulty.values().length], "player" + i, i + 1, i * 37));
+        }
+        return entries;
+    }
+
+    /**
+     * Creates an entry.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @param name The name of the player.
+     * @param sequence The sequence number.
+     * @param score The score.
+     * @return The entry.
+     */
+    private static ScoreJournal.Entry entry(GameMode mode, Difficulty difficulty, String name, long sequence,
+                                            int score) {
+        return new ScoreJournal.Entry(mode, difficulty, new HighScores.Score(name, score), sequence);
+    }
+
+    /**
+     * Asserts that two lists have the same entries.
+     * @param expected The expected entries.
+     * @param actual The actual entries.
+     */
+    private static void assertEntries(List<ScoreJournal.Entry> expected, List<ScoreJournal.Entry> actual) {
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    /**
+     * Describes entries, to compare them.
+     * @param entries The entries.
+     * @return A description of each entry.
+     */
+    private static List<String> describe(List<ScoreJournal.Entry> entries) {
+        String[] descriptions = new String[entries.size()];
+        for(int i = 0; i < descriptions.length; i++) {
+            ScoreJournal.Entry entry = entries.get(i);
+            descriptions[i] = entry.getMode() + "/" + entry.getDifficulty() + "/" + entry.getScore()
+                    + "#" + entry.getSequence();
+        }
+        return Arrays.asList(descriptions);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core;
+
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link ScoreTree}, against a sorted list of the same entries.
+ */
+public class ScoreTreeTest {
+    /** Order of the entries in the tree: best score first, then oldest. */
+    private static final Comparator<ScoreJournal.Entry> ORDER = (a, b) -> {
+        int result = Integer.compare(b.getScore().getScore(), a.getScore().getScore());
+        return result != 0 ? result : Long.compare(a.getSequence(), b.getSequence());
+    };
+
+    /**
+     * After each random insertion (with many equal scores), every query
+     * matches the sorted list.
+     */
+    @Test
+    public void matchesSortedList() {
+        Random random = new Random(42);
+        ScoreTree tree = ScoreTree.EMPTY;
+        List<ScoreJournal.Entry> oracle = new ArrayList<>();
+        for(int i = 0; i < 600; i++) {
+            ScoreJournal.Entry entry = entry(random.nextInt(50), i);
+            tree = tree.insert(entry);
+            oracle.add(entry);
+            Collections.sort(oracle, ORDER);
+            assertMatches(oracle, tree, random);
+        }
+    }
+
+    /**
+     * Inserting returns a new tree, and leaves the old one unchanged.
+     */
+    @Test
+    public void isPersistent() {
+        Random random = new Random(7);
+        List<ScoreTree> trees = new ArrayList<>();
+        List<List<ScoreJournal.Entry>> oracles = new ArrayList<>();
+        ScoreTree tree = ScoreTree.EMPTY;
+        List<ScoreJournal.Entry> oracle = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            trees.add(tree);
+            oracles.add(new ArrayList<>(oracle));
+            ScoreJournal.Entry entry = entry(random.nextInt(1000), i);
+            tree = tree.insert(entry);
+            oracle.add(entry);
+            Collections.sort(oracle, ORDER);
+        }
+        for(int i = 0; i < trees.size(); i++) {
+            assertMatches(oracles.get(i), trees.get(i), random);
+        }
+        assertEquals(0, ScoreTree.EMPTY.size());
+    }
+
+    /**
+     * A tree built from a sorted list matches the list, and grows like an
+     * inserted one.
+     */
+    @Test
+    public void buildsFromSortedList() {
+        Random random = new Random(3);
+        List<ScoreJournal.Entry> oracle = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            oracle.add(entry(random.nextInt(300), i));
+        }
+        Collections.sort(oracle, ORDER);
+        assertTrue(ScoreTree.isSorted(oracle));
+        ScoreTree tree = ScoreTree.fromSorted(oracle);
+        assertMatches(oracle, tree, random);
+
+        for(int i = 1000; i < 1100; i++) {
+            ScoreJournal.Entry entry = entry(random.nextInt(300), i);
+            tree = tree.insert(entry);
+            oracle.add(entry);
+        }
+        Collections.sort(oracle, ORDER);
+        assertMatches(oracle, tree, random);
+
+        assertSame(ScoreTree.EMPTY, ScoreTree.fromSorted(Collections.<ScoreJournal.Entry>emptyList()));
+        Collections.swap(oracle, 0, oracle.size() - 1);
+        assertFalse(ScoreTree.isSorted(oracle));
+    }
+
+    /**
+     * Inserting the entries in order (always at the same end of the tree)
+     * keeps the tree balanced: an unbalanced tree would be as deep as the
+     * number of entries, and overflow the stack.
+     */
+    @Test
+    public void staysBalancedWithOrderedInsertions() {
+        ScoreTree worstFirst = ScoreTree.EMPTY;
+        ScoreTree bestFirst = ScoreTree.EMPTY;
+        int count = 200000;
+        for(int i = 0; i < count; i++) {
+            worstFirst = worstFirst.insert(entry(i, i));
+            bestFirst = bestFirst.insert(entry(count - i, i));
+        }
+        assertEquals(count, worstFirst.size());
+        assertEquals(count - 1, worstFirst.get(0).getScore());
+        assertEquals(0, worstFirst.get(count - 1).getScore());
+        assertEquals(count, bestFirst.get(0).getScore());
+        assertEquals(1000, worstFirst.getRange(count - 1000, 5000).size());
+    }
+
+    /**
+     * Asserts that every query of a tree matches a sorted list.
+     * @param oracle The sorted entries.
+     * @param tree The tree.
+     * @param random Chooses the ranges and scores queried.
+     */
+    private static void assertMatches(List<ScoreJournal.Entry> oracle, ScoreTree tree, Random random) {
+        assertEquals(oracle.size(), tree.size());
+
+        // Every rank, in order
+        List<ScoreJournal.Entry> visited = new ArrayList<>();
+        tree.forEach(visited::add);
+        assertEquals(oracle, visited);
+        for(int i = 0; i < oracle.size(); i++) {
+            assertSame(oracle.get(i).getScore(), tree.get(i));
+            assertEquals(i, tree.indexOf(oracle.get(i)));
+        }
+
+        // Counts of better scores (including scores not in the tree)
+        for(int score = -1; score <= 1001; score += 1 + random.nextInt(20)) {
+            int better = 0, atLeast = 0;
+            for(ScoreJournal.Entry entry: oracle) {
+                if(entry.getScore().getScore() > score) better++;
+                if(entry.getScore().getScore() >= score) atLeast++;
+            }
+            assertEquals(better, tree.countBetter(score));
+            assertEquals(atLeast, tree.countAtLeast(score));
+        }
+
+        // Ranges, including ones that go past the end
+        for(int k = 0; k < 10; k++) {
+            int from = random.nextInt(oracle.size() + 5);
+            int count = random.nextInt(30);
+            List<HighScores.Score> expected = new ArrayList<>();
+            for(int i = from; i < Math.min(oracle.size(), from + count); i++) {
+                expected.add(oracle.get(i).getScore());
+            }
+            assertEquals(expected, tree.getRange(from, count));
+        }
+    }
+
+    /**
+     * Creates an entry.
+     * @param score The score.
+     * @param sequence The sequence number.
+     * @return The entry.
+     */
+    private static ScoreJournal.Entry entry(int score, long sequence) {
+        return new ScoreJournal.Entry(GameMode.TIME, Difficulty.EASY,
+                                      new HighScores.Score("player" + sequence, score), sequence);
+    }
+}
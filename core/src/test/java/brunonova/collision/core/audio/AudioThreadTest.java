@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.audio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link AudioThread} with sounds that record what they played.
+ */
+public class AudioThreadTest {
+    /**
+     * The commands are executed in the order they were sent, and a voice is
+     * stopped through the id its play returned.
+     */
+    @Test
+    public void executesInOrder() {
+        List<String> log = new ArrayList<>();
+        RecordingSound a = new RecordingSound("a", log);
+        RecordingSound b = new RecordingSound("b", log);
+        AudioThread thread = new AudioThread();
+        thread.start();
+
+        List<String> expected = new ArrayList<>();
+        // Fewer commands than the capacity, so none is rejected
+        for(int voice = 1; voice <= 600; voice += 2) {
+            assertTrue(thread.play(a, 0.5f, voice));
+            assertTrue(thread.play(b, 0.5f, voice + 1));
+            assertTrue(thread.stop(a, voice));
+            expected.add("a play " + (expected.size() + 1));
+            expected.add("b play " + (expected.size() + 1));
+            expected.add("a stop " + (expected.size() - 1));
+        }
+        thread.shutdown();
+        assertEquals(0, thread.getRejected());
+        assertEquals(expected, log);
+    }
+
+    /**
+     * When the buffer is full, the commands are rejected until the thread
+     * executes some, and the pending ones are executed on shutdown.
+     */
+    @Test
+    public void rejectsWhenFullAndDrainsOnShutdown() {
+        List<String> log = new ArrayList<>();
+        RecordingSound sound = new RecordingSound("s", log);
+        AudioThread thread = new AudioThread();
+
+        // Not started, so nothing is executed
+        for(int voice = 1; voice <= AudioThread.CAPACITY; voice++) {
+            assertTrue(thread.play(sound, voice / (float) AudioThread.CAPACITY, voice));
+        }
+        assertFalse(thread.play(sound, 1, AudioThread.CAPACITY + 1));
+        assertFalse(thread.stop(sound, 1));
+        assertEquals(2, thread.getRejected());
+        assertTrue(log.isEmpty());
+
+        thread.start();
+        thread.shutdown();
+        assertEquals(AudioThread.CAPACITY, log.size());
+        for(int i = 0; i < AudioThread.CAPACITY; i++) {
+            assertEquals("s play " + (i + 1), log.get(i));
+            assertEquals((i + 1) / (float) AudioThread.CAPACITY, sound.volumes.get(i), 0);
+        }
+
+        // Nothing is accepted after the shutdown
+        assertFalse(thread.play(sound, 1, AudioThread.CAPACITY + 2));
+    }
+
+    /**
+     * Stopping a voice whose slot was reused by a newer voice doesn't stop
+     * the newer one.
+     */
+    @Test
+    public void stopsOnlyItsOwnVoice() {
+        List<String> log = new ArrayList<>();
+        RecordingSound a = new RecordingSound("a", log);
+        RecordingSound b = new RecordingSound("b", log);
+        AudioThread thread = new AudioThread();
+        thread.start();
+
+        long reused = 1 + AudioThread.VOICE_SLOTS;
+        thread.play(a, 1, 1);
+        thread.play(b, 1, reused);
+        thread.stop(a, 1);
+        thread.stop(b, reused);
+        thread.shutdown();
+        assertEquals(Arrays.asList("a play 1", "b play 2", "b stop 2"), log);
+    }
+}
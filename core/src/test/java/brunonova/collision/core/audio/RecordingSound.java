@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.audio;
+
+import com.badlogic.gdx.audio.Sound;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link Sound} that only records the voices played and stopped, into a
+ * log shared by several sounds.
+ * <p>The log entries are "&lt;name&gt; play &lt;id&gt;" and
+ * "&lt;name&gt; stop &lt;id&gt;", where the ids are given by the log, in
+ * order from 1.</p>
+ */
+class RecordingSound implements Sound {
+    private final String name;
+    private final List<String> log;
+    /** Volumes of the voices played, in order. */
+    final List<Float> volumes = new ArrayList<>();
+
+    /**
+     * Creates the sound.
+     * @param name Name of the sound in the log.
+     * @param log The log (synchronized on while recording).
+     */
+    RecordingSound(String name, List<String> log) {
+        this.name = name;
+        this.log = log;
+    }
+
+    @Override
+    public long play(float volume) {
+        synchronized(log) {
+            volumes.add(volume);
+            long id = log.size() + 1;
+            log.add(name + " play " + id);
+            return id;
+        }
+    }
+
+    @Override
+    public void stop(long soundId) {
+        synchronized(log) {
+            log.add(name + " stop " + soundId);
+        }
+    }
+
+    @Override
+    public long play() {
+        return play(1);
+    }
+
+    @Override
+    public long play(float volume, float pitch, float pan) {
+        return play(volume);
+    }
+
+    @Override
+    public long loop() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long loop(float volume) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long loop(float volume, float pitch, float pan) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void stop() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void pause() {
+    }
+
+    @Override
+    public void resume() {
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void pause(long soundId) {
+    }
+
+    @Override
+    public void resume(long soundId) {
+    }
+
+    @Override
+    public void setLooping(long soundId, boolean looping) {
+    }
+
+    @Override
+    public void setPitch(long soundId, float pitch) {
+    }
+
+    @Override
+    public void setVolume(long soundId, float volume) {
+    }
+
+    @Override
+    public void setPan(long soundId, float pan, float volume) {
+    }
+}
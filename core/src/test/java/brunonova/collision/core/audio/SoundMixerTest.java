@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.audio;
+
+import brunonova.collision.core.audio.SoundMixer.Priority;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the {@link SoundMixer} with sounds that record what they played.
+ */
+public class SoundMixerTest {
+    /** Duration (seconds) of the voices, so they never end during a test. */
+    private static final float LONG_VOICE = 1000;
+    private static final float EPSILON = 1e-5f;
+
+    private final List<String> log = new ArrayList<>();
+    private AudioThread audioThread;
+    private SoundMixer mixer;
+
+    @Before
+    public void setUp() {
+        audioThread = new AudioThread();
+        audioThread.start();
+        mixer = new SoundMixer(audioThread);
+    }
+
+    @After
+    public void tearDown() {
+        audioThread.shutdown();
+    }
+
+    /**
+     * The requests of a sound in a frame are played once, louder the more
+     * they are, up to the maximum gain.
+     */
+    @Test
+    public void mergesRequests() {
+        RecordingSound sound = new RecordingSound("s", log);
+        mixer.play(sound, 0.2f);
+        mixer.play(sound, 0.4f);
+        mixer.play(sound, 0.3f);
+        mixer.play(sound, 0.1f);
+        mixer.play(sound, 0);  // ignored
+        mixer.flush();
+
+        // 256 requests would be 3 times louder, but the gain is capped at 2
+        for(int i = 0; i < 256; i++) {
+            mixer.play(sound, 0.3f);
+        }
+        mixer.flush();
+
+        // Never louder than 1
+        mixer.play(sound, 0.9f);
+        mixer.play(sound, 0.9f);
+        mixer.flush();
+        audioThread.shutdown();
+
+        assertEquals(3, sound.volumes.size());
+        assertEquals(0.4f * 1.5f, sound.volumes.get(0), EPSILON);
+        assertEquals(0.3f * 2, sound.volumes.get(1), EPSILON);
+        assertEquals(1, sound.volumes.get(2), EPSILON);
+        assertEquals(262, mixer.getRequests());
+        assertEquals(3, mixer.getPlayed());
+        assertEquals(259, mixer.getMerged());
+        assertEquals(0, mixer.getDropped());
+    }
+
+    /**
+     * A sound with all its voices playing drops new requests, unless it has
+     * a high priority, in which case it stops its oldest voices, in order.
+     */
+    @Test
+    public void capsVoices() {
+        RecordingSound normal = new RecordingSound("n", log);
+        RecordingSound high = new RecordingSound("h", log);
+        mixer.configure(normal, Priority.NORMAL, 2, LONG_VOICE);
+        mixer.configure(high, Priority.HIGH, 2, LONG_VOICE);
+
+        for(int frame = 0; frame < 4; frame++) {
+            mixer.play(normal, 1);
+            mixer.flush();
+        }
+        for(int frame = 0; frame < 4; frame++) {
+            mixer.play(high, 1);
+            mixer.flush();
+        }
+        audioThread.shutdown();
+
+        // The new voice is played before the oldest one is stopped
+        assertEquals(Arrays.asList("n play 1", "n play 2",
+                                   "h play 3", "h play 4",
+                                   "h play 5", "h stop 3",
+                                   "h play 7", "h stop 4"), log);
+        assertEquals(6, mixer.getPlayed());
+        assertEquals(2, mixer.getDropped());
+    }
+
+    /**
+     * A voice that ended no longer counts against the cap.
+     */
+    @Test
+    public void forgetsEndedVoices() throws InterruptedException {
+        RecordingSound sound = new RecordingSound("s", log);
+        mixer.configure(sound, Priority.NORMAL, 1, 0.01f);
+        mixer.play(sound, 1);
+        mixer.flush();
+        Thread.sleep(20);
+        mixer.play(sound, 1);
+        mixer.flush();
+        audioThread.shutdown();
+        assertEquals(Arrays.asList("s play 1", "s play 2"), log);
+    }
+
+    /**
+     * At most {@link SoundMixer#MAX_PLAYS_PER_FRAME} sounds are played per
+     * frame: the most important ones, then the loudest.
+     */
+    @Test
+    public void limitsPlaysPerFrame() {
+        List<RecordingSound> sounds = new ArrayList<>();
+        int count = SoundMixer.MAX_PLAYS_PER_FRAME + 4;
+        for(int i = 0; i < count; i++) {
+            RecordingSound sound = new RecordingSound("s" + i, log);
+            sounds.add(sound);
+            // The first two are of low priority (though the loudest), the
+            // last one of high priority (though the quietest)
+            Priority priority = i < 2 ? Priority.LOW : i == count - 1 ? Priority.HIGH : Priority.NORMAL;
+            mixer.configure(sound, priority, SoundMixer.DEFAULT_VOICE_CAP, LONG_VOICE);
+            mixer.play(sound, 1 - i / (float) count);
+        }
+        mixer.flush();
+
+        // The next frame has room again
+        mixer.play(sounds.get(0), 1);
+        mixer.flush();
+        audioThread.shutdown();
+
+        List<String> expected = new ArrayList<>();
+        expected.add("s" + (count - 1) + " play 1");
+        for(int i = 2; i < SoundMixer.MAX_PLAYS_PER_FRAME + 1; i++) {
+            expected.add("s" + i + " play " + i);
+        }
+        expected.add("s0 play " + (SoundMixer.MAX_PLAYS_PER_FRAME + 1));
+        assertEquals(expected, log);
+        assertEquals(SoundMixer.MAX_PLAYS_PER_FRAME + 1, mixer.getPlayed());
+        assertEquals(count - SoundMixer.MAX_PLAYS_PER_FRAME, mixer.getDropped());
+    }
+}
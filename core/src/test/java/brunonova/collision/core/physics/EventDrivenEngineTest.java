@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link EventDrivenEngine}.
+ */
+public class EventDrivenEngineTest {
+    private static final float WIDTH = 800;
+    private static final float HEIGHT = 480;
+    /** How much two balls can overlap because of rounding errors. */
+    private static final float TOLERANCE = 0.01f;
+
+    /**
+     * Random balls never overlap nor leave the world after a tick, and the
+     * collisions keep their kinetic energy.
+     */
+    @Test
+    public void keepsBallsApartAndConservesEnergy() {
+        Random random = new Random(11);
+        BallSystem balls = new BallSystem(WIDTH, HEIGHT);
+        while(balls.count < 150) {
+            // Place the balls without overlaps, with mixed sizes and masses
+            float radius = 5 + random.nextFloat() * 10;
+            float x = radius + random.nextFloat() * (WIDTH - 2 * radius);
+            float y = radius + random.nextFloat() * (HEIGHT - 2 * radius);
+            if(overlapsAny(balls, x, y, radius)) continue;
+            int ball = balls.add(x, y, radius, radius * radius);
+            balls.setSpeed(ball, (random.nextFloat() * 2 - 1) * 300, (random.nextFloat() * 2 - 1) * 300);
+            balls.setEnabled(ball, true);
+        }
+
+        EventDrivenEngine engine = new EventDrivenEngine(WIDTH, HEIGHT, 5, 15);
+        double energy = balls.getKineticEnergy();
+        for(int tick = 0; tick < 600; tick++) {
+            engine.advance(balls, 1 / 60f, null);
+            for(int a = 0; a < balls.count; a++) {
+                float r = balls.radius[a];
+                assertTrue(balls.x[a] >= r - TOLERANCE && balls.x[a] <= WIDTH - r + TOLERANCE);
+                assertTrue(balls.y[a] >= r - TOLERANCE && balls.y[a] <= HEIGHT - r + TOLERANCE);
+                for(int b = a + 1; b < balls.count; b++) {
+                    float deltaX = balls.x[a] - balls.x[b];
+                    float deltaY = balls.y[a] - balls.y[b];
+                    float distance = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+                    assertTrue("Balls " + a + " and " + b + " overlap at tick " + tick,
+                            distance >= r + balls.radius[b] - TOLERANCE);
+                }
+            }
+        }
+
+        assertEquals(energy, balls.getKineticEnergy(), energy * 1e-3);
+        assertTrue(engine.getCollisions() > 1000);
+        assertTrue(engine.getStaleEvents() > 0);
+    }
+
+    /**
+     * A collision predicted for a ball that bounced off another ball before
+     * it is skipped.
+     */
+    @Test
+    public void skipsStaleEvents() {
+        BallSystem balls = new BallSystem(400, 400);
+        int a = balls.add(100, 100, 5, 1);
+        int b = balls.add(130, 100, 5, 1);
+        int c = balls.add(130, 70, 5, 1);
+        for(int ball = 0; ball < balls.count; ball++) {
+            balls.setEnabled(ball, true);
+        }
+        // A hits B (at about 0.1 s), which would have hit C at 0.4 s but
+        // is knocked away from it
+        balls.setSpeed(a, 200, 0);
+        balls.setSpeed(b, 0, -50);
+
+        List<String> collisions = new ArrayList<>();
+        EventDrivenEngine engine = new EventDrivenEngine(400, 400, 5, 5);
+        engine.advance(balls, 0.5f, new CollisionEngine.Listener() {
+            @Override
+            public void wallCollision(int ball) {
+                collisions.add("wall " + ball);
+            }
+
+            @Override
+            public void ballCollision(int first, int second) {
+                collisions.add(Math.min(first, second) + "-" + Math.max(first, second));
+            }
+        });
+
+        assertEquals(1, collisions.size());
+        assertEquals(a + "-" + b, collisions.get(0));
+        assertFalse(balls.x[b] < 140);
+        assertEquals(1, engine.getStaleEvents());
+    }
+
+    /**
+     * Returns whether a new ball would overlap one of the balls.
+     * @param balls The balls.
+     * @param x X coordinate of the new ball.
+     * @param y Y coordinate of the new ball.
+     * @param radius Radius of the new ball.
+     * @return {@code true} if it overlaps a ball.
+     */
+    private static boolean overlapsAny(BallSystem balls, float x, float y, float radius) {
+        for(int i = 0; i < balls.count; i++) {
+            float deltaX = balls.x[i] - x;
+            float deltaY = balls.y[i] - y;
+            float distance = balls.radius[i] + radius;
+            if(deltaX * deltaX + deltaY * deltaY < distance * distance) return true;
+        }
+        return false;
+    }
+}
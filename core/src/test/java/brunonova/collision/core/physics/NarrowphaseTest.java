@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the overlap tests of the {@link Narrowphase} against a reference
+ * computed by sampling the shapes, and the queries of the
+ * {@link ColliderSet} against brute force.
+ */
+public class NarrowphaseTest {
+    /** Pairs closer than this to touching aren't compared with the reference. */
+    private static final float MARGIN = 0.5f;
+    /** Number of points sampled along a segment (or each side of a box). */
+    private static final int SAMPLES = 41;
+
+    /**
+     * Random pairs of shapes overlap if (and only if) the reference says so.
+     */
+    @Test
+    public void matchesSampledReference() {
+        Random random = new Random(1);
+        int compared = 0, overlapping = 0;
+        for(int i = 0; i < 20000; i++) {
+            Collider a = randomCollider(random, 60);
+            Collider b = randomCollider(random, 60);
+            float distance = distance(a, b);
+            float reach = reach(a) + reach(b);
+            if(Math.abs(distance - reach) < MARGIN) continue;
+
+            boolean expected = distance < reach;
+            String message = a.shape + " at " + a.x + "," + a.y + " and " + b.shape + " at " + b.x + "," + b.y;
+            assertEquals(message, expected, a.overlaps(b));
+            assertEquals(message, expected, b.overlaps(a));
+            compared++;
+            if(expected) overlapping++;
+        }
+
+        // Make sure both results were tested enough
+        assertTrue(overlapping > compared / 10);
+        assertTrue(overlapping < compared * 9 / 10);
+    }
+
+    /**
+     * Shapes inside or crossing others overlap, even if no end or corner of
+     * them is inside the other.
+     */
+    @Test
+    public void detectsContainedAndCrossingShapes() {
+        Collider box = new Collider(null);
+        box.setBox(20, 10);
+        box.setPosition(50, 50);
+
+        // A circle inside the box
+        Collider circle = new Collider(null);
+        circle.setCircle(2);
+        circle.setPosition(52, 49);
+        assertTrue(circle.overlaps(box));
+
+        // A thin capsule crossing the box, with both ends outside of it
+        Collider capsule = new Collider(null);
+        capsule.setCapsule(60, 0.1f);
+        capsule.setAngle(90);
+        capsule.setPosition(45, 50);
+        assertTrue(capsule.overlaps(box));
+        assertTrue(box.overlaps(capsule));
+
+        // The same capsule just to the left of the box
+        capsule.setPosition(39.8f, 50);
+        assertFalse(capsule.overlaps(box));
+
+        // Two crossing capsules, and two parallel ones
+        Collider other = new Collider(null);
+        other.setCapsule(60, 0.1f);
+        other.setAngle(0);
+        other.setPosition(45, 50);
+        assertTrue(capsule.overlaps(other));
+        other.setAngle(90);
+        other.setPosition(40, 50);
+        assertFalse(capsule.overlaps(other));
+        other.setPosition(39.95f, 80);
+        assertTrue(capsule.overlaps(other));
+    }
+
+    /**
+     * A query of the set finds exactly the colliders that overlap the queried
+     * one, including the ones too large for the grid.
+     */
+    @Test
+    public void queriesMatchBruteForce() {
+        Random random = new Random(2);
+        ColliderSet set = new ColliderSet(400, 400, 1, 10);
+        List<Collider> colliders = new ArrayList<>();
+        for(int i = 0; i < 500; i++) {
+            Collider collider = randomCollider(random, 400);
+            colliders.add(collider);
+            set.add(collider);
+        }
+
+        // Remove some of them
+        for(int i = 0; i < 50; i++) {
+            set.remove(colliders.remove(random.nextInt(colliders.size())));
+        }
+        assertEquals(colliders.size(), set.getCount());
+
+        set.build();
+        for(Collider collider: colliders) {
+            Set<Collider> expected = new HashSet<>();
+            for(Collider other: colliders) {
+                if(other != collider && collider.overlaps(other)) expected.add(other);
+            }
+            Set<Collider> found = new HashSet<>();
+            for(int k = set.query(collider); k > 0; k--) {
+                assertTrue("Repeated result", found.add(set.getResult(k - 1)));
+            }
+            assertEquals(expected, found);
+        }
+    }
+
+    /**
+     * Creates a random circle, box or capsule.
+     * @param random The random number generator.
+     * @param size Size of the square where it's placed.
+     * @return The collider.
+     */
+    private static Collider randomCollider(Random random, float size) {
+        Collider collider = new Collider(null);
+        switch(random.nextInt(3)) {
+            case 0:
+                collider.setCircle(1 + random.nextFloat() * 10);
+                break;
+            case 1:
+                collider.setBox(random.nextFloat() * 20, random.nextFloat() * 20);
+                break;
+            default:
+                collider.setCapsule(random.nextFloat() * 30, 1 + random.nextFloat() * 6);
+                collider.setAngle(random.nextFloat() * 360);
+                break;
+        }
+        collider.setPosition(random.nextFloat() * size, random.nextFloat() * size);
+        return collider;
+    }
+
+    /**
+     * Returns how far each point of a shape is from its core (its center,
+     * segment or box).
+     * @param collider The collider.
+     * @return The radius of the circle or capsule, or 0 for a box.
+     */
+    private static float reach(Collider collider) {
+        return collider.shape == Collider.Shape.BOX ? 0 : collider.radius;
+    }
+
+    /**
+     * Returns the (approximate) distance between the cores of two shapes,
+     * sampling the core of the first one. It's negative if the first is
+     * inside a box.
+     * @param a The first collider.
+     * @param b The second collider.
+     * @return The distance.
+     */
+    private static float distance(Collider a, Collider b) {
+        float best = Float.POSITIVE_INFINITY;
+        switch(a.shape) {
+            case CIRCLE:
+                best = distance(b, a.x, a.y);
+                break;
+            case CAPSULE:
+                for(int i = 0; i < SAMPLES; i++) {
+                    float t = (2f * i / (SAMPLES - 1) - 1) * a.halfLength;
+                    best = Math.min(best, distance(b, a.x + a.axisX * t, a.y + a.axisY * t));
+                }
+                break;
+            case BOX:
+                for(int i = 0; i < SAMPLES; i++) {
+                    for(int j = 0; j < SAMPLES; j++) {
+                        float x = a.x + (2f * i / (SAMPLES - 1) - 1) * a.halfWidth;
+                        float y = a.y + (2f * j / (SAMPLES - 1) - 1) * a.halfHeight;
+                        best = Math.min(best, distance(b, x, y));
+                    }
+                }
+                break;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the exact distance from a point to the core of a shape
+     * (negative if it's inside a box).
+     * @param collider The collider.
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @return The distance.
+     */
+    private static float distance(Collider collider, float x, float y) {
+        float deltaX = x - collider.x;
+        float deltaY = y - collider.y;
+        switch(collider.shape) {
+            case CAPSULE:
+                float t = deltaX * collider.axisX + deltaY * collider.axisY;
+                t = Math.max(-collider.halfLength, Math.min(collider.halfLength, t));
+                deltaX -= collider.axisX * t;
+                deltaY -= collider.axisY * t;
+                return (float) Math.hypot(deltaX, deltaY);
+            case BOX:
+                float outsideX = Math.abs(deltaX) - collider.halfWidth;
+                float outsideY = Math.abs(deltaY) - collider.halfHeight;
+                float outside = (float) Math.hypot(Math.max(outsideX, 0), Math.max(outsideY, 0));
+                return outside + Math.min(Math.max(outsideX, outsideY), 0);
+            default:
+                return (float) Math.hypot(deltaX, deltaY);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link NeighbourList} against the pairs found by brute force.
+ */
+public class NeighbourListTest {
+    private static final float WIDTH = 800;
+    private static final float HEIGHT = 480;
+    private static final float MIN_RADIUS = 4;
+    private static final float MAX_RADIUS = 20;
+
+    /**
+     * With a skin time of 0 every ball has the minimum skin, so after each
+     * update the list has exactly the pairs closer than the sum of their radii
+     * and skins, whether the moved balls were refreshed or the list rebuilt.
+     */
+    @Test
+    public void refreshesMovedBalls() {
+        Random random = new Random(42);
+        BallSystem balls = createBalls(random, 200);
+        NeighbourList list = new NeighbourList(WIDTH, HEIGHT, MIN_RADIUS, MAX_RADIUS, 0);
+        list.update(balls);
+        assertEquals(nearPairs(balls, 2 * NeighbourList.MIN_SKIN), listPairs(list));
+
+        for(int step = 0; step < 100; step++) {
+            // Move a few balls (sometimes the same ones again) farther than
+            // their skin
+            for(int k = random.nextInt(5) + 1; k > 0; k--) {
+                int ball = random.nextInt(random.nextBoolean() ? balls.count : 20);
+                balls.x[ball] = randomCoordinate(random, WIDTH);
+                balls.y[ball] = randomCoordinate(random, HEIGHT);
+            }
+            list.update(balls);
+            assertEquals(nearPairs(balls, 2 * NeighbourList.MIN_SKIN), listPairs(list));
+        }
+        assertTrue(list.getRefreshes() > NeighbourList.MAX_REFRESHED);
+        assertTrue(list.getRebuilds() > 1);
+    }
+
+    /**
+     * While the balls move (and are added and reordered), every pair of
+     * overlapping balls is always in the list.
+     */
+    @Test
+    public void coversOverlappingPairs() {
+        Random random = new Random(7);
+        BallSystem balls = createBalls(random, 300);
+        NeighbourList list = new NeighbourList(WIDTH, HEIGHT, MIN_RADIUS, MAX_RADIUS, 0.05f);
+        float delta = 1 / 60f;
+
+        for(int tick = 0; tick < 600; tick++) {
+            for(int i = 0; i < balls.count; i++) {
+                // Move the balls, bouncing off the walls
+                balls.x[i] += balls.speedX[i] * delta;
+                balls.y[i] += balls.speedY[i] * delta;
+                if(balls.x[i] < 0 || balls.x[i] > WIDTH) balls.speedX[i] = -balls.speedX[i];
+                if(balls.y[i] < 0 || balls.y[i] > HEIGHT) balls.speedY[i] = -balls.speedY[i];
+                if(random.nextInt(500) == 0) {
+                    balls.speedX[i] = randomSpeed(random);
+                    balls.speedY[i] = randomSpeed(random);
+                }
+            }
+            if(tick % 100 == 50) addBall(balls, random);
+            if(tick % 100 == 99) balls.sortByPosition();
+
+            list.update(balls);
+            Set<Long> pairs = listPairs(list);
+            for(long pair: nearPairs(balls, 0)) {
+                assertTrue("Missing pair at tick " + tick, pairs.contains(pair));
+            }
+        }
+        assertTrue(list.getRefreshes() > 0);
+        assertTrue(list.getRebuilds() > 10);
+    }
+
+    /**
+     * Creates balls in random positions, with random speeds.
+     * @param random The random number generator.
+     * @param count Number of balls.
+     * @return The balls.
+     */
+    private static BallSystem createBalls(Random random, int count) {
+        BallSystem balls = new BallSystem(WIDTH, HEIGHT);
+        for(int i = 0; i < count; i++) {
+            addBall(balls, random);
+        }
+        return balls;
+    }
+
+    /**
+     * Adds a ball in a random position, with a random speed.
+     * @param balls The balls.
+     * @param random The random number generator.
+     */
+    private static void addBall(BallSystem balls, Random random) {
+        float radius = MIN_RADIUS + random.nextFloat() * (MAX_RADIUS - MIN_RADIUS);
+        int ball = balls.add(randomCoordinate(random, WIDTH), randomCoordinate(random, HEIGHT), radius, 1);
+        balls.setSpeed(ball, randomSpeed(random), randomSpeed(random));
+    }
+
+    /**
+     * Returns a random coordinate inside the world.
+     * @param random The random number generator.
+     * @param size Width or height of the world.
+     * @return The coordinate.
+     */
+    private static float randomCoordinate(Random random, float size) {
+        return random.nextFloat() * size;
+    }
+
+    /**
+     * Returns a random speed along an axis.
+     * @param random The random number generator.
+     * @return The speed (up to 400 units per second either way).
+     */
+    private static float randomSpeed(Random random) {
+        return (random.nextFloat() * 2 - 1) * 400;
+    }
+
+    /**
+     * Finds by brute force the pairs of balls closer than the sum of their
+     * radii plus a margin.
+     * @param balls The balls.
+     * @param margin The margin.
+     * @return The pairs (see {@link #pair(int, int)}).
+     */
+    private static Set<Long> nearPairs(BallSystem balls, float margin) {
+        Set<Long> pairs = new HashSet<>();
+        for(int a = 0; a < balls.count; a++) {
+            for(int b = a + 1; b < balls.count; b++) {
+                float deltaX = balls.x[a] - balls.x[b];
+                float deltaY = balls.y[a] - balls.y[b];
+                float distance = balls.radius[a] + balls.radius[b] + margin;
+                if(deltaX * deltaX + deltaY * deltaY < distance * distance) pairs.add(pair(a, b));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns the pairs in the list, checking that none is repeated.
+     * @param list The list.
+     * @return The pairs (see {@link #pair(int, int)}).
+     */
+    private static Set<Long> listPairs(NeighbourList list) {
+        Set<Long> pairs = new HashSet<>();
+        for(int k = 0; k < list.getPairCount(); k++) {
+            int a = list.getPairA(k), b = list.getPairB(k);
+            assertTrue("Pair of a ball with itself", a != b);
+            assertTrue("Repeated pair", pairs.add(pair(a, b)));
+        }
+        return pairs;
+    }
+
+    /**
+     * Encodes a pair of balls, in any order, as a number.
+     * @param a Index of a ball.
+     * @param b Index of the other ball.
+     * @return The pair.
+     */
+    private static long pair(int a, int b) {
+        return (long) Math.min(a, b) << 32 | Math.max(a, b);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import java.util.Random;
+import java.util.function.Consumer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests how the {@link Obstacles} push circles out of them, and their tree.
+ */
+public class ObstaclesTest {
+    private static final float EPSILON = 1e-3f;
+
+    /**
+     * A circle overlapping a rectangle is pushed out through the nearest side
+     * (or the side it came from).
+     */
+    @Test
+    public void pushesOutOfRectangles() {
+        Obstacles obstacles = build(o -> o.addRectangle(100, 100, 100, 100));
+        assertPushed(obstacles, 105, 150, 105, 150, 5, 95, 150, -1, 0);
+        assertPushed(obstacles, 150, 250, 150, 196, 5, 150, 205, 0, 1);
+
+        // Coming from the left, it's pushed back to the left
+        assertPushed(obstacles, 90, 150, 130, 150, 5, 95, 150, -1, 0);
+
+        // Touching a corner from outside
+        assertTrue(obstacles.push(95, 95, 97, 97, 5));
+        assertEquals(5, Math.hypot(obstacles.getX() - 100, obstacles.getY() - 100), EPSILON);
+        assertFalse(obstacles.push(90, 90, 94, 94, 5));
+    }
+
+    /**
+     * A small, fast circle that went through a thin rectangle is pushed back
+     * to the side it came from, but not if it passed above or below it.
+     */
+    @Test
+    public void stopsTunnellingThroughRectangles() {
+        Obstacles obstacles = build(o -> {
+            o.addRectangle(100, 100, 2, 100);
+            o.addCircle(300, 450, 10);  // in the same leaf, so both are found
+        });
+        assertPushed(obstacles, 50, 150, 150, 160, 2, 98, 160, -1, 0);
+        assertPushed(obstacles, 150, 150, 50, 140, 2, 104, 140, 1, 0);
+
+        // Diagonally through the top
+        assertPushed(obstacles, 90, 210, 112, 190, 2, 112, 202, 0, 1);
+
+        // Passing far above it, or just past a corner
+        assertFalse(obstacles.push(50, 400, 150, 420, 2));
+        assertFalse(obstacles.push(50, 210, 150, 210, 2));
+        assertFalse(obstacles.push(98.8f, 206.8f, 108.8f, 196.8f, 2));
+
+        // Cutting a corner
+        assertTrue(obstacles.push(95, 203, 107, 197, 2));
+    }
+
+    /**
+     * A circle is pushed out of a circle along the line between the centers,
+     * and pushed back if it went through it.
+     */
+    @Test
+    public void pushesOutOfCircles() {
+        Obstacles obstacles = build(o -> o.addCircle(100, 100, 20));
+        assertPushed(obstacles, 130, 100, 115, 100, 5, 125, 100, 1, 0);
+        assertPushed(obstacles, 100, 130, 100, 110, 5, 100, 125, 0, 1);
+        assertFalse(obstacles.push(130, 130, 120, 120, 5));
+
+        // Went through it (and ended on the other side)
+        assertTrue(obstacles.push(50, 100, 150, 100, 5));
+        assertEquals(75, obstacles.getX(), EPSILON);
+        assertEquals(100, obstacles.getY(), EPSILON);
+        assertEquals(-1, obstacles.getNormalX(), EPSILON);
+
+        // Passed next to it
+        assertFalse(obstacles.push(50, 130, 150, 130, 5));
+    }
+
+    /**
+     * A circle is pushed out of a segment, and pushed back if it crossed it,
+     * but not if it crossed its line beyond its ends.
+     */
+    @Test
+    public void pushesOutOfSegments() {
+        Obstacles obstacles = build(o -> o.addSegment(100, 0, 100, 200));
+        assertPushed(obstacles, 90, 100, 97, 100, 5, 95, 100, -1, 0);
+
+        // Crossed it
+        assertPushed(obstacles, 90, 100, 130, 110, 5, 95, 110, -1, 0);
+        assertPushed(obstacles, 130, 50, 60, 50, 3, 103, 50, 1, 0);
+
+        // Crossed its line beyond its end
+        assertFalse(obstacles.push(90, 220, 130, 220, 5));
+    }
+
+    /**
+     * The tree finds the same obstacles as testing every one of them.
+     */
+    @Test
+    public void treeMatchesBruteForce() {
+        Random random = new Random(9);
+        Obstacles obstacles = new Obstacles();
+        for(int i = 0; i < 200; i++) {
+            float x = random.nextFloat() * 1000, y = random.nextFloat() * 1000;
+            switch(i % 3) {
+                case 0:
+                    obstacles.addRectangle(x, y, random.nextFloat() * 40, random.nextFloat() * 40);
+                    break;
+                case 1:
+                    obstacles.addCircle(x, y, 1 + random.nextFloat() * 20);
+                    break;
+                default:
+                    obstacles.addSegment(x, y, x + random.nextFloat() * 80 - 40, y + random.nextFloat() * 80 - 40);
+                    break;
+            }
+        }
+        obstacles.build();
+
+        int overlapping = 0;
+        for(int i = 0; i < 5000; i++) {
+            float x = random.nextFloat() * 1000, y = random.nextFloat() * 1000, radius = random.nextFloat() * 15;
+            boolean expected = false;
+            for(int k = 0; k < obstacles.getCount(); k++) {
+                expected |= obstacles.overlaps(k, x, y, radius);
+            }
+            assertEquals(expected, obstacles.overlaps(x, y, radius));
+            if(expected) overlapping++;
+        }
+        assertTrue(overlapping > 100);
+    }
+
+    /**
+     * Asserts that a moving circle is pushed to a position.
+     * @param obstacles The obstacles.
+     * @param previousX X coordinate of the circle before it moved.
+     * @param previousY Y coordinate of the circle before it moved.
+     * @param x X coordinate of the circle.
+     * @param y Y coordinate of the circle.
+     * @param radius Radius of the circle.
+     * @param expectedX Expected X coordinate after the push.
+     * @param expectedY Expected Y coordinate after the push.
+     * @param normalX Expected X coordinate of the normal.
+     * @param normalY Expected Y coordinate of the normal.
+     */
+    private static void assertPushed(Obstacles obstacles, float previousX, float previousY, float x, float y,
+                                     float radius, float expectedX, float expectedY, float normalX, float normalY) {
+        assertTrue(obstacles.push(previousX, previousY, x, y, radius));
+        assertEquals(expectedX, obstacles.getX(), EPSILON);
+        assertEquals(expectedY, obstacles.getY(), EPSILON);
+        assertEquals(normalX, obstacles.getNormalX(), EPSILON);
+        assertEquals(normalY, obstacles.getNormalY(), EPSILON);
+    }
+
+    /**
+     * Creates obstacles and builds their tree.
+     * @param adder Adds the obstacles.
+     * @return The obstacles.
+     */
+    private static Obstacles build(Consumer<Obstacles> adder) {
+        Obstacles obstacles = new Obstacles();
+        adder.accept(obstacles);
+        obstacles.build();
+        return obstacles;
+    }
+}
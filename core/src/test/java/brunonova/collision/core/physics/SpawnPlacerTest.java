@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.physics;
+
+import com.badlogic.gdx.math.MathUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the {@link SpawnPlacer} only finds free positions, until the
+ * world is full.
+ */
+public class SpawnPlacerTest {
+    private static final float WIDTH = 200;
+    private static final float HEIGHT = 120;
+    private static final float MIN_RADIUS = 4;
+    private static final float MAX_RADIUS = 8;
+    private static final float AVOID_X = 100;
+    private static final float AVOID_Y = 60;
+    private static final float MIN_DISTANCE = 30;
+    private static final float EPSILON = 1e-3f;
+
+    /**
+     * Fills a small world with balls, each placed where the placer says, and
+     * checks that no position it accepts overlaps a ball or an obstacle, is
+     * outside the world or is too close to the point to avoid. The world must
+     * end up full, with the placer then giving up.
+     */
+    @Test
+    public void fillsTheWorld() {
+        MathUtils.random.setSeed(7);
+        BallSystem balls = new BallSystem(WIDTH, HEIGHT);
+        Obstacles obstacles = new Obstacles();
+        obstacles.addRectangle(20, 20, 30, 10);
+        obstacles.addCircle(160, 90, 12);
+        obstacles.addSegment(150, 10, 190, 40);
+        obstacles.build();
+        balls.setObstacles(obstacles);
+        SpawnPlacer placer = new SpawnPlacer(balls, MIN_RADIUS, MAX_RADIUS);
+
+        // Place balls until not even the smallest one fits
+        int tries = 0;
+        while(tries++ < 10000) {
+            float radius = MathUtils.random(MIN_RADIUS, MAX_RADIUS);
+            if(!placer.place(radius, AVOID_X, AVOID_Y, MIN_DISTANCE)) {
+                radius = MIN_RADIUS;
+                if(!placer.place(radius, AVOID_X, AVOID_Y, MIN_DISTANCE)) break;
+            }
+            float x = placer.getX(), y = placer.getY();
+            assertTrue(isFree(balls, x, y, radius));
+            balls.add(x, y, radius, 1);
+
+            // Every few balls, as if they had moved
+            if(tries % 10 == 0) placer.invalidate();
+        }
+        assertTrue(tries < 10000);
+        assertTrue(balls.count > 50);
+
+        // Still full after rebuilding the grid
+        placer.invalidate();
+        assertFalse(placer.place(MIN_RADIUS, AVOID_X, AVOID_Y, MIN_DISTANCE));
+    }
+
+    /**
+     * Returns whether a position is inside the world, far enough from the
+     * point to avoid, and doesn't overlap any ball nor obstacle.
+     * @param balls The balls.
+     * @param x X coordinate of the center of the circle.
+     * @param y Y coordinate of the center of the circle.
+     * @param radius Radius of the circle.
+     * @return {@code true} if the position is free.
+     */
+    private static boolean isFree(BallSystem balls, float x, float y, float radius) {
+        if(x < radius - EPSILON || x > WIDTH - radius + EPSILON
+                || y < radius - EPSILON || y > HEIGHT - radius + EPSILON) return false;
+        if(Math.hypot(x - AVOID_X, y - AVOID_Y) < MIN_DISTANCE - EPSILON) return false;
+        Obstacles obstacles = balls.getObstacles();
+        for(int obstacle = 0; obstacle < obstacles.getCount(); obstacle++) {
+            if(obstacles.overlaps(obstacle, x, y, radius - EPSILON)) return false;
+        }
+        for(int ball = 0; ball < balls.count; ball++) {
+            if(Math.hypot(x - balls.x[ball], y - balls.y[ball]) < radius + balls.radius[ball] - EPSILON) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
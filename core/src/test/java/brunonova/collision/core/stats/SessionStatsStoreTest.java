@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.core.stats;
+
+import brunonova.collision.core.enums.BonusType;
+import brunonova.collision.core.enums.DeathCause;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link SessionStatsStore}, in particular how it recovers from
+ * column files left with different lengths.
+ */
+public class SessionStatsStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private SessionStatsStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder(SessionStatsStore.DIRECTORY);
+        store = new SessionStatsStore(directory);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    /**
+     * The sessions added to the store are loaded when it's reopened.
+     */
+    @Test
+    public void reloadsAddedSessions() {
+        store.open();
+        store.add(session(100, 2));
+        store.add(session(250, 0));
+        store.add(session(50, 1));
+
+        StatsSummary summary = reopen().summarize(GameMode.TIME, Difficulty.MEDIUM);
+        assertEquals(3, store.getCount());
+        assertEquals(3, summary.getCount());
+        assertEquals(250, summary.getBestScore());
+        assertEquals(3, summary.getBonusCount(BonusType.MISSILE));
+    }
+
+    /**
+     * A column with part of a value after its last row is truncated, so the
+     * sessions added afterwards aren't misaligned.
+     */
+    @Test
+    public void truncatesPartialValues() throws IOException {
+        store.open();
+        store.add(session(100, 1));
+        store.add(session(200, 1));
+        store.close();
+
+        // Simulate a crash while adding a session: the score column got half
+        // of its value and the duration column got all of it
+        File score = new File(directory, "score.col");
+        File duration = new File(directory, "duration.col");
+        append(score, 2);
+        append(duration, 4);
+
+        reopen();
+        assertEquals(2, store.getCount());
+        assertEquals(2 * 4, score.length());
+        assertEquals(2 * 4, duration.length());
+
+        // The sessions added later are read back correctly
+        store.add(session(300, 1));
+        StatsSummary summary = reopen().summarize(GameMode.TIME, Difficulty.MEDIUM);
+        assertEquals(3, store.getCount());
+        assertEquals(300, summary.getBestScore());
+        assertEquals((100 + 200 + 300) / 3f, summary.getAverageScore(), 0.001f);
+    }
+
+    /**
+     * A missing column (e.g. of a bonus type added in a new version) is
+     * created with zeros, keeping the values of the other columns.
+     */
+    @Test
+    public void fillsMissingColumns() {
+        store.open();
+        store.add(session(100, 2));
+        store.add(session(200, 3));
+        store.close();
+
+        File missiles = new File(directory, "bonus_missile_count.col");
+        assertTrue(missiles.delete());
+
+        StatsSummary summary = reopen().summarize(GameMode.TIME, Difficulty.MEDIUM);
+        assertEquals(2, store.getCount());
+        assertEquals(200, summary.getBestScore());
+        assertEquals(0, summary.getBonusCount(BonusType.MISSILE));
+        assertEquals(2 * 2, missiles.length());
+
+        store.add(session(300, 4));
+        summary = reopen().summarize(GameMode.TIME, Difficulty.MEDIUM);
+        assertEquals(3, store.getCount());
+        assertEquals(4, summary.getBonusCount(BonusType.MISSILE));
+    }
+
+    /**
+     * Closes and reopens the store.
+     * @return The store.
+     */
+    private SessionStatsStore reopen() {
+        store.close();
+        store = new SessionStatsStore(directory);
+        store.open();
+        return store;
+    }
+
+    /**
+     * Creates the statistics of a session.
+     * @param score The score.
+     * @param missiles Number of missile bonuses.
+     * @return The statistics.
+     */
+    private static SessionStats session(int score, int missiles) {
+        int[] bonusCounts = new int[BonusType.values().length];
+        float[] bonusTimes = new float[BonusType.values().length];
+        bonusCounts[BonusType.MISSILE.ordinal()] = missiles;
+        return new SessionStats(GameMode.TIME, Difficulty.MEDIUM, DeathCause.ENEMY, 30, score, 0, 3,
+                bonusCounts, bonusTimes);
+    }
+
+    /**
+     * Appends garbage bytes to a file.
+     * @param file The file.
+     * @param count Number of bytes.
+     */
+    private static void append(File file, int count) throws IOException {
+        try(FileOutputStream output = new FileOutputStream(file, true)) {
+            for(int i = 0; i < count; i++) {
+                output.write(0x7F);
+            }
+        }
+    }
+}
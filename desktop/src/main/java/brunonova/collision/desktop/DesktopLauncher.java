@@ -20,6 +20,8 @@ import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import brunonova.collision.core.Collision;
 import brunonova.collision.core.Constants;
+import brunonova.collision.core.StartupTracer;
+import brunonova.collision.core.leaderboard.LeaderboardProtocol;
 import com.badlogic.gdx.Files;
 import com.badlogic.gdx.Gdx;
 import java.io.IOException;
@@ -38,11 +40,20 @@ public class DesktopLauncher {
 
     public static void main(String[] args) {
         // Parse comand-line arguments
+        StartupTracer.begin("parse arguments");
         OptionParser parser = new OptionParser();
         parser.acceptsAll(Arrays.asList("l", "locale"), "use a different locale").withRequiredArg();
         parser.acceptsAll(Arrays.asList("h", "help"), "show this help message and exit")
                 .forHelp();
         parser.acceptsAll(Arrays.asList("v", "version"), "show program version");
+        parser.accepts("trace-startup", "print the startup timeline and export it as a Chrome trace (JSON)")
+                .withOptionalArg().describedAs("file").defaultsTo("startup-trace.json");
+        parser.accepts("leaderboard", "also send the scores to a shared leaderboard server")
+                .withRequiredArg().describedAs("host[:port]");
+        parser.accepts("world-size", "play in a world larger than the window (the camera follows the player)")
+                .withRequiredArg().describedAs("width x height");
+        parser.accepts("arena", "play in an arena with obstacles (pillars, rooms, forest, or a JSON file)")
+                .withRequiredArg().describedAs("name or file");
         OptionSet options = parser.parse(args);
 
         if(options.has("help")) {
@@ -65,7 +76,13 @@ public class DesktopLauncher {
             Locale.setDefault(Locale.forLanguageTag(locale));
         }
 
+        if(options.has("trace-startup")) {
+            StartupTracer.enable((String) options.valueOf("trace-startup"));
+        }
+        StartupTracer.end("parse arguments");
+
         // Configure the game
+        StartupTracer.begin("configure");
         LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
         config.title = "Collision";
         config.vSyncEnabled = true;
@@ -93,7 +110,41 @@ public class DesktopLauncher {
         config.addIcon(Constants.RES_PATH + "/icons/icon-32x32.png", Files.FileType.Internal);
         config.addIcon(Constants.RES_PATH + "/icons/icon-16x16.png", Files.FileType.Internal);
 
-        // Start the game
-        LwjglApplication app = new LwjglApplication(new Collision(config.width, config.height), config);
+        // Start the game (decoding the sounds in the worker threads)
+        Collision game = new Collision(config.width, config.height);
+        game.setSoundDecoder(new OpenALSoundDecoder());
+        game.setDataDirectory(config.preferencesDirectory, config.preferencesFileType);
+        if(options.has("leaderboard")) {
+            String address = (String) options.valueOf("leaderboard");
+            int colon = address.lastIndexOf(':');
+            try {
+                if(colon >= 0) {
+                    game.setLeaderboardServer(address.substring(0, colon),
+                            Integer.parseInt(address.substring(colon + 1)));
+                } else {
+                    game.setLeaderboardServer(address, LeaderboardProtocol.DEFAULT_PORT);
+                }
+            } catch(NumberFormatException ex) {
+                System.err.println("Invalid leaderboard server port: " + address);
+                System.exit(1);
+            }
+        }
+        if(options.has("world-size")) {
+            String size = (String) options.valueOf("world-size");
+            String[] parts = size.toLowerCase(Locale.ROOT).split("x");
+            try {
+                if(parts.length != 2) throw new NumberFormatException();
+                game.setWorldSize(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            } catch(NumberFormatException ex) {
+                System.err.println("Invalid world size (expected WIDTHxHEIGHT): " + size);
+                System.exit(1);
+            }
+        }
+        if(options.has("arena")) {
+            game.setArena((String) options.valueOf("arena"));
+        }
+        StartupTracer.end("configure");
+        StartupTracer.begin("LWJGL init");
+        LwjglApplication app = new LwjglApplication(game, config);
 	}
 }
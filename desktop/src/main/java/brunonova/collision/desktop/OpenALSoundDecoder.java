@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.desktop;
+
+import brunonova.collision.core.assets.SoundDecoder;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.backends.lwjgl.audio.OpenALAudio;
+import com.badlogic.gdx.backends.lwjgl.audio.OpenALSound;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.MP3Decoder;
+import javazoom.jl.decoder.OutputBuffer;
+
+/**
+ * Sound decoder for the LWJGL backend.
+ * <p>MP3 files are decoded into PCM samples in the worker thread (the same
+ * way as {@code Mp3.Sound} does), and only the OpenAL buffer is created in the
+ * render thread. Other files, or if the OpenAL backend isn't available, are
+ * loaded with {@link com.badlogic.gdx.Audio#newSound(FileHandle)}.</p>
+ */
+public class OpenALSoundDecoder implements SoundDecoder<OpenALSoundDecoder.DecodedSound> {
+    private static final String TAG = OpenALSoundDecoder.class.getName();
+
+    /** The package-private {@code OpenALSound.setup(byte[], int, int)} method. */
+    private static final Method SETUP_METHOD = findSetupMethod();
+
+    @Override
+    public DecodedSound decode(FileHandle file) {
+        if(SETUP_METHOD == null || !file.extension().equalsIgnoreCase("mp3")) {
+            return new DecodedSound(file, null, 0, 0);
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(4096);
+        Bitstream bitstream = new Bitstream(file.read());
+        MP3Decoder decoder = new MP3Decoder();
+        OutputBuffer outputBuffer = null;
+        int channels = 0, sampleRate = 0;
+        try {
+            while(true) {
+                Header header = bitstream.readFrame();
+                if(header == null) break;
+
+                if(outputBuffer == null) {
+                    channels = header.mode() == Header.SINGLE_CHANNEL ? 1 : 2;
+                    outputBuffer = new OutputBuffer(channels, false);
+                    decoder.setOutputBuffer(outputBuffer);
+                    sampleRate = header.getSampleRate();
+                }
+
+                try {
+                    decoder.decodeFrame(header, bitstream);
+                } catch(Exception ignored) {
+                    // Skip the frame, like Mp3.Sound does
+                }
+                bitstream.closeFrame();
+                output.write(outputBuffer.getBuffer(), 0, outputBuffer.reset());
+            }
+            bitstream.close();
+        } catch(Throwable ex) {
+            throw new GdxRuntimeException("Error reading audio data: " + file, ex);
+        }
+
+        return new DecodedSound(file, output.toByteArray(), channels, sampleRate);
+    }
+
+    @Override
+    public Sound create(DecodedSound decoded) {
+        if(decoded.pcm != null && Gdx.audio instanceof OpenALAudio) {
+            try {
+                OpenALSound sound = new OpenALSound((OpenALAudio) Gdx.audio);
+                SETUP_METHOD.invoke(sound, decoded.pcm, decoded.channels, decoded.sampleRate);
+                return sound;
+            } catch(ReflectiveOperationException ex) {
+                Gdx.app.error(TAG, "error creating OpenAL sound, falling back to Audio.newSound()", ex);
+            }
+        }
+        return Gdx.audio.newSound(decoded.file);
+    }
+
+    /**
+     * Finds the method that creates the OpenAL buffer of a sound.
+     * @return The method, or {@code null} if it wasn't found.
+     */
+    private static Method findSetupMethod() {
+        try {
+            Method method = OpenALSound.class.getDeclaredMethod("setup", byte[].class, int.class, int.class);
+            method.setAccessible(true);
+            return method;
+        } catch(ReflectiveOperationException | SecurityException ex) {
+            return null;
+        }
+    }
+
+
+    /**
+     * The PCM samples of a decoded sound.
+     */
+    public static class DecodedSound {
+        private final FileHandle file;
+        private final byte[] pcm;
+        private final int channels;
+        private final int sampleRate;
+
+        /**
+         * Creates the decoded sound.
+         * @param file The sound file.
+         * @param pcm The PCM samples, or {@code null} if the file wasn't
+         *            decoded.
+         * @param channels The number of channels.
+         * @param sampleRate The sample rate.
+         */
+        public DecodedSound(FileHandle file, byte[] pcm, int channels, int sampleRate) {
+            this.file = file;
+            this.pcm = pcm;
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.server;
+
+import brunonova.collision.core.HighScores;
+import brunonova.collision.core.ScoreJournal;
+import brunonova.collision.core.ScoreTree;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.leaderboard.LeaderboardProtocol;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * The shared leaderboard server.
+ * <p>A single thread serves all the clients with non-blocking sockets and a
+ * selector (see {@link LeaderboardProtocol}). While a client has responses
+ * waiting to be sent, its requests aren't read, so a slow client can't make
+ * the server queue an unbounded number of responses.</p>
+ */
+public class LeaderboardServer implements Closeable {
+    /** Initial size of the read buffer of each connection. */
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final LeaderboardTables tables;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+
+    /**
+     * Creates the server and binds it to an address.
+     * @param tables The (already loaded) leaderboard tables.
+     * @param address The address to listen on (port 0 to use any free port).
+     * @throws IOException If the server couldn't be bound to the address.
+     */
+    public LeaderboardServer(LeaderboardTables tables, InetSocketAddress address) throws IOException {
+        this.tables = tables;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch(IOException ex) {
+            serverChannel.close();
+            selector.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     * @return The port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Serves the clients until the server is closed.
+     */
+    public void run() {
+        try {
+            while(running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if(!key.isValid()) continue;
+
+                    try {
+                        if(key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if(key.isReadable()) read(key);
+                            if(key.isValid() && key.isWritable()) write(key);
+                        }
+                    } catch(IOException ex) {
+                        // The client disconnected or misbehaved
+                        closeConnection(key);
+                    }
+                }
+            }
+        } catch(IOException ex) {
+            System.err.println("Leaderboard server error: " + ex);
+        } finally {
+            // Close every connection
+            for(SelectionKey key: selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch(IOException ignored) {
+                }
+            }
+            try {
+                selector.close();
+            } catch(IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Stops the server (the thread running {@link #run()} returns shortly
+     * after).
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts a new client.
+     * @throws IOException If the client couldn't be accepted.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if(channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    /**
+     * Reads the available data of a client, and handles its complete
+     * requests.
+     * @param key The key of the client.
+     * @throws IOException If the client disconnected or sent an invalid frame.
+     */
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        if(channel.read(connection.readBuffer) < 0) {
+            closeConnection(key);
+            return;
+        }
+
+        // Handle every complete frame in the buffer
+        ByteBuffer buffer = connection.readBuffer;
+        buffer.flip();
+        while(buffer.remaining() >= 4 && !connection.closing) {
+            int length = buffer.getInt(buffer.position());
+            if(length <= 0 || length > LeaderboardProtocol.MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if(buffer.remaining() < 4 + length) {
+                // Incomplete frame: make sure it fits in the buffer
+                if(buffer.capacity() < 4 + length) {
+                    connection.readBuffer = ByteBuffer.allocate(4 + length);
+                }
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.position(buffer.position() + 4);
+            buffer.get(payload);
+            connection.writes.add(ByteBuffer.wrap(handleRequest(payload, connection)));
+        }
+        if(connection.readBuffer == buffer) {
+            buffer.compact();
+        } else {
+            connection.readBuffer.put(buffer);
+        }
+
+        // Send the responses
+        if(!connection.writes.isEmpty()) write(key);
+    }
+
+    /**
+     * Sends the queued responses of a client, as much as possible without
+     * blocking.
+     * @param key The key of the client.
+     * @throws IOException If the client disconnected.
+     */
+    private void write(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        while(!connection.writes.isEmpty()) {
+            ByteBuffer buffer = connection.writes.peek();
+            channel.write(buffer);
+            if(buffer.hasRemaining()) break;
+            connection.writes.poll();
+        }
+
+        if(connection.writes.isEmpty() && connection.closing) {
+            closeConnection(key);
+        } else {
+            // Only read more requests after all the responses were sent
+            key.interestOps(connection.writes.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Closes the connection of a client.
+     * @param key The key of the client.
+     */
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch(IOException ignored) {
+        }
+    }
+
+    /**
+     * Handles a request.
+     * @param payload The payload of the request.
+     * @param connection The connection of the client (it's marked to be
+     *                   closed if the request is invalid).
+     * @return The frame of the response.
+     */
+    private byte[] handleRequest(byte[] payload, Connection connection) {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        try {
+            byte type = input.readByte();
+            switch(type) {
+                case LeaderboardProtocol.SUBMIT:
+                    return handleSubmit(input);
+                case LeaderboardProtocol.TOP:
+                    return handleTop(input);
+                default:
+                    throw new IOException("Unknown request type: " + type);
+            }
+        } catch(IOException ex) {
+            // Send the error, then close the connection
+            connection.closing = true;
+            try {
+                LeaderboardProtocol.Message response = LeaderboardProtocol.newMessage(LeaderboardProtocol.ERROR);
+                response.writeUTF(String.valueOf(ex.getMessage()));
+                return response.toFrame();
+            } catch(IOException never) {
+                throw new IllegalStateException(never);
+            }
+        }
+    }
+
+    /**
+     * Handles a {@link LeaderboardProtocol#SUBMIT} request.
+     * @param input The request, after its type.
+     * @return The frame of the response.
+     * @throws IOException If the request is invalid or the scores couldn't be
+     *                     saved.
+     */
+    private byte[] handleSubmit(DataInputStream input) throws IOException {
+        long clientId = input.readLong();
+        int count = input.readInt();
+        if(count < 0 || count > LeaderboardProtocol.MAX_SCORES) {
+            throw new IOException("Invalid number of scores: " + count);
+        }
+        List<ScoreJournal.Entry> entries = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            entries.add(LeaderboardProtocol.readEntry(input));
+        }
+
+        long acknowledged = tables.submit(clientId, entries);
+        LeaderboardProtocol.Message response = LeaderboardProtocol.newMessage(LeaderboardProtocol.ACK);
+        response.writeLong(acknowledged);
+        return response.toFrame();
+    }
+
+    /**
+     * Handles a {@link LeaderboardProtocol#TOP} request.
+     * @param input The request, after its type.
+     * @return The frame of the response.
+     * @throws IOException If the request is invalid.
+     */
+    private byte[] handleTop(DataInputStream input) throws IOException {
+        GameMode mode = LeaderboardProtocol.readGameMode(input);
+        Difficulty difficulty = LeaderboardProtocol.readDifficulty(input);
+        int from = input.readInt();
+        int count = Math.min(input.readInt(), LeaderboardProtocol.MAX_SCORES);
+        if(from < 0 || count < 0) {
+            throw new IOException("Invalid range: " + from + ", " + count);
+        }
+
+        ScoreTree tree = tables.getTree(mode, difficulty);
+        List<HighScores.Score> scores = tree.getRange(from, count);
+        LeaderboardProtocol.Message response = LeaderboardProtocol.newMessage(LeaderboardProtocol.SCORES);
+        response.writeUTF(mode.name());
+        response.writeUTF(difficulty.name());
+        response.writeInt(tree.size());
+        response.writeInt(scores.size());
+        for(HighScores.Score score: scores) {
+            response.writeUTF(score.getName());
+            response.writeInt(score.getScore());
+        }
+        return response.toFrame();
+    }
+
+
+    /**
+     * The state of the connection of a client.
+     */
+    private static class Connection {
+        /** Received data not handled yet (in write mode). */
+        ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        /** Responses waiting to be sent. */
+        final Queue<ByteBuffer> writes = new ArrayDeque<>();
+        /** Whether to close the connection after sending the responses. */
+        boolean closing = false;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.server;
+
+import brunonova.collision.core.HighScores;
+import brunonova.collision.core.ScoreJournal;
+import brunonova.collision.core.ScoreTree;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ranked tables of the shared leaderboard, one per game mode and
+ * difficulty, persisted to a {@link ScoreJournal}.
+ * <p>The server keeps, for each client, the sequence number of the last
+ * score it received, so scores sent again by a client (because it didn't
+ * receive the acknowledgement) are ignored. This is only kept in memory, so
+ * it's lost if the server is restarted.</p>
+ * <p>This class isn't thread-safe (the server uses it from a single
+ * thread).</p>
+ */
+public class LeaderboardTables {
+    /** Minimum number of entries after the snapshot for the journal to be compacted. */
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final ScoreJournal journal;
+    private final ScoreTree[] trees = new ScoreTree[GameMode.values().length * Difficulty.values().length];
+    /** Sequence number of the last added score. */
+    private long lastSequence = 0;
+    /** Sequence number of the last score received from each client. */
+    private final Map<Long, Long> clientSequences = new HashMap<>();
+
+    /**
+     * Creates the tables (without loading them).
+     * @param journalFile The journal file.
+     */
+    public LeaderboardTables(File journalFile) {
+        this.journal = new ScoreJournal(journalFile);
+        for(int i = 0; i < trees.length; i++) {
+            trees[i] = ScoreTree.EMPTY;
+        }
+    }
+
+    /**
+     * Loads the tables from the journal (creating it if it doesn't exist).
+     * @throws IOException If the journal couldn't be read or created.
+     */
+    public void open() throws IOException {
+        List<ScoreJournal.Entry> entries = journal.open();
+        List<ScoreTree> loaded = HighScores.buildTrees(entries, (int) journal.getSnapshotSize());
+        for(int i = 0; i < trees.length; i++) {
+            trees[i] = loaded.get(i);
+        }
+        lastSequence = 0;
+        for(ScoreJournal.Entry entry: entries) {
+            lastSequence = Math.max(lastSequence, entry.getSequence());
+        }
+
+        if(needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Adds the scores sent by a client, ignoring the ones already received.
+     * @param clientId The id of the client.
+     * @param entries The scores, with the sequence numbers of the client.
+     * @return The sequence number of the last score received from the client.
+     * @throws IOException If the scores couldn't be written to the journal.
+     */
+    public long submit(long clientId, List<ScoreJournal.Entry> entries) throws IOException {
+        long clientSequence = clientSequences.getOrDefault(clientId, 0L);
+        try {
+            for(ScoreJournal.Entry received: entries) {
+                if(received.getSequence() <= clientSequence) continue;  // repeated
+
+                // Add the score with the sequence number of the server
+                ScoreJournal.Entry entry = new ScoreJournal.Entry(received.getMode(), received.getDifficulty(),
+                        received.getScore(), ++lastSequence);
+                journal.append(entry);
+                int table = HighScores.tableIndex(entry.getMode(), entry.getDifficulty());
+                trees[table] = trees[table].insert(entry);
+                clientSequence = received.getSequence();
+            }
+        } finally {
+            clientSequences.put(clientId, clientSequence);
+        }
+
+        if(needsCompaction()) {
+            compact();
+        }
+        return clientSequence;
+    }
+
+    /**
+     * Returns the tree with the scores of a game mode and difficulty.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @return The tree of scores.
+     */
+    public ScoreTree getTree(GameMode mode, Difficulty difficulty) {
+        return trees[HighScores.tableIndex(mode, difficulty)];
+    }
+
+    /**
+     * Closes the journal.
+     */
+    public void close() {
+        journal.close();
+    }
+
+    /**
+     * Returns whether the journal has enough unsorted entries to be
+     * compacted.
+     * @return {@code true} if the journal should be compacted.
+     */
+    private boolean needsCompaction() {
+        return journal.getTailSize() > Math.max(COMPACT_THRESHOLD, journal.getSnapshotSize() / 8);
+    }
+
+    /**
+     * Rewrites the journal with a sorted snapshot of the tables.
+     * @throws IOException If the journal couldn't be written.
+     */
+    private void compact() throws IOException {
+        List<ScoreJournal.Entry> entries = new ArrayList<>();
+        for(ScoreTree tree: trees) {
+            tree.forEach(entries::add);
+        }
+        journal.compact(entries);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.server;
+
+import brunonova.collision.core.leaderboard.LeaderboardProtocol;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+
+/**
+ * Launcher of the shared leaderboard server.
+ */
+public class ServerLauncher {
+    public static void main(String[] args) {
+        // Parse comand-line arguments
+        OptionParser parser = new OptionParser();
+        parser.acceptsAll(Arrays.asList("p", "port"), "port to listen on")
+                .withRequiredArg().ofType(Integer.class).defaultsTo(LeaderboardProtocol.DEFAULT_PORT);
+        parser.acceptsAll(Arrays.asList("b", "bind"), "address to listen on")
+                .withRequiredArg().defaultsTo("0.0.0.0");
+        parser.acceptsAll(Arrays.asList("j", "journal"), "file where the scores are stored")
+                .withRequiredArg().defaultsTo("leaderboard.journal");
+        parser.acceptsAll(Arrays.asList("h", "help"), "show this help message and exit")
+                .forHelp();
+        OptionSet options = parser.parse(args);
+
+        if(options.has("help")) {
+            try {
+                parser.printHelpOn(System.out);
+                System.exit(0);
+            } catch(IOException ex) {
+                System.err.println("Error showing help message: " + ex);
+                System.exit(1);
+            }
+        }
+
+        // Load the scores and start the server
+        File journalFile = new File((String) options.valueOf("journal"));
+        LeaderboardTables tables = new LeaderboardTables(journalFile);
+        LeaderboardServer server;
+        try {
+            tables.open();
+            server = new LeaderboardServer(tables, new InetSocketAddress(
+                    (String) options.valueOf("bind"), (Integer) options.valueOf("port")));
+        } catch(IOException ex) {
+            System.err.println("Error starting the leaderboard server: " + ex);
+            System.exit(1);
+            return;
+        }
+
+        // Stop the server and close the journal on exit
+        Thread serverThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                serverThread.join(5000);
+            } catch(InterruptedException ignored) {
+            }
+        }));
+
+        System.out.println("Leaderboard server listening on port " + server.getPort()
+                + " (scores in " + journalFile.getAbsolutePath() + ")");
+        server.run();
+        tables.close();
+    }
+}
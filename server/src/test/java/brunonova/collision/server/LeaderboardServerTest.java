@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2017 Bruno Nova <brunomb.nova@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package brunonova.collision.server;
+
+import brunonova.collision.core.HighScores;
+import brunonova.collision.core.ScoreJournal;
+import brunonova.collision.core.enums.Difficulty;
+import brunonova.collision.core.enums.GameMode;
+import brunonova.collision.core.leaderboard.LeaderboardClient;
+import brunonova.collision.core.leaderboard.LeaderboardProtocol;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link LeaderboardServer} on a loopback port, with the
+ * {@link LeaderboardClient} and with raw protocol requests.
+ */
+public class LeaderboardServerTest {
+    /** Maximum time (milliseconds) to wait for the client. */
+    private static final long TIMEOUT = 15000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File journalFile;
+    private LeaderboardTables tables;
+    private LeaderboardServer server;
+    private Thread serverThread;
+    private LeaderboardClient client;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // The client logs through Gdx.app, which only needs to accept the
+        // calls here
+        if(Gdx.app == null) {
+            Gdx.app = (Application) Proxy.newProxyInstance(Application.class.getClassLoader(),
+                    new Class<?>[] {Application.class}, (proxy, method, args) -> null);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        journalFile = new File(folder.getRoot(), "leaderboard.journal");
+        startServer(0);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if(client != null) client.close();
+        stopServer();
+    }
+
+    /**
+     * The scores submitted by the client are acknowledged and ranked.
+     */
+    @Test
+    public void acknowledgesSubmittedScores() throws IOException {
+        client = new LeaderboardClient("127.0.0.1", server.getPort());
+        client.start();
+        client.submit(GameMode.TIME, Difficulty.EASY, new HighScores.Score("Alice", 120));
+        client.submit(GameMode.TIME, Difficulty.EASY, new HighScores.Score("Bob", 300));
+        client.submit(GameMode.COINS, Difficulty.HARD, new HighScores.Score("Carol", 15));
+        waitUntil(() -> client.getPendingCount() == 0);
+        assertTrue(client.isConnected());
+
+        // The cached best scores are refreshed after sending them (the Coins
+        // mode is refreshed after the Time mode)
+        waitUntil(() -> client.getTopScores(GameMode.COINS, Difficulty.HARD).size() == 1);
+        assertScores(client.getTopScores(GameMode.TIME, Difficulty.EASY), "Bob", 300, "Alice", 120);
+        assertScores(client.getTopScores(GameMode.COINS, Difficulty.HARD), "Carol", 15);
+
+        try(Socket socket = connect()) {
+            assertEquals(2, top(socket, GameMode.TIME, Difficulty.EASY, 0, 10).size());
+        }
+    }
+
+    /**
+     * Scores sent again by a client (with the same client id and sequence
+     * numbers) are acknowledged but only added once.
+     */
+    @Test
+    public void ignoresRepeatedScores() throws IOException {
+        try(Socket socket = connect()) {
+            List<ScoreJournal.Entry> batch = new ArrayList<>();
+            batch.add(entry("Alice", 100, 1));
+            batch.add(entry("Bob", 200, 2));
+            assertEquals(2, submit(socket, 42, batch));
+
+            // Resend the batch with a new score, as if the ack was lost
+            batch.add(entry("Carol", 300, 3));
+            assertEquals(3, submit(socket, 42, batch));
+            assertEquals(3, submit(socket, 42, batch));
+
+            // Another client can use the same sequence numbers
+            assertEquals(1, submit(socket, 43, Arrays.asList(entry("Dave", 50, 1))));
+
+            assertScores(top(socket, GameMode.SWARM, Difficulty.MEDIUM, 0, 10),
+                    "Carol", 300, "Bob", 200, "Alice", 100, "Dave", 50);
+        }
+    }
+
+    /**
+     * The client keeps the scores while the server is down, and sends them
+     * when it comes back.
+     */
+    @Test
+    public void retriesAfterRestart() throws IOException, InterruptedException {
+        client = new LeaderboardClient("127.0.0.1", server.getPort());
+        client.start();
+        client.submit(GameMode.TIME, Difficulty.MEDIUM, new HighScores.Score("Alice", 100));
+        waitUntil(() -> client.getPendingCount() == 0);
+
+        // Stop the server and submit more scores
+        int port = server.getPort();
+        stopServer();
+        client.submit(GameMode.TIME, Difficulty.MEDIUM, new HighScores.Score("Bob", 200));
+        client.submit(GameMode.TIME, Difficulty.MEDIUM, new HighScores.Score("Carol", 50));
+        waitUntil(() -> !client.isConnected());
+        assertEquals(2, client.getPendingCount());
+
+        // Restart it on the same port (reloading the journal)
+        startServer(port);
+        waitUntil(() -> client.getPendingCount() == 0);
+        try(Socket socket = connect()) {
+            assertScores(top(socket, GameMode.TIME, Difficulty.MEDIUM, 0, 10),
+                    "Bob", 200, "Alice", 100, "Carol", 50);
+        }
+    }
+
+    /**
+     * A TOP request returns the requested range of the ranked scores.
+     */
+    @Test
+    public void returnsRangesOfScores() throws IOException {
+        try(Socket socket = connect()) {
+            List<ScoreJournal.Entry> batch = new ArrayList<>();
+            for(int i = 1; i <= 20; i++) {
+                batch.add(entry("P" + i, i * 10, i));
+            }
+            assertEquals(20, submit(socket, 7, batch));
+
+            assertScores(top(socket, GameMode.SWARM, Difficulty.MEDIUM, 0, 3),
+                    "P20", 200, "P19", 190, "P18", 180);
+            assertScores(top(socket, GameMode.SWARM, Difficulty.MEDIUM, 17, 10),
+                    "P3", 30, "P2", 20, "P1", 10);
+            assertScores(top(socket, GameMode.SWARM, Difficulty.MEDIUM, 20, 10));
+            assertScores(top(socket, GameMode.TIME, Difficulty.MEDIUM, 0, 10));
+        }
+    }
+
+    /**
+     * Loads the tables and starts the server in a new thread.
+     * @param port The port (0 to use any free port).
+     */
+    private void startServer(int port) throws IOException {
+        tables = new LeaderboardTables(journalFile);
+        tables.open();
+        server = new LeaderboardServer(tables, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverThread = new Thread(server::run, "leaderboard-server");
+        serverThread.start();
+    }
+
+    /**
+     * Stops the server and closes the tables.
+     */
+    private void stopServer() throws InterruptedException {
+        if(server == null) return;
+        server.close();
+        serverThread.join(TIMEOUT);
+        tables.close();
+        server = null;
+    }
+
+    /**
+     * Opens a raw connection to the server.
+     * @return The socket.
+     */
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout((int) TIMEOUT);
+        return socket;
+    }
+
+    /**
+     * Sends a {@link LeaderboardProtocol#SUBMIT} request.
+     * @param socket The connection.
+     * @param clientId The id of the client.
+     * @param entries The scores.
+     * @return The acknowledged sequence number.
+     */
+    private static long submit(Socket socket, long clientId, List<ScoreJournal.Entry> entries) throws IOException {
+        LeaderboardProtocol.Message request = LeaderboardProtocol.newMessage(LeaderboardProtocol.SUBMIT);
+        request.writeLong(clientId);
+        request.writeInt(entries.size());
+        for(ScoreJournal.Entry entry: entries) {
+            LeaderboardProtocol.writeEntry(request, entry);
+        }
+        return request(socket, request, LeaderboardProtocol.ACK).readLong();
+    }
+
+    /**
+     * Sends a {@link LeaderboardProtocol#TOP} request.
+     * @param socket The connection.
+     * @param mode The game mode.
+     * @param difficulty The difficulty.
+     * @param from Index of the first score.
+     * @param count Maximum number of scores.
+     * @return The scores.
+     */
+    private static List<HighScores.Score> top(Socket socket, GameMode mode, Difficulty difficulty,
+                                              int from, int count) throws IOException {
+        LeaderboardProtocol.Message request = LeaderboardProtocol.newMessage(LeaderboardProtocol.TOP);
+        request.writeUTF(mode.name());
+        request.writeUTF(difficulty.name());
+        request.writeInt(from);
+        request.writeInt(count);
+
+        DataInputStream response = request(socket, request, LeaderboardProtocol.SCORES);
+        assertEquals(mode, LeaderboardProtocol.readGameMode(response));
+        assertEquals(difficulty, LeaderboardProtocol.readDifficulty(response));
+        response.readInt();  // total number of scores
+        List<HighScores.Score> scores = new ArrayList<>();
+        for(int i = response.readInt(); i > 0; i--) {
+            String name = response.readUTF();
+            scores.add(new HighScores.Score(name, response.readInt()));
+        }
+        return scores;
+    }
+
+    /**
+     * Sends a request and reads the response.
+     * @param socket The connection.
+     * @param request The request.
+     * @param type The expected type of the response.
+     * @return The payload of the response, after its type.
+     */
+    private static DataInputStream request(Socket socket, LeaderboardProtocol.Message request, byte type)
+            throws IOException {
+        socket.getOutputStream().write(request.toFrame());
+        DataInputStream input = new DataInputStream(socket.getInputStream());
+        byte[] payload = new byte[input.readInt()];
+        input.readFully(payload);
+        assertEquals(type, payload[0]);
+        DataInputStream response = new DataInputStream(new ByteArrayInputStream(payload));
+        response.readByte();
+        return response;
+    }
+
+    /**
+     * Creates a score entry of the Swarm mode on medium difficulty.
+     * @param name Name of the player.
+     * @param score The score.
+     * @param sequence Sequence number of the client.
+     * @return The entry.
+     */
+    private static ScoreJournal.Entry entry(String name, int score, long sequence) {
+        return new ScoreJournal.Entry(GameMode.SWARM, Difficulty.MEDIUM, new HighScores.Score(name, score), sequence);
+    }
+
+    /**
+     * Asserts that a list has the expected scores.
+     * @param scores The scores.
+     * @param expected Pairs of names and scores.
+     */
+    private static void assertScores(List<HighScores.Score> scores, Object... expected) {
+        assertEquals(expected.length / 2, scores.size());
+        for(int i = 0; i < scores.size(); i++) {
+            assertEquals(expected[2 * i], scores.get(i).getName());
+            assertEquals(expected[2 * i + 1], scores.get(i).getScore());
+        }
+    }
+
+    /**
+     * Waits until a condition is true.
+     * @param condition The condition.
+     */
+    private static void waitUntil(BooleanSupplier condition) {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while(!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < end);
+            try {
+                Thread.sleep(10);
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}